@@ -20,16 +20,16 @@
 package org.apache.ranger.audit.destination;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.security.PrivilegedAction;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditWriterFactory;
 import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJSONEncoder;
 import org.apache.ranger.audit.utils.RangerAuditWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +47,8 @@ public class HDFSAuditDestination extends AuditDestination {
 	private boolean             initDone                = false;
 	private boolean             isStopped               = false;
 
+	private final AuthzAuditEventJSONEncoder jsonEncoder = new AuthzAuditEventJSONEncoder(); // guarded by this
+
 	@Override
 	public void init(Properties prop, String propPrefix) {
 		super.init(prop, propPrefix);
@@ -97,6 +99,41 @@ synchronized public boolean logJSON(final Collection<String> events) {
 		return true;
 	}
 
+	synchronized boolean logJSON(final ByteBuffer events, int eventCount) {
+		logStatusIfRequired();
+		addTotalCount(eventCount);
+
+		if (!initDone) {
+			addDeferredCount(eventCount);
+			return false;
+		}
+		if (isStopped) {
+			addDeferredCount(eventCount);
+			logError("log() called after stop was requested. name=" + getName());
+			return false;
+		}
+		try {
+			boolean ret = auditWriter.logJSON(events);
+			if (!ret) {
+				addDeferredCount(eventCount);
+				return false;
+			}
+		} catch (Throwable t) {
+			addDeferredCount(eventCount);
+			logError("Error writing to log file.", t);
+			return false;
+		} finally {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Flushing HDFS audit. Event Size:" + eventCount);
+			}
+			if (auditWriter != null) {
+				flush();
+			}
+		}
+		addSuccessCount(eventCount);
+		return true;
+	}
+
 	@Override
 	synchronized public boolean logFile(final File file)  {
 		logStatusIfRequired();
@@ -149,7 +186,7 @@ public Void run() {
 	 * org.apache.ranger.audit.provider.AuditProvider#log(java.util.Collection)
 	 */
 	@Override
-	public boolean log(Collection<AuditEventBase> events) {
+	synchronized public boolean log(Collection<AuditEventBase> events) {
 		if (isStopped) {
 			logStatusIfRequired();
 			addTotalCount(events.size());
@@ -157,10 +194,14 @@ public boolean log(Collection<AuditEventBase> events) {
 			logError("log() called after stop was requested. name=" + getName());
 			return false;
 		}
-		List<String> jsonList = new ArrayList<String>();
+		// events are encoded into one UTF-8 buffer, which the writer copies to the file as it is
+		int eventCount = 0;
+		jsonEncoder.reset();
 		for (AuditEventBase event : events) {
 			try {
-				jsonList.add(MiscUtil.stringify(event));
+				jsonEncoder.encode(event);
+				jsonEncoder.newLine();
+				eventCount++;
 			} catch (Throwable t) {
 				logger.error("Error converting to JSON. event=" + event);
 				addTotalCount(1);
@@ -168,7 +209,7 @@ public boolean log(Collection<AuditEventBase> events) {
 				logFailedEvent(event);
 			}
 		}
-		return logJSON(jsonList);
+		return logJSON(jsonEncoder.getBuffer(), eventCount);
 
 	}
 
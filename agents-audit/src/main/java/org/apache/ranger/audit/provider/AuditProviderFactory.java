@@ -35,6 +35,7 @@
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditFileQueue;
 import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditRingBufferQueue;
 import org.apache.ranger.audit.queue.AuditSummaryQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +61,7 @@ public class AuditProviderFactory {
 	public static final String AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC = "xasecure.audit.shutdown.hook.max.wait.seconds";
 	public static final String AUDIT_IS_FILE_CACHE_PROVIDER_ENABLE_PROP = "xasecure.audit.provider.filecache.is.enabled";
 	public static final String FILE_QUEUE_TYPE	  = "filequeue";
+	public static final String RING_QUEUE_TYPE	  = "ringqueue";
 	public static final String DEFAULT_QUEUE_TYPE = "memoryqueue";
 	public static final int AUDIT_SHUTDOWN_HOOK_MAX_WAIT_SEC_DEFAULT = 30;
 
@@ -260,8 +262,9 @@ public synchronized void init(Properties props, String appType) {
 
 			if (!isAuditFileCacheProviderEnabled) {
 				// Create the AsysnQueue
-				AuditAsyncQueue asyncQueue = new AuditAsyncQueue(consumer);
 				propPrefix = BaseAuditHandler.PROP_DEFAULT_PREFIX + "." + "async";
+				String queueType = MiscUtil.getStringProperty(props, propPrefix + "." + "queuetype", DEFAULT_QUEUE_TYPE);
+				AuditQueue asyncQueue = RING_QUEUE_TYPE.equalsIgnoreCase(queueType) ? new AuditRingBufferQueue(consumer) : new AuditAsyncQueue(consumer);
 				asyncQueue.init(props, propPrefix);
 				asyncQueue.setParentPath(componentAppType);
 				mProvider = asyncQueue;
@@ -459,6 +462,8 @@ private AuditHandler getAuditProvider(Properties props, String propPrefix, Audit
 			String         propPrefixFileQueue = propPrefix + "." + FILE_QUEUE_TYPE;
 			auditFileQueue.init(props, propPrefixFileQueue);
 			ret = new AuditBatchQueue(auditFileQueue);
+		} else if (RING_QUEUE_TYPE.equalsIgnoreCase(queueType)) {
+			ret = new AuditRingBufferQueue(consumer);
 		} else {
 			ret = new AuditBatchQueue(consumer);
 		}
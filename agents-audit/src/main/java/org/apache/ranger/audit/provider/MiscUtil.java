@@ -54,6 +54,8 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.util.KerberosName;
 import org.apache.hadoop.security.authentication.util.KerberosUtil;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.utils.AuthzAuditEventJSONEncoder;
 import org.apache.ranger.authorization.hadoop.utils.RangerCredentialProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -314,6 +316,9 @@ public static <T> String stringify(T log) {
 		if (log != null) {
 			if (log instanceof String) {
 				ret = (String) log;
+			} else if (log instanceof AuditEventBase && AuthzAuditEventJSONEncoder.isSupported((AuditEventBase) log)) {
+				// same JSON as Gson, without reflection
+				ret = AuthzAuditEventJSONEncoder.toJson((AuditEventBase) log);
 			} else if (MiscUtil.sGsonBuilder != null) {
 				ret = MiscUtil.sGsonBuilder.toJson(log);
 			} else {
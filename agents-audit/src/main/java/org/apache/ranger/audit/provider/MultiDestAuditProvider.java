@@ -20,10 +20,13 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.queue.AuditDestinationDispatcher;
+import org.apache.ranger.audit.queue.AuditQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +38,14 @@ public class MultiDestAuditProvider extends BaseAuditHandler {
 	protected List<AuditHandler> mProviders = new ArrayList<AuditHandler>();
 	static final String DEFAULT_NAME = "multi_dest";
 
+	public static final String PROP_FANOUT         = "fanout";
+	public static final String PROP_FANOUT_ENABLED = "enabled";
+
+	// when fan-out is enabled, each destination is fed by its own dispatcher thread
+	private          boolean                          fanOutEnabled    = false;
+	private          String                           fanOutPropPrefix = null;
+	private volatile List<AuditDestinationDispatcher> mDispatchers     = Collections.emptyList();
+
 	public MultiDestAuditProvider() {
 		LOG.info("MultiDestAuditProvider: creating..");
 		setName(DEFAULT_NAME);
@@ -61,6 +72,22 @@ public void init(Properties props) {
 						+ provider.getClass().getCanonicalName() + ")", excp);
 			}
 		}
+
+		fanOutPropPrefix = propPrefix + "." + DEFAULT_NAME + "." + PROP_FANOUT;
+		fanOutEnabled    = MiscUtil.getBooleanProperty(props, fanOutPropPrefix + "." + PROP_FANOUT_ENABLED, false);
+
+		LOG.info(fanOutPropPrefix + "." + PROP_FANOUT_ENABLED + "=" + fanOutEnabled);
+	}
+
+	public boolean isFanOutEnabled() {
+		return fanOutEnabled;
+	}
+
+	/**
+	 * @return dispatchers feeding the destinations, in the order of destinations; empty unless fan-out is enabled and started
+	 */
+	public List<AuditDestinationDispatcher> getDispatchers() {
+		return mDispatchers;
 	}
 
 	@Override
@@ -110,6 +137,10 @@ public void addAuditProviders(List<AuditHandler> providers) {
 
 	@Override
 	public boolean log(AuditEventBase event) {
+		if (!mDispatchers.isEmpty()) {
+			return dispatch(Collections.singletonList(event));
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.log(event);
@@ -122,6 +153,11 @@ public boolean log(AuditEventBase event) {
 
 	@Override
 	public boolean log(Collection<AuditEventBase> events) {
+		if (!mDispatchers.isEmpty()) {
+			// callers reuse their batch buffer; take one copy here and share it with all dispatchers
+			return dispatch(Collections.unmodifiableList(new ArrayList<AuditEventBase>(events)));
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.log(events);
@@ -134,6 +170,11 @@ public boolean log(Collection<AuditEventBase> events) {
 
 	@Override
 	public boolean logJSON(String event) {
+		if (!mDispatchers.isEmpty()) {
+			// parse once, instead of once per destination
+			return super.logJSON(event);
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.logJSON(event);
@@ -146,6 +187,10 @@ public boolean logJSON(String event) {
 
 	@Override
 	public boolean logJSON(Collection<String> events) {
+		if (!mDispatchers.isEmpty()) {
+			return super.logJSON(events);
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.logJSON(events);
@@ -171,6 +216,12 @@ public boolean logFile(File file) {
 
 	@Override
 	public void start() {
+		if (fanOutEnabled && mProviders.size() > 1) {
+			startDispatchers();
+
+			return;
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.start();
@@ -183,6 +234,20 @@ public void start() {
 
 	@Override
 	public void stop() {
+		if (!mDispatchers.isEmpty()) {
+			// each dispatcher stops its destination after draining its queue
+			for (AuditDestinationDispatcher dispatcher : mDispatchers) {
+				try {
+					dispatcher.stop();
+				} catch (Throwable excp) {
+					LOG.error("MultiDestAuditProvider.stop(): failed for dispatcher { "
+							+ dispatcher.getName() + " }", excp);
+				}
+			}
+
+			return;
+		}
+
 		for (AuditHandler provider : mProviders) {
 			try {
 				provider.stop();
@@ -195,7 +260,7 @@ public void stop() {
 
 	@Override
 	public void waitToComplete() {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getConsumers()) {
 			try {
 				provider.waitToComplete();
 			} catch (Throwable excp) {
@@ -208,7 +273,7 @@ public void waitToComplete() {
 
 	@Override
 	public void waitToComplete(long timeout) {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getConsumers()) {
 			try {
 				provider.waitToComplete(timeout);
 			} catch (Throwable excp) {
@@ -221,7 +286,7 @@ public void waitToComplete(long timeout) {
 
 	@Override
 	public void flush() {
-		for (AuditHandler provider : mProviders) {
+		for (AuditHandler provider : getConsumers()) {
 			try {
 				provider.flush();
 			} catch (Throwable excp) {
@@ -230,4 +295,66 @@ public void flush() {
 			}
 		}
 	}
+
+	private List<? extends AuditHandler> getConsumers() {
+		return mDispatchers.isEmpty() ? mProviders : mDispatchers;
+	}
+
+	private boolean dispatch(List<AuditEventBase> events) {
+		for (AuditDestinationDispatcher dispatcher : mDispatchers) {
+			try {
+				dispatcher.log(events);
+			} catch (Throwable excp) {
+				logFailedEvent(events, excp);
+			}
+		}
+		return true;
+	}
+
+	private void startDispatchers() {
+		List<AuditDestinationDispatcher> dispatchers = new ArrayList<AuditDestinationDispatcher>(mProviders.size());
+
+		for (AuditHandler provider : mProviders) {
+			String                     destName   = getDestinationName(provider);
+			AuditDestinationDispatcher dispatcher = new AuditDestinationDispatcher(provider, fanOutPropPrefix);
+
+			dispatcher.init(props, fanOutPropPrefix + "." + destName);
+			dispatcher.setParentPath(getName());
+
+			if (provider instanceof AuditQueue) {
+				LOG.info("MultiDestAuditProvider.start(): destination " + destName + " has its own queue, which retries and spools failed batches");
+			}
+
+			// keep the destination named as without fan-out, so that names of its spool files don't change
+			if (provider instanceof BaseAuditHandler) {
+				((BaseAuditHandler) provider).setParentPath(getName());
+			}
+
+			dispatchers.add(dispatcher);
+
+			try {
+				dispatcher.start();
+			} catch (Throwable excp) {
+				LOG.error("MultiDestAuditProvider.start(): failed for provider { "
+						+ provider.getClass().getName() + " }", excp);
+			}
+		}
+
+		LOG.info("MultiDestAuditProvider.start(): fan-out to " + dispatchers.size() + " destinations. name=" + getName());
+
+		mDispatchers = Collections.unmodifiableList(dispatchers);
+	}
+
+	private static String getDestinationName(AuditHandler provider) {
+		String ret = provider instanceof BaseAuditHandler ? ((BaseAuditHandler) provider).getFinalPath() : provider.getName();
+
+		if (ret == null || ret.isEmpty()) {
+			ret = provider.getClass().getSimpleName();
+		} else {
+			// final path has the names of queues before the destination, like multi_dest.batch.hdfs
+			ret = ret.substring(ret.lastIndexOf('.') + 1);
+		}
+
+		return ret;
+	}
 }
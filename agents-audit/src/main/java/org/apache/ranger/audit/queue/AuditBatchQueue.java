@@ -35,7 +35,7 @@
 public class AuditBatchQueue extends AuditQueue implements Runnable {
 	private static final Logger logger = LoggerFactory.getLogger(AuditBatchQueue.class);
 
-	private BlockingQueue<AuditEventBase> queue = null;
+	protected BlockingQueue<AuditEventBase> queue = null;
 	private Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
 
 	Thread consumerThread = null;
@@ -89,6 +89,19 @@ public void init(Properties prop, String basePropertyName) {
 
 	}
 
+	public int size() {
+		return queue != null ? queue.size() : 0;
+	}
+
+	/**
+	 * Creates the queue between the producers and the consumer thread; called on start().
+	 */
+	protected BlockingQueue<AuditEventBase> createQueue(int maxQueueSize) {
+		logger.info("Creating ArrayBlockingQueue with maxSize=" + maxQueueSize);
+
+		return new ArrayBlockingQueue<AuditEventBase>(maxQueueSize);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -100,9 +113,7 @@ synchronized public void start() {
 			logger.error("Provider is already started. name=" + getName());
 			return;
 		}
-		logger.info("Creating ArrayBlockingQueue with maxSize="
-				+ getMaxQueueSize());
-		queue = new ArrayBlockingQueue<AuditEventBase>(getMaxQueueSize());
+		queue = createQueue(getMaxQueueSize());
 
 		// Start the consumer first
 		consumer.start();
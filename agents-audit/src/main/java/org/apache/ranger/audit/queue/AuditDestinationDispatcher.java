@@ -0,0 +1,526 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Delivers event batches to one destination on its own thread, so that a slow or failing destination doesn't hold up
+ * the others. Batches are queued by reference and must not be modified after log() is called. A batch that can't be
+ * delivered after the configured retries is stashed in the file spool, if one is enabled for the destination.
+ *
+ * Retries and spooling apply only when the destination reports failures from log(), that is when it is configured
+ * with queue=none. A destination behind its own queue (like the default batch queue) accepts every batch, and retries
+ * and spools by itself; the dispatcher then only keeps that queue's put() off the caller's thread.
+ */
+public class AuditDestinationDispatcher extends AuditQueue implements Runnable {
+	private static final Logger LOG = LoggerFactory.getLogger(AuditDestinationDispatcher.class);
+
+	public static final String PROP_RETRY_MAX_ATTEMPTS   = "retry.max.attempts";
+	public static final String PROP_RETRY_BACKOFF_MS     = "retry.backoff.ms";
+	public static final String PROP_RETRY_BACKOFF_MAX_MS = "retry.backoff.max.ms";
+	public static final String PROP_ENQUEUE_TIMEOUT_MS   = "enqueue.timeout.ms";
+
+	static final int  DEFAULT_QUEUE_SIZE           = 1024; // batches
+	static final int  DEFAULT_RETRY_MAX_ATTEMPTS   = 3;
+	static final long DEFAULT_RETRY_BACKOFF_MS     = 500;
+	static final long DEFAULT_RETRY_BACKOFF_MAX_MS = 30 * 1000;
+	static final long DEFAULT_ENQUEUE_TIMEOUT_MS   = -1; // wait until there is room in the queue
+
+	static int threadCount = 0;
+
+	private final String defaultPropPrefix;
+
+	private int  retryMaxAttempts  = DEFAULT_RETRY_MAX_ATTEMPTS;
+	private long retryBackoffMs    = DEFAULT_RETRY_BACKOFF_MS;
+	private long retryBackoffMaxMs = DEFAULT_RETRY_BACKOFF_MAX_MS;
+	private long enqueueTimeoutMs  = DEFAULT_ENQUEUE_TIMEOUT_MS;
+
+	private BlockingQueue<Batch> queue          = null;
+	private Thread               consumerThread = null;
+	private volatile Batch       inFlightBatch  = null;
+
+	private final AtomicInteger pendingBatchCount = new AtomicInteger(); // queued or being delivered
+
+	private final LongAdder enqueuedEventCount   = new LongAdder();
+	private final LongAdder dispatchedEventCount = new LongAdder();
+	private final LongAdder dispatchedBatchCount = new LongAdder();
+	private final LongAdder dispatchTimeMs       = new LongAdder();
+	private final LongAdder retryCount           = new LongAdder();
+	private final LongAdder spooledEventCount    = new LongAdder();
+	private final LongAdder droppedEventCount    = new LongAdder();
+
+	private volatile long lastLagMs = 0;
+	private volatile long maxLagMs  = 0;
+
+	/**
+	 * @param consumer          destination to deliver the batches to
+	 * @param defaultPropPrefix prefix for properties shared by all dispatchers; the prefix given to init() overrides them
+	 */
+	public AuditDestinationDispatcher(AuditHandler consumer, String defaultPropPrefix) {
+		super(consumer);
+
+		this.defaultPropPrefix = defaultPropPrefix;
+
+		setMaxQueueSize(DEFAULT_QUEUE_SIZE);
+	}
+
+	@Override
+	public void init(Properties props, String basePropertyName) {
+		if (defaultPropPrefix != null) {
+			setMaxQueueSize(MiscUtil.getIntProperty(props, defaultPropPrefix + "." + PROP_QUEUE_SIZE, getMaxQueueSize()));
+
+			retryMaxAttempts  = MiscUtil.getIntProperty(props, defaultPropPrefix + "." + PROP_RETRY_MAX_ATTEMPTS, retryMaxAttempts);
+			retryBackoffMs    = MiscUtil.getLongProperty(props, defaultPropPrefix + "." + PROP_RETRY_BACKOFF_MS, retryBackoffMs);
+			retryBackoffMaxMs = MiscUtil.getLongProperty(props, defaultPropPrefix + "." + PROP_RETRY_BACKOFF_MAX_MS, retryBackoffMaxMs);
+			enqueueTimeoutMs  = MiscUtil.getLongProperty(props, defaultPropPrefix + "." + PROP_ENQUEUE_TIMEOUT_MS, enqueueTimeoutMs);
+		}
+
+		super.init(getSpoolProperties(props, basePropertyName), basePropertyName);
+
+		retryMaxAttempts  = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_RETRY_MAX_ATTEMPTS, retryMaxAttempts);
+		retryBackoffMs    = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_RETRY_BACKOFF_MS, retryBackoffMs);
+		retryBackoffMaxMs = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_RETRY_BACKOFF_MAX_MS, retryBackoffMaxMs);
+		enqueueTimeoutMs  = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_ENQUEUE_TIMEOUT_MS, enqueueTimeoutMs);
+
+		if (retryMaxAttempts < 0) {
+			retryMaxAttempts = 0;
+		}
+
+		if (retryBackoffMaxMs < retryBackoffMs) {
+			retryBackoffMaxMs = retryBackoffMs;
+		}
+
+		LOG.info("AuditDestinationDispatcher.init(): name=" + getName() + ", queueSize=" + getMaxQueueSize()
+				+ ", retryMaxAttempts=" + retryMaxAttempts + ", retryBackoffMs=" + retryBackoffMs
+				+ ", retryBackoffMaxMs=" + retryBackoffMaxMs + ", enqueueTimeoutMs=" + enqueueTimeoutMs);
+	}
+
+	@Override
+	public boolean log(AuditEventBase event) {
+		return log(Collections.singletonList(event));
+	}
+
+	/**
+	 * Queues the batch for the consumer thread, without copying it. When the queue is full, waits for room; if
+	 * enqueueTimeoutMs is 0 or more and the queue stays full that long, the batch is stashed in the file spool or, when
+	 * there is no spool, dropped.
+	 */
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		if (events == null || events.isEmpty()) {
+			return true;
+		}
+
+		final BlockingQueue<Batch> queue = this.queue;
+
+		if (queue == null) {
+			LOG.error("AuditDestinationDispatcher.log(): dispatcher is not started. name=" + getName());
+
+			return false;
+		}
+
+		boolean ret   = false;
+		Batch   batch = new Batch(events, System.currentTimeMillis());
+
+		pendingBatchCount.incrementAndGet();
+
+		try {
+			if (enqueueTimeoutMs < 0) {
+				queue.put(batch);
+
+				ret = true;
+			} else {
+				ret = queue.offer(batch, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException excp) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (ret) {
+			enqueuedEventCount.add(events.size());
+		} else {
+			pendingBatchCount.decrementAndGet();
+
+			if (fileSpoolerEnabled) {
+				fileSpooler.stashLogs(events);
+
+				spooledEventCount.add(events.size());
+
+				ret = true;
+			} else {
+				droppedEventCount.add(events.size());
+
+				logFailedEvent(events, "dispatch queue is full. name=" + getName());
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	synchronized public void start() {
+		if (consumerThread != null) {
+			LOG.error("Provider is already started. name=" + getName());
+			return;
+		}
+
+		LOG.info("Creating ArrayBlockingQueue with maxSize=" + getMaxQueueSize() + " batches. name=" + getName());
+
+		queue = new ArrayBlockingQueue<>(getMaxQueueSize());
+
+		consumer.start();
+
+		if (fileSpoolerEnabled) {
+			fileSpooler.start();
+		}
+
+		consumerThread = new Thread(this, this.getClass().getName() + (threadCount++));
+		consumerThread.setDaemon(true);
+		consumerThread.start();
+	}
+
+	@Override
+	public void stop() {
+		LOG.info("Stop called. name=" + getName());
+
+		setDrain(true);
+
+		try {
+			if (consumerThread != null) {
+				consumerThread.interrupt();
+			}
+		} catch (Throwable t) {
+			// ignore any exception
+		}
+
+		consumerThread = null;
+	}
+
+	@Override
+	public void waitToComplete() {
+		waitToComplete(-1);
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		long startTime = System.currentTimeMillis();
+
+		while (queue != null && pendingBatchCount.get() > 0) {
+			if (timeout > 0 && (System.currentTimeMillis() - startTime) > timeout) {
+				LOG.warn("Timed out waiting for dispatch to complete. name=" + getName() + ", queue.size=" + queue.size());
+				break;
+			}
+
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+
+		consumer.waitToComplete(timeout);
+	}
+
+	@Override
+	public void flush() {
+		if (fileSpoolerEnabled) {
+			fileSpooler.flush();
+		}
+
+		consumer.flush();
+	}
+
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			LOG.error("Exited thread abnormaly. queue=" + getName(), t);
+		}
+	}
+
+	public void runLogAudit() {
+		while (true) {
+			logStatusIfRequired();
+
+			Batch batch = null;
+
+			try {
+				batch = isDrain() ? queue.poll() : queue.poll(getMaxBatchInterval(), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				LOG.info("Caught exception in consumer thread. Shutdown might be in progress");
+				setDrain(true);
+			}
+
+			if (batch != null) {
+				dispatch(batch);
+			} else if (isDrain() && queue.isEmpty()) {
+				break;
+			}
+		}
+
+		LOG.info("Exiting consumerThread. Queue = {}, dest = {}", getName(), consumer.getName());
+
+		try {
+			consumer.stop();
+
+			if (fileSpoolerEnabled) {
+				fileSpooler.stop();
+			}
+		} catch (Throwable t) {
+			LOG.error("Error while calling stop on consumer.", t);
+		}
+
+		logStatus();
+	}
+
+	public int getQueueSize() {
+		final BlockingQueue<Batch> queue = this.queue;
+
+		return queue != null ? queue.size() : 0;
+	}
+
+	/**
+	 * @return age in milliseconds of the oldest batch not yet delivered, or 0 if none is pending
+	 */
+	public long getLagMs() {
+		Batch oldest = inFlightBatch;
+
+		if (oldest == null && queue != null) {
+			oldest = queue.peek();
+		}
+
+		return oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.enqueueTime) : 0;
+	}
+
+	/**
+	 * @return time in milliseconds from enqueue to completed delivery of the last delivered batch
+	 */
+	public long getLastLagMs() {
+		return lastLagMs;
+	}
+
+	public long getMaxLagMs() {
+		return maxLagMs;
+	}
+
+	public long getEnqueuedEventCount() {
+		return enqueuedEventCount.sum();
+	}
+
+	public long getDispatchedEventCount() {
+		return dispatchedEventCount.sum();
+	}
+
+	public long getDispatchedBatchCount() {
+		return dispatchedBatchCount.sum();
+	}
+
+	public long getDispatchTimeMs() {
+		return dispatchTimeMs.sum();
+	}
+
+	public long getRetryCount() {
+		return retryCount.sum();
+	}
+
+	public long getSpooledEventCount() {
+		return spooledEventCount.sum();
+	}
+
+	public long getDroppedEventCount() {
+		return droppedEventCount.sum();
+	}
+
+	@Override
+	public void logStatus() {
+		super.logStatus();
+
+		if (isStatusLogEnabled()) {
+			long dispatchedEvents = getDispatchedEventCount();
+			long dispatchTime     = getDispatchTimeMs();
+
+			LOG.info("Audit Dispatch Status: name=" + getName()
+					+ ", queueSize=" + getQueueSize()
+					+ ", lagMs=" + getLagMs()
+					+ ", maxLagMs=" + maxLagMs
+					+ ", dispatchedEvents=" + dispatchedEvents
+					+ ", dispatchedBatches=" + getDispatchedBatchCount()
+					+ ", eventsPerSec=" + (dispatchTime > 0 ? (dispatchedEvents * 1000 / dispatchTime) : 0)
+					+ ", retries=" + getRetryCount()
+					+ ", spooledEvents=" + getSpooledEventCount()
+					+ ", droppedEvents=" + getDroppedEventCount());
+		}
+	}
+
+	private void dispatch(Batch batch) {
+		final Collection<AuditEventBase> events = batch.events;
+		final int                        count  = events.size();
+
+		inFlightBatch = batch;
+
+		addTotalCount(count);
+
+		try {
+			if (fileSpoolerEnabled && fileSpooler.isPending()) {
+				// keep the order with events already in the spool; the spooler delivers them once the destination is back
+				stash(events);
+
+				return;
+			}
+
+			boolean isSuccess = false;
+			long    backoffMs = retryBackoffMs;
+
+			for (int attempt = 0; ; attempt++) {
+				long startTime = System.currentTimeMillis();
+
+				try {
+					isSuccess = consumer.log(events);
+				} catch (Throwable excp) {
+					logError("Error while sending audit batch to destination. name=" + getName(), excp);
+
+					isSuccess = false;
+				}
+
+				dispatchTimeMs.add(System.currentTimeMillis() - startTime);
+
+				if (isSuccess || attempt >= retryMaxAttempts || isDrain()) {
+					break;
+				}
+
+				retryCount.increment();
+
+				try {
+					Thread.sleep(backoffMs);
+				} catch (InterruptedException e) {
+					setDrain(true);
+					break;
+				}
+
+				backoffMs = Math.min(backoffMs * 2, retryBackoffMaxMs);
+			}
+
+			if (isSuccess) {
+				long lagMs = System.currentTimeMillis() - batch.enqueueTime;
+
+				lastLagMs = lagMs;
+
+				if (lagMs > maxLagMs) {
+					maxLagMs = lagMs;
+				}
+
+				dispatchedEventCount.add(count);
+				dispatchedBatchCount.increment();
+
+				addSuccessCount(count);
+			} else if (fileSpoolerEnabled) {
+				LOG.info("Switching to file spool. Queue = {}, dest = {}", getName(), consumer.getName());
+
+				stash(events);
+			} else {
+				addFailedCount(count);
+				logFailedEvent(events);
+			}
+		} finally {
+			inFlightBatch = null;
+
+			pendingBatchCount.decrementAndGet();
+		}
+	}
+
+	/*
+	 * filespool.* properties under defaultPropPrefix apply to every dispatcher that doesn't set its own. A shared spool
+	 * folder gets a sub-folder per destination, so that destinations don't pick up each other's spool files.
+	 */
+	private Properties getSpoolProperties(Properties props, String basePropertyName) {
+		if (defaultPropPrefix == null || basePropertyName == null) {
+			return props;
+		}
+
+		final String sharedPrefix = defaultPropPrefix + ".filespool.";
+		final String destName     = basePropertyName.substring(basePropertyName.lastIndexOf('.') + 1);
+		Properties   ret          = null;
+
+		for (String propName : props.stringPropertyNames()) {
+			if (!propName.startsWith(sharedPrefix)) {
+				continue;
+			}
+
+			String destPropName = basePropertyName + propName.substring(defaultPropPrefix.length());
+
+			if (props.getProperty(destPropName) != null) {
+				continue;
+			}
+
+			String value = props.getProperty(propName);
+
+			if (destPropName.endsWith("." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR) || destPropName.endsWith("." + AuditFileSpool.PROP_FILE_SPOOL_ARCHIVE_DIR)) {
+				value = new File(value, destName).getPath();
+			}
+
+			if (ret == null) {
+				ret = new Properties();
+
+				ret.putAll(props);
+			}
+
+			ret.setProperty(destPropName, value);
+		}
+
+		return ret != null ? ret : props;
+	}
+
+	private void stash(Collection<AuditEventBase> events) {
+		fileSpooler.stashLogs(events);
+
+		spooledEventCount.add(events.size());
+
+		addStashedCount(events.size());
+	}
+
+	private static final class Batch {
+		final Collection<AuditEventBase> events;
+		final long                       enqueueTime;
+
+		Batch(Collection<AuditEventBase> events, long enqueueTime) {
+			this.events      = events;
+			this.enqueueTime = enqueueTime;
+		}
+	}
+}
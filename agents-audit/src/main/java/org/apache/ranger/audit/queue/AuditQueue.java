@@ -52,6 +52,8 @@ public abstract class AuditQueue extends BaseAuditHandler {
 	public static final String PROP_FILE_SPOOL_ENABLE = "filespool.enable";
 	public static final String PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN = "filespool.drain.full.wait.ms";
 	public static final String PROP_FILE_SPOOL_QUEUE_THRESHOLD = "filespool.drain.threshold.percent";
+	public static final String PROP_FILE_SPOOL_FORMAT = "filespool.format";
+	public static final String FILE_SPOOL_FORMAT_SEGMENT = "segment";
 
 	final protected AuditHandler consumer;
 	protected AuditFileSpool fileSpooler = null;
@@ -111,7 +113,13 @@ public void init(Properties props, String basePropertyName) {
 			fileSpoolDrainThresholdPercent = MiscUtil.getIntProperty(props,
 					propPrefix + "." + PROP_FILE_SPOOL_QUEUE_THRESHOLD,
 					fileSpoolDrainThresholdPercent);
-			fileSpooler = new AuditFileSpool(this, consumer);
+			String spoolFormat = MiscUtil.getStringProperty(props, propPrefix
+					+ "." + PROP_FILE_SPOOL_FORMAT);
+			if (FILE_SPOOL_FORMAT_SEGMENT.equalsIgnoreCase(spoolFormat)) {
+				fileSpooler = new AuditSegmentSpool(this, consumer);
+			} else {
+				fileSpooler = new AuditFileSpool(this, consumer);
+			}
 			if (!fileSpooler.init(props, basePropertyName)) {
 				fileSpoolerEnabled = false;
 				LOG.error("Couldn't initialize file spooler. Disabling it. queue="
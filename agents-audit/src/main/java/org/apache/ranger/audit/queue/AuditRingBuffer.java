@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer/single-consumer queue on a ring of pre-allocated slots. Producers claim a slot with a CAS
+ * on the tail and publish the element by advancing the slot sequence; no lock is taken and no node is allocated per
+ * element. Only one thread may call poll(), take(), peek() and drainTo(); iterator() is not supported.
+ */
+public class AuditRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+	private static final int  MAX_CAPACITY   = 1 << 30;
+	private static final int  SPIN_TRIES     = 100;
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int             capacity;
+	private final int             mask;
+	private final Object[]        elements;
+	private final AtomicLongArray sequences; // pos + 1 when slot has the element at pos; pos when slot is free for pos
+	private final AtomicLong      tail = new AtomicLong(); // next position to be claimed by producers
+
+	private volatile long   head            = 0;    // next position to be read by the consumer
+	private volatile Thread waitingConsumer = null;
+
+	public AuditRingBuffer(int minCapacity) {
+		int capacity = 2;
+
+		while (capacity < minCapacity && capacity < MAX_CAPACITY) {
+			capacity <<= 1;
+		}
+
+		this.capacity  = capacity;
+		this.mask      = capacity - 1;
+		this.elements  = new Object[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+
+		for (int i = 0; i < capacity; i++) {
+			sequences.lazySet(i, i);
+		}
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public int size() {
+		long size = tail.get() - head;
+
+		return size <= 0 ? 0 : (int) Math.min(size, capacity);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return capacity - size();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		throw new UnsupportedOperationException("iterator() is not supported by " + getClass().getSimpleName());
+	}
+
+	/**
+	 * @return false if the buffer is full
+	 */
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		while (true) {
+			long pos = tail.get();
+			int  idx = (int) pos & mask;
+			long seq = sequences.get(idx);
+
+			if (seq == pos) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					elements[idx] = e;
+
+					sequences.set(idx, pos + 1);
+
+					Thread consumer = waitingConsumer;
+
+					if (consumer != null) {
+						LockSupport.unpark(consumer);
+					}
+
+					return true;
+				}
+			} else if (seq < pos) { // slot still has the element from previous round
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Waits for a free slot, spinning briefly and then parking for up to a millisecond at a time.
+	 */
+	@Override
+	public void put(E e) throws InterruptedException {
+		for (int tries = 0; !offer(e); tries++) {
+			waitForSlot(tries);
+		}
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (int tries = 0; !offer(e); tries++) {
+			if (deadline - System.nanoTime() <= 0) {
+				return false;
+			}
+
+			waitForSlot(tries);
+		}
+
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E peek() {
+		long pos = head;
+		int  idx = (int) pos & mask;
+
+		return sequences.get(idx) == pos + 1 ? (E) elements[idx] : null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long pos = head;
+		int  idx = (int) pos & mask;
+
+		if (sequences.get(idx) != pos + 1) {
+			return null;
+		}
+
+		E ret = (E) elements[idx];
+
+		elements[idx] = null;
+
+		sequences.lazySet(idx, pos + capacity);
+
+		head = pos + 1;
+
+		return ret;
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		E ret = poll();
+
+		if (ret == null && timeout > 0) {
+			ret = awaitElement(true, unit.toNanos(timeout));
+		}
+
+		return ret;
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E ret = poll();
+
+		if (ret == null) {
+			ret = awaitElement(false, 0);
+		}
+
+		return ret;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		int ret = 0;
+
+		while (ret < maxElements) {
+			E e = poll();
+
+			if (e == null) {
+				break;
+			}
+
+			c.add(e);
+
+			ret++;
+		}
+
+		return ret;
+	}
+
+	private void waitForSlot(int tries) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+
+		if (tries < SPIN_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(this, MAX_PARK_NANOS);
+		}
+	}
+
+	// parks the consumer until a producer publishes an element, or until the timeout when timed is true
+	private E awaitElement(boolean timed, long timeoutNanos) throws InterruptedException {
+		long deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+		E    ret;
+
+		waitingConsumer = Thread.currentThread();
+
+		try {
+			while ((ret = poll()) == null) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+
+				if (timed) {
+					long remaining = deadline - System.nanoTime();
+
+					if (remaining <= 0) {
+						break;
+					}
+
+					LockSupport.parkNanos(this, remaining);
+				} else {
+					LockSupport.park(this);
+				}
+			}
+		} finally {
+			waitingConsumer = null;
+		}
+
+		return ret;
+	}
+}
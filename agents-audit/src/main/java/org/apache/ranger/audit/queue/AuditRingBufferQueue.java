@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AuditBatchQueue on a lock-free AuditRingBuffer: producers don't contend on a lock. When the buffer is full, events
+ * are handled per the overflow policy: block the producer (default), drop the event, or spill the event to the file
+ * spool.
+ */
+public class AuditRingBufferQueue extends AuditBatchQueue {
+	private static final Logger logger = LoggerFactory.getLogger(AuditRingBufferQueue.class);
+
+	public static final String PROP_OVERFLOW_POLICY = "overflow.policy";
+
+	public enum OverflowPolicy { BLOCK, DROP_NEWEST, SPILL }
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	private final LongAdder  enqueueCount        = new LongAdder();
+	private final LongAdder  enqueueTimeNanos    = new LongAdder();
+	private final AtomicLong maxEnqueueTimeNanos = new AtomicLong();
+	private final LongAdder  blockedCount        = new LongAdder();
+	private final LongAdder  droppedCount        = new LongAdder();
+	private final LongAdder  spilledCount        = new LongAdder();
+	private       long       reportedDropped     = 0;
+	private       long       reportedSpilled     = 0;
+
+	static final String DEFAULT_NAME = "ring";
+
+	public AuditRingBufferQueue(AuditHandler consumer) {
+		super(consumer);
+		setName(DEFAULT_NAME);
+	}
+
+	@Override
+	public boolean log(AuditEventBase event) {
+		boolean ret       = true;
+		long    startTime = System.nanoTime();
+
+		if (!queue.offer(event)) {
+			switch (overflowPolicy) {
+				case DROP_NEWEST:
+					droppedCount.increment();
+					ret = false;
+					break;
+
+				case SPILL:
+					fileSpooler.stashLogs(event);
+					spilledCount.increment();
+					break;
+
+				case BLOCK:
+				default:
+					blockedCount.increment();
+					try {
+						queue.put(event);
+					} catch (InterruptedException ex) {
+						throw new RuntimeException(ex);
+					}
+					break;
+			}
+		}
+
+		long enqueueTime = System.nanoTime() - startTime;
+
+		enqueueCount.increment();
+		enqueueTimeNanos.add(enqueueTime);
+
+		for (long maxTime = maxEnqueueTimeNanos.get(); enqueueTime > maxTime; maxTime = maxEnqueueTimeNanos.get()) {
+			if (maxEnqueueTimeNanos.compareAndSet(maxTime, enqueueTime)) {
+				break;
+			}
+		}
+
+		return ret;
+	}
+
+	@Override
+	public void init(Properties prop, String basePropertyName) {
+		String propPrefix = "xasecure.audit.ring";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		super.init(prop, propPrefix);
+
+		String policy = MiscUtil.getStringProperty(prop, this.propPrefix + "." + PROP_OVERFLOW_POLICY, OverflowPolicy.BLOCK.name());
+
+		try {
+			overflowPolicy = OverflowPolicy.valueOf(policy.trim().toUpperCase());
+		} catch (IllegalArgumentException excp) {
+			logger.error("Invalid " + this.propPrefix + "." + PROP_OVERFLOW_POLICY + "=" + policy + ". Using " + OverflowPolicy.BLOCK);
+
+			overflowPolicy = OverflowPolicy.BLOCK;
+		}
+
+		if (overflowPolicy == OverflowPolicy.SPILL && !fileSpoolerEnabled) {
+			logger.error("Overflow policy " + OverflowPolicy.SPILL + " needs file spool, which is not enabled for " + getName() + ". Using " + OverflowPolicy.BLOCK);
+
+			overflowPolicy = OverflowPolicy.BLOCK;
+		}
+
+		logger.info("AuditRingBufferQueue.init(name=" + getName() + "): overflowPolicy=" + overflowPolicy);
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public long getEnqueueCount() {
+		return enqueueCount.sum();
+	}
+
+	public long getTotalEnqueueTimeNanos() {
+		return enqueueTimeNanos.sum();
+	}
+
+	public long getMaxEnqueueTimeNanos() {
+		return maxEnqueueTimeNanos.get();
+	}
+
+	public long getBlockedCount() {
+		return blockedCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	public long getSpilledCount() {
+		return spilledCount.sum();
+	}
+
+	@Override
+	public void logStatus() {
+		updateOverflowCounts();
+
+		super.logStatus();
+
+		if (isStatusLogEnabled()) {
+			long count = enqueueCount.sum();
+
+			logger.info("AuditRingBufferQueue.log(name={}): currentQueueLength={}, enqueueCount={}, avgEnqueueTimeNanos={}, maxEnqueueTimeNanos={}, blockedCount={}, droppedCount={}, spilledCount={}",
+					getName(), size(), count, count > 0 ? enqueueTimeNanos.sum() / count : 0, maxEnqueueTimeNanos.get(), blockedCount.sum(), droppedCount.sum(), spilledCount.sum());
+		}
+	}
+
+	@Override
+	public void logStatusIfRequired() {
+		updateOverflowCounts();
+
+		super.logStatusIfRequired();
+	}
+
+	@Override
+	protected BlockingQueue<AuditEventBase> createQueue(int maxQueueSize) {
+		AuditRingBuffer<AuditEventBase> ret = new AuditRingBuffer<AuditEventBase>(maxQueueSize);
+
+		logger.info("Created AuditRingBuffer with capacity=" + ret.capacity() + ", maxQueueSize=" + maxQueueSize);
+
+		return ret;
+	}
+
+	// counters in BaseAuditHandler are not thread-safe; producers count in adders, which are folded in by the consumer thread
+	private void updateOverflowCounts() {
+		long dropped = droppedCount.sum();
+		long spilled = spilledCount.sum();
+
+		if (dropped != reportedDropped) {
+			addTotalCount((int) (dropped - reportedDropped));
+			addFailedCount((int) (dropped - reportedDropped));
+
+			reportedDropped = dropped;
+		}
+
+		if (spilled != reportedSpilled) {
+			addTotalCount((int) (spilled - reportedSpilled));
+			addStashedCount((int) (spilled - reportedSpilled));
+
+			reportedSpilled = spilled;
+		}
+	}
+}
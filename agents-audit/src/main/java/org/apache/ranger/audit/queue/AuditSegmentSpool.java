@@ -0,0 +1,844 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.AuthzAuditEventJSONEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * File spool that appends events to fixed-size segment files, as CRC framed records, instead of JSON lines with a
+ * JSON index. The position of the destination in the spool is saved in a small checkpoint file, which is updated
+ * in place after each batch sent. Appends are synced to disk in groups: at most once per sync interval, and on
+ * flush/rollover. Sealed segments are replayed from memory mapped files and deleted once sent.
+ *
+ * Segment: magic(4) version(4) { length(4) crc32(4) json(length) }*
+ */
+public class AuditSegmentSpool extends AuditFileSpool {
+	private static final Logger logger = LoggerFactory.getLogger(AuditSegmentSpool.class);
+
+	public static final String PROP_FILE_SPOOL_SEGMENT_SIZE  = "filespool.segment.size";
+	public static final String PROP_FILE_SPOOL_SYNC_INTERVAL = "filespool.sync.interval.ms";
+
+	static final int    SEGMENT_MAGIC        = 0x52535047; // RSPG
+	static final int    SEGMENT_VERSION      = 1;
+	static final int    SEGMENT_HEADER_SIZE  = 8;
+	static final int    RECORD_HEADER_SIZE   = 8;
+	static final int    CHECKPOINT_SLOT_SIZE = 32;
+	static final String SEGMENT_FILE_SUFFIX  = ".seg";
+	static final int    WRITE_BUFFER_SIZE    = 256 * 1024;
+
+	private long segmentSize    = 64 * 1024 * 1024;
+	private int  syncIntervalMS = 1000;
+
+	// writer state, guarded by this
+	private final TreeMap<Long, File> sealedSegments         = new TreeMap<>();
+	private final ByteBuffer          writeBuffer            = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+	private final CRC32               writeCrc               = new CRC32();
+	private       long                writeSegmentId         = 0;
+	private       FileChannel         writeChannel           = null;
+	private       long                writePosition          = 0;
+	private       long                writeSegmentCreateTime = 0;
+	private       int                 writeBufferRecordStart = 0; // records in writeBuffer start here, after the segment header if not yet written
+	private       long                lastSyncTime           = 0;
+	private       boolean             hasUnsyncedWrites      = false;
+
+	private final AuthzAuditEventJSONEncoder jsonEncoder = new AuthzAuditEventJSONEncoder(); // guarded by this
+
+	// reader state, accessed only by the destination thread after init
+	private final CRC32       readCrc           = new CRC32();
+	private final ByteBuffer  checkpointBuffer  = ByteBuffer.allocate(CHECKPOINT_SLOT_SIZE);
+	private       FileChannel checkpointChannel = null;
+	private       long        checkpointSeq     = 0;
+	private       long        readSegmentId     = 0;
+	private       long        readOffset        = 0;
+
+	public AuditSegmentSpool(AuditQueue queueProvider, AuditHandler consumerProvider) {
+		super(queueProvider, consumerProvider);
+	}
+
+	@Override
+	public boolean init(Properties props, String basePropertyName) {
+		if (initDone) {
+			logger.error("init() called more than once. queueProvider="
+					+ queueProvider.getName() + ", consumerProvider="
+					+ consumerProvider.getName());
+			return true;
+		}
+		String propPrefix = "xasecure.audit.filespool";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		try {
+			String logFolderProp = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR);
+
+			fileNamePrefix     = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILENAME_PREFIX);
+			retryDestinationMS = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_DEST_RETRY_MS, retryDestinationMS);
+			fileRolloverSec    = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_FILE_ROLLOVER, fileRolloverSec);
+			segmentSize        = MiscUtil.getLongProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SEGMENT_SIZE, segmentSize);
+			syncIntervalMS     = MiscUtil.getIntProperty(props, propPrefix + "." + PROP_FILE_SPOOL_SYNC_INTERVAL, syncIntervalMS);
+
+			// segments are mapped in whole for replay
+			segmentSize = Math.max(SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE, Math.min(segmentSize, Integer.MAX_VALUE / 2));
+
+			if (logFolderProp == null || logFolderProp.isEmpty()) {
+				logger.error("Audit spool folder is not configured. Please set " + propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR + ". queueName=" + queueProvider.getName());
+				return false;
+			}
+
+			logFolder = new File(logFolderProp);
+
+			if (!logFolder.isDirectory()) {
+				logFolder.mkdirs();
+
+				if (!logFolder.isDirectory()) {
+					logger.error("File Spool folder not found and can't be created. folder=" + logFolder.getAbsolutePath() + ", queueName=" + queueProvider.getName());
+					return false;
+				}
+			}
+
+			if (fileNamePrefix == null || fileNamePrefix.isEmpty()) {
+				fileNamePrefix = queueProvider.getName() + "_" + consumerProvider.getName();
+			}
+
+			logger.info("AuditSegmentSpool.init(): logFolder=" + logFolder + ", fileNamePrefix=" + fileNamePrefix + ", segmentSize=" + segmentSize
+					+ ", syncIntervalMS=" + syncIntervalMS + ", retryDestinationMS=" + retryDestinationMS + ", queueName=" + queueProvider.getName());
+
+			checkpointChannel = FileChannel.open(new File(logFolder, fileNamePrefix + ".checkpoint").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			readCheckpoint();
+			recoverSegments();
+		} catch (Throwable t) {
+			logger.error("Error initializing File Spooler. queue=" + queueProvider.getName(), t);
+			return false;
+		}
+
+		initDone = true;
+
+		return true;
+	}
+
+	@Override
+	public void start() {
+		if (!initDone) {
+			logger.error("Cannot start Audit File Spooler. Initilization not done yet. queueName=" + queueProvider.getName());
+			return;
+		}
+
+		logger.info("Starting writerThread, queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+
+		destinationThread = new Thread(this, queueProvider.getName() + "_" + consumerProvider.getName() + "_destWriter");
+		destinationThread.setDaemon(true);
+		destinationThread.start();
+	}
+
+	@Override
+	public void stop() {
+		if (!initDone) {
+			logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName=" + queueProvider.getName());
+			return;
+		}
+
+		logger.info("Stop called, queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+
+		synchronized (this) {
+			isDrain = true;
+
+			// the open segment is sealed on restart, in recoverSegments()
+			if (writeChannel != null) {
+				try {
+					sync();
+				} catch (IOException excp) {
+					logger.error("Error syncing spool segment. queueName=" + queueProvider.getName(), excp);
+				}
+
+				closeQuietly(writeChannel);
+
+				writeChannel = null;
+			}
+		}
+
+		if (destinationThread != null) {
+			destinationThread.interrupt();
+		}
+
+		destinationThread = null;
+	}
+
+	@Override
+	synchronized public void flush() {
+		if (!initDone) {
+			logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName=" + queueProvider.getName());
+			return;
+		}
+
+		if (writeChannel != null) {
+			try {
+				sync();
+			} catch (IOException excp) {
+				logger.error("Error syncing spool segment. queueName=" + queueProvider.getName(), excp);
+
+				sealOnError();
+			}
+		}
+	}
+
+	@Override
+	synchronized public void stashLogs(AuditEventBase event) {
+		if (isDrain) {
+			// Stop has been called, so this method shouldn't be called
+			logger.error("stashLogs() is called after stop is called. event=" + event);
+			return;
+		}
+
+		// encoded directly into the record, without creating a String
+		jsonEncoder.reset();
+		jsonEncoder.encode(event);
+
+		stash(jsonEncoder.array(), jsonEncoder.size());
+	}
+
+	@Override
+	synchronized public void stashLogs(Collection<AuditEventBase> events) {
+		for (AuditEventBase event : events) {
+			stashLogs(event);
+		}
+	}
+
+	@Override
+	synchronized public void stashLogsString(String event) {
+		if (isDrain) {
+			// Stop has been called, so this method shouldn't be called
+			logger.error("stashLogs() is called after stop is called. event=" + event);
+			return;
+		}
+
+		byte[] payload = event.getBytes(StandardCharsets.UTF_8);
+
+		stash(payload, payload.length);
+	}
+
+	@Override
+	synchronized public void stashLogsString(Collection<String> events) {
+		for (String event : events) {
+			stashLogsString(event);
+		}
+	}
+
+	private void stash(byte[] payload, int length) {
+		boolean isAppended = false;
+
+		try {
+			append(payload, length);
+
+			isAppended = true;
+
+			syncIfNeeded();
+		} catch (IOException excp) {
+			logger.error("Error writing to spool segment. queueName=" + queueProvider.getName(), excp);
+
+			sealOnError();
+
+			if (!isAppended) { // retry on a new segment
+				try {
+					append(payload, length);
+				} catch (IOException excp2) {
+					String event = new String(payload, 0, length, StandardCharsets.UTF_8);
+
+					logger.error("Error writing to new spool segment. queueName=" + queueProvider.getName() + ", event=" + event, excp2);
+
+					sealOnError();
+
+					queueProvider.addFailedCount(1);
+					queueProvider.logFailedEventJSON(event, excp2);
+				}
+			}
+		}
+	}
+
+	synchronized FileChannel getWriteChannel() {
+		return writeChannel;
+	}
+
+	synchronized int getSegmentCount() {
+		return sealedSegments.size() + (writeChannel != null ? 1 : 0);
+	}
+
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			logger.error("Exited thread abnormaly. queue=" + consumerProvider.getName(), t);
+		} finally {
+			closeQuietly(checkpointChannel);
+		}
+	}
+
+	@Override
+	public void runLogAudit() {
+		while (true) {
+			try {
+				if (isDestDown) {
+					logger.info("Destination is down. sleeping for " + retryDestinationMS + " milli seconds. queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+
+					Thread.sleep(retryDestinationMS);
+				}
+
+				if (isDrain) {
+					break;
+				}
+
+				if (!replayNextSegment()) {
+					synchronized (this) {
+						syncQuietly();
+
+						wait(Math.max(1, Math.min(syncIntervalMS, retryDestinationMS)));
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+				break;
+			} catch (Throwable t) {
+				logger.error("Exception in destination writing thread.", t);
+			}
+		}
+
+		logger.info("Exiting file spooler. provider=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+	}
+
+	/**
+	 * Sends the events in the oldest sealed segment to the destination. The segment being written is sealed when it
+	 * has events and is older than the retry interval, or the rollover interval.
+	 *
+	 * @return false if there was no segment to replay
+	 */
+	boolean replayNextSegment() throws IOException {
+		Map.Entry<Long, File> segment;
+
+		synchronized (this) {
+			syncQuietly();
+
+			if (sealedSegments.isEmpty() && writeChannel != null && writePosition > SEGMENT_HEADER_SIZE) {
+				long age = System.currentTimeMillis() - writeSegmentCreateTime;
+
+				if (age >= Math.min(retryDestinationMS, fileRolloverSec * 1000L)) {
+					sealSegment();
+				}
+			}
+
+			segment = sealedSegments.firstEntry();
+		}
+
+		if (segment == null) {
+			return false;
+		}
+
+		long segmentId = segment.getKey();
+
+		if (segmentId != readSegmentId) {
+			readSegmentId = segmentId;
+			readOffset    = 0;
+		}
+
+		if (sendSegment(segment.getValue())) {
+			synchronized (this) {
+				sealedSegments.remove(segmentId);
+
+				isPending = !sealedSegments.isEmpty() || (writeChannel != null && writePosition > SEGMENT_HEADER_SIZE);
+			}
+
+			readSegmentId = segmentId + 1;
+			readOffset    = 0;
+
+			writeCheckpoint(true);
+
+			if (!segment.getValue().delete()) {
+				logger.error("Error deleting spool segment " + segment.getValue());
+			}
+		} else {
+			isDestDown      = true;
+			lastAttemptTime = System.currentTimeMillis();
+
+			logError("Destination down. queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+		}
+
+		return true;
+	}
+
+	// records are decoded directly from the mapped segment; returns false if the destination failed
+	private boolean sendSegment(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer    = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int              pos       = (int) Math.max(readOffset, SEGMENT_HEADER_SIZE);
+			int              batchSize = Math.max(1, queueProvider.getMaxBatchSize());
+			List<String>     events    = new ArrayList<>(Math.min(batchSize, 1024));
+
+			if (buffer.limit() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != SEGMENT_MAGIC) {
+				logger.error("Invalid spool segment " + file + ". Skipping it");
+				return true;
+			}
+
+			while (true) {
+				int recordLength = getRecordLength(buffer, pos);
+
+				if (recordLength < 0) {
+					if (pos < buffer.limit()) {
+						logger.error("Corrupt record at offset " + pos + " in spool segment " + file + ". Skipping rest of the segment, " + (buffer.limit() - pos) + " bytes");
+					}
+					break;
+				}
+
+				ByteBuffer payload = buffer.duplicate();
+
+				payload.limit(pos + RECORD_HEADER_SIZE + recordLength).position(pos + RECORD_HEADER_SIZE);
+
+				events.add(StandardCharsets.UTF_8.decode(payload).toString());
+
+				pos += RECORD_HEADER_SIZE + recordLength;
+
+				if (events.size() >= batchSize) {
+					if (!sendEvents(events, pos)) {
+						return false;
+					}
+				}
+			}
+
+			return events.isEmpty() || sendEvents(events, pos);
+		}
+	}
+
+	private boolean sendEvents(List<String> events, int nextOffset) throws IOException {
+		boolean ret;
+
+		try {
+			ret = consumerProvider.logJSON(events);
+		} catch (Throwable t) {
+			logger.error("Error while sending logs to consumer. provider=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName() + ", logEventCount=" + events.size(), t);
+
+			ret = false;
+		}
+
+		if (ret) {
+			readOffset = nextOffset;
+
+			writeCheckpoint(false);
+
+			events.clear();
+
+			synchronized (this) {
+				syncQuietly();
+			}
+
+			if (isDestDown) {
+				isDestDown = false;
+
+				logger.info("Destination up now. segment=" + readSegmentId + ", queueName=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+			}
+		} else {
+			logError("Error sending logs to consumer. provider=" + queueProvider.getName() + ", consumer=" + consumerProvider.getName());
+		}
+
+		return ret;
+	}
+
+	// returns length of a valid record at the given position; -1 if there is no complete record with matching crc
+	private int getRecordLength(ByteBuffer buffer, int pos) {
+		if (pos + RECORD_HEADER_SIZE > buffer.limit()) {
+			return -1;
+		}
+
+		int length = buffer.getInt(pos);
+		int crc    = buffer.getInt(pos + 4);
+
+		if (length < 0 || length > buffer.limit() - pos - RECORD_HEADER_SIZE) {
+			return -1;
+		}
+
+		ByteBuffer payload = buffer.duplicate();
+
+		payload.limit(pos + RECORD_HEADER_SIZE + length).position(pos + RECORD_HEADER_SIZE);
+
+		readCrc.reset();
+		readCrc.update(payload);
+
+		return (int) readCrc.getValue() == crc ? length : -1;
+	}
+
+	private void append(byte[] payload, int length) throws IOException {
+		int recordSize = RECORD_HEADER_SIZE + length;
+
+		if (writeChannel != null && writePosition > SEGMENT_HEADER_SIZE && writePosition + recordSize > segmentSize) {
+			sealSegment();
+		}
+
+		if (writeChannel == null) {
+			openSegment();
+		}
+
+		writeCrc.reset();
+		writeCrc.update(payload, 0, length);
+
+		if (writeBuffer.remaining() < recordSize) {
+			flushWriteBuffer();
+		}
+
+		if (writeBuffer.remaining() < recordSize) { // record larger than the buffer
+			ByteBuffer record = ByteBuffer.allocate(recordSize);
+
+			record.putInt(length).putInt((int) writeCrc.getValue()).put(payload, 0, length).flip();
+
+			while (record.hasRemaining()) {
+				writeChannel.write(record);
+			}
+		} else {
+			writeBuffer.putInt(length).putInt((int) writeCrc.getValue()).put(payload, 0, length);
+		}
+
+		writePosition    += recordSize;
+		hasUnsyncedWrites = true;
+		isPending         = true;
+	}
+
+	private void openSegment() throws IOException {
+		File file = getSegmentFile(writeSegmentId);
+
+		logger.info("Creating new spool segment. queueName=" + queueProvider.getName() + ", fileName=" + file);
+
+		writeChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+		writeBuffer.clear();
+		writeBuffer.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION);
+
+		writePosition          = SEGMENT_HEADER_SIZE;
+		writeSegmentCreateTime = System.currentTimeMillis();
+		writeBufferRecordStart = SEGMENT_HEADER_SIZE;
+	}
+
+	private void sealSegment() throws IOException {
+		sync();
+
+		closeQuietly(writeChannel);
+
+		logger.info("Sealed spool segment. queueName=" + queueProvider.getName() + ", segment=" + writeSegmentId + ", size=" + writePosition);
+
+		sealedSegments.put(writeSegmentId, getSegmentFile(writeSegmentId));
+
+		writeChannel = null;
+		writeSegmentId++;
+
+		notifyAll();
+	}
+
+	/*
+	 * seals the segment after a write error; records already written can still be replayed, up to the first bad record.
+	 * Records in the write buffer are then written to a new segment - so a record that did reach the failed segment
+	 * could be sent twice. If that write fails too, the records are counted and logged as failed.
+	 */
+	private void sealOnError() {
+		byte[] records = getBufferedRecords();
+
+		if (writeChannel != null) {
+			closeQuietly(writeChannel);
+
+			sealedSegments.put(writeSegmentId, getSegmentFile(writeSegmentId));
+
+			writeChannel = null;
+			writeSegmentId++;
+
+			notifyAll();
+		}
+
+		writeBuffer.clear();
+
+		writeBufferRecordStart = 0;
+		hasUnsyncedWrites      = false;
+
+		if (records.length > 0) {
+			try {
+				openSegment();
+				flushWriteBuffer(); // segment header
+
+				ByteBuffer buffer = ByteBuffer.wrap(records);
+
+				while (buffer.hasRemaining()) {
+					writeChannel.write(buffer);
+				}
+
+				writePosition    += records.length;
+				hasUnsyncedWrites = true;
+				isPending         = true;
+
+				sync();
+			} catch (IOException excp) {
+				logger.error("Error writing to new spool segment. queueName=" + queueProvider.getName(), excp);
+
+				if (writeChannel != null) {
+					closeQuietly(writeChannel);
+
+					writeChannel = null;
+				}
+
+				getSegmentFile(writeSegmentId).delete();
+
+				writeBuffer.clear();
+
+				writeBufferRecordStart = 0;
+				hasUnsyncedWrites      = false;
+
+				failRecords(records, excp);
+			}
+		}
+	}
+
+	private byte[] getBufferedRecords() {
+		ByteBuffer buffer = writeBuffer.duplicate();
+
+		buffer.flip();
+		buffer.position(Math.min(writeBufferRecordStart, buffer.limit()));
+
+		byte[] ret = new byte[buffer.remaining()];
+
+		buffer.get(ret);
+
+		return ret;
+	}
+
+	private void failRecords(byte[] records, Throwable excp) {
+		ByteBuffer buffer = ByteBuffer.wrap(records);
+		int        count  = 0;
+
+		while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+			int length = buffer.getInt();
+
+			buffer.getInt(); // crc
+
+			if (length < 0 || length > buffer.remaining()) {
+				break;
+			}
+
+			queueProvider.logFailedEventJSON(new String(records, buffer.position(), length, StandardCharsets.UTF_8), excp);
+
+			buffer.position(buffer.position() + length);
+
+			count++;
+		}
+
+		queueProvider.addFailedCount(count);
+	}
+
+	// appends are synced by the destination thread as well, for the case when no more events are stashed
+	private void syncQuietly() {
+		try {
+			syncIfNeeded();
+		} catch (IOException excp) {
+			logger.error("Error syncing spool segment. queueName=" + queueProvider.getName(), excp);
+
+			sealOnError();
+		}
+	}
+
+	private void syncIfNeeded() throws IOException {
+		if (hasUnsyncedWrites && System.currentTimeMillis() - lastSyncTime >= syncIntervalMS) {
+			sync();
+		}
+	}
+
+	private void sync() throws IOException {
+		flushWriteBuffer();
+
+		if (hasUnsyncedWrites) {
+			writeChannel.force(false);
+
+			hasUnsyncedWrites = false;
+		}
+
+		lastSyncTime = System.currentTimeMillis();
+	}
+
+	// on error, writeBuffer is left as it was, for sealOnError() to write its records to a new segment
+	private void flushWriteBuffer() throws IOException {
+		ByteBuffer buffer = writeBuffer.duplicate();
+
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			writeChannel.write(buffer);
+		}
+
+		writeBuffer.clear();
+
+		writeBufferRecordStart = 0;
+	}
+
+	// segments already sent are deleted; torn records at the end of a segment, from a crash during write, are truncated
+	private void recoverSegments() throws IOException {
+		TreeMap<Long, File> segments = new TreeMap<>();
+		File[]              files    = logFolder.listFiles();
+		String              prefix   = fileNamePrefix + "_";
+
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+
+				if (name.startsWith(prefix) && name.endsWith(SEGMENT_FILE_SUFFIX)) {
+					try {
+						segments.put(Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_FILE_SUFFIX.length())), file);
+					} catch (NumberFormatException excp) {
+						// not a segment
+					}
+				}
+			}
+		}
+
+		for (Map.Entry<Long, File> entry : segments.entrySet()) {
+			long segmentId = entry.getKey();
+			File file      = entry.getValue();
+
+			if (segmentId < readSegmentId) {
+				logger.info("Deleting spool segment already sent: " + file);
+
+				file.delete();
+				continue;
+			}
+
+			long validLength = getValidLength(file);
+
+			if (validLength <= SEGMENT_HEADER_SIZE || (segmentId == readSegmentId && validLength <= readOffset)) {
+				file.delete();
+				continue;
+			}
+
+			if (validLength < file.length()) {
+				logger.warn("Truncating spool segment " + file + " from " + file.length() + " to " + validLength + " bytes");
+
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+					channel.truncate(validLength);
+				}
+			}
+
+			sealedSegments.put(segmentId, file);
+		}
+
+		writeSegmentId = Math.max(readSegmentId, segments.isEmpty() ? 0 : segments.lastKey() + 1);
+		isPending      = !sealedSegments.isEmpty();
+
+		logger.info("AuditSegmentSpool: pending segments=" + sealedSegments.size() + ", readSegmentId=" + readSegmentId + ", readOffset=" + readOffset + ", queueName=" + queueProvider.getName());
+	}
+
+	private long getValidLength(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.limit() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != SEGMENT_MAGIC) {
+				return 0;
+			}
+
+			int pos = SEGMENT_HEADER_SIZE;
+
+			for (int length = getRecordLength(buffer, pos); length >= 0; length = getRecordLength(buffer, pos)) {
+				pos += RECORD_HEADER_SIZE + length;
+			}
+
+			return pos;
+		}
+	}
+
+	// two slots, written alternately, so that a torn write leaves the previous checkpoint intact
+	private void readCheckpoint() throws IOException {
+		for (int slot = 0; slot < 2; slot++) {
+			checkpointBuffer.clear();
+
+			if (checkpointChannel.read(checkpointBuffer, (long) slot * CHECKPOINT_SLOT_SIZE) < CHECKPOINT_SLOT_SIZE) {
+				continue;
+			}
+
+			checkpointBuffer.flip();
+
+			long seq       = checkpointBuffer.getLong(0);
+			long segmentId = checkpointBuffer.getLong(8);
+			long offset    = checkpointBuffer.getLong(16);
+			int  crc       = checkpointBuffer.getInt(24);
+
+			readCrc.reset();
+			readCrc.update(checkpointBuffer.array(), 0, 24);
+
+			if ((int) readCrc.getValue() == crc && seq > checkpointSeq) {
+				checkpointSeq = seq;
+				readSegmentId = segmentId;
+				readOffset    = offset;
+			}
+		}
+	}
+
+	private void writeCheckpoint(boolean force) throws IOException {
+		checkpointSeq++;
+
+		checkpointBuffer.clear();
+		checkpointBuffer.putLong(checkpointSeq).putLong(readSegmentId).putLong(readOffset);
+
+		readCrc.reset();
+		readCrc.update(checkpointBuffer.array(), 0, 24);
+
+		checkpointBuffer.putInt((int) readCrc.getValue()).putInt(0).flip();
+
+		checkpointChannel.write(checkpointBuffer, (checkpointSeq % 2) * CHECKPOINT_SLOT_SIZE);
+
+		if (force) {
+			checkpointChannel.force(false);
+		}
+	}
+
+	private File getSegmentFile(long segmentId) {
+		return new File(logFolder, String.format("%s_%020d%s", fileNamePrefix, segmentId, SEGMENT_FILE_SUFFIX));
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException excp) {
+				// ignore
+			}
+		}
+	}
+}
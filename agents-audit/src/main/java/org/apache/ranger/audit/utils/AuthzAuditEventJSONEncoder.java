@@ -0,0 +1,431 @@
+package org.apache.ranger.audit.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Locale;
+
+/*
+ * Writes AuthzAuditEvent as JSON, encoded in UTF-8, into a reused byte buffer. The output is same as that of
+ * MiscUtil.stringify(), which uses Gson: same field names and order, null fields skipped, HTML-safe escaping and
+ * "yyyy-MM-dd HH:mm:ss.SSS" dates in the default time zone. Field names are encoded once, and no String or char[] is
+ * created per event. Events of other types, including subclasses of AuthzAuditEvent, are written using
+ * MiscUtil.stringify().
+ *
+ * Events can be appended one after another, separated by newLine(), to build a batch that is written out with
+ * writeTo() or getBuffer(). An instance must not be used by multiple threads concurrently.
+ */
+public class AuthzAuditEventJSONEncoder {
+    static final int INITIAL_BUFFER_SIZE = 1024;
+    static final int MAX_RETAINED_SIZE   = 4 * 1024 * 1024; // larger buffer is released on reset()
+
+    private static final String DATE_FORMAT_SECONDS = "yyyy-MM-dd HH:mm:ss"; // Gson format is this + ".SSS"
+
+    private static final byte[] FIELD_REPO_TYPE       = fieldName("repoType", true);
+    private static final byte[] FIELD_REPO            = fieldName("repo", false);
+    private static final byte[] FIELD_REQ_USER        = fieldName("reqUser", false);
+    private static final byte[] FIELD_EVT_TIME        = fieldName("evtTime", false);
+    private static final byte[] FIELD_ACCESS          = fieldName("access", false);
+    private static final byte[] FIELD_RESOURCE        = fieldName("resource", false);
+    private static final byte[] FIELD_RES_TYPE        = fieldName("resType", false);
+    private static final byte[] FIELD_ACTION          = fieldName("action", false);
+    private static final byte[] FIELD_RESULT          = fieldName("result", false);
+    private static final byte[] FIELD_AGENT           = fieldName("agent", false);
+    private static final byte[] FIELD_POLICY          = fieldName("policy", false);
+    private static final byte[] FIELD_REASON          = fieldName("reason", false);
+    private static final byte[] FIELD_ENFORCER        = fieldName("enforcer", false);
+    private static final byte[] FIELD_SESS            = fieldName("sess", false);
+    private static final byte[] FIELD_CLI_TYPE        = fieldName("cliType", false);
+    private static final byte[] FIELD_CLI_IP          = fieldName("cliIP", false);
+    private static final byte[] FIELD_REQ_DATA        = fieldName("reqData", false);
+    private static final byte[] FIELD_AGENT_HOST      = fieldName("agentHost", false);
+    private static final byte[] FIELD_LOG_TYPE        = fieldName("logType", false);
+    private static final byte[] FIELD_ID              = fieldName("id", false);
+    private static final byte[] FIELD_SEQ_NUM         = fieldName("seq_num", false);
+    private static final byte[] FIELD_EVENT_COUNT     = fieldName("event_count", false);
+    private static final byte[] FIELD_EVENT_DUR_MS    = fieldName("event_dur_ms", false);
+    private static final byte[] FIELD_TAGS            = fieldName("tags", false);
+    private static final byte[] FIELD_DATASETS        = fieldName("datasets", false);
+    private static final byte[] FIELD_PROJECTS        = fieldName("projects", false);
+    private static final byte[] FIELD_ADDITIONAL_INFO = fieldName("additional_info", false);
+    private static final byte[] FIELD_CLUSTER_NAME    = fieldName("cluster_name", false);
+    private static final byte[] FIELD_ZONE_NAME       = fieldName("zone_name", false);
+    private static final byte[] FIELD_POLICY_VERSION  = fieldName("policy_version", false);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    // escape sequences of ASCII characters, as written by Gson with HTML-safe escaping; null if no escape is needed
+    private static final byte[][] ASCII_ESCAPES = new byte[128][];
+
+    private static final char   LINE_SEPARATOR             = '\u2028';
+    private static final char   PARAGRAPH_SEPARATOR        = '\u2029';
+    private static final byte[] ESCAPE_LINE_SEPARATOR      = "\\u2028".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ESCAPE_PARAGRAPH_SEPARATOR = "\\u2029".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<AuthzAuditEventJSONEncoder> THREAD_ENCODER = ThreadLocal.withInitial(AuthzAuditEventJSONEncoder::new);
+
+    static {
+        for (int i = 0; i < 0x20; i++) {
+            ASCII_ESCAPES[i] = String.format("\\u%04x", i).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        ASCII_ESCAPES['"']  = "\\\"".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\\'] = "\\\\".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\t'] = "\\t".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\b'] = "\\b".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\n'] = "\\n".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\r'] = "\\r".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\f'] = "\\f".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['<']  = "\\u003c".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['>']  = "\\u003e".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['&']  = "\\u0026".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['=']  = "\\u003d".getBytes(StandardCharsets.US_ASCII);
+        ASCII_ESCAPES['\''] = "\\u0027".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final SimpleDateFormat dateFormatter   = new SimpleDateFormat(DATE_FORMAT_SECONDS, Locale.US);
+    private       long             lastDateSeconds = Long.MIN_VALUE;
+    private       byte[]           lastDateBytes   = null;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int    size   = 0;
+
+    /**
+     * JSON of the event, as returned by MiscUtil.stringify(), using an encoder of the calling thread.
+     */
+    public static String toJson(AuditEventBase event) {
+        AuthzAuditEventJSONEncoder encoder = THREAD_ENCODER.get();
+
+        encoder.reset();
+        encoder.encode(event);
+
+        return encoder.toString();
+    }
+
+    /**
+     * @return true if the event is encoded by this class; other events are encoded with MiscUtil.stringify()
+     */
+    public static boolean isSupported(AuditEventBase event) {
+        return event != null && event.getClass() == AuthzAuditEvent.class && isSupportedDate(event.getEventTime());
+    }
+
+    /**
+     * Appends JSON of the event to the buffer. If encoding fails, the buffer is left as it was before the call.
+     */
+    public void encode(AuditEventBase event) {
+        final int start = size;
+
+        try {
+            if (isSupported(event)) {
+                encode((AuthzAuditEvent) event);
+            } else {
+                writeUtf8(MiscUtil.stringify(event));
+            }
+        } catch (RuntimeException excp) {
+            size = start;
+
+            throw excp;
+        }
+    }
+
+    public void newLine() {
+        ensureCapacity(1);
+
+        buffer[size++] = '\n';
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the buffer with the encoded events, from index 0 to size(); it is overwritten after reset()
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * @return a buffer over the encoded events, without copying them; it is overwritten after reset()
+     */
+    public ByteBuffer getBuffer() {
+        return ByteBuffer.wrap(buffer, 0, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public void reset() {
+        size = 0;
+
+        if (buffer.length > MAX_RETAINED_SIZE) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void encode(AuthzAuditEvent event) {
+        write(FIELD_REPO_TYPE);
+        writeLong(event.getRepositoryType());
+        writeField(FIELD_REPO, event.getRepositoryName());
+        writeField(FIELD_REQ_USER, event.getUser());
+        writeField(FIELD_EVT_TIME, event.getEventTime());
+        writeField(FIELD_ACCESS, event.getAccessType());
+        writeField(FIELD_RESOURCE, event.getResourcePath());
+        writeField(FIELD_RES_TYPE, event.getResourceType());
+        writeField(FIELD_ACTION, event.getAction());
+        write(FIELD_RESULT);
+        writeLong(event.getAccessResult());
+        writeField(FIELD_AGENT, event.getAgentId());
+        write(FIELD_POLICY);
+        writeLong(event.getPolicyId());
+        writeField(FIELD_REASON, event.getResultReason());
+        writeField(FIELD_ENFORCER, event.getAclEnforcer());
+        writeField(FIELD_SESS, event.getSessionId());
+        writeField(FIELD_CLI_TYPE, event.getClientType());
+        writeField(FIELD_CLI_IP, event.getClientIP());
+        writeField(FIELD_REQ_DATA, event.getRequestData());
+        writeField(FIELD_AGENT_HOST, event.getAgentHostname());
+        writeField(FIELD_LOG_TYPE, event.getLogType());
+        writeField(FIELD_ID, event.getEventId());
+        write(FIELD_SEQ_NUM);
+        writeLong(event.getSeqNum());
+        write(FIELD_EVENT_COUNT);
+        writeLong(event.getEventCount());
+        write(FIELD_EVENT_DUR_MS);
+        writeLong(event.getEventDurationMS());
+        writeField(FIELD_TAGS, event.getTags());
+        writeField(FIELD_DATASETS, event.getDatasets());
+        writeField(FIELD_PROJECTS, event.getProjects());
+        writeField(FIELD_ADDITIONAL_INFO, event.getAdditionalInfo());
+        writeField(FIELD_CLUSTER_NAME, event.getClusterName());
+        writeField(FIELD_ZONE_NAME, event.getZoneName());
+
+        Long policyVersion = event.getPolicyVersion();
+
+        if (policyVersion != null) {
+            write(FIELD_POLICY_VERSION);
+            writeLong(policyVersion);
+        }
+
+        ensureCapacity(1);
+
+        buffer[size++] = '}';
+    }
+
+    private void writeField(byte[] name, String value) {
+        if (value != null) {
+            write(name);
+            writeString(value);
+        }
+    }
+
+    private void writeField(byte[] name, Collection<String> values) {
+        if (values != null) {
+            write(name);
+
+            ensureCapacity(1);
+
+            buffer[size++] = '[';
+
+            boolean isFirst = true;
+
+            for (String value : values) {
+                if (!isFirst) {
+                    ensureCapacity(1);
+
+                    buffer[size++] = ',';
+                }
+
+                if (value != null) {
+                    writeString(value);
+                } else {
+                    write(NULL);
+                }
+
+                isFirst = false;
+            }
+
+            ensureCapacity(1);
+
+            buffer[size++] = ']';
+        }
+    }
+
+    // events in a batch mostly fall within a few seconds; format each second only once
+    private void writeField(byte[] name, Date value) {
+        if (value != null) {
+            long time    = value.getTime();
+            long seconds = Math.floorDiv(time, 1000L);
+            int  millis  = (int) Math.floorMod(time, 1000L);
+
+            if (seconds != lastDateSeconds || lastDateBytes == null) {
+                lastDateBytes   = dateFormatter.format(new Date(seconds * 1000L)).getBytes(StandardCharsets.UTF_8);
+                lastDateSeconds = seconds;
+            }
+
+            write(name);
+            ensureCapacity(lastDateBytes.length + 6);
+
+            buffer[size++] = '"';
+
+            System.arraycopy(lastDateBytes, 0, buffer, size, lastDateBytes.length);
+
+            size += lastDateBytes.length;
+
+            buffer[size++] = '.';
+            buffer[size++] = (byte) ('0' + millis / 100);
+            buffer[size++] = (byte) ('0' + (millis / 10) % 10);
+            buffer[size++] = (byte) ('0' + millis % 10);
+            buffer[size++] = '"';
+        }
+    }
+
+    private void writeString(String value) {
+        final int length = value.length();
+
+        // each char takes at most 6 bytes (\\uXXXX), plus the quotes
+        ensureCapacity(length * 6 + 2);
+
+        final byte[] buf = buffer;
+        int          pos = size;
+
+        buf[pos++] = '"';
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                byte[] escape = ASCII_ESCAPES[c];
+
+                if (escape == null) {
+                    buf[pos++] = (byte) c;
+                } else {
+                    System.arraycopy(escape, 0, buf, pos, escape.length);
+
+                    pos += escape.length;
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xc0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                    buf[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else { // unpaired surrogate, replaced like String.getBytes() does
+                    buf[pos++] = '?';
+                }
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                byte[] escape = c == LINE_SEPARATOR ? ESCAPE_LINE_SEPARATOR : ESCAPE_PARAGRAPH_SEPARATOR;
+
+                System.arraycopy(escape, 0, buf, pos, escape.length);
+
+                pos += escape.length;
+            } else {
+                buf[pos++] = (byte) (0xe0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        buf[pos++] = '"';
+
+        size = pos;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+
+            return;
+        }
+
+        ensureCapacity(20);
+
+        if (value < 0) {
+            buffer[size++] = '-';
+            value          = -value;
+        }
+
+        int digits = 1;
+
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+
+        for (int pos = size + digits - 1; pos >= size; pos--) {
+            buffer[pos] = (byte) ('0' + (value % 10));
+            value      /= 10;
+        }
+
+        size += digits;
+    }
+
+    private void writeUtf8(String value) {
+        if (value != null) {
+            write(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int count) {
+        int required = size + count;
+
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    // java.sql.Timestamp and other subclasses of Date are formatted by Gson differently
+    private static boolean isSupportedDate(Date date) {
+        return date == null || date.getClass() == Date.class;
+    }
+
+    private static byte[] fieldName(String name, boolean isFirst) {
+        return ((isFirst ? "{" : ",") + "\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,292 @@
+package org.apache.ranger.audit.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/*
+ * Fills columns of a VectorizedRowBatch from AuthzAuditEvent. Each column is bound once, when the batch is created,
+ * to an accessor of the event field it holds; per-event work is then a getter call and a copy into the column.
+ * Strings are encoded as UTF-8 into a reused buffer. Values of low-cardinality columns, like repo, user, action and
+ * result, are encoded once and referenced from a per-column dictionary.
+ *
+ * Like VectorizedRowBatch, an instance must not be used by multiple threads concurrently.
+ */
+public class ORCAuditEventBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ORCAuditEventBinder.class);
+
+    static final int DICTIONARY_MAX_SIZE = 4096;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final Map<String, ToLongFunction<AuthzAuditEvent>>   LONG_ACCESSORS    = new HashMap<>();
+    private static final Map<String, Function<AuthzAuditEvent, Object>> VALUE_ACCESSORS   = new HashMap<>();
+    private static final Set<String>                                    DICTIONARY_FIELDS = new HashSet<>(Arrays.asList("repositoryName", "user", "accessType", "resourceType", "action", "accessResult", "agentId", "aclEnforcer", "clientType", "agentHostname", "logType", "clusterName", "zoneName"));
+
+    static {
+        LONG_ACCESSORS.put("repositoryType", AuthzAuditEvent::getRepositoryType);
+        LONG_ACCESSORS.put("policyId", AuthzAuditEvent::getPolicyId);
+        LONG_ACCESSORS.put("seqNum", AuthzAuditEvent::getSeqNum);
+        LONG_ACCESSORS.put("eventCount", AuthzAuditEvent::getEventCount);
+        LONG_ACCESSORS.put("eventDurationMS", AuthzAuditEvent::getEventDurationMS);
+
+        VALUE_ACCESSORS.put("repositoryName", AuthzAuditEvent::getRepositoryName);
+        VALUE_ACCESSORS.put("user", AuthzAuditEvent::getUser);
+        VALUE_ACCESSORS.put("eventTime", AuthzAuditEvent::getEventTime);
+        VALUE_ACCESSORS.put("accessType", AuthzAuditEvent::getAccessType);
+        VALUE_ACCESSORS.put("resourcePath", AuthzAuditEvent::getResourcePath);
+        VALUE_ACCESSORS.put("resourceType", AuthzAuditEvent::getResourceType);
+        VALUE_ACCESSORS.put("action", AuthzAuditEvent::getAction);
+        VALUE_ACCESSORS.put("accessResult", AuthzAuditEvent::getAccessResult);
+        VALUE_ACCESSORS.put("agentId", AuthzAuditEvent::getAgentId);
+        VALUE_ACCESSORS.put("resultReason", AuthzAuditEvent::getResultReason);
+        VALUE_ACCESSORS.put("aclEnforcer", AuthzAuditEvent::getAclEnforcer);
+        VALUE_ACCESSORS.put("sessionId", AuthzAuditEvent::getSessionId);
+        VALUE_ACCESSORS.put("clientType", AuthzAuditEvent::getClientType);
+        VALUE_ACCESSORS.put("clientIP", AuthzAuditEvent::getClientIP);
+        VALUE_ACCESSORS.put("requestData", AuthzAuditEvent::getRequestData);
+        VALUE_ACCESSORS.put("agentHostname", AuthzAuditEvent::getAgentHostname);
+        VALUE_ACCESSORS.put("logType", AuthzAuditEvent::getLogType);
+        VALUE_ACCESSORS.put("eventId", AuthzAuditEvent::getEventId);
+        VALUE_ACCESSORS.put("additionalInfo", AuthzAuditEvent::getAdditionalInfo);
+        VALUE_ACCESSORS.put("clusterName", AuthzAuditEvent::getClusterName);
+        VALUE_ACCESSORS.put("zoneName", AuthzAuditEvent::getZoneName);
+    }
+
+    private final ColumnBinder[] binders;
+
+    public ORCAuditEventBinder(List<String> fieldNames, VectorizedRowBatch batch, String dateFormat) throws Exception {
+        binders = new ColumnBinder[fieldNames.size()];
+
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = createBinder(fieldNames.get(i), batch.cols[i], dateFormat);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("ORCAuditEventBinder(): fields=" + fieldNames);
+        }
+    }
+
+    public void bind(AuthzAuditEvent event, int row) {
+        for (ColumnBinder binder : binders) {
+            binder.bind(event, row);
+        }
+    }
+
+    private static ColumnBinder createBinder(String fieldName, ColumnVector columnVector, String dateFormat) throws Exception {
+        final ColumnBinder ret;
+
+        if (columnVector instanceof LongColumnVector) {
+            ToLongFunction<AuthzAuditEvent> accessor = LONG_ACCESSORS.get(fieldName);
+
+            if (accessor == null) {
+                accessor = getLongFieldAccessor(fieldName);
+            }
+
+            ret = new LongColumnBinder((LongColumnVector) columnVector, accessor);
+        } else if (columnVector instanceof BytesColumnVector) {
+            Function<AuthzAuditEvent, Object> accessor = VALUE_ACCESSORS.get(fieldName);
+
+            if (accessor == null) {
+                accessor = getFieldAccessor(fieldName);
+            }
+
+            ret = new BytesColumnBinder((BytesColumnVector) columnVector, accessor, DICTIONARY_FIELDS.contains(fieldName), dateFormat);
+        } else {
+            throw new Exception("Unsupported column type " + (columnVector != null ? columnVector.getClass().getName() : null) + " for field " + fieldName);
+        }
+
+        return ret;
+    }
+
+    // for fields added to AuthzAuditEvent without an accessor above; the field is looked up only once
+    private static Function<AuthzAuditEvent, Object> getFieldAccessor(String fieldName) throws Exception {
+        final Field field = AuthzAuditEvent.class.getDeclaredField(fieldName);
+
+        field.setAccessible(true);
+
+        logger.info("ORCAuditEventBinder: using reflection to read field " + fieldName);
+
+        return event -> {
+            try {
+                return field.get(event);
+            } catch (IllegalAccessException e) {
+                logger.error("Error while reading field " + fieldName, e);
+
+                return null;
+            }
+        };
+    }
+
+    private static ToLongFunction<AuthzAuditEvent> getLongFieldAccessor(String fieldName) throws Exception {
+        final Function<AuthzAuditEvent, Object> accessor = getFieldAccessor(fieldName);
+
+        return event -> {
+            Object value = accessor.apply(event);
+
+            return value instanceof Number ? ((Number) value).longValue() : 0L;
+        };
+    }
+
+    private interface ColumnBinder {
+        void bind(AuthzAuditEvent event, int row);
+    }
+
+    private static final class LongColumnBinder implements ColumnBinder {
+        private final LongColumnVector                column;
+        private final ToLongFunction<AuthzAuditEvent> accessor;
+
+        LongColumnBinder(LongColumnVector column, ToLongFunction<AuthzAuditEvent> accessor) {
+            this.column   = column;
+            this.accessor = accessor;
+        }
+
+        @Override
+        public void bind(AuthzAuditEvent event, int row) {
+            column.vector[row] = accessor.applyAsLong(event);
+        }
+    }
+
+    private static final class BytesColumnBinder implements ColumnBinder {
+        private final BytesColumnVector                 column;
+        private final Function<AuthzAuditEvent, Object> accessor;
+        private final Map<String, byte[]>               dictionary;
+        private final SimpleDateFormat                  dateFormatter;
+        private final boolean                           isDateInSeconds;
+        private       long                              lastDateSeconds = Long.MIN_VALUE;
+        private       byte[]                            lastDateBytes   = null;
+        private       byte[]                            buffer          = new byte[256];
+
+        BytesColumnBinder(BytesColumnVector column, Function<AuthzAuditEvent, Object> accessor, boolean useDictionary, String dateFormat) {
+            this.column          = column;
+            this.accessor        = accessor;
+            this.dictionary      = useDictionary ? new HashMap<>() : null;
+            this.dateFormatter   = new SimpleDateFormat(dateFormat);
+            this.isDateInSeconds = dateFormat.indexOf('S') == -1;
+        }
+
+        @Override
+        public void bind(AuthzAuditEvent event, int row) {
+            Object value = accessor.apply(event);
+
+            if (value == null) {
+                column.setRef(row, EMPTY_BYTES, 0, 0);
+            } else if (value instanceof Date) {
+                bindDate(row, (Date) value);
+            } else {
+                bindString(row, value.toString());
+            }
+        }
+
+        private void bindString(int row, String value) {
+            byte[] bytes = dictionary != null ? dictionary.get(value) : null;
+
+            if (bytes == null && dictionary != null && dictionary.size() < DICTIONARY_MAX_SIZE) {
+                bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                dictionary.put(value, bytes);
+            }
+
+            if (bytes != null) { // dictionary entries are never modified, hence can be referenced from the column
+                column.setRef(row, bytes, 0, bytes.length);
+            } else {
+                int length = encodeUtf8(value);
+
+                column.setVal(row, buffer, 0, length);
+            }
+        }
+
+        // events in a batch mostly fall within a few seconds; format each second only once
+        private void bindDate(int row, Date date) {
+            long time = date.getTime();
+
+            if (isDateInSeconds) {
+                long seconds = Math.floorDiv(time, 1000L);
+
+                if (seconds != lastDateSeconds || lastDateBytes == null) {
+                    lastDateBytes   = dateFormatter.format(date).getBytes(StandardCharsets.UTF_8);
+                    lastDateSeconds = seconds;
+                }
+
+                column.setRef(row, lastDateBytes, 0, lastDateBytes.length);
+            } else {
+                bindString(row, dateFormatter.format(date));
+            }
+        }
+
+        // same bytes as String.getBytes(UTF_8), without allocating an array per value
+        private int encodeUtf8(String value) {
+            int len = value.length();
+
+            if (buffer.length < len * 3) {
+                buffer = new byte[len * 3];
+            }
+
+            int pos = 0;
+
+            for (int i = 0; i < len; i++) {
+                char c = value.charAt(i);
+
+                if (c < 0x80) {
+                    buffer[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[pos++] = (byte) (0xC0 | (c >> 6));
+                    buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                        buffer[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                        buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                        buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                        buffer[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                    } else {
+                        buffer[pos++] = '?';
+                    }
+                } else {
+                    buffer[pos++] = (byte) (0xE0 | (c >> 12));
+                    buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+
+            return pos;
+        }
+    }
+}
@@ -59,6 +59,8 @@ public class ORCFileUtil {
     protected Map<String,ColumnVector>  vectorizedRowBatchMap = new HashMap<>();
     protected int                       orcBufferSize;
     protected long                      orcStripeSize;
+    protected ORCAuditEventBinder       eventBinder;
+    protected boolean                   useEventBinder        = true;
 
     public static ORCFileUtil getInstance() {
         ORCFileUtil orcFileUtil = me;
@@ -87,6 +89,14 @@ public void init(int orcBufferSize, long orcStripeSize, String compression) thro
         }
     }
 
+    public boolean isUseEventBinder() {
+        return useEventBinder;
+    }
+
+    public void setUseEventBinder(boolean useEventBinder) {
+        this.useEventBinder = useEventBinder;
+    }
+
     public Writer createWriter(Configuration conf, FileSystem fs, String path) throws Exception {
         if (logger.isDebugEnabled()) {
             logger.debug("==> ORCFileUtil.createWriter()");
@@ -128,15 +138,10 @@ public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Except
         try {
             for(AuthzAuditEvent event : events) {
                 int row = batch.size++;
-                for (int j=0;j<schemaFields.size();j++) {
-                    String fieldName          = schemaFields.get(j);
-                    SchemaInfo schemaInfo     = getFieldValue(event, fieldName);
-                    ColumnVector columnVector = vectorizedRowBatchMap.get(fieldName);
-                    if (columnVector instanceof LongColumnVector) {
-                        ((LongColumnVector) columnVector).vector[row] = castLongObject(schemaInfo.getValue());
-                    } else if (columnVector instanceof BytesColumnVector) {
-                        ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(schemaInfo.getValue())));
-                    }
+                if (useEventBinder && eventBinder != null) {
+                    eventBinder.bind(event, row);
+                } else {
+                    logFields(event, row);
                 }
                 if (batch.size == orcBufferSize) {
                     writer.addRowBatch(batch);
@@ -158,6 +163,19 @@ public void log(Writer writer, Collection<AuthzAuditEvent> events) throws Except
         }
     }
 
+    protected void logFields(AuthzAuditEvent event, int row) {
+        for (int j=0;j<schemaFields.size();j++) {
+            String fieldName          = schemaFields.get(j);
+            SchemaInfo schemaInfo     = getFieldValue(event, fieldName);
+            ColumnVector columnVector = vectorizedRowBatchMap.get(fieldName);
+            if (columnVector instanceof LongColumnVector) {
+                ((LongColumnVector) columnVector).vector[row] = castLongObject(schemaInfo.getValue());
+            } else if (columnVector instanceof BytesColumnVector) {
+                ((BytesColumnVector) columnVector).setVal(row, getBytesValues(castStringObject(schemaInfo.getValue())));
+            }
+        }
+    }
+
     protected byte[] getBytesValues(String val) {
         byte[] ret = "".getBytes();
         if(val != null) {
@@ -182,6 +200,7 @@ protected void initORCAuditSchema() throws Exception {
         schema = TypeDescription.fromString(auditSchema);
         batch  = schema.createRowBatch(orcBufferSize);
         buildVectorRowBatch(schemaFieldTypeMap);
+        eventBinder = new ORCAuditEventBinder(schemaFields, batch, dateFormat);
         if (logger.isDebugEnabled()) {
             logger.debug("<== ORCWriter.initORCAuditSchema()");
         }
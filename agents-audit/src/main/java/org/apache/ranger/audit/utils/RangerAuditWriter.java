@@ -20,7 +20,11 @@
  */
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -29,6 +33,31 @@ public interface RangerAuditWriter {
 
     boolean log(Collection<String> events) throws Exception;
 
+    /**
+     * Writes a batch of events, encoded as UTF-8 JSON and separated by a newline, as created by
+     * AuthzAuditEventJSONEncoder. Writers of JSON text should write the bytes as they are; this default implementation
+     * decodes the events and calls log().
+     */
+    default boolean logJSON(ByteBuffer events) throws Exception {
+        String       batch = StandardCharsets.UTF_8.decode(events.duplicate()).toString();
+        List<String> jsons = new ArrayList<>();
+        int          start = 0;
+
+        for (int end = batch.indexOf('\n'); start < batch.length(); end = batch.indexOf('\n', start)) {
+            if (end == -1) {
+                end = batch.length();
+            }
+
+            if (end > start) {
+                jsons.add(batch.substring(start, end));
+            }
+
+            start = end + 1;
+        }
+
+        return log(jsons);
+    }
+
     boolean logFile(File file) throws Exception;
 
     void start();
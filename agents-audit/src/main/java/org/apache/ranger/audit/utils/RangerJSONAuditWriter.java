@@ -25,6 +25,8 @@
 
 import java.io.File;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.security.PrivilegedExceptionAction;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -137,6 +139,44 @@ public boolean log(Collection<String> events) throws  Exception {
         return logJSON(events);
     }
 
+    /**
+     * Writes the encoded events to the file stream as they are, instead of converting each to a String and back to bytes.
+     */
+    @Override
+    synchronized public boolean logJSON(final ByteBuffer events) throws Exception {
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("UGI = {}, will write to HDFS file = {}", MiscUtil.getUGILoginUser(), currentFileName);
+            }
+            MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Void>() {
+                @Override
+                public Void run() throws Exception {
+                    PrintWriter out = getLogFileStream();
+
+                    // events written earlier with logJSON(Collection) may still be in the writer
+                    out.flush();
+
+                    ByteBuffer buffer = events.duplicate();
+
+                    if (buffer.hasArray()) {
+                        ostream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    } else {
+                        Channels.newChannel(ostream).write(buffer);
+                    }
+                    return null;
+                };
+            });
+        } catch (Exception e) {
+            logger.error("Exception encountered while writing audits to HDFS!", e);
+            closeWriter();
+            resetWriter();
+            reUseLastLogFile = true;
+            return false;
+        }
+
+        return true;
+    }
+
     synchronized public boolean logAsFile(final File file) throws Exception {
         boolean ret = false;
         if (logger.isDebugEnabled()) {
@@ -182,6 +182,7 @@ public void init(Properties props, String propPrefix, String auditProviderName)
         try {
             orcFileUtil = ORCFileUtil.getInstance();
             orcFileUtil.init(orcBufferSize, orcStripeSize, compression);
+            orcFileUtil.setUseEventBinder(MiscUtil.getBooleanProperty(props, propPrefix + "." + fileType + ".use.event.binder", true));
         } catch ( Exception e) {
             logger.error("Error while doing ORCWriter.init() ", e);
         }
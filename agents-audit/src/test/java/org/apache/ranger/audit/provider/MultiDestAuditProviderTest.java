@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.provider;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.queue.AuditDestinationDispatcher;
+import org.apache.ranger.audit.queue.AuditFileSpool;
+import org.apache.ranger.audit.queue.AuditQueue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MultiDestAuditProviderTest {
+    private static final String FANOUT_PREFIX = BaseAuditHandler.PROP_DEFAULT_PREFIX + "." + MultiDestAuditProvider.DEFAULT_NAME + "." + MultiDestAuditProvider.PROP_FANOUT;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testSlowDestinationDoesNotBlockOthers() throws Exception {
+        CountDownLatch                   released = new CountDownLatch(1);
+        List<Collection<AuditEventBase>> fastLogs = new CopyOnWriteArrayList<>();
+        List<Collection<AuditEventBase>> slowLogs = new CopyOnWriteArrayList<>();
+        AuditHandler                     fast     = createDestination("fast", fastLogs, null, 0);
+        AuditHandler                     slow     = createDestination("slow", slowLogs, released, 0);
+        MultiDestAuditProvider           provider = createProvider(new Properties(), fast, slow);
+
+        List<AuditEventBase> batch = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            batch.add(new AuthzAuditEvent());
+            batch.add(new AuthzAuditEvent());
+
+            assertTrue(provider.log(batch));
+
+            // caller reuses its buffer, as AuditBatchQueue does
+            batch.clear();
+        }
+
+        waitFor(() -> fastLogs.size() == 5);
+
+        assertEquals(0, slowLogs.size());
+
+        AuditDestinationDispatcher slowDispatcher = provider.getDispatchers().get(1);
+
+        assertEquals(AuditDestinationDispatcher.class, slowDispatcher.getClass());
+        assertTrue(slowDispatcher.getQueueSize() > 0);
+        assertTrue(slowDispatcher.getLagMs() >= 0);
+        assertEquals(10, provider.getDispatchers().get(0).getDispatchedEventCount());
+
+        released.countDown();
+
+        provider.waitToComplete(10000);
+
+        assertEquals(5, slowLogs.size());
+        assertEquals(10, slowDispatcher.getDispatchedEventCount());
+
+        for (int i = 0; i < 5; i++) {
+            // same batch instance is given to all destinations
+            assertSame(fastLogs.get(i), slowLogs.get(i));
+            assertEquals(2, fastLogs.get(i).size());
+        }
+
+        provider.stop();
+    }
+
+    @Test
+    public void testRetryWithBackoff() throws Exception {
+        List<Collection<AuditEventBase>> logs      = new CopyOnWriteArrayList<>();
+        List<Collection<AuditEventBase>> otherLogs = new CopyOnWriteArrayList<>();
+        Properties                       props     = new Properties();
+
+        props.setProperty(FANOUT_PREFIX + "." + AuditDestinationDispatcher.PROP_RETRY_BACKOFF_MS, "1");
+        props.setProperty(FANOUT_PREFIX + ".failing." + AuditDestinationDispatcher.PROP_RETRY_MAX_ATTEMPTS, "2");
+
+        MultiDestAuditProvider provider = createProvider(props, createDestination("failing", logs, null, 2), createDestination("other", otherLogs, null, 0));
+
+        provider.log(new AuthzAuditEvent());
+
+        provider.waitToComplete(10000);
+
+        AuditDestinationDispatcher dispatcher = provider.getDispatchers().get(0);
+
+        assertEquals(1, logs.size());
+        assertEquals(1, otherLogs.size());
+        assertEquals(2, dispatcher.getRetryCount());
+        assertEquals(0, provider.getDispatchers().get(1).getRetryCount());
+        assertEquals(1, dispatcher.getDispatchedEventCount());
+
+        provider.stop();
+    }
+
+    @Test
+    public void testEnqueueWaitsWhenQueueIsFull() throws Exception {
+        CountDownLatch                   released = new CountDownLatch(1);
+        List<Collection<AuditEventBase>> logs     = new CopyOnWriteArrayList<>();
+        Properties                       props    = new Properties();
+
+        props.setProperty(FANOUT_PREFIX + "." + AuditQueue.PROP_QUEUE_SIZE, "1");
+
+        MultiDestAuditProvider provider = createProvider(props, createDestination("slow", logs, released, 0), createDestination("other", new CopyOnWriteArrayList<>(), null, 0));
+        Thread                 caller   = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                provider.log(new AuthzAuditEvent());
+            }
+        });
+
+        caller.start();
+        caller.join(500);
+
+        // one batch is being delivered, one is queued; the caller waits for room for the third
+        assertTrue(caller.isAlive());
+
+        released.countDown();
+        caller.join(10000);
+        provider.waitToComplete(10000);
+
+        AuditDestinationDispatcher dispatcher = provider.getDispatchers().get(0);
+
+        assertEquals(3, logs.size());
+        assertEquals(3, dispatcher.getDispatchedEventCount());
+        assertEquals(0, dispatcher.getDroppedEventCount());
+
+        provider.stop();
+    }
+
+    @Test
+    public void testSharedFileSpool() throws Exception {
+        File       spoolDir = tempFolder.newFolder("spool");
+        Properties props    = new Properties();
+
+        props.setProperty(FANOUT_PREFIX + "." + AuditDestinationDispatcher.PROP_RETRY_MAX_ATTEMPTS, "0");
+        props.setProperty(FANOUT_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, spoolDir.getPath());
+
+        MultiDestAuditProvider provider = createProvider(props, createDestination("failing", new CopyOnWriteArrayList<>(), null, Integer.MAX_VALUE), createDestination("other", new CopyOnWriteArrayList<>(), null, 0));
+
+        provider.log(new AuthzAuditEvent());
+        provider.waitToComplete(10000);
+
+        AuditDestinationDispatcher dispatcher = provider.getDispatchers().get(0);
+
+        // the shared spool folder has a sub-folder for each destination
+        assertTrue(new File(spoolDir, "failing").isDirectory());
+        assertTrue(new File(spoolDir, "other").isDirectory());
+        assertEquals(1, dispatcher.getSpooledEventCount());
+        assertEquals(0, dispatcher.getDroppedEventCount());
+        assertEquals(1, provider.getDispatchers().get(1).getDispatchedEventCount());
+
+        provider.stop();
+    }
+
+    @Test
+    public void testFanOutDisabledByDefault() {
+        MultiDestAuditProvider provider = new MultiDestAuditProvider();
+
+        provider.init(new Properties());
+
+        assertFalse(provider.isFanOutEnabled());
+        assertTrue(provider.getDispatchers().isEmpty());
+    }
+
+    private MultiDestAuditProvider createProvider(Properties props, AuditHandler... destinations) {
+        MultiDestAuditProvider ret = new MultiDestAuditProvider();
+
+        props.setProperty(FANOUT_PREFIX + "." + MultiDestAuditProvider.PROP_FANOUT_ENABLED, "true");
+
+        ret.init(props);
+
+        for (AuditHandler destination : destinations) {
+            ret.addAuditProvider(destination);
+        }
+
+        ret.start();
+
+        assertEquals(destinations.length, ret.getDispatchers().size());
+
+        return ret;
+    }
+
+    private static AuditHandler createDestination(String name, List<Collection<AuditEventBase>> logs, CountDownLatch released, int failCount) {
+        AuditHandler ret      = mock(AuditHandler.class);
+        int[]        failures = { failCount };
+
+        when(ret.getName()).thenReturn(name);
+        when(ret.log(anyCollection())).thenAnswer(invocation -> {
+            if (released != null) {
+                released.await(10, TimeUnit.SECONDS);
+            }
+
+            if (failures[0]-- > 0) {
+                throw new RuntimeException("destination is down");
+            }
+
+            logs.add(invocation.getArgument(0));
+
+            return true;
+        });
+
+        return ret;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuditRingBufferTest {
+
+    @Test
+    public void testOfferAndDrain() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+
+        assertEquals(4, buffer.capacity());
+        assertNull(buffer.poll(10, TimeUnit.MILLISECONDS));
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i));
+            }
+
+            assertFalse(buffer.offer(4));
+            assertEquals(4, buffer.size());
+
+            List<Integer> drained = new ArrayList<>();
+
+            assertEquals(Integer.valueOf(0), buffer.poll());
+            assertEquals(3, buffer.drainTo(drained, 10));
+            assertEquals(3, drained.get(2).intValue());
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void testBlockingQueueMethods() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(2);
+
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertFalse(buffer.offer(3, 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, buffer.remainingCapacity());
+        assertEquals(Integer.valueOf(1), buffer.peek());
+        assertEquals(Integer.valueOf(1), buffer.take());
+
+        List<Integer> drained = new ArrayList<>();
+
+        assertEquals(1, buffer.drainTo(drained));
+        assertEquals(Integer.valueOf(2), drained.get(0));
+        assertNull(buffer.peek());
+
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+
+                buffer.put(3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        producer.start();
+
+        // take() waits for the producer
+        assertEquals(Integer.valueOf(3), buffer.take());
+
+        producer.join();
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int                producerCount = 4;
+        final int                eventCount    = 100000;
+        AuditRingBuffer<Integer> buffer        = new AuditRingBuffer<>(1024);
+        Thread[]                 producers     = new Thread[producerCount];
+
+        for (int p = 0; p < producerCount; p++) {
+            final int producerId = p;
+
+            producers[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < eventCount; i++) {
+                        buffer.put(producerId * eventCount + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            producers[p].start();
+        }
+
+        int[]         lastSeen = new int[producerCount];
+        List<Integer> batch    = new ArrayList<>();
+        int           received = 0;
+
+        Arrays.fill(lastSeen, -1);
+
+        while (received < producerCount * eventCount) {
+            Integer first = buffer.poll(1, TimeUnit.SECONDS);
+
+            assertTrue("timed out waiting for events", first != null);
+
+            batch.clear();
+            batch.add(first);
+            buffer.drainTo(batch, 1000);
+
+            for (Integer value : batch) {
+                int producerId = value / eventCount;
+                int seq        = value % eventCount;
+
+                // events from a producer are received in order, each once
+                assertEquals(lastSeen[producerId] + 1, seq);
+
+                lastSeen[producerId] = seq;
+            }
+
+            received += batch.size();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testOverflowPolicy() throws Exception {
+        CountDownLatch       released = new CountDownLatch(1);
+        AuditHandler         consumer = mock(AuditHandler.class);
+        AuditRingBufferQueue queue    = new AuditRingBufferQueue(consumer);
+        Properties           props    = new Properties();
+
+        when(consumer.getName()).thenReturn("test");
+        when(consumer.log(any(Collection.class))).thenAnswer(invocation -> released.await(10, TimeUnit.SECONDS));
+
+        props.setProperty("test.ring." + AuditQueue.PROP_QUEUE_SIZE, "2");
+        props.setProperty("test.ring." + AuditQueue.PROP_BATCH_SIZE, "1");
+        props.setProperty("test.ring." + AuditRingBufferQueue.PROP_OVERFLOW_POLICY, "drop_newest");
+        props.setProperty("test.spill." + AuditRingBufferQueue.PROP_OVERFLOW_POLICY, "spill");
+
+        queue.init(props, "test.ring");
+
+        assertEquals(AuditRingBufferQueue.OverflowPolicy.DROP_NEWEST, queue.getOverflowPolicy());
+
+        AuditRingBufferQueue spillQueue = new AuditRingBufferQueue(consumer);
+
+        spillQueue.init(props, "test.spill");
+
+        // spill needs the file spool, which is not enabled
+        assertEquals(AuditRingBufferQueue.OverflowPolicy.BLOCK, spillQueue.getOverflowPolicy());
+
+        queue.start();
+
+        // consumer thread takes the first event and waits in consumer.log(); next 2 events fill the buffer
+        assertTrue(queue.log(new AuthzAuditEvent()));
+
+        for (int i = 0; i < 100 && queue.size() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(queue.log(new AuthzAuditEvent()));
+        assertTrue(queue.log(new AuthzAuditEvent()));
+        assertFalse(queue.log(new AuthzAuditEvent()));
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(4, queue.getEnqueueCount());
+
+        released.countDown();
+        queue.stop();
+    }
+}
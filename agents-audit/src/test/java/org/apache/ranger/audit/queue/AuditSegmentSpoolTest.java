@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuditSegmentSpoolTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final List<String> received = new ArrayList<>();
+    private       int          failAfterBatches = Integer.MAX_VALUE;
+    private       AuditQueue   queue;
+
+    @Test
+    public void testReplayAcrossSegments() throws Exception {
+        Properties        props = createProperties(300);
+        AuditSegmentSpool spool = createSpool(props);
+
+        stashEvents(spool, 0, 10);
+        spool.flush();
+
+        assertTrue(spool.isPending());
+        assertTrue(spool.getSegmentCount() > 1);
+
+        while (spool.replayNextSegment()) {
+            // replay all segments
+        }
+
+        assertEquals(getEventIds(0, 10), getReceivedEventIds());
+        assertEquals(10, received.size());
+        assertFalse(spool.isPending());
+        assertEquals(0, spool.getSegmentCount());
+    }
+
+    @Test
+    public void testResumeFromCheckpointAfterRestart() throws Exception {
+        Properties        props = createProperties(1024 * 1024);
+        AuditSegmentSpool spool = createSpool(props);
+
+        stashEvents(spool, 0, 10);
+
+        // destination fails after the first batch of 4 events
+        failAfterBatches = 1;
+
+        assertTrue(spool.replayNextSegment());
+        assertEquals(4, received.size());
+        assertTrue(spool.isPending());
+
+        spool.stop();
+
+        // partial record at the end, as from a crash during write
+        File[] segments = tempFolder.getRoot().listFiles((dir, name) -> name.endsWith(AuditSegmentSpool.SEGMENT_FILE_SUFFIX));
+
+        assertEquals(1, segments.length);
+
+        try (FileOutputStream out = new FileOutputStream(segments[0], true)) {
+            out.write(new byte[] { 0, 0, 0, 50, 1, 2, 3 });
+        }
+
+        failAfterBatches = Integer.MAX_VALUE;
+
+        AuditSegmentSpool restarted = createSpool(props);
+
+        assertTrue(restarted.isPending());
+
+        while (restarted.replayNextSegment()) {
+            // replay all segments
+        }
+
+        // events sent before the restart are not sent again
+        assertEquals(10, received.size());
+        assertEquals(getEventIds(0, 10), getReceivedEventIds());
+        assertFalse(restarted.isPending());
+    }
+
+    @Test
+    public void testRetryOnNewSegmentAfterWriteError() throws Exception {
+        Properties        props = createProperties(1024 * 1024);
+        AuditSegmentSpool spool = createSpool(props);
+
+        stashEvents(spool, 0, 5);
+        spool.flush();
+
+        // buffered events, not yet written to the segment
+        stashEvents(spool, 5, 10);
+
+        spool.getWriteChannel().close();
+        spool.flush();
+
+        assertEquals(2, spool.getSegmentCount());
+
+        while (spool.replayNextSegment()) {
+            // replay all segments
+        }
+
+        assertEquals(getEventIds(0, 10), getReceivedEventIds());
+        assertEquals(10, received.size());
+    }
+
+    @Test
+    public void testFailedCountWhenRetryFails() throws Exception {
+        Properties        props = createProperties(1024 * 1024);
+        AuditSegmentSpool spool = createSpool(props);
+        File              moved = new File(tempFolder.getRoot().getPath() + ".moved");
+
+        stashEvents(spool, 0, 3);
+
+        // the new segment can't be created either
+        spool.getWriteChannel().close();
+
+        assertTrue(tempFolder.getRoot().renameTo(moved));
+
+        try {
+            spool.flush();
+        } finally {
+            assertTrue(moved.renameTo(tempFolder.getRoot()));
+        }
+
+        verify(queue).addFailedCount(3);
+    }
+
+    private Properties createProperties(long segmentSize) {
+        Properties props = new Properties();
+
+        props.setProperty("test.spool." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, tempFolder.getRoot().getAbsolutePath());
+        props.setProperty("test.spool." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "0");
+        props.setProperty("test.spool." + AuditSegmentSpool.PROP_FILE_SPOOL_SEGMENT_SIZE, Long.toString(segmentSize));
+
+        return props;
+    }
+
+    private AuditSegmentSpool createSpool(Properties props) {
+        AuditHandler consumer = mock(AuditHandler.class);
+
+        queue = mock(AuditQueue.class);
+
+        when(queue.getName()).thenReturn("batch");
+        when(queue.getMaxBatchSize()).thenReturn(4);
+        when(consumer.getName()).thenReturn("test");
+        when(consumer.logJSON(anyCollection())).thenAnswer(invocation -> {
+            if (failAfterBatches-- <= 0) {
+                return false;
+            }
+
+            received.addAll(invocation.getArgument(0));
+
+            return true;
+        });
+
+        AuditSegmentSpool ret = new AuditSegmentSpool(queue, consumer);
+
+        assertTrue(ret.init(props, "test.spool"));
+
+        return ret;
+    }
+
+    private static void stashEvents(AuditSegmentSpool spool, int from, int to) {
+        for (int i = from; i < to; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setEventId("event-" + i);
+
+            spool.stashLogs(event);
+        }
+    }
+
+    private static TreeSet<String> getEventIds(int from, int to) {
+        TreeSet<String> ret = new TreeSet<>();
+
+        for (int i = from; i < to; i++) {
+            ret.add("event-" + i);
+        }
+
+        return ret;
+    }
+
+    private TreeSet<String> getReceivedEventIds() {
+        TreeSet<String> ret = new TreeSet<>();
+
+        for (String json : received) {
+            ret.add(json.replaceAll(".*\"id\":\"(event-\\d+)\".*", "$1"));
+        }
+
+        return ret;
+    }
+}
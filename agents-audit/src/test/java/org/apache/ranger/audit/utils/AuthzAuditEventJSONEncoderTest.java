@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuthzAuditEventJSONEncoderTest {
+    private final Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS").create();
+
+    @Test
+    public void testMatchesGson() {
+        AuthzAuditEvent event = createEvent("hive", "select * from t1 where c1 = 'a<b>&c'");
+
+        assertEncodedAsGson(event);
+        assertEquals(gson.toJson(event), AuthzAuditEventJSONEncoder.toJson(event));
+        assertEquals(gson.toJson(event), MiscUtil.stringify(event));
+    }
+
+    @Test
+    public void testMatchesGsonWithEmptyEvent() {
+        assertEncodedAsGson(new AuthzAuditEvent());
+    }
+
+    @Test
+    public void testEscaping() {
+        AuthzAuditEvent event = createEvent("hdfs", "quote\" backslash\\ ctrl\u0001\u001f\t\n\r\b\f del\u007f");
+
+        event.setResultReason("latin\u00e9 cjk\u4e2d emoji\ud83d\ude00 separators\u2028\u2029");
+        // written as '?', same as String.getBytes() of Gson output
+        event.setUser("unpaired\ud800 low\udc00");
+
+        assertEncodedAsGson(event);
+    }
+
+    @Test
+    public void testSetsWithNullElements() {
+        AuthzAuditEvent event = createEvent("kafka", "produce");
+
+        event.setTags(new LinkedHashSet<>(Arrays.asList("PII", null, "\"quoted\"")));
+        event.setDatasets(new HashSet<>());
+
+        assertEncodedAsGson(event);
+    }
+
+    @Test
+    public void testBatchOfLines() {
+        AuthzAuditEventJSONEncoder encoder = new AuthzAuditEventJSONEncoder();
+        AuthzAuditEvent            event1  = createEvent("hive", "event-1");
+        AuthzAuditEvent            event2  = createEvent("hbase", "event-2");
+
+        encoder.encode(event1);
+        encoder.newLine();
+        encoder.encode(event2);
+        encoder.newLine();
+
+        String expected = gson.toJson(event1) + "\n" + gson.toJson(event2) + "\n";
+
+        assertEquals(expected, encoder.toString());
+        assertEquals(expected, StandardCharsets.UTF_8.decode(encoder.getBuffer()).toString());
+
+        encoder.reset();
+
+        assertEquals(0, encoder.size());
+    }
+
+    @Test
+    public void testUnsupportedDateFallsBackToGson() {
+        AuthzAuditEvent event = createEvent("hive", "timestamp");
+
+        event.setEventTime(new Timestamp(System.currentTimeMillis()));
+
+        assertFalse(AuthzAuditEventJSONEncoder.isSupported(event));
+        assertEquals(gson.toJson(event), AuthzAuditEventJSONEncoder.toJson(event));
+
+        event.setEventTime(new Date());
+
+        assertTrue(AuthzAuditEventJSONEncoder.isSupported(event));
+    }
+
+    private void assertEncodedAsGson(AuthzAuditEvent event) {
+        AuthzAuditEventJSONEncoder encoder = new AuthzAuditEventJSONEncoder();
+
+        encoder.encode(event);
+
+        assertArrayEquals(gson.toJson(event).getBytes(StandardCharsets.UTF_8), Arrays.copyOf(encoder.array(), encoder.size()));
+    }
+
+    private static AuthzAuditEvent createEvent(String repoName, String requestData) {
+        AuthzAuditEvent ret = new AuthzAuditEvent();
+
+        ret.setRepositoryType(3);
+        ret.setRepositoryName(repoName);
+        ret.setUser("user1");
+        ret.setEventTime(new Date(1700000000123L));
+        ret.setAccessType("select");
+        ret.setResourcePath("db1/t1/c1");
+        ret.setResourceType("@column");
+        ret.setAction("select");
+        ret.setAccessResult((short) 1);
+        ret.setAgentId("hiveServer2");
+        ret.setPolicyId(-1L);
+        ret.setAclEnforcer("ranger-acl");
+        ret.setClientIP("10.0.0.1");
+        ret.setRequestData(requestData);
+        ret.setEventId("5f1c0e6a-1-0");
+        ret.setSeqNum(Long.MIN_VALUE);
+        ret.setEventCount(1);
+        ret.setEventDurationMS(0);
+        ret.setPolicyVersion(12L);
+        ret.setAdditionalInfo("{\"remote-ip-address\":\"10.0.0.1\"}");
+
+        return ret;
+    }
+}
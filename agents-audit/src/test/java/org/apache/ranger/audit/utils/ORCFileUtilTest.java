@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ranger.audit.utils;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.Writer;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class ORCFileUtilTest {
+
+    @Test
+    public void testEventBinderMatchesReflection() throws Exception {
+        Collection<AuthzAuditEvent> events = ORCFileUtil.getTestEvent();
+        AuthzAuditEvent             event  = new AuthzAuditEvent();
+
+        event.setUser("user1");
+        event.setResourcePath("/tmp/test-audit.log");
+        event.setEventTime(new Date(1700000000999L));
+        event.setPolicyId(12);
+        event.setSeqNum(3);
+        events.add(event);
+
+        List<List<String>> expected = logEvents(events, false);
+        List<List<String>> actual   = logEvents(events, true);
+        int                idx      = getTestUtil(true).schemaFields.indexOf("accessResult");
+
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            // reflection based copy wrote empty values for short fields, like accessResult
+            assertEquals("", expected.get(i).set(idx, ""));
+            assertEquals(i < events.size() - 1 ? "1" : "0", actual.get(i).set(idx, ""));
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static List<List<String>> logEvents(Collection<AuthzAuditEvent> events, boolean useEventBinder) throws Exception {
+        List<List<String>> ret    = new ArrayList<>();
+        Writer             writer = mock(Writer.class);
+
+        doAnswer(invocation -> {
+            VectorizedRowBatch batch = invocation.getArgument(0);
+
+            for (int row = 0; row < batch.size; row++) {
+                List<String> values = new ArrayList<>();
+
+                for (ColumnVector col : batch.cols) {
+                    if (col instanceof LongColumnVector) {
+                        values.add(Long.toString(((LongColumnVector) col).vector[row]));
+                    } else {
+                        BytesColumnVector bytesCol = (BytesColumnVector) col;
+
+                        values.add(new String(bytesCol.vector[row], bytesCol.start[row], bytesCol.length[row], StandardCharsets.UTF_8));
+                    }
+                }
+
+                ret.add(values);
+            }
+
+            return null;
+        }).when(writer).addRowBatch(any(VectorizedRowBatch.class));
+
+        getTestUtil(useEventBinder).log(writer, events);
+
+        return ret;
+    }
+
+    private static ORCFileUtil getTestUtil(boolean useEventBinder) throws Exception {
+        ORCFileUtil ret = new ORCFileUtil();
+
+        ret.init(4, 100000L, "none");
+        ret.setUseEventBinder(useEventBinder);
+
+        return ret;
+    }
+}
@@ -19,7 +19,6 @@
 
 package org.apache.ranger.plugin.audit;
 
-import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -30,12 +29,10 @@
 import org.apache.ranger.audit.provider.AuditHandler;
 import org.apache.ranger.audit.provider.MiscUtil;
 import org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.policyengine.*;
 import org.apache.ranger.plugin.policyengine.gds.GdsAccessResult;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
-import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerRESTUtils;
 import org.slf4j.Logger;
@@ -47,13 +44,16 @@ public class RangerDefaultAuditHandler implements RangerAccessResultProcessor {
 
 	private static final String       CONF_AUDIT_ID_STRICT_UUID     = "xasecure.audit.auditid.strict.uuid";
 	private static final boolean      DEFAULT_AUDIT_ID_STRICT_UUID  = false;
+	private static final String       ADDL_INFO_FORWARDED_ADDRESSES = "forwarded-ip-addresses";
+	private static final String       ADDL_INFO_REMOTE_ADDRESS      = "remote-ip-address";
+	private static final char[]       HEX_DIGITS                    = "0123456789abcdef".toCharArray();
 
 
 	private   final boolean         auditIdStrictUUID;
 	protected final String          moduleName;
 	private   final RangerRESTUtils restUtils      = new RangerRESTUtils();
 	private         long            sequenceNumber = 0;
-	private         String          UUID           = MiscUtil.generateUniqueId();
+	private         String          eventIdPrefix  = MiscUtil.generateUniqueId() + "-";
 	private         AtomicInteger   counter        =  new AtomicInteger(0);
 
 
@@ -123,7 +123,11 @@ public AuthzAuditEvent getAuthzEvents(RangerAccessResult result) {
 			ret.setResourceType(resourceType);
 			ret.setResourcePath(resourcePath);
 			ret.setRequestData(request.getRequestData());
-			ret.setEventTime(request.getAccessTime() != null ? request.getAccessTime() : new Date());
+			if (request.getAccessTime() != null) {
+				ret.setEventTime(request.getAccessTime());
+			} else if (ret.getEventTime() == null) {
+				ret.setEventTime(new Date());
+			}
 			ret.setUser(request.getUser());
 			ret.setAction(request.getAccessType());
 			ret.setAccessResult((short) (result.getIsAllowed() ? 1 : 0));
@@ -261,7 +265,7 @@ protected final Set<String> getTags(RangerAccessRequest request) {
 			ret = new HashSet<>();
 
 			for (RangerTagForEval tag : tags) {
-				ret.add(writeObjectAsString(tag));
+				ret.add(writeTagAsString(tag));
 			}
 		}
 
@@ -281,15 +285,35 @@ public final Set<String> getProjects(RangerAccessRequest request) {
 	}
 
 	public 	String getAdditionalInfo(RangerAccessRequest request) {
-		if (StringUtils.isBlank(request.getRemoteIPAddress()) && CollectionUtils.isEmpty(request.getForwardedAddresses())) {
-			return null;
+		return getAdditionalInfo(request, null, null);
+	}
+
+	/*
+	 * Returns the JSON of additional info of the request, with the given entry added to it (when value is not null).
+	 *
+	 * This is called for every audit event; hence the JSON is written directly, instead of populating a map and
+	 * serializing it with Gson. The output is same as JsonUtils.mapToJson() of a HashMap with these entries: same order of
+	 * entries, entries with null value skipped, and strings escaped as Gson does.
+	 */
+	protected final String getAdditionalInfo(RangerAccessRequest request, String name, String value) {
+		StringBuilder sb = null;
+
+		if (StringUtils.isNotBlank(request.getRemoteIPAddress()) || CollectionUtils.isNotEmpty(request.getForwardedAddresses())) {
+			sb = new StringBuilder(128);
+
+			appendJsonEntry(sb, ADDL_INFO_FORWARDED_ADDRESSES, "[" + StringUtils.join(request.getForwardedAddresses(), ", ") + "]");
+			appendJsonEntry(sb, ADDL_INFO_REMOTE_ADDRESS, request.getRemoteIPAddress());
 		}
-		Map<String,String> addInfomap=new HashMap<String,String>();
-		addInfomap.put("forwarded-ip-addresses", "[" + StringUtils.join(request.getForwardedAddresses(), ", ") + "]");
-		addInfomap.put("remote-ip-address", request.getRemoteIPAddress());
-		String addInfojsonStr = JsonUtils.mapToJson(addInfomap);
-		return addInfojsonStr;
 
+		if (value != null) {
+			if (sb == null) {
+				sb = new StringBuilder(name.length() + value.length() + 8);
+			}
+
+			appendJsonEntry(sb, name, value);
+		}
+
+		return sb != null && sb.length() > 0 ? sb.append('}').toString() : null;
 	}
 
 	private String generateNextAuditEventId() {
@@ -298,15 +322,17 @@ private String generateNextAuditEventId() {
 		if (auditIdStrictUUID) {
 			ret = MiscUtil.generateGuid();
 		} else {
-			int nextId = counter.getAndIncrement();
+			String prefix = eventIdPrefix;
+			int    nextId = counter.getAndIncrement();
 
 			if (nextId == Integer.MAX_VALUE) {
 				// reset UUID and counter
-				UUID    = MiscUtil.generateUniqueId();
-				counter = new AtomicInteger(0);
+				eventIdPrefix = MiscUtil.generateUniqueId() + "-";
+				counter       = new AtomicInteger(0);
 			}
 
-			ret = UUID + "-" + Integer.toString(nextId);
+			// sized for the largest id, so that the id is built without growing the buffer
+			ret = new StringBuilder(prefix.length() + 10).append(prefix).append(nextId).toString();
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -316,13 +342,64 @@ private String generateNextAuditEventId() {
 		return ret;
 	 }
 
-	private String writeObjectAsString(Serializable obj) {
+	private String writeTagAsString(RangerTagForEval tag) {
 		String jsonStr = StringUtils.EMPTY;
 		try {
-			jsonStr = JsonUtilsV2.objToJson(obj);
+			jsonStr = tag.toJson();
 		} catch (Exception e) {
-			LOG.error("Cannot create JSON string for object:[" + obj + "]", e);
+			LOG.error("Cannot create JSON string for object:[" + tag + "]", e);
 		}
 		return jsonStr;
 	}
+
+	private static void appendJsonEntry(StringBuilder sb, String name, String value) {
+		if (value != null) {
+			sb.append(sb.length() == 0 ? '{' : ',');
+
+			appendJsonString(sb, name);
+			sb.append(':');
+			appendJsonString(sb, value);
+		}
+	}
+
+	// escapes characters as Gson does, with its default HTML-safe escaping
+	private static void appendJsonString(StringBuilder sb, String str) {
+		sb.append('"');
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+
+			switch (c) {
+				case '"':  sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\t': sb.append("\\t"); break;
+				case '\b': sb.append("\\b"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\f': sb.append("\\f"); break;
+				case '<':
+				case '>':
+				case '&':
+				case '=':
+				case '\'':
+				case '\u2028':
+				case '\u2029':
+					appendUnicodeEscape(sb, c);
+					break;
+				default:
+					if (c < 0x20) {
+						appendUnicodeEscape(sb, c);
+					} else {
+						sb.append(c);
+					}
+					break;
+			}
+		}
+
+		sb.append('"');
+	}
+
+	private static void appendUnicodeEscape(StringBuilder sb, char c) {
+		sb.append("\\u").append(HEX_DIGITS[(c >> 12) & 0xF]).append(HEX_DIGITS[(c >> 8) & 0xF]).append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+	}
 }
@@ -20,14 +20,20 @@
 
 package org.apache.ranger.plugin.conditionevaluator;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.util.RangerIpAddressTrie;
+import org.apache.ranger.plugin.util.RangerIpAddressUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,9 +43,17 @@
  */
 public class RangerIpMatcher extends RangerAbstractConditionEvaluator {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerIpMatcher.class);
+
+	// indexes of policy IP lists, shared by matchers having the same list of IPs. Indexes are weakly referenced, so that
+	// an index - and its entry here - is released along with the last matcher using it, i.e. when policy engines using
+	// it are replaced
+	private static final Map<List<String>, SharedIndexRef> SHARED_INDEXES  = new HashMap<>();
+	private static final ReferenceQueue<IpAddressIndex>   RELEASED_INDEXES = new ReferenceQueue<>();
+
 	private List<String> _exactIps = new ArrayList<>();
 	private List<String> _wildCardIps = new ArrayList<>();
 	private boolean _allowAny;
+	private IpAddressIndex _ipIndex;
 	
 	@Override
 	public void init() {
@@ -71,10 +85,14 @@ public void init() {
 					_wildCardIps.add(digestedIp);
 				}
 			}
+
+			if (!_allowAny) {
+				_ipIndex = getIpAddressIndex(condition.getValues());
+			}
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "]");
+			LOG.debug("<== RangerIpMatcher.init(" + condition + "): exact-ips[" + _exactIps + "], wildcard-ips[" + _wildCardIps + "], index-prefix-count=" + (_ipIndex != null ? _ipIndex.trie.getPrefixCount() : 0));
 		}
 	}
 
@@ -91,7 +109,15 @@ public boolean isMatched(final RangerAccessRequest request) {
 			String requestIp = extractIp(request);
 			if (requestIp == null) {
 				LOG.debug("isMatched: couldn't get ip address from request.  Ok.  Implicitly matched!");
+			} else if (_ipIndex == null) {
+				ipMatched = isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
+			} else if (_ipIndex.trie.contains(requestIp)) {
+				ipMatched = true;
+			} else if (RangerIpAddressUtil.isAddress(requestIp)) {
+				// only policy IPs that could not be indexed can match a valid address not found in the index
+				ipMatched = !_ipIndex.unindexedWildCardIps.isEmpty() && isWildcardMatched(_ipIndex.unindexedWildCardIps, requestIp);
 			} else {
+				// not a valid address: match the policy ips as text, as before
 				ipMatched = isWildcardMatched(_wildCardIps, requestIp) || isExactlyMatched(_exactIps, requestIp);
 			}
 		}
@@ -188,6 +214,111 @@ boolean isExactlyMatched(final List<String> ips, final String requestIp) {
 		return matchFound;
 	}
 	
+	/**
+	 * Converts a digested wildcard ip - like "10.20." or "a0:b0:" - to CIDR notation: "10.20.0.0/16", "a0:b0::/32".
+	 * Returns the digested ip as is if it has no trailing separator; returns null if it can't be converted.
+	 * @param digestedIp
+	 * @return
+	 */
+	static String toCidr(final String digestedIp) {
+		final String ret;
+
+		if (digestedIp.endsWith(".")) {
+			String prefix     = digestedIp.substring(0, digestedIp.length() - 1);
+			int    octetCount = prefix.split("\\.", -1).length;
+
+			if (octetCount < 4) {
+				StringBuilder sb = new StringBuilder(prefix);
+
+				for (int i = octetCount; i < 4; i++) {
+					sb.append(".0");
+				}
+
+				ret = sb.append('/').append(8 * octetCount).toString();
+			} else {
+				ret = null;
+			}
+		} else if (digestedIp.endsWith(":")) {
+			String prefix     = digestedIp.substring(0, digestedIp.length() - 1);
+			int    groupCount = prefix.split(":", -1).length;
+
+			ret = (groupCount < 8 && !prefix.contains("::") && !prefix.endsWith(":")) ? (prefix + "::/" + (16 * groupCount)) : null;
+		} else {
+			ret = digestedIp;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Builds the index for the given policy ips, or returns the index built earlier for the same ips and still in use.
+	 * @param policyIps
+	 * @return
+	 */
+	IpAddressIndex getIpAddressIndex(final List<String> policyIps) {
+		synchronized (SHARED_INDEXES) {
+			removeReleasedIndexes();
+
+			SharedIndexRef ref = SHARED_INDEXES.get(policyIps);
+			IpAddressIndex ret = ref != null ? ref.get() : null;
+
+			if (ret == null) {
+				List<String> key = new ArrayList<>(policyIps);
+
+				ret = createIpAddressIndex(key);
+
+				SHARED_INDEXES.put(key, new SharedIndexRef(key, ret, RELEASED_INDEXES));
+			}
+
+			return ret;
+		}
+	}
+
+	// called with SHARED_INDEXES locked
+	private static void removeReleasedIndexes() {
+		for (Object ref = RELEASED_INDEXES.poll(); ref != null; ref = RELEASED_INDEXES.poll()) {
+			SHARED_INDEXES.remove(((SharedIndexRef) ref).key, ref);
+		}
+	}
+
+	IpAddressIndex createIpAddressIndex(final List<String> policyIps) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerIpMatcher.createIpAddressIndex(" + policyIps + ")");
+		}
+
+		RangerIpAddressTrie trie                 = new RangerIpAddressTrie();
+		List<String>        unindexedWildCardIps = new ArrayList<>();
+
+		for (String ip : policyIps) {
+			if (ip.indexOf('/') != -1) {
+				if (!trie.add(ip)) {
+					LOG.warn("RangerIpMatcher: invalid CIDR notation [" + ip + "]. Will match only the same text");
+				}
+			} else {
+				String digestedIp = digestPolicyIp(ip);
+
+				if (digestedIp.equals(ip)) {
+					// exact ips that are not addresses can't match an address; non-addresses are matched textually
+					trie.add(ip);
+				} else {
+					String cidr = toCidr(digestedIp);
+
+					if (cidr == null || !trie.add(cidr)) {
+						unindexedWildCardIps.add(digestedIp);
+					}
+				}
+			}
+		}
+
+		IpAddressIndex ret = new IpAddressIndex(trie, unindexedWildCardIps);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerIpMatcher.createIpAddressIndex(" + policyIps + "): prefix-count=" + trie.getPrefixCount() + ", unindexed-wildcard-ips=" + unindexedWildCardIps);
+		}
+
+		return ret;
+	}
+
 	/**
 	 * Extracts and returns the ip address from the request.  Returns null if one can't be obtained out of the request.
 	 * @param request
@@ -213,4 +344,24 @@ String extractIp(final RangerAccessRequest request) {
 		}
 		return ip;
 	}
+
+	static final class IpAddressIndex {
+		final RangerIpAddressTrie trie;
+		final List<String>        unindexedWildCardIps;
+
+		IpAddressIndex(RangerIpAddressTrie trie, List<String> unindexedWildCardIps) {
+			this.trie                 = trie;
+			this.unindexedWildCardIps = unindexedWildCardIps;
+		}
+	}
+
+	static final class SharedIndexRef extends WeakReference<IpAddressIndex> {
+		final List<String> key;
+
+		SharedIndexRef(List<String> key, IpAddressIndex index, ReferenceQueue<IpAddressIndex> queue) {
+			super(index, queue);
+
+			this.key = key;
+		}
+	}
 }
@@ -24,6 +24,7 @@
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
+import org.apache.ranger.plugin.util.RangerCompiledScriptCache;
 import org.apache.ranger.plugin.util.ScriptEngineUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,8 +39,9 @@
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerScriptConditionEvaluator.class);
 
-	private ScriptEngine scriptEngine;
-	private Boolean      enableJsonCtx = null;
+	private ScriptEngine              scriptEngine;
+	private RangerCompiledScriptCache compiledScripts;
+	private Boolean                   enableJsonCtx = null;
 
 	@Override
 	public void init() {
@@ -77,6 +79,8 @@ public void init() {
 
 			LOG.error("failed to initialize condition '" + conditionType + "': script engine '" + engineName + "' was not created");
 		} else {
+			compiledScripts = new RangerCompiledScriptCache(scriptEngine);
+
 			LOG.info("ScriptEngine for engineName=[" + engineName + "] is successfully created");
 		}
 
@@ -105,7 +109,7 @@ public boolean isMatched(RangerAccessRequest request) {
 					enableJsonCtx = RangerRequestScriptEvaluator.needsJsonCtxEnabled(script);
 				}
 
-				RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine, enableJsonCtx);
+				RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, compiledScripts, enableJsonCtx);
 
 				evaluator.evaluateConditionScript(script);
 
@@ -122,7 +126,7 @@ public boolean isMatched(RangerAccessRequest request) {
 		}
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerScriptConditionEvaluator.isMatched(), result=" + result);
+			LOG.debug("<== RangerScriptConditionEvaluator.isMatched(), result=" + result + ", compiledScripts=" + compiledScripts);
 		}
 
 		return result;
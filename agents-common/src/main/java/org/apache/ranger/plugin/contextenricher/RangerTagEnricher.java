@@ -30,6 +30,7 @@
 import org.apache.ranger.plugin.model.RangerServiceResource;
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
+import org.apache.ranger.plugin.policyengine.CacheMap;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
@@ -45,6 +46,7 @@
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
+import org.apache.ranger.plugin.util.RangerSegmentedCacheFile;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.RangerServiceTagsDeltaUtil;
 import org.apache.ranger.plugin.util.ServiceTags;
@@ -60,14 +62,17 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Timer;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 
 public class RangerTagEnricher extends RangerAbstractContextEnricher {
@@ -81,6 +86,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 	private static final String TAG_REFRESHER_POLLINGINTERVAL_OPTION = "tagRefresherPollingInterval";
 	public static final String TAG_RETRIEVER_CLASSNAME_OPTION        = "tagRetrieverClassName";
 	private static final String TAG_DISABLE_TRIE_PREFILTER_OPTION    = "disableTrieLookupPrefilter";
+	private static final int    DEFAULT_TAG_LOOKUP_CACHE_SIZE        = 16 * 1024;
 
 	private RangerTagRefresher                 tagRefresher;
 	private RangerTagRetriever                 tagRetriever;
@@ -88,6 +94,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 	private EnrichedServiceTags                enrichedServiceTags;
 	private boolean                            disableCacheIfServiceNotFound = true;
 	private boolean                            dedupStrings                  = true;
+	private int                                tagLookupCacheSize            = DEFAULT_TAG_LOOKUP_CACHE_SIZE;
 
 	private final BlockingQueue<DownloadTrigger> tagDownloadQueue = new LinkedBlockingQueue<>();
 	private Timer                              tagDownloadTimer;
@@ -108,6 +115,7 @@ public void init() {
 		long   pollingIntervalMs     = getLongOption(TAG_REFRESHER_POLLINGINTERVAL_OPTION, 60 * 1000);
 
 		dedupStrings               = getBooleanConfig(propertyPrefix + ".dedup.strings", true);
+		tagLookupCacheSize         = getIntConfig(propertyPrefix + ".tag.lookup.cache.size", DEFAULT_TAG_LOOKUP_CACHE_SIZE);
 		disableTrieLookupPrefilter = getBooleanOption(TAG_DISABLE_TRIE_PREFILTER_OPTION, false);
 		serviceDefHelper           = new RangerServiceDefHelper(serviceDef, false);
 
@@ -339,7 +347,7 @@ protected void setServiceTags(final ServiceTags serviceTags, final boolean rebui
 							}
 							List<RangerServiceResourceMatcher> resourceMatchers = enrichedServiceTags != null ? enrichedServiceTags.getServiceResourceMatchers() : new ArrayList<>();
 							Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie = enrichedServiceTags != null ? enrichedServiceTags.getServiceResourceTrie() : new HashMap<>();
-							enrichedServiceTags = new EnrichedServiceTags(allServiceTags, resourceMatchers, serviceResourceTrie);
+							enrichedServiceTags = new EnrichedServiceTags(allServiceTags, resourceMatchers, serviceResourceTrie, tagLookupCacheSize);
 						}
 					}
 				}
@@ -455,7 +463,7 @@ private void processServiceTags(ServiceTags serviceTags) {
 					serviceResourceTrie.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, resourceMatchers, getPolicyEngineOptions().optimizeTagTrieForRetrieval, getPolicyEngineOptions().optimizeTagTrieForSpace, null));
 				}
 			}
-			enrichedServiceTags = new EnrichedServiceTags(serviceTags, resourceMatchers, serviceResourceTrie);
+			enrichedServiceTags = new EnrichedServiceTags(serviceTags, resourceMatchers, serviceResourceTrie, tagLookupCacheSize);
 		}
 	}
 
@@ -493,7 +501,10 @@ private void processServiceTagDeltas(ServiceTags deltas, ServiceTags allServiceT
 
 							if (trie != null) {
 								trie.add(policyResource, resourceMatcher);
-								trie.wrapUpUpdate();
+
+								if (!trie.isCopyOnWrite()) { // copy-on-write tries are wrapped up after all deltas are applied
+									trie.wrapUpUpdate();
+								}
 
 								if (LOG.isDebugEnabled()) {
 									LOG.debug("Added resource-matcher for policy-resource:[" + policyResource + "]");
@@ -529,7 +540,7 @@ private void processServiceTagDeltas(ServiceTags deltas, ServiceTags allServiceT
 			for (Map.Entry<String, RangerResourceTrie<RangerServiceResourceMatcher>> entry : serviceResourceTrie.entrySet()) {
 				entry.getValue().wrapUpUpdate();
 			}
-			enrichedServiceTags = new EnrichedServiceTags(allServiceTags, resourceMatchers, serviceResourceTrie);
+			enrichedServiceTags = new EnrichedServiceTags(allServiceTags, resourceMatchers, serviceResourceTrie, tagLookupCacheSize);
 		}
 	}
 
@@ -686,7 +697,8 @@ private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request
 		// To minimize chance for race condition between Tag-Refresher thread and access-evaluation thread
 		final EnrichedServiceTags enrichedServiceTags = dataStore != null ? dataStore : this.enrichedServiceTags;
 
-		Set<RangerTagForEval> ret = null;
+		Set<RangerTagForEval> ret              = null;
+		boolean               hasScheduledTags = false;
 
 		RangerAccessResource resource = request.getResource();
 
@@ -699,39 +711,25 @@ private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request
 		if ((resource == null || resource.getKeys() == null || resource.getKeys().isEmpty()) && request.isAccessTypeAny()) {
 			ret = enrichedServiceTags.getTagsForEmptyResourceAndAnyAccess();
 		} else {
+			final TagLookupKey lookupKey   = enrichedServiceTags.getTagLookupKey(request);
+			ResourceTags       matchedTags = lookupKey != null ? enrichedServiceTags.getCachedTagLookup(lookupKey) : null;
 
-			final Collection<RangerServiceResourceMatcher> serviceResourceMatchers = getEvaluators(request, enrichedServiceTags);
-
-			if (CollectionUtils.isNotEmpty(serviceResourceMatchers)) {
-				for (RangerServiceResourceMatcher resourceMatcher : serviceResourceMatchers) {
-
-					final RangerPolicyResourceMatcher.MatchType matchType = resourceMatcher.getMatchType(resource, request.getResourceElementMatchingScopes(), request.getContext());
-
-					if (LOG.isDebugEnabled()) {
-						LOG.debug("resource:[" + resource + ", MatchType:[" + matchType + "]");
-					}
-
-					final boolean isMatched;
-
-					if (request.isAccessTypeAny()) {
-						isMatched = matchType != RangerPolicyResourceMatcher.MatchType.NONE;
-					} else if (request.getResourceMatchingScope() == RangerAccessRequest.ResourceMatchingScope.SELF_OR_DESCENDANTS) {
-						isMatched = matchType != RangerPolicyResourceMatcher.MatchType.NONE;
-					} else {
-						isMatched = matchType == RangerPolicyResourceMatcher.MatchType.SELF || matchType == RangerPolicyResourceMatcher.MatchType.SELF_AND_ALL_DESCENDANTS || matchType == RangerPolicyResourceMatcher.MatchType.ANCESTOR;
-					}
-
-					if (isMatched) {
-						if (ret == null) {
-							ret = new HashSet<>();
-						}
-						ret.addAll(getTagsForServiceResource(request.getAccessTime(), enrichedServiceTags.getServiceTags(), resourceMatcher.getServiceResource(), matchType));
-					}
+			if (matchedTags == null) {
+				matchedTags = findMatchingResourceTags(request, enrichedServiceTags);
 
+				if (lookupKey != null) {
+					enrichedServiceTags.cacheTagLookup(lookupKey, matchedTags);
 				}
+			} else if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerTagEnricher.findMatchingTags(" + resource + "): found in tag-lookup cache");
 			}
+
+			ret              = matchedTags.getTags(request.getAccessTime());
+			hasScheduledTags = matchedTags.hasScheduledTags();
 		}
 
+		RangerAccessRequestUtil.setHasScheduledTagsInContext(request.getContext(), hasScheduledTags);
+
 		RangerPerfTracer.logAlways(perf);
 
 		if (CollectionUtils.isEmpty(ret)) {
@@ -751,6 +749,39 @@ private Set<RangerTagForEval> findMatchingTags(final RangerAccessRequest request
 		return ret;
 	}
 
+	private ResourceTags findMatchingResourceTags(final RangerAccessRequest request, EnrichedServiceTags enrichedServiceTags) {
+		final RangerAccessResource                     resource                = request.getResource();
+		final Collection<RangerServiceResourceMatcher> serviceResourceMatchers = getEvaluators(request, enrichedServiceTags);
+		final List<ResourceTags>                       matchedResourceTags     = new ArrayList<>();
+
+		if (CollectionUtils.isNotEmpty(serviceResourceMatchers)) {
+			for (RangerServiceResourceMatcher resourceMatcher : serviceResourceMatchers) {
+
+				final RangerPolicyResourceMatcher.MatchType matchType = resourceMatcher.getMatchType(resource, request.getResourceElementMatchingScopes(), request.getContext());
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("resource:[" + resource + ", MatchType:[" + matchType + "]");
+				}
+
+				final boolean isMatched;
+
+				if (request.isAccessTypeAny()) {
+					isMatched = matchType != RangerPolicyResourceMatcher.MatchType.NONE;
+				} else if (request.getResourceMatchingScope() == RangerAccessRequest.ResourceMatchingScope.SELF_OR_DESCENDANTS) {
+					isMatched = matchType != RangerPolicyResourceMatcher.MatchType.NONE;
+				} else {
+					isMatched = matchType == RangerPolicyResourceMatcher.MatchType.SELF || matchType == RangerPolicyResourceMatcher.MatchType.SELF_AND_ALL_DESCENDANTS || matchType == RangerPolicyResourceMatcher.MatchType.ANCESTOR;
+				}
+
+				if (isMatched) {
+					matchedResourceTags.add(enrichedServiceTags.getResourceTags(resourceMatcher.getServiceResource(), matchType));
+				}
+			}
+		}
+
+		return ResourceTags.merge(matchedResourceTags);
+	}
+
 	private Collection<RangerServiceResourceMatcher> getEvaluators(RangerAccessRequest request, EnrichedServiceTags enrichedServiceTags) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerTagEnricher.getEvaluators(request=" + request + ")");
@@ -770,7 +801,7 @@ private Collection<RangerServiceResourceMatcher> getEvaluators(RangerAccessReque
 				perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_OP_LOG, "RangerTagEnricher.getEvaluators(resource=" + resource.getAsString() + ")");
 			}
 
-			ret = RangerResourceEvaluatorsRetriever.getEvaluators(serviceResourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes());
+			ret = RangerResourceEvaluatorsRetriever.getEvaluators(serviceResourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes(), RangerAccessRequestUtil.getBatchLookupCacheFromContext(request.getContext()));
 
 			RangerPerfTracer.logAlways(perf);
 		}
@@ -785,56 +816,12 @@ private Collection<RangerServiceResourceMatcher> getEvaluators(RangerAccessReque
 		return ret;
 	}
 
-	private static Set<RangerTagForEval> getTagsForServiceResource(Date accessTime, final ServiceTags serviceTags, final RangerServiceResource serviceResource, final RangerPolicyResourceMatcher.MatchType matchType) {
-		Set<RangerTagForEval> ret = new HashSet<>();
-
-		final Long resourceId                        = serviceResource.getId();
-		final Map<Long, List<Long>> resourceToTagIds = serviceTags.getResourceToTagIds();
-		final Map<Long, RangerTag> tags              = serviceTags.getTags();
-
-		if (LOG.isDebugEnabled()) {
-			LOG.debug("Looking for tags for resource-id:[" + resourceId + "] in serviceTags:[" + serviceTags + "]");
-		}
-
-		if (resourceId != null && MapUtils.isNotEmpty(resourceToTagIds) && MapUtils.isNotEmpty(tags)) {
-
-			List<Long> tagIds = resourceToTagIds.get(resourceId);
-
-			if (CollectionUtils.isNotEmpty(tagIds)) {
-
-				accessTime = accessTime == null ? new Date() : accessTime;
-
-				for (Long tagId : tagIds) {
-
-					RangerTag tag = tags.get(tagId);
-
-					if (tag != null) {
-						RangerTagForEval tagForEval = new RangerTagForEval(tag, matchType);
-						if (tagForEval.isApplicable(accessTime)) {
-							ret.add(tagForEval);
-						}
-					}
-				}
-			} else {
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("No tags mapping found for resource:[" + resourceId + "]");
-				}
-			}
-		} else {
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("resourceId is null or resourceToTagTds mapping is null or tags mapping is null!");
-			}
-		}
-
-		return ret;
-	}
-
 	private Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> copyServiceResourceTrie() {
 		Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> ret = new HashMap<>();
 
 		if (enrichedServiceTags != null) {
 			for (Map.Entry<String, RangerResourceTrie<RangerServiceResourceMatcher>> entry : enrichedServiceTags.getServiceResourceTrie().entrySet()) {
-				RangerResourceTrie<RangerServiceResourceMatcher> resourceTrie = new RangerResourceTrie<>(entry.getValue());
+				RangerResourceTrie<RangerServiceResourceMatcher> resourceTrie = new RangerResourceTrie<>(entry.getValue(), true);
 				ret.put(entry.getKey(), resourceTrie);
 			}
 		}
@@ -847,13 +834,20 @@ static public final class EnrichedServiceTags {
 		final private Map<String, RangerResourceTrie<RangerServiceResourceMatcher>>    serviceResourceTrie;
 		final private Set<RangerTagForEval>                                            tagsForEmptyResourceAndAnyAccess; // Used only when accessed resource is empty and access type is 'any'
 		final private Long                                                             resourceTrieVersion;
+		final private Map<RangerPolicyResourceMatcher.MatchType, Map<Long, ResourceTags>> resourceTags = new EnumMap<>(RangerPolicyResourceMatcher.MatchType.class);
+		final private TagLookupCache                                                   tagLookupCache;
 
-		EnrichedServiceTags(ServiceTags serviceTags, List<RangerServiceResourceMatcher> serviceResourceMatchers, Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie) {
+		EnrichedServiceTags(ServiceTags serviceTags, List<RangerServiceResourceMatcher> serviceResourceMatchers, Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie, int tagLookupCacheSize) {
 			this.serviceTags                      = serviceTags;
 			this.serviceResourceMatchers          = serviceResourceMatchers;
 			this.serviceResourceTrie              = serviceResourceTrie;
 			this.tagsForEmptyResourceAndAnyAccess = createTagsForEmptyResourceAndAnyAccess();
 			this.resourceTrieVersion              = serviceTags.getTagVersion();
+			this.tagLookupCache                   = tagLookupCacheSize > 0 && !hasDynamicResourceMatcher(serviceResourceMatchers) ? new TagLookupCache(tagLookupCacheSize) : null;
+
+			for (RangerPolicyResourceMatcher.MatchType matchType : RangerPolicyResourceMatcher.MatchType.values()) {
+				resourceTags.put(matchType, new ConcurrentHashMap<>());
+			}
 		}
 		public ServiceTags                                                   getServiceTags() {return serviceTags;}
 		public List<RangerServiceResourceMatcher>                            getServiceResourceMatchers() { return serviceResourceMatchers;}
@@ -861,6 +855,41 @@ static public final class EnrichedServiceTags {
 		public Long                                                          getResourceTrieVersion() { return resourceTrieVersion;}
 		public Set<RangerTagForEval>                                         getTagsForEmptyResourceAndAnyAccess() { return tagsForEmptyResourceAndAnyAccess;}
 
+		/*
+		 * tags of a service-resource for the given match-type; built on first use and shared by all requests until the
+		 * next tag version, which creates a new EnrichedServiceTags
+		 */
+		ResourceTags getResourceTags(RangerServiceResource serviceResource, RangerPolicyResourceMatcher.MatchType matchType) {
+			Long resourceId = serviceResource.getId();
+
+			return resourceId == null ? ResourceTags.EMPTY : resourceTags.get(matchType).computeIfAbsent(resourceId, id -> createResourceTags(id, matchType));
+		}
+
+		/*
+		 * returns null if results of tag lookup for the request can't be cached
+		 */
+		TagLookupKey getTagLookupKey(RangerAccessRequest request) {
+			TagLookupKey ret = null;
+
+			if (tagLookupCache != null) {
+				String resourceKey = request.getResource().getCacheKey();
+
+				if (resourceKey != null) {
+					ret = new TagLookupKey(resourceKey, request.getResourceElementMatchingScopes(), request.getResourceMatchingScope(), request.isAccessTypeAny());
+				}
+			}
+
+			return ret;
+		}
+
+		ResourceTags getCachedTagLookup(TagLookupKey key) {
+			return tagLookupCache.get(key);
+		}
+
+		void cacheTagLookup(TagLookupKey key, ResourceTags tags) {
+			tagLookupCache.put(key, tags);
+		}
+
 		private Set<RangerTagForEval> createTagsForEmptyResourceAndAnyAccess() {
 			Set<RangerTagForEval> tagsForEmptyResourceAndAnyAccess = new HashSet<>();
 			for (Map.Entry<Long, RangerTag> entry : serviceTags.getTags().entrySet()) {
@@ -868,6 +897,240 @@ private Set<RangerTagForEval> createTagsForEmptyResourceAndAnyAccess() {
 			}
 			return tagsForEmptyResourceAndAnyAccess;
 		}
+
+		private ResourceTags createResourceTags(Long resourceId, RangerPolicyResourceMatcher.MatchType matchType) {
+			final Map<Long, List<Long>> resourceToTagIds = serviceTags.getResourceToTagIds();
+			final Map<Long, RangerTag>  tags             = serviceTags.getTags();
+			final List<RangerTagForEval> tagsForEval     = new ArrayList<>();
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Looking for tags for resource-id:[" + resourceId + "] in serviceTags:[" + serviceTags + "]");
+			}
+
+			if (MapUtils.isNotEmpty(resourceToTagIds) && MapUtils.isNotEmpty(tags)) {
+				List<Long> tagIds = resourceToTagIds.get(resourceId);
+
+				if (CollectionUtils.isNotEmpty(tagIds)) {
+					for (Long tagId : tagIds) {
+						RangerTag tag = tags.get(tagId);
+
+						if (tag != null) {
+							tagsForEval.add(new RangerTagForEval(tag, matchType));
+						}
+					}
+				} else {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("No tags mapping found for resource:[" + resourceId + "]");
+					}
+				}
+			} else {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("resourceToTagTds mapping is null or tags mapping is null!");
+				}
+			}
+
+			return ResourceTags.create(tagsForEval);
+		}
+
+		// results of matching resources that use macros depend on the request context, hence can't be cached
+		private static boolean hasDynamicResourceMatcher(List<RangerServiceResourceMatcher> serviceResourceMatchers) {
+			boolean ret = false;
+
+			if (serviceResourceMatchers != null) {
+				for (RangerServiceResourceMatcher matcher : serviceResourceMatchers) {
+					if (matcher.getPolicyResourceMatcher() != null && matcher.getPolicyResourceMatcher().getNeedsDynamicEval()) {
+						ret = true;
+
+						break;
+					}
+				}
+			}
+
+			return ret;
+		}
+	}
+
+	/*
+	 * Immutable set of tags, split into tags that are always valid and tags having validity schedules; only the latter
+	 * need to be checked against the access time of each request.
+	 */
+	static final class ResourceTags {
+		static final ResourceTags EMPTY = new ResourceTags(Collections.emptySet(), Collections.emptyList());
+
+		private final Set<RangerTagForEval>  alwaysValidTags;
+		private final List<RangerTagForEval> scheduledTags;
+
+		private ResourceTags(Set<RangerTagForEval> alwaysValidTags, List<RangerTagForEval> scheduledTags) {
+			this.alwaysValidTags = alwaysValidTags;
+			this.scheduledTags   = scheduledTags;
+		}
+
+		static ResourceTags create(Collection<RangerTagForEval> tags) {
+			Set<RangerTagForEval>  alwaysValidTags = new HashSet<>();
+			List<RangerTagForEval> scheduledTags   = new ArrayList<>();
+
+			for (RangerTagForEval tag : tags) {
+				if (hasValiditySchedule(tag)) {
+					scheduledTags.add(tag);
+				} else {
+					alwaysValidTags.add(tag);
+				}
+			}
+
+			return create(alwaysValidTags, scheduledTags);
+		}
+
+		static ResourceTags merge(List<ResourceTags> resourceTags) {
+			final ResourceTags ret;
+
+			if (resourceTags.isEmpty()) {
+				ret = EMPTY;
+			} else if (resourceTags.size() == 1) {
+				ret = resourceTags.get(0);
+			} else {
+				Set<RangerTagForEval>  alwaysValidTags = new HashSet<>();
+				List<RangerTagForEval> scheduledTags   = new ArrayList<>();
+
+				for (ResourceTags tags : resourceTags) {
+					alwaysValidTags.addAll(tags.alwaysValidTags);
+					scheduledTags.addAll(tags.scheduledTags);
+				}
+
+				ret = create(alwaysValidTags, scheduledTags);
+			}
+
+			return ret;
+		}
+
+		/*
+		 * returns tags applicable at accessTime, or null if there are none. The returned set must not be modified.
+		 */
+		Set<RangerTagForEval> getTags(Date accessTime) {
+			final Set<RangerTagForEval> ret;
+
+			if (scheduledTags.isEmpty()) {
+				ret = alwaysValidTags;
+			} else {
+				ret = new HashSet<>(alwaysValidTags);
+
+				accessTime = accessTime == null ? new Date() : accessTime;
+
+				for (RangerTagForEval tag : scheduledTags) {
+					if (tag.isApplicable(accessTime)) {
+						ret.add(tag);
+					}
+				}
+			}
+
+			return ret.isEmpty() ? null : ret;
+		}
+
+		// true even when none of the scheduled tags is applicable now, as results computed with these tags can change with time
+		boolean hasScheduledTags() {
+			return !scheduledTags.isEmpty();
+		}
+
+		private static ResourceTags create(Set<RangerTagForEval> alwaysValidTags, List<RangerTagForEval> scheduledTags) {
+			if (alwaysValidTags.isEmpty() && scheduledTags.isEmpty()) {
+				return EMPTY;
+			}
+
+			return new ResourceTags(Collections.unmodifiableSet(alwaysValidTags), scheduledTags.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(scheduledTags));
+		}
+
+		// validity-periods can also be given as a tag option, in tags specified in policy-engine test cases
+		private static boolean hasValiditySchedule(RangerTagForEval tag) {
+			return CollectionUtils.isNotEmpty(tag.getValidityPeriods()) || (tag.getOptions() != null && tag.getOptions().get(RangerTag.OPTION_TAG_VALIDITY_PERIODS) != null);
+		}
+	}
+
+	/*
+	 * LRU cache of tag lookups, split into stripes each having its own lock, so that concurrent lookups of different
+	 * resources rarely contend on the same lock
+	 */
+	static final class TagLookupCache {
+		private static final int MAX_STRIPE_COUNT = 16;
+
+		private final CacheMap<TagLookupKey, ResourceTags>[] stripes;
+
+		@SuppressWarnings("unchecked")
+		TagLookupCache(int cacheSize) {
+			int stripeCount = Math.min(MAX_STRIPE_COUNT, Integer.highestOneBit(cacheSize)); // a power of 2, not more than cacheSize
+
+			stripes = new CacheMap[stripeCount];
+
+			for (int i = 0; i < stripeCount; i++) {
+				stripes[i] = new CacheMap<>(cacheSize / stripeCount);
+			}
+		}
+
+		ResourceTags get(TagLookupKey key) {
+			CacheMap<TagLookupKey, ResourceTags> stripe = getStripe(key);
+
+			synchronized (stripe) {
+				return stripe.get(key); // updates access-order of the entry
+			}
+		}
+
+		void put(TagLookupKey key, ResourceTags tags) {
+			CacheMap<TagLookupKey, ResourceTags> stripe = getStripe(key);
+
+			synchronized (stripe) {
+				stripe.put(key, tags);
+			}
+		}
+
+		int size() {
+			int ret = 0;
+
+			for (CacheMap<TagLookupKey, ResourceTags> stripe : stripes) {
+				synchronized (stripe) {
+					ret += stripe.size();
+				}
+			}
+
+			return ret;
+		}
+
+		private CacheMap<TagLookupKey, ResourceTags> getStripe(TagLookupKey key) {
+			int hash = key.hashCode();
+
+			return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+		}
+	}
+
+	static final class TagLookupKey {
+		private final String                                                        resourceKey;
+		private final Map<String, RangerAccessRequest.ResourceElementMatchingScope> elementMatchingScopes;
+		private final RangerAccessRequest.ResourceMatchingScope                     matchingScope;
+		private final boolean                                                       isAccessTypeAny;
+		private final int                                                           hashCode;
+
+		TagLookupKey(String resourceKey, Map<String, RangerAccessRequest.ResourceElementMatchingScope> elementMatchingScopes, RangerAccessRequest.ResourceMatchingScope matchingScope, boolean isAccessTypeAny) {
+			this.resourceKey           = resourceKey;
+			this.elementMatchingScopes = MapUtils.isEmpty(elementMatchingScopes) ? Collections.emptyMap() : new HashMap<>(elementMatchingScopes);
+			this.matchingScope         = matchingScope;
+			this.isAccessTypeAny       = isAccessTypeAny;
+			this.hashCode              = Objects.hash(resourceKey, this.elementMatchingScopes, matchingScope, isAccessTypeAny);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof TagLookupKey)) {
+				return false;
+			}
+
+			TagLookupKey other = (TagLookupKey) obj;
+
+			return isAccessTypeAny == other.isAccessTypeAny && matchingScope == other.matchingScope && resourceKey.equals(other.resourceKey) && elementMatchingScopes.equals(other.elementMatchingScopes);
+		}
 	}
 
 	static class RangerTagRefresher extends Thread {
@@ -880,6 +1143,7 @@ static class RangerTagRefresher extends Thread {
 		private long lastActivationTimeInMillis;
 
 		private final String cacheFile;
+		private final boolean useSegmentedCacheFormat;
 		private boolean hasProvidedTagsToReceiver;
 		private Gson gson;
 
@@ -889,6 +1153,11 @@ static class RangerTagRefresher extends Thread {
 			this.lastKnownVersion = lastKnownVersion;
 			this.tagDownloadQueue = tagDownloadQueue;
 			this.cacheFile = cacheFile;
+
+			RangerPluginConfig pluginConfig = tagEnricher.getPluginConfig();
+
+			this.useSegmentedCacheFormat = pluginConfig != null && RangerSegmentedCacheFile.isSegmentedFormat(pluginConfig.get(pluginConfig.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT_DEFAULT));
+
 			try {
 				gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
 			} catch(Throwable excp) {
@@ -1054,9 +1323,13 @@ final ServiceTags loadFromCache() {
 				Reader reader = null;
 
 				try {
-					reader = new FileReader(cacheFile);
+					if (RangerSegmentedCacheFile.isSegmentedCacheFile(cacheFile)) {
+						serviceTags = RangerSegmentedCacheFile.readServiceTags(cacheFile);
+					} else {
+						reader = new FileReader(cacheFile);
 
-					serviceTags = gson.fromJson(reader, ServiceTags.class);
+						serviceTags = gson.fromJson(reader, ServiceTags.class);
+					}
 
 					if (serviceTags != null && !StringUtils.equals(tagEnricher.getServiceName(), serviceTags.getServiceName())) {
 						LOG.warn("ignoring unexpected serviceName '" + serviceTags.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
@@ -1097,9 +1370,13 @@ final void saveToCache(ServiceTags serviceTags) {
 					Writer writer = null;
 
 					try {
-						writer = new FileWriter(cacheFile);
+						if (useSegmentedCacheFormat) {
+							RangerSegmentedCacheFile.writeServiceTags(cacheFile, serviceTags);
+						} else {
+							writer = new FileWriter(cacheFile);
 
-						gson.toJson(serviceTags, writer);
+							gson.toJson(serviceTags, writer);
+						}
 					} catch (Exception excp) {
 						LOG.error("failed to save service-tags to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 					} finally {
@@ -26,6 +26,7 @@
 import org.apache.ranger.plugin.model.RangerValiditySchedule;
 import org.apache.ranger.plugin.policyevaluator.RangerValidityScheduleEvaluator;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.util.JsonUtilsV2;
 import org.codehaus.jackson.annotate.JsonAutoDetect;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
@@ -58,6 +59,8 @@ public class RangerTagForEval implements Serializable {
     private List<RangerValiditySchedule>          validityPeriods;
     @JsonIgnore
     private transient List<RangerValidityScheduleEvaluator> validityPeriodEvaluators;
+    @JsonIgnore
+    private transient String                                json;
 
 
     private RangerTagForEval() {}
@@ -124,6 +127,22 @@ public boolean isApplicable(Date accessTime) {
         return ret;
     }
 
+    /*
+     * JSON of this tag, as written in audit logs. Tag enricher shares RangerTagForEval instances between requests for the
+     * same resource; hence the JSON is computed once per instance, instead of once per audit event.
+     */
+    public String toJson() throws Exception {
+        String ret = json;
+
+        if (ret == null) {
+            ret = JsonUtilsV2.objToJson(this);
+
+            json = ret;
+        }
+
+        return ret;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -40,12 +40,14 @@ public class RangerUserStoreEnricher extends RangerAbstractContextEnricher {
 
     public static final String USERSTORE_REFRESHER_POLLINGINTERVAL_OPTION = "userStoreRefresherPollingInterval";
     public static final String USERSTORE_RETRIEVER_CLASSNAME_OPTION       = "userStoreRetrieverClassName";
+    public static final String USERSTORE_INDEX_ATTRIBUTES_CONFIG_SUFFIX   = ".userstore.index.attributes";
 
     private       RangerUserStoreRefresher       userStoreRefresher;
     private       RangerUserStoreRetriever       userStoreRetriever;
     private       RangerUserStore                rangerUserStore;
     private       boolean                        disableCacheIfServiceNotFound = true;
     private       boolean                        dedupStrings                  = true;
+    private       boolean                        indexAttributes               = true;
     private final BlockingQueue<DownloadTrigger> userStoreDownloadQueue = new LinkedBlockingQueue<>();
     private       Timer                          userStoreDownloadTimer;
 
@@ -61,7 +63,8 @@ public void init() {
         String userStoreRetrieverClassName = getOption(USERSTORE_RETRIEVER_CLASSNAME_OPTION);
         long   pollingIntervalMs           = getLongOption(USERSTORE_REFRESHER_POLLINGINTERVAL_OPTION, 3600 * 1000);
 
-        dedupStrings = getBooleanConfig(propertyPrefix + ".dedup.strings", true);
+        dedupStrings    = getBooleanConfig(propertyPrefix + ".dedup.strings", true);
+        indexAttributes = getBooleanConfig(propertyPrefix + USERSTORE_INDEX_ATTRIBUTES_CONFIG_SUFFIX, true);
 
         if (StringUtils.isNotBlank(userStoreRetrieverClassName)) {
 
@@ -193,7 +196,13 @@ public void setRangerUserStore(final RangerUserStore rangerUserStore) {
                 perf = RangerPerfTracer.getPerfTracer(PERF_SET_USERSTORE_LOG, "RangerUserStoreEnricher.setRangerUserStore(newUserStoreVersion=" + rangerUserStore.getUserStoreVersion() + ")");
             }
 
-            if (dedupStrings) {
+            if (indexAttributes) {
+                if (rangerUserStore.getUserStoreIndex() == null) {
+                    RangerUserStore prevUserStore = this.rangerUserStore;
+
+                    rangerUserStore.buildUserStoreIndex(prevUserStore != null ? prevUserStore.getUserStoreIndex() : null);
+                }
+            } else if (dedupStrings) {
                 rangerUserStore.dedupStrings();
             }
 
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.util.RangerIpAddressUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Geolocation ranges sorted by start address, held in primitive arrays; lookup is a binary search on start addresses.
+ *
+ * Addresses are 128-bit keys, held in two longs and compared unsigned. IPv4 addresses are mapped to ::ffff:a.b.c.d,
+ * so that IPv4 and IPv6 ranges can be in the same index; when all ranges are IPv4, high 64 bits are not stored.
+ * Location data rows are interned, as many ranges share the same location. Ranges are expected to not overlap.
+ */
+public class GeolocationIntervalIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(GeolocationIntervalIndex.class);
+
+	private static final BigInteger MAX_IPV4_VALUE = BigInteger.valueOf(0xFFFFFFFFL);
+	private static final BigInteger MAX_IPV6_VALUE = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+
+	public static final GeolocationIntervalIndex EMPTY = new Builder().build();
+
+	private final int        size;
+	private final long[]     fromHigh; // null when all ranges are IPv4
+	private final long[]     fromLow;
+	private final long[]     toHigh;   // null when all ranges are IPv4
+	private final long[]     toLow;
+	private final int[]      rowIndex;
+	private final String[][] rows;
+
+	private GeolocationIntervalIndex(int size, long[] fromHigh, long[] fromLow, long[] toHigh, long[] toLow, int[] rowIndex, String[][] rows) {
+		this.size     = size;
+		this.fromHigh = fromHigh;
+		this.fromLow  = fromLow;
+		this.toHigh   = toHigh;
+		this.toLow    = toLow;
+		this.rowIndex = rowIndex;
+		this.rows     = rows;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getRowCount() {
+		return rows.length;
+	}
+
+	public RangerGeolocationData find(String ipAddress) {
+		long[] key = new long[2];
+
+		return toKey(ipAddress, key) ? find(key[0], key[1]) : null;
+	}
+
+	public RangerGeolocationData find(long high, long low) {
+		int idx = indexOf(high, low);
+
+		return idx < 0 ? null : get(idx);
+	}
+
+	// returns the index of the range that contains the address, or -1
+	public int indexOf(long high, long low) {
+		int lo  = 0;
+		int hi  = size - 1;
+		int ret = -1;
+
+		// last range with start address <= address
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (compare(getFromHigh(mid), fromLow[mid], high, low) <= 0) {
+				ret = mid;
+				lo  = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+
+		if (ret != -1 && compare(high, low, getToHigh(ret), toLow[ret]) > 0) {
+			ret = -1;
+		}
+
+		return ret;
+	}
+
+	public RangerGeolocationData get(int idx) {
+		return new RangerGeolocationData(getFromHigh(idx), fromLow[idx], getToHigh(idx), toLow[idx], rows[rowIndex[idx]]);
+	}
+
+	public void forEach(ValueProcessor<RangerGeolocationData> processor) {
+		for (int i = 0; i < size; i++) {
+			processor.process(get(i));
+		}
+	}
+
+	/*
+	 * sets key[0] and key[1] to the high and low 64 bits of the address; address is either an IP address in text form,
+	 * or - when useDotFormat is false - an unsigned integer (32-bit for IPv4, larger for IPv6)
+	 */
+	public static boolean toKey(String address, boolean useDotFormat, long[] key) {
+		if (useDotFormat) {
+			return toKey(address, key);
+		}
+
+		boolean ret = false;
+
+		if (StringUtils.isNotEmpty(address) && StringUtils.isNumeric(address)) {
+			BigInteger value = new BigInteger(address);
+
+			if (value.compareTo(MAX_IPV4_VALUE) <= 0) {
+				key[0] = 0L;
+				key[1] = RangerIpAddressUtil.IPV4_MAPPED_PREFIX | value.longValue();
+				ret    = true;
+			} else if (value.compareTo(MAX_IPV6_VALUE) <= 0) {
+				key[0] = value.shiftRight(64).longValue();
+				key[1] = value.longValue();
+				ret    = true;
+			}
+		}
+
+		return ret;
+	}
+
+	public static boolean toKey(String ipAddress, long[] key) {
+		boolean ret = RangerIpAddressUtil.toKey(ipAddress, key); // hostnames are not resolved
+
+		if (!ret && LOG.isDebugEnabled()) {
+			LOG.debug("GeolocationIntervalIndex.toKey() - Not an IP address: " + ipAddress);
+		}
+
+		return ret;
+	}
+
+	static int compare(long high1, long low1, long high2, long low2) {
+		int ret = Long.compareUnsigned(high1, high2);
+
+		return ret != 0 ? ret : Long.compareUnsigned(low1, low2);
+	}
+
+	private long getFromHigh(int idx) {
+		return fromHigh == null ? 0L : fromHigh[idx];
+	}
+
+	private long getToHigh(int idx) {
+		return toHigh == null ? 0L : toHigh[idx];
+	}
+
+	/*
+	 * Collects ranges as they are read, without creating an object per range. Ranges can be added in any order; they
+	 * are sorted by build(), unless already added in order - as in most geolocation files.
+	 */
+	public static class Builder {
+		private final Map<List<String>, Integer> rowIds   = new HashMap<>();
+		private final Map<String, String>        strings  = new HashMap<>();
+		private final long[]                     fromKey  = new long[2];
+		private final long[]                     toKey    = new long[2];
+		private       long[]                     fromHigh = new long[1024];
+		private       long[]                     fromLow  = new long[1024];
+		private       long[]                     toHigh   = new long[1024];
+		private       long[]                     toLow    = new long[1024];
+		private       int[]                      rowIndex = new int[1024];
+		private       int                        size     = 0;
+		private       boolean                    isSorted = true;
+		private       boolean                    hasIPv6  = false;
+
+		/*
+		 * adds range from fields {start, end, location...}, as in a geolocation file; returns false if the range is
+		 * not valid
+		 */
+		public boolean add(String[] fields, boolean useDotFormat) {
+			boolean ret = false;
+
+			if (fields.length > 2 && toKey(fields[0], useDotFormat, fromKey) && toKey(fields[1], useDotFormat, toKey)) {
+				ret = add(fromKey[0], fromKey[1], toKey[0], toKey[1], Arrays.copyOfRange(fields, 2, fields.length));
+			}
+
+			return ret;
+		}
+
+		public boolean add(long fromHigh, long fromLow, long toHigh, long toLow, String[] locationData) {
+			if (compare(fromHigh, fromLow, toHigh, toLow) > 0) {
+				return false;
+			}
+
+			if (size == this.fromLow.length) {
+				int newCapacity = size * 2;
+
+				this.fromHigh = Arrays.copyOf(this.fromHigh, newCapacity);
+				this.fromLow  = Arrays.copyOf(this.fromLow, newCapacity);
+				this.toHigh   = Arrays.copyOf(this.toHigh, newCapacity);
+				this.toLow    = Arrays.copyOf(this.toLow, newCapacity);
+				this.rowIndex = Arrays.copyOf(this.rowIndex, newCapacity);
+			}
+
+			if (isSorted && size > 0 && compare(this.fromHigh[size - 1], this.fromLow[size - 1], fromHigh, fromLow) > 0) {
+				isSorted = false;
+			}
+
+			if (fromHigh != 0L || toHigh != 0L) {
+				hasIPv6 = true;
+			}
+
+			this.fromHigh[size] = fromHigh;
+			this.fromLow[size]  = fromLow;
+			this.toHigh[size]   = toHigh;
+			this.toLow[size]    = toLow;
+			this.rowIndex[size] = internRow(locationData);
+
+			size++;
+
+			return true;
+		}
+
+		public GeolocationIntervalIndex build() {
+			int[] order = isSorted ? null : sortOrder();
+
+			long[]     fromHigh = hasIPv6 ? new long[size] : null;
+			long[]     fromLow  = new long[size];
+			long[]     toHigh   = hasIPv6 ? new long[size] : null;
+			long[]     toLow    = new long[size];
+			int[]      rowIndex = new int[size];
+			String[][] rows     = new String[rowIds.size()][];
+
+			for (int i = 0; i < size; i++) {
+				int src = order == null ? i : order[i];
+
+				if (hasIPv6) {
+					fromHigh[i] = this.fromHigh[src];
+					toHigh[i]   = this.toHigh[src];
+				}
+
+				fromLow[i]  = this.fromLow[src];
+				toLow[i]    = this.toLow[src];
+				rowIndex[i] = this.rowIndex[src];
+			}
+
+			for (Map.Entry<List<String>, Integer> entry : rowIds.entrySet()) {
+				rows[entry.getValue()] = entry.getKey().toArray(new String[0]);
+			}
+
+			GeolocationIntervalIndex ret = new GeolocationIntervalIndex(size, fromHigh, fromLow, toHigh, toLow, rowIndex, rows);
+
+			int overlapCount = 0;
+
+			for (int i = 1; i < size; i++) {
+				if (compare(ret.getFromHigh(i), fromLow[i], ret.getToHigh(i - 1), toLow[i - 1]) <= 0) {
+					overlapCount++;
+				}
+			}
+
+			if (overlapCount > 0) {
+				LOG.warn("GeolocationIntervalIndex.build(): " + overlapCount + " ranges overlap with the previous range. Lookups of addresses in overlapping ranges may not find the expected location");
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("GeolocationIntervalIndex.build(): rangeCount=" + size + ", rowCount=" + rows.length + ", isSorted=" + isSorted + ", hasIPv6=" + hasIPv6);
+			}
+
+			return ret;
+		}
+
+		private int internRow(String[] locationData) {
+			for (int i = 0; i < locationData.length; i++) {
+				String value    = locationData[i];
+				String interned = strings.putIfAbsent(value, value);
+
+				if (interned != null) {
+					locationData[i] = interned;
+				}
+			}
+
+			List<String> row = Arrays.asList(locationData);
+			Integer      ret = rowIds.get(row);
+
+			if (ret == null) {
+				ret = rowIds.size();
+
+				rowIds.put(row, ret);
+			}
+
+			return ret;
+		}
+
+		private int[] sortOrder() {
+			Integer[] order = new Integer[size];
+
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+
+			Arrays.sort(order, (i1, i2) -> compare(fromHigh[i1], fromLow[i1], fromHigh[i2], fromLow[i2]));
+
+			int[] ret = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				ret[i] = order[i];
+			}
+
+			return ret;
+		}
+	}
+}
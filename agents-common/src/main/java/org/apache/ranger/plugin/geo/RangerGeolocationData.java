@@ -20,11 +20,13 @@
 package org.apache.ranger.plugin.geo;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.util.RangerIpAddressUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.Objects;
 
 public class RangerGeolocationData implements Comparable<RangerGeolocationData>, RangeChecker<Long> {
@@ -32,7 +34,10 @@ public class RangerGeolocationData implements Comparable<RangerGeolocationData>,
 
 	private static final Character IPSegmentsSeparator = '.';
 
+	// addresses are 128-bit, as in GeolocationIntervalIndex: IPv4 addresses are mapped to ::ffff:a.b.c.d
+	private final long fromIPAddressHigh;
 	private final long fromIPAddress;
+	private final long toIPAddressHigh;
 	private final long toIPAddress;
 	private final String[] locationData;
 	private int hash;
@@ -42,26 +47,12 @@ public static RangerGeolocationData create(String fields[], int index, boolean u
 		RangerGeolocationData data = null;
 
 		if (fields.length > 2) {
-			String startAddress = fields[0];
-			String endAddress = fields[1];
+			long[] startIP = new long[2];
+			long[] endIP = new long[2];
 
-			if (RangerGeolocationData.validateAsIP(startAddress, useDotFormat) && RangerGeolocationData.validateAsIP(endAddress, useDotFormat)) {
-
-				long startIP, endIP;
-				if (!useDotFormat) {
-					startAddress = RangerGeolocationData.unsignedIntToIPAddress(Long.valueOf(startAddress));
-					endAddress = RangerGeolocationData.unsignedIntToIPAddress(Long.valueOf(endAddress));
-				}
-				startIP = RangerGeolocationData.ipAddressToLong(startAddress);
-				endIP = RangerGeolocationData.ipAddressToLong(endAddress);
-
-				if ((endIP - startIP) >= 0) {
-
-					String[] locationData = new String[fields.length-2];
-					for (int i = 2; i < fields.length; i++) {
-						locationData[i-2] = fields[i];
-					}
-					data = new RangerGeolocationData(startIP, endIP, locationData);
+			if (GeolocationIntervalIndex.toKey(fields[0], useDotFormat, startIP) && GeolocationIntervalIndex.toKey(fields[1], useDotFormat, endIP)) {
+				if (GeolocationIntervalIndex.compare(startIP[0], startIP[1], endIP[0], endIP[1]) <= 0) {
+					data = new RangerGeolocationData(startIP[0], startIP[1], endIP[0], endIP[1], Arrays.copyOfRange(fields, 2, fields.length));
 				}
 			}
 
@@ -71,8 +62,10 @@ public static RangerGeolocationData create(String fields[], int index, boolean u
 		return data;
 	}
 
-	private RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
+	RangerGeolocationData(final long fromIPAddressHigh, final long fromIPAddress, final long toIPAddressHigh, final long toIPAddress, final String[] locationData) {
+		this.fromIPAddressHigh = fromIPAddressHigh;
 		this.fromIPAddress = fromIPAddress;
+		this.toIPAddressHigh = toIPAddressHigh;
 		this.toIPAddress = toIPAddress;
 		this.locationData = locationData;
 	}
@@ -81,13 +74,17 @@ public String[] getLocationData() {
 		return locationData;
 	}
 
+	boolean addTo(GeolocationIntervalIndex.Builder builder) {
+		return builder.add(fromIPAddressHigh, fromIPAddress, toIPAddressHigh, toIPAddress, locationData);
+	}
+
 	@Override
 	public int compareTo(final RangerGeolocationData other) {
 		int ret = (other == null) ? 1 : 0;
 		if (ret == 0) {
-			ret = Long.compare(fromIPAddress, other.fromIPAddress);
+			ret = GeolocationIntervalIndex.compare(fromIPAddressHigh, fromIPAddress, other.fromIPAddressHigh, other.fromIPAddress);
 			if (ret == 0) {
-				ret = Long.compare(toIPAddress, other.toIPAddress);
+				ret = GeolocationIntervalIndex.compare(toIPAddressHigh, toIPAddress, other.toIPAddressHigh, other.toIPAddress);
 				if (ret == 0) {
 					ret = Integer.compare(locationData.length, other.locationData.length);
 					for (int i = 0; ret == 0 && i < locationData.length; i++) {
@@ -111,17 +108,21 @@ public boolean equals(Object other) {
 	@Override
 	public int hashCode() {
 		if (hash == 0) {
-			hash = Objects.hash(fromIPAddress, toIPAddress, locationData);
+			hash = Objects.hash(fromIPAddressHigh, fromIPAddress, toIPAddressHigh, toIPAddress, locationData);
 		}
 		return hash;
 	}
 
 	@Override
 	public int compareToRange(final Long ip) {
-		int ret = Long.compare(fromIPAddress, ip.longValue());
+		return compareToRange(0L, RangerIpAddressUtil.IPV4_MAPPED_PREFIX | ip);
+	}
+
+	public int compareToRange(final long ipHigh, final long ip) {
+		int ret = GeolocationIntervalIndex.compare(fromIPAddressHigh, fromIPAddress, ipHigh, ip);
 
 		if (ret < 0) {
-			ret = Long.compare(toIPAddress, ip.longValue());
+			ret = GeolocationIntervalIndex.compare(toIPAddressHigh, toIPAddress, ipHigh, ip);
 			if (ret > 0) {
 				ret = 0;
 			}
@@ -184,6 +185,25 @@ public static boolean validateAsIP(String ipAddress, boolean ipInDotNotation) {
 		return ret;
 	}
 
+	private static String toIPAddress(long high, long low) {
+		if (RangerIpAddressUtil.isIPv4Mapped(high, low)) {
+			return unsignedIntToIPAddress(low & 0xFFFFFFFFL);
+		}
+
+		byte[] bytes = new byte[16];
+
+		for (int i = 0; i < 8; i++) {
+			bytes[i] = (byte) (high >>> (8 * (7 - i)));
+			bytes[i + 8] = (byte) (low >>> (8 * (7 - i)));
+		}
+
+		try {
+			return InetAddress.getByAddress(bytes).getHostAddress();
+		} catch (UnknownHostException exception) {
+			return "";
+		}
+	}
+
 	private static int stringCompareTo(String str1, String str2) {
 		if(str1 == str2) {
 			return 0;
@@ -208,9 +228,9 @@ public String toString() {
 	private StringBuilder toString(StringBuilder sb) {
 		sb.append("{")
 				.append("from=")
-				.append(RangerGeolocationData.unsignedIntToIPAddress(fromIPAddress))
+				.append(toIPAddress(fromIPAddressHigh, fromIPAddress))
 				.append(", to=")
-				.append(RangerGeolocationData.unsignedIntToIPAddress(toIPAddress))
+				.append(toIPAddress(toIPAddressHigh, toIPAddress))
 				.append(", location={");
 			for (String data : locationData) {
 				sb.append(data).append(", ");
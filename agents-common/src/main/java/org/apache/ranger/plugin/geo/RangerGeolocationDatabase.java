@@ -26,7 +26,7 @@
 public class RangerGeolocationDatabase {
 	private static final Logger LOG = LoggerFactory.getLogger(RangerGeolocationDatabase.class);
 
-	private BinarySearchTree<RangerGeolocationData, Long> data = new BinarySearchTree<>();
+	private GeolocationIntervalIndex index = GeolocationIntervalIndex.EMPTY;
 
 	private GeolocationMetadata metadata = new GeolocationMetadata();
 
@@ -55,35 +55,65 @@ public String getValue(final RangerGeolocationData geolocationData, final String
 	public RangerGeolocationData find(final String ipAddressStr) {
 		RangerGeolocationData ret = null;
 
-		if (StringUtils.isNotBlank(ipAddressStr) && RangerGeolocationData.validateAsIP(ipAddressStr, true)) {
-			ret = data.find(RangerGeolocationData.ipAddressToLong(ipAddressStr));
+		if (StringUtils.isNotBlank(ipAddressStr)) {
+			ret = index.find(ipAddressStr);
 		}
 		return ret;
 	}
 
+	/**
+	 * @deprecated ranges are sorted when the index is built; there is nothing to optimize
+	 */
+	@Deprecated
 	public void optimize() {
-		long start = 0L, end = 0L;
-
-		start = System.currentTimeMillis();
-		data.rebalance();
-		end = System.currentTimeMillis();
-
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerGeolocationDatabase.optimize() - Time taken for optimizing database = " + (end - start) + " milliseconds");
+			LOG.debug("RangerGeolocationDatabase.optimize() - rangeCount=" + index.size());
 		}
 	}
 
-	public void setData(final BinarySearchTree<RangerGeolocationData, Long> dataArg) { data = dataArg != null ? dataArg : new BinarySearchTree<RangerGeolocationData, Long>();}
+	public void setIndex(final GeolocationIntervalIndex indexArg) { index = indexArg != null ? indexArg : GeolocationIntervalIndex.EMPTY;}
+
+	/**
+	 * @deprecated use {@link #setIndex(GeolocationIntervalIndex)}; ranges in the tree are copied into an index
+	 */
+	@Deprecated
+	public void setData(final BinarySearchTree<RangerGeolocationData, Long> dataArg) {
+		GeolocationIntervalIndex.Builder builder = new GeolocationIntervalIndex.Builder();
+
+		if (dataArg != null) {
+			dataArg.inOrderTraverseTree(value -> {
+				value.addTo(builder);
+				return value;
+			});
+		}
+
+		setIndex(builder.build());
+	}
 
 	public void setMetadata(final GeolocationMetadata metadataArg) { metadata = metadataArg != null ? metadataArg : new GeolocationMetadata();}
 
 	public GeolocationMetadata getMetadata() { return metadata; }
 
-	public BinarySearchTree<RangerGeolocationData, Long> getData() { return data; }
+	public GeolocationIntervalIndex getIndex() { return index; }
+
+	/**
+	 * @deprecated use {@link #getIndex()}; returns a new tree, balanced, with the ranges in the index. The tree is a
+	 * copy: ranges inserted into it are not seen by find(), and must instead be set with {@link #setData(BinarySearchTree)}
+	 */
+	@Deprecated
+	public BinarySearchTree<RangerGeolocationData, Long> getData() {
+		LOG.warn("RangerGeolocationDatabase.getData() is deprecated: it returns a copy of the ranges, and changes to it are not reflected in this database. Use getIndex() to read the ranges, and setIndex()/setData() to replace them");
+
+		BinarySearchTree<RangerGeolocationData, Long> ret = new BinarySearchTree<>();
+
+		insertBalanced(ret, 0, index.size() - 1);
+
+		return ret;
+	}
 
 	public void dump(ValuePrinter<RangerGeolocationData> processor) {
 
-		BinarySearchTree<RangerGeolocationData, Long> geoDatabase = getData();
+		GeolocationIntervalIndex geoDatabase = getIndex();
 		GeolocationMetadata metadata = getMetadata();
 		processor.build();
 
@@ -91,9 +121,21 @@ public void dump(ValuePrinter<RangerGeolocationData> processor) {
 		processor.print(metadata.toString());
 
 		processor.print("#================== Dump of geoDatabase - START ==================");
-		geoDatabase.preOrderTraverseTree(processor);
+		geoDatabase.forEach(processor);
 		processor.print("#================== Dump of geoDatabase - END   ==================");
 
 		processor.close();
 	}
+
+	// middle range first, as ranges in the index are sorted
+	private void insertBalanced(BinarySearchTree<RangerGeolocationData, Long> tree, int from, int to) {
+		if (from <= to) {
+			int mid = (from + to) >>> 1;
+
+			tree.insert(index.get(mid));
+
+			insertBalanced(tree, from, mid - 1);
+			insertBalanced(tree, mid + 1, to);
+		}
+	}
 }
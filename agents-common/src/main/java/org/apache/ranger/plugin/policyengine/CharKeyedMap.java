@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Map of char to value, kept as a sorted char[] of keys and a parallel array of values. Used for children of
+ * RangerResourceTrie nodes: most nodes have only a few children, for which a HashMap and boxed Character keys
+ * cost several times more heap than the entries themselves. Lookups are a binary search on the primitive keys.
+ *
+ * Not thread-safe; callers synchronize updates as they would for a HashMap.
+ */
+final class CharKeyedMap<V> extends AbstractMap<Character, V> {
+    private static final char[]   EMPTY_KEYS   = new char[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private char[]   keys   = EMPTY_KEYS;
+    private Object[] values = EMPTY_VALUES;
+    private int      size   = 0;
+
+    @SuppressWarnings("unchecked")
+    public V get(char key) {
+        int idx = Arrays.binarySearch(keys, 0, size, key);
+
+        return idx >= 0 ? (V) values[idx] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(char key, V value) {
+        int idx = Arrays.binarySearch(keys, 0, size, key);
+
+        if (idx >= 0) {
+            V ret = (V) values[idx];
+
+            values[idx] = value;
+
+            return ret;
+        }
+
+        idx = -(idx + 1);
+
+        if (size == keys.length) {
+            // nodes rarely have more than a handful of children: grow one at a time while small
+            int newCapacity = size < 4 ? size + 1 : size + (size >> 1);
+
+            keys   = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        System.arraycopy(keys, idx, keys, idx + 1, size - idx);
+        System.arraycopy(values, idx, values, idx + 1, size - idx);
+
+        keys[idx]   = key;
+        values[idx] = value;
+
+        size++;
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(char key) {
+        int idx = Arrays.binarySearch(keys, 0, size, key);
+
+        if (idx < 0) {
+            return null;
+        }
+
+        V ret = (V) values[idx];
+
+        removeAt(idx);
+
+        return ret;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Character ? get(((Character) key).charValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Character && Arrays.binarySearch(keys, 0, size, (Character) key) >= 0;
+    }
+
+    @Override
+    public V put(Character key, V value) {
+        return put(key.charValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Character ? remove(((Character) key).charValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        keys   = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+        size   = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Character, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Character, V>>() {
+            @Override
+            public Iterator<Map.Entry<Character, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                final EntryIterator entryIterator = new EntryIterator();
+
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entryIterator.hasNext();
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next() {
+                        return (V) values[entryIterator.nextIndex()];
+                    }
+
+                    @Override
+                    public void remove() {
+                        entryIterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void removeAt(int idx) {
+        int numToMove = size - idx - 1;
+
+        if (numToMove > 0) {
+            System.arraycopy(keys, idx + 1, keys, idx, numToMove);
+            System.arraycopy(values, idx + 1, values, idx, numToMove);
+        }
+
+        size--;
+
+        values[size] = null;
+
+        if (size == 0) {
+            clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<Character, V>> {
+        private int next    = 0;
+        private int lastRet = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Character, V> next() {
+            int idx = nextIndex();
+
+            return new SimpleImmutableEntry<>(keys[idx], (V) values[idx]);
+        }
+
+        int nextIndex() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+
+            lastRet = next++;
+
+            return lastRet;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+
+            removeAt(lastRet);
+
+            next    = lastRet;
+            lastRet = -1;
+        }
+    }
+}
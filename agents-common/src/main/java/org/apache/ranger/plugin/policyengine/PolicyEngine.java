@@ -66,6 +66,7 @@ public class PolicyEngine {
     private       String[]                            trustedProxyAddresses;
     private final Map<String, StringTokenReplacer>    tokenReplacers = new HashMap<>();
     private final RangerReadWriteLock                 lock;
+    private final RangerPolicyEngineInitExecutor.Metrics initMetrics;
 
 
     public RangerReadWriteLock.RangerLock getReadLock() {
@@ -118,6 +119,11 @@ public RangerPolicyRepository getTagPolicyRepository() {
         return tagPolicyRepository;
     }
 
+    // metrics of the full build of this engine; engines created by applying policy-deltas return the metrics of the engine they were created from
+    public RangerPolicyEngineInitExecutor.Metrics getInitMetrics() {
+        return initMetrics;
+    }
+
     public Map<String, RangerPolicyRepository> getZonePolicyRepositories() { return zonePolicyRepositories; }
 
     public List<RangerContextEnricher> getAllContextEnrichers() { return allContextEnrichers; }
@@ -224,50 +230,60 @@ public PolicyEngine(ServicePolicies servicePolicies, RangerPluginContext pluginC
             options.evaluatorType = RangerPolicyEvaluator.EVALUATOR_TYPE_OPTIMIZED;
         }
 
-        policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext);
-        serviceDefHelper = new RangerServiceDefHelper(policyRepository.getServiceDef(), false);
+        try (RangerPolicyEngineInitExecutor initExecutor = new RangerPolicyEngineInitExecutor(options.initThreadCount)) {
+            policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext, null, initExecutor);
+            serviceDefHelper = new RangerServiceDefHelper(policyRepository.getServiceDef(), false);
 
-        ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
+            ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
 
-        if (!options.disableTagPolicyEvaluation
-                && tagPolicies != null
-                && !StringUtils.isEmpty(tagPolicies.getServiceName())
-                && tagPolicies.getServiceDef() != null) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("PolicyEngine : Building tag-policy-repository for tag-service " + tagPolicies.getServiceName());
-            }
+            if (!options.disableTagPolicyEvaluation
+                    && tagPolicies != null
+                    && !StringUtils.isEmpty(tagPolicies.getServiceName())
+                    && tagPolicies.getServiceDef() != null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("PolicyEngine : Building tag-policy-repository for tag-service " + tagPolicies.getServiceName());
+                }
 
-            tagPolicyRepository = new RangerPolicyRepository(tagPolicies, this.pluginContext, servicePolicies.getServiceDef(), servicePolicies.getServiceName());
-        } else {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("PolicyEngine : No tag-policy-repository for service " + servicePolicies.getServiceName());
-            }
+                tagPolicyRepository = new RangerPolicyRepository(tagPolicies, this.pluginContext, servicePolicies.getServiceDef(), servicePolicies.getServiceName(), initExecutor);
+            } else {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("PolicyEngine : No tag-policy-repository for service " + servicePolicies.getServiceName());
+                }
 
-            tagPolicyRepository = null;
-        }
+                tagPolicyRepository = null;
+            }
 
-        List<RangerContextEnricher> tmpList;
-        List<RangerContextEnricher> tagContextEnrichers      = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
-        List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
+            List<RangerContextEnricher> tmpList;
+            List<RangerContextEnricher> tagContextEnrichers      = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
+            List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
 
-        if (CollectionUtils.isEmpty(tagContextEnrichers)) {
-            tmpList = resourceContextEnrichers;
-        } else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
-            tmpList = tagContextEnrichers;
-        } else {
-            tmpList = new ArrayList<>(tagContextEnrichers);
+            if (CollectionUtils.isEmpty(tagContextEnrichers)) {
+                tmpList = resourceContextEnrichers;
+            } else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
+                tmpList = tagContextEnrichers;
+            } else {
+                tmpList = new ArrayList<>(tagContextEnrichers);
 
-            tmpList.addAll(resourceContextEnrichers);
-        }
+                tmpList.addAll(resourceContextEnrichers);
+            }
 
-        this.allContextEnrichers = tmpList;
+            this.allContextEnrichers = tmpList;
 
-        if (MapUtils.isNotEmpty(servicePolicies.getSecurityZones())) {
-            for (Map.Entry<String, ServicePolicies.SecurityZoneInfo> zone : servicePolicies.getSecurityZones().entrySet()) {
-                RangerPolicyRepository policyRepository = new RangerPolicyRepository(servicePolicies, this.pluginContext, zone.getKey());
+            if (MapUtils.isNotEmpty(servicePolicies.getSecurityZones())) {
+                // zone repositories have no context enrichers, hence can be built concurrently
+                List<String>                 zoneNames        = new ArrayList<>(servicePolicies.getSecurityZones().keySet());
+                List<RangerPolicyRepository> zoneRepositories = initExecutor.map(zoneNames, zoneName -> new RangerPolicyRepository(servicePolicies, this.pluginContext, zoneName, initExecutor));
 
-                zonePolicyRepositories.put(zone.getKey(), policyRepository);
+                for (int i = 0; i < zoneNames.size(); i++) {
+                    zonePolicyRepositories.put(zoneNames.get(i), zoneRepositories.get(i));
+                }
             }
+
+            initMetrics = initExecutor.getMetrics();
+        }
+
+        if (PERF_POLICYENGINE_INIT_LOG.isDebugEnabled()) {
+            PERF_POLICYENGINE_INIT_LOG.debug("PolicyEngine(serviceName=" + servicePolicies.getServiceName() + "): " + initMetrics);
         }
 
         for (RangerServiceDef.RangerResourceDef resourceDef : getServiceDef().getResources()) {
@@ -494,6 +510,7 @@ private PolicyEngine(final PolicyEngine other, ServicePolicies servicePolicies)
         this.serviceDefHelper      = other.serviceDefHelper;
         this.pluginContext         = other.pluginContext;
         this.lock                  = other.lock;
+        this.initMetrics           = other.initMetrics;
         this.zoneMatcher           = new RangerSecurityZoneMatcher(servicePolicies.getSecurityZones(), servicePolicies.getServiceDef(), pluginContext);
 
         long                    policyVersion                   = servicePolicies.getPolicyVersion() != null ? servicePolicies.getPolicyVersion() : -1L;
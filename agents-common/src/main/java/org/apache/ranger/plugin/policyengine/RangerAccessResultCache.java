@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded cache of final access decisions, keyed on the normalized request. Each entry records the versions of
+ * resource/tag policies, tags, roles and user-store that were in effect when it was computed; a lookup made with different
+ * versions discards the entry. Requests whose outcome can depend on anything other than the key (conditions,
+ * validity schedules, resources having time-bound tags, GDS) are never stored.
+ */
+public class RangerAccessResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerAccessResultCache.class);
+
+    private final int                        cacheSize;
+    private final Map<CacheKey, CachedEntry> cache;
+    private final AtomicLong                 hitCount          = new AtomicLong();
+    private final AtomicLong                 missCount         = new AtomicLong();
+    private final AtomicLong                 bypassCount       = new AtomicLong();
+    private final AtomicLong                 evictionCount     = new AtomicLong();
+    private final AtomicLong                 invalidationCount = new AtomicLong();
+
+    public RangerAccessResultCache(int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.cache     = Collections.synchronizedMap(new EvictionCountingCacheMap(cacheSize));
+
+        LOG.info("Created RangerAccessResultCache(cacheSize={})", cacheSize);
+    }
+
+    public int getCacheSize() { return cacheSize; }
+
+    public int size() { return cache.size(); }
+
+    public long getHitCount() { return hitCount.get(); }
+
+    public long getMissCount() { return missCount.get(); }
+
+    public long getBypassCount() { return bypassCount.get(); }
+
+    public long getEvictionCount() { return evictionCount.get(); }
+
+    public long getInvalidationCount() { return invalidationCount.get(); }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /*
+     * returns null when the request is not eligible for caching
+     */
+    CacheKey getCacheKey(RangerAccessRequest request, int policyType) {
+        final CacheKey ret;
+
+        if (isCacheableRequest(request)) {
+            ret = new CacheKey(request, policyType);
+        } else {
+            ret = null;
+
+            bypassCount.incrementAndGet();
+        }
+
+        return ret;
+    }
+
+    RangerAccessResult get(CacheKey key, RangerAccessRequest request, Versions versions) {
+        final RangerAccessResult ret;
+        final CachedEntry        entry = cache.get(key);
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+
+            ret = null;
+        } else if (!entry.versions.equals(versions)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerAccessResultCache.get(): discarding stale entry; entryVersions={}, currentVersions={}", entry.versions, versions);
+            }
+
+            cache.remove(key);
+
+            invalidationCount.incrementAndGet();
+            missCount.incrementAndGet();
+
+            ret = null;
+        } else {
+            hitCount.incrementAndGet();
+
+            ret = entry.toAccessResult(request);
+        }
+
+        return ret;
+    }
+
+    void put(CacheKey key, RangerAccessResult result, Versions versions) {
+        if (result.getIsAccessDetermined()) {
+            cache.put(key.copyOf(), new CachedEntry(result, versions));
+        }
+    }
+
+    void recordBypass() {
+        bypassCount.incrementAndGet();
+    }
+
+    /*
+     * Checks attributes already available after request pre-processing; whether the matched policies are
+     * context-sensitive is checked by the caller before the result is stored.
+     */
+    static boolean isCacheableRequest(RangerAccessRequest request) {
+        boolean ret = request != null && request.getResource() != null && request.getResource().getCacheKey() != null && !request.isAccessTypeAny();
+
+        if (ret) {
+            Map<String, Object> context = request.getContext();
+
+            if (context != null) {
+                if (CollectionUtils.size(RangerAccessRequestUtil.getAllRequestedAccessTypes(request)) > 1) {
+                    ret = false;
+                } else if (RangerAccessRequestUtil.getGdsResultFromContext(context) != null) {
+                    ret = false;
+                } else if (RangerAccessRequestUtil.getRequestedResourcesFromContext(context) != null) {
+                    ret = false;
+                } else if (RangerAccessRequestUtil.getHasScheduledTagsInContext(context)) {
+                    // tags that are not yet (or no longer) valid are not in the context, but the result changes when they are
+                    ret = false;
+                } else {
+                    Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(context);
+
+                    if (CollectionUtils.isNotEmpty(tags)) {
+                        for (RangerTagForEval tag : tags) {
+                            if (CollectionUtils.isNotEmpty(tag.getValidityPeriods())) {
+                                ret = false;
+
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerAccessResultCache={cacheSize=" + cacheSize + ", size=" + size() +
+               ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", bypassCount=" + getBypassCount() +
+               ", evictionCount=" + getEvictionCount() + ", invalidationCount=" + getInvalidationCount() + "}";
+    }
+
+    public static final class Versions {
+        private final long policyVersion;
+        private final long tagPolicyVersion;
+        private final long tagVersion;
+        private final long roleVersion;
+        private final long userStoreVersion;
+
+        public Versions(long policyVersion, long tagPolicyVersion, long tagVersion, long roleVersion, long userStoreVersion) {
+            this.policyVersion    = policyVersion;
+            this.tagPolicyVersion = tagPolicyVersion;
+            this.tagVersion       = tagVersion;
+            this.roleVersion      = roleVersion;
+            this.userStoreVersion = userStoreVersion;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Versions)) {
+                return false;
+            }
+
+            Versions other = (Versions) obj;
+
+            return policyVersion == other.policyVersion && tagPolicyVersion == other.tagPolicyVersion && tagVersion == other.tagVersion && roleVersion == other.roleVersion && userStoreVersion == other.userStoreVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(policyVersion, tagPolicyVersion, tagVersion, roleVersion, userStoreVersion);
+        }
+
+        @Override
+        public String toString() {
+            return "{policyVersion=" + policyVersion + ", tagPolicyVersion=" + tagPolicyVersion + ", tagVersion=" + tagVersion + ", roleVersion=" + roleVersion + ", userStoreVersion=" + userStoreVersion + "}";
+        }
+    }
+
+    static final class CacheKey {
+        private final int         policyType;
+        private final String      resource;
+        private final String      owner;
+        private final String      accessType;
+        private final String      user;
+        private final Set<String> userGroups;
+        private final Set<String> userRoles;
+        private final String      clusterName;
+        private final String      clusterType;
+        private final Object      resourceMatchingScope;
+        private final Object      resourceElementMatchingScopes;
+        private final int         hashCode;
+
+        CacheKey(RangerAccessRequest request, int policyType) {
+            this(policyType,
+                 request.getResource().getCacheKey(),
+                 request.getResource().getOwnerUser(),
+                 request.getAccessType(),
+                 request.getUser(),
+                 request.getUserGroups(),
+                 RangerAccessRequestUtil.getUserRoles(request),
+                 request.getClusterName(),
+                 request.getClusterType(),
+                 request.getResourceMatchingScope(),
+                 MapUtils.isEmpty(request.getResourceElementMatchingScopes()) ? null : request.getResourceElementMatchingScopes());
+        }
+
+        private CacheKey(int policyType, String resource, String owner, String accessType, String user, Set<String> userGroups, Set<String> userRoles,
+                         String clusterName, String clusterType, Object resourceMatchingScope, Object resourceElementMatchingScopes) {
+            this.policyType                    = policyType;
+            this.resource                      = resource;
+            this.owner                         = owner;
+            this.accessType                    = accessType;
+            this.user                          = user;
+            this.userGroups                    = userGroups == null ? Collections.emptySet() : userGroups;
+            this.userRoles                     = userRoles == null ? Collections.emptySet() : userRoles;
+            this.clusterName                   = clusterName;
+            this.clusterType                   = clusterType;
+            this.resourceMatchingScope         = resourceMatchingScope;
+            this.resourceElementMatchingScopes = resourceElementMatchingScopes;
+            this.hashCode                      = Objects.hash(policyType, resource, owner, accessType, user, this.userGroups, this.userRoles, clusterName, clusterType, resourceMatchingScope, resourceElementMatchingScopes);
+        }
+
+        // lookup keys refer to collections owned by the request; entries stored in the cache must not
+        CacheKey copyOf() {
+            return new CacheKey(policyType, resource, owner, accessType, user, new HashSet<>(userGroups), new HashSet<>(userRoles),
+                                clusterName, clusterType, resourceMatchingScope, resourceElementMatchingScopes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+
+            return hashCode == other.hashCode &&
+                   policyType == other.policyType &&
+                   Objects.equals(resource, other.resource) &&
+                   Objects.equals(accessType, other.accessType) &&
+                   Objects.equals(user, other.user) &&
+                   Objects.equals(owner, other.owner) &&
+                   Objects.equals(clusterName, other.clusterName) &&
+                   Objects.equals(clusterType, other.clusterType) &&
+                   Objects.equals(resourceMatchingScope, other.resourceMatchingScope) &&
+                   Objects.equals(resourceElementMatchingScopes, other.resourceElementMatchingScopes) &&
+                   userGroups.equals(other.userGroups) &&
+                   userRoles.equals(other.userRoles);
+        }
+    }
+
+    private static final class CachedEntry {
+        private final Versions           versions;
+        private final RangerAccessResult result;
+
+        CachedEntry(RangerAccessResult result, Versions versions) {
+            this.versions = versions;
+            this.result   = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), null);
+
+            this.result.setAccessResultFrom(result);
+            this.result.setAuditResultFrom(result);
+        }
+
+        RangerAccessResult toAccessResult(RangerAccessRequest request) {
+            RangerAccessResult ret = new RangerAccessResult(result.getPolicyType(), result.getServiceName(), result.getServiceDef(), request);
+
+            ret.setAccessResultFrom(result);
+            ret.setAuditResultFrom(result);
+
+            return ret;
+        }
+    }
+
+    private final class EvictionCountingCacheMap extends CacheMap<CacheKey, CachedEntry> {
+        private static final long serialVersionUID = 1L;
+
+        EvictionCountingCacheMap(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            boolean ret = super.removeEldestEntry(eldest);
+
+            if (ret) {
+                evictionCount.incrementAndGet();
+            }
+
+            return ret;
+        }
+    }
+}
@@ -72,6 +72,8 @@ public interface RangerPolicyEngine {
 
 	RangerResourceACLs getResourceACLs(RangerAccessRequest request, Integer requestedPolicyType);
 
+	void visitResourceACLs(RangerAccessRequest request, Integer requestedPolicyType, RangerResourceACLs.ACLVisitor visitor);
+
 	Set<String> getRolesFromUserAndGroups(String user, Set<String> groups);
 
 	RangerRoles getRangerRoles();
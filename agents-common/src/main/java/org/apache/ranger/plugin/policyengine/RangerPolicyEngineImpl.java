@@ -26,15 +26,19 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.authorization.utils.StringUtil;
+import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.gds.GdsAccessResult;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
+import org.apache.ranger.plugin.service.RangerAuthContext;
 import org.apache.ranger.plugin.service.RangerDefaultRequestProcessor;
 import org.apache.ranger.plugin.util.GrantRevokeRequest;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerBatchLookupCache;
 import org.apache.ranger.plugin.util.RangerCommonConstants;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerReadWriteLock;
@@ -65,20 +69,32 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	private final PolicyEngine                 policyEngine;
 	private final RangerAccessRequestProcessor requestProcessor;
 	private final ServiceConfig                serviceConfig;
+	private final RangerAccessResultCache      accessResultCache;
+	private final RangerResourceACLsCache      resourceACLsCache;
+	private final boolean                      shareLookupsInBatch;
 
 
 	static public RangerPolicyEngine getPolicyEngine(final RangerPolicyEngineImpl other, final ServicePolicies servicePolicies) {
 		RangerPolicyEngine ret = null;
 
 		if (other != null && servicePolicies != null) {
-			PolicyEngine policyEngine = other.policyEngine.cloneWithDelta(servicePolicies);
+			RangerAccessResultCache.Versions prevVersions = other.resourceACLsCache != null ? other.getAccessResultCacheVersions() : null;
+			PolicyEngine                     policyEngine = other.policyEngine.cloneWithDelta(servicePolicies);
 
 			if (policyEngine != null) {
+				final RangerPolicyEngineImpl engineImpl;
+
 				if (policyEngine == other.policyEngine) {
-					ret = other;
+					engineImpl = other;
 				} else {
-					ret = new RangerPolicyEngineImpl(policyEngine, other);
+					engineImpl = new RangerPolicyEngineImpl(policyEngine, other);
+				}
+
+				if (prevVersions != null) {
+					engineImpl.resourceACLsCache.retainUnaffected(other.resourceACLsCache, servicePolicies, prevVersions, engineImpl.getAccessResultCacheVersions(), policyEngine);
 				}
+
+				ret = engineImpl;
 			}
 		}
 
@@ -100,6 +116,22 @@ public RangerPolicyEngineImpl(ServicePolicies servicePolicies, RangerPluginConte
 		policyEngine     = new PolicyEngine(servicePolicies, pluginContext, roles, isUseReadWriteLock);
 		serviceConfig    = new ServiceConfig(servicePolicies.getServiceConfig());
 		requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
+
+		RangerPolicyEngineOptions options = config != null ? pluginContext.getConfig().getPolicyEngineOptions() : null;
+
+		if (options != null && options.cacheAccessResults && options.accessResultCacheSize > 0) {
+			accessResultCache = new RangerAccessResultCache(options.accessResultCacheSize);
+		} else {
+			accessResultCache = null;
+		}
+
+		if (options != null && options.cacheResourceACLs && options.resourceACLsCacheSize > 0) {
+			resourceACLsCache = new RangerResourceACLsCache(options.resourceACLsCacheSize);
+		} else {
+			resourceACLsCache = null;
+		}
+
+		shareLookupsInBatch = options == null || options.shareLookupsInBatch;
 	}
 
 	@Override
@@ -134,7 +166,7 @@ public RangerAccessResult evaluatePolicies(RangerAccessRequest request, int poli
 
 			requestProcessor.preProcess(request);
 
-			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+			ret = evaluateAccessWithNoAudit(request, policyType);
 
 			if (resultProcessor != null) {
 				RangerPerfTracer perfAuditTracer = null;
@@ -175,12 +207,33 @@ public Collection<RangerAccessResult> evaluatePolicies(Collection<RangerAccessRe
 				}
 			}
 			if (requests != null) {
-				for (RangerAccessRequest request : requests) {
-					requestProcessor.preProcess(request);
+				// requests in a batch often share resource prefixes and the user; trie and role lookups are done once for them
+				RangerBatchLookupCache lookupCache = (shareLookupsInBatch && requests.size() > 1) ? new RangerBatchLookupCache() : null;
+
+				try {
+					for (RangerAccessRequest request : requests) {
+						if (lookupCache != null && request.getContext() != null) {
+							RangerAccessRequestUtil.setBatchLookupCacheInContext(request.getContext(), lookupCache);
+						}
 
-					RangerAccessResult result = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+						requestProcessor.preProcess(request);
 
-					ret.add(result);
+						RangerAccessResult result = evaluateAccessWithNoAudit(request, policyType);
+
+						ret.add(result);
+					}
+				} finally {
+					if (lookupCache != null) {
+						for (RangerAccessRequest request : requests) {
+							if (request.getContext() != null) {
+								RangerAccessRequestUtil.setBatchLookupCacheInContext(request.getContext(), null);
+							}
+						}
+
+						if (LOG.isDebugEnabled()) {
+							LOG.debug("RangerPolicyEngineImpl.evaluatePolicies(): " + lookupCache);
+						}
+					}
 				}
 			}
 
@@ -250,92 +303,43 @@ public RangerResourceACLs getResourceACLs(RangerAccessRequest request, Integer r
 			LOG.debug("==> RangerPolicyEngineImpl.getResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ")");
 		}
 
-		RangerResourceACLs ret  = new RangerResourceACLs();
-		RangerPerfTracer   perf = null;
+		RangerPerfTracer perf = null;
 
 		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_GET_ACLS_LOG)) {
 			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_GET_ACLS_LOG, "RangerPolicyEngine.getResourceACLs(requestHashCode=" + request.getResource().getAsString() + ")");
 		}
 
-		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
-			if (LOG.isDebugEnabled()) {
-				if (readLock.isLockingEnabled()) {
-					LOG.debug("Acquired lock - " + readLock);
-				}
-			}
-
-			requestProcessor.preProcess(request);
-
-			String zoneName = RangerAccessRequestUtil.getResourceZoneNameFromContext(request.getContext());
-
-			if (LOG.isDebugEnabled()) {
-				LOG.debug("zoneName:[" + zoneName + "]");
-			}
-
-			int[] policyTypes = requestedPolicyType == null ? RangerPolicy.POLICY_TYPES : new int[] { requestedPolicyType };
-
-
-			for (int policyType : policyTypes) {
-				// if resource isn't applicable for the policyType, skip evaluating policies and gathering ACLs
-				// for example, following resources are not applicable for listed policy-types
-				//   - database: masking/row-filter policies
-				//   - table:    masking policies
-				//   - column:   row-filter policies
-				boolean requireExactMatch = (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) || (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER);
-
-				if (!policyEngine.getServiceDefHelper().isValidHierarchy(policyType, request.getResource().getKeys(), requireExactMatch)) {
-					continue;
-				}
-
-				List<RangerPolicyEvaluator> allEvaluators           = new ArrayList<>();
-				Map<Long, MatchType>        tagMatchTypeMap         = new HashMap<>();
-				Set<Long>                   policyIdForTemporalTags = new HashSet<>();
+		RangerResourceACLs ret = getResourceACLs(request, requestedPolicyType, true);
 
-				getResourceACLEvaluatorsForZone(request, zoneName, policyType, allEvaluators, tagMatchTypeMap, policyIdForTemporalTags);
-
-				allEvaluators.sort(RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
-
-				if (CollectionUtils.isEmpty(allEvaluators)) {
-					continue;
-				}
-
-				Integer policyPriority = null;
-
-				for (RangerPolicyEvaluator evaluator : allEvaluators) {
-					if (policyPriority == null) {
-						policyPriority = evaluator.getPolicyPriority();
-					}
-
-					if (policyPriority != evaluator.getPolicyPriority()) {
-						if (policyType == RangerPolicy.POLICY_TYPE_ACCESS) {
-							ret.finalizeAcls();
-						}
+		RangerPerfTracer.logAlways(perf);
 
-						policyPriority = evaluator.getPolicyPriority();
-					}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.getResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ") : ret=" + ret);
+		}
 
-					boolean   isTemporalTagPolicy = policyIdForTemporalTags.contains(evaluator.getPolicyId());
-					MatchType tagMatchType        = tagMatchTypeMap.get(evaluator.getPolicyId());
+		return ret;
+	}
 
-					// tag assigned to ANCESTORS must apply to SELF as well, to be consistent with policy evaluation in RangerDefaultPolicyEvaluator.evaluate()
-					if (tagMatchType == MatchType.ANCESTOR) {
-						tagMatchType = MatchType.SELF;
-					}
+	@Override
+	public void visitResourceACLs(RangerAccessRequest request, Integer requestedPolicyType, RangerResourceACLs.ACLVisitor visitor) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.visitResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ")");
+		}
 
-					evaluator.getResourceACLs(request, ret, isTemporalTagPolicy, null, tagMatchType, policyEngine);
-				}
+		RangerPerfTracer perf = null;
 
-				ret.finalizeAcls();
-			}
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_GET_ACLS_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_GET_ACLS_LOG, "RangerPolicyEngine.visitResourceACLs(requestHashCode=" + request.getResource().getAsString() + ")");
 		}
 
+		// ACLs from the cache are visited without making a copy
+		getResourceACLs(request, requestedPolicyType, false).accept(visitor);
+
 		RangerPerfTracer.logAlways(perf);
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerPolicyEngineImpl.getResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ") : ret=" + ret);
+			LOG.debug("<== RangerPolicyEngineImpl.visitResourceACLs(request=" + request + ", policyType=" + requestedPolicyType + ")");
 		}
-
-		return ret;
 	}
 
 	@Override
@@ -580,10 +584,111 @@ public RangerAccessRequestProcessor getRequestProcessor() {
 		return requestProcessor;
 	}
 
+	public RangerAccessResultCache getAccessResultCache() {
+		return accessResultCache;
+	}
+
+	public RangerResourceACLsCache getResourceACLsCache() {
+		return resourceACLsCache;
+	}
+
 	private RangerPolicyEngineImpl(final PolicyEngine policyEngine, RangerPolicyEngineImpl other) {
-		this.policyEngine     = policyEngine;
-		this.requestProcessor = new RangerDefaultRequestProcessor(policyEngine);
-		this.serviceConfig    = new ServiceConfig(other.serviceConfig);
+		this.policyEngine      = policyEngine;
+		this.requestProcessor  = new RangerDefaultRequestProcessor(policyEngine);
+		this.serviceConfig     = new ServiceConfig(other.serviceConfig);
+		this.accessResultCache = other.accessResultCache != null ? new RangerAccessResultCache(other.accessResultCache.getCacheSize()) : null;
+		this.resourceACLsCache = other.resourceACLsCache != null ? new RangerResourceACLsCache(other.resourceACLsCache.getCacheSize()) : null;
+		this.shareLookupsInBatch = other.shareLookupsInBatch;
+	}
+
+	private RangerAccessResult evaluateAccessWithNoAudit(RangerAccessRequest request, int policyType) {
+		final RangerAccessResultCache          cache    = accessResultCache;
+		final RangerAccessResultCache.CacheKey cacheKey = cache != null ? cache.getCacheKey(request, policyType) : null;
+		final RangerAccessResultCache.Versions versions = cacheKey != null ? getAccessResultCacheVersions() : null;
+		RangerAccessResult                     ret      = cacheKey != null ? cache.get(cacheKey, request, versions) : null;
+
+		if (ret == null) {
+			ret = zoneAwareAccessEvaluationWithNoAudit(request, policyType);
+
+			if (cacheKey != null) {
+				if (isCacheableResult(request, policyType, ret)) {
+					cache.put(cacheKey, ret, versions);
+				} else {
+					cache.recordBypass();
+				}
+			}
+		} else if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerPolicyEngineImpl.evaluateAccessWithNoAudit(" + request + ", policyType=" + policyType + "): found in cache - " + ret);
+		}
+
+		return ret;
+	}
+
+	private RangerAccessResultCache.Versions getAccessResultCacheVersions() {
+		RangerAuthContext      authContext         = policyEngine.getPluginContext().getAuthContext();
+		RangerPolicyRepository tagPolicyRepository = policyEngine.getTagPolicyRepository();
+		Long                   tagVersion          = null;
+
+		if (policyEngine.getAllContextEnrichers() != null) {
+			for (RangerContextEnricher enricher : policyEngine.getAllContextEnrichers()) {
+				if (enricher instanceof RangerTagEnricher) {
+					tagVersion = ((RangerTagEnricher) enricher).getServiceTagsVersion();
+
+					break;
+				}
+			}
+		}
+
+		return new RangerAccessResultCache.Versions(policyEngine.getPolicyVersion(),
+		                                            tagPolicyRepository != null ? tagPolicyRepository.getPolicyVersion() : -1L,
+		                                            tagVersion != null ? tagVersion : -1L,
+		                                            authContext != null ? authContext.getRoleVersion() : -1L,
+		                                            authContext != null ? authContext.getUserStoreVersion() : -1L);
+	}
+
+	// result can be reused only if none of the policies that could match the request depend on request context or time
+	private boolean isCacheableResult(RangerAccessRequest request, int policyType, RangerAccessResult result) {
+		boolean ret = RangerAccessResultCache.isCacheableRequest(request);
+
+		if (ret) {
+			RangerPolicyRepository policyRepository = policyEngine.getRepositoryForZone(result.getZoneName());
+
+			if (policyRepository != null && policyEngine.hasResourcePolicies(policyRepository)) {
+				for (RangerPolicyEvaluator evaluator : policyRepository.getLikelyMatchPolicyEvaluators(request, policyType)) {
+					if (isContextSensitive(evaluator)) {
+						ret = false;
+
+						break;
+					}
+				}
+			}
+		}
+
+		if (ret) {
+			RangerPolicyRepository tagPolicyRepository = policyEngine.getTagPolicyRepository();
+
+			if (tagPolicyRepository != null) {
+				Set<RangerTagForEval>       tags          = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+				List<PolicyEvaluatorForTag> tagEvaluators = tagPolicyRepository.getLikelyMatchPolicyEvaluators(request, tags, policyType, null);
+
+				for (PolicyEvaluatorForTag tagEvaluator : tagEvaluators) {
+					if (isContextSensitive(tagEvaluator.getEvaluator())) {
+						ret = false;
+
+						break;
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static boolean isContextSensitive(RangerPolicyEvaluator evaluator) {
+		return evaluator.getPolicyConditionsCount() > 0 ||
+		       evaluator.getCustomConditionsCount() > 0 ||
+		       evaluator.getValidityScheduleEvaluatorsCount() > 0 ||
+		       evaluator.hasContextSensitiveSpecification();
 	}
 
 	private RangerAccessResult zoneAwareAccessEvaluationWithNoAudit(RangerAccessRequest request, int policyType) {
@@ -962,6 +1067,115 @@ private boolean isSuperUser(String userName, Set<String> userGroups) {
 		return ret;
 	}
 
+	private RangerResourceACLs getResourceACLs(RangerAccessRequest request, Integer requestedPolicyType, boolean copyIfCached) {
+		final RangerResourceACLs ret;
+
+		try (RangerReadWriteLock.RangerLock readLock = policyEngine.getReadLock()) {
+			if (LOG.isDebugEnabled()) {
+				if (readLock.isLockingEnabled()) {
+					LOG.debug("Acquired lock - " + readLock);
+				}
+			}
+
+			requestProcessor.preProcess(request);
+
+			String zoneName = RangerAccessRequestUtil.getResourceZoneNameFromContext(request.getContext());
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("zoneName:[" + zoneName + "]");
+			}
+
+			final RangerResourceACLsCache          cache    = resourceACLsCache;
+			final RangerResourceACLsCache.CacheKey cacheKey = cache != null ? cache.getCacheKey(request, zoneName, requestedPolicyType) : null;
+			final RangerAccessResultCache.Versions versions = cacheKey != null ? getAccessResultCacheVersions() : null;
+			final RangerResourceACLs               cached   = cacheKey != null ? cache.get(cacheKey, versions) : null;
+
+			if (cached != null) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("RangerPolicyEngineImpl.getResourceACLs(" + request + ", policyType=" + requestedPolicyType + "): found in cache");
+				}
+
+				ret = copyIfCached ? new RangerResourceACLs(cached) : cached;
+			} else {
+				List<RangerPolicyEvaluator> evaluatedPolicies = cacheKey != null ? new ArrayList<>() : null;
+				RangerResourceACLs          acls              = computeResourceACLs(request, zoneName, requestedPolicyType, evaluatedPolicies);
+
+				if (cacheKey != null && cache.put(cacheKey, request, evaluatedPolicies, acls, versions)) {
+					ret = copyIfCached ? new RangerResourceACLs(acls) : acls;
+				} else {
+					ret = acls;
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	// evaluatedPolicies, when not null, is populated with resource and tag policies evaluated for the request
+	private RangerResourceACLs computeResourceACLs(RangerAccessRequest request, String zoneName, Integer requestedPolicyType, List<RangerPolicyEvaluator> evaluatedPolicies) {
+		RangerResourceACLs ret         = new RangerResourceACLs();
+		int[]              policyTypes = requestedPolicyType == null ? RangerPolicy.POLICY_TYPES : new int[] { requestedPolicyType };
+
+		for (int policyType : policyTypes) {
+			// if resource isn't applicable for the policyType, skip evaluating policies and gathering ACLs
+			// for example, following resources are not applicable for listed policy-types
+			//   - database: masking/row-filter policies
+			//   - table:    masking policies
+			//   - column:   row-filter policies
+			boolean requireExactMatch = (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) || (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER);
+
+			if (!policyEngine.getServiceDefHelper().isValidHierarchy(policyType, request.getResource().getKeys(), requireExactMatch)) {
+				continue;
+			}
+
+			List<RangerPolicyEvaluator> allEvaluators           = new ArrayList<>();
+			Map<Long, MatchType>        tagMatchTypeMap         = new HashMap<>();
+			Set<Long>                   policyIdForTemporalTags = new HashSet<>();
+
+			getResourceACLEvaluatorsForZone(request, zoneName, policyType, allEvaluators, tagMatchTypeMap, policyIdForTemporalTags);
+
+			allEvaluators.sort(RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
+
+			if (CollectionUtils.isEmpty(allEvaluators)) {
+				continue;
+			}
+
+			if (evaluatedPolicies != null) {
+				evaluatedPolicies.addAll(allEvaluators);
+			}
+
+			Integer policyPriority = null;
+
+			for (RangerPolicyEvaluator evaluator : allEvaluators) {
+				if (policyPriority == null) {
+					policyPriority = evaluator.getPolicyPriority();
+				}
+
+				if (policyPriority != evaluator.getPolicyPriority()) {
+					if (policyType == RangerPolicy.POLICY_TYPE_ACCESS) {
+						ret.finalizeAcls();
+					}
+
+					policyPriority = evaluator.getPolicyPriority();
+				}
+
+				boolean   isTemporalTagPolicy = policyIdForTemporalTags.contains(evaluator.getPolicyId());
+				MatchType tagMatchType        = tagMatchTypeMap.get(evaluator.getPolicyId());
+
+				// tag assigned to ANCESTORS must apply to SELF as well, to be consistent with policy evaluation in RangerDefaultPolicyEvaluator.evaluate()
+				if (tagMatchType == MatchType.ANCESTOR) {
+					tagMatchType = MatchType.SELF;
+				}
+
+				evaluator.getResourceACLs(request, ret, isTemporalTagPolicy, null, tagMatchType, policyEngine);
+			}
+
+			ret.finalizeAcls();
+		}
+
+		return ret;
+	}
+
 	private void getResourceACLEvaluatorsForZone(RangerAccessRequest request, String zoneName, int policyType, List<RangerPolicyEvaluator> allEvaluators, Map<Long, MatchType> tagMatchTypeMap, Set<Long> policyIdForTemporalTags) {
 		final RangerPolicyRepository matchedRepository = policyEngine.getRepositoryForZone(zoneName);
 
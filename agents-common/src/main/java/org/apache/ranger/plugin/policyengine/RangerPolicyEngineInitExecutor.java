@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ * Runs the independent steps of policy-engine construction - building policy evaluators, and building zone
+ * repositories - in a fork-join pool of RangerPolicyEngineOptions.initThreadCount threads. Results are returned in
+ * the order of the inputs, so evaluation order is the same as with serial construction. Calls made from a pool thread
+ * (for example, building evaluators of a zone repository that is itself being built in the pool) run in the same pool.
+ *
+ * Pool threads use the context class-loader of the thread that created the executor, as script engines and condition
+ * evaluators may be loaded through it. With a thread count of 1, everything runs in the calling thread, as before.
+ */
+public class RangerPolicyEngineInitExecutor implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerPolicyEngineInitExecutor.class);
+
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final int          parallelism;
+    private final ForkJoinPool pool;
+    private final long         startTimeNanos = System.nanoTime();
+    private final AtomicLong   taskCount      = new AtomicLong();
+    private final AtomicLong   taskTimeNanos  = new AtomicLong();
+    private       long         elapsedNanos   = -1;
+
+    public RangerPolicyEngineInitExecutor(int threadCount) {
+        this.parallelism = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+        this.pool        = parallelism > 1 ? createPool(parallelism, Thread.currentThread().getContextClassLoader()) : null;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyEngineInitExecutor(threadCount={}): parallelism={}", threadCount, parallelism);
+        }
+    }
+
+    public int getParallelism() { return parallelism; }
+
+    public boolean isParallel() { return pool != null; }
+
+    /*
+     * returns mapper applied to each item, in the order of items
+     */
+    public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> mapper) {
+        final int     count = items.size();
+        final List<R> ret;
+
+        if (pool == null || count < 2) {
+            ret = new ArrayList<>(count);
+
+            for (T item : items) {
+                ret.add(apply(mapper, item));
+            }
+        } else {
+            Object[]      results   = new Object[count];
+            int           threshold = Math.max(1, count / (parallelism * TASKS_PER_THREAD));
+            MapTask<T, R> task      = new MapTask<>(this, items, mapper, results, 0, count, threshold);
+
+            if (ForkJoinTask.getPool() == pool) {
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+
+            ret = new ArrayList<>(count);
+
+            for (Object result : results) {
+                @SuppressWarnings("unchecked")
+                R value = (R) result;
+
+                ret.add(value);
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        if (elapsedNanos < 0) {
+            elapsedNanos = System.nanoTime() - startTimeNanos;
+        }
+
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * metrics of the work done so far; elapsed time is until close(), if closed
+     */
+    public Metrics getMetrics() {
+        long elapsed = elapsedNanos >= 0 ? elapsedNanos : (System.nanoTime() - startTimeNanos);
+
+        return new Metrics(parallelism, taskCount.get(), taskTimeNanos.get() / 1000000L, elapsed / 1000000L);
+    }
+
+    private <T, R> R apply(Function<? super T, ? extends R> mapper, T item) {
+        long startNanos = System.nanoTime();
+
+        try {
+            return mapper.apply(item);
+        } finally {
+            taskCount.incrementAndGet();
+            taskTimeNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static ForkJoinPool createPool(int parallelism, ClassLoader contextClassLoader) {
+        final AtomicInteger threadIdx = new AtomicInteger();
+
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            ForkJoinWorkerThread ret = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+
+            ret.setName("ranger-policyengine-init-" + threadIdx.incrementAndGet());
+            ret.setContextClassLoader(contextClassLoader);
+
+            return ret;
+        };
+
+        return new ForkJoinPool(parallelism, threadFactory, null, false);
+    }
+
+    private static class MapTask<T, R> extends RecursiveAction {
+        private final RangerPolicyEngineInitExecutor   executor;
+        private final List<T>                          items;
+        private final Function<? super T, ? extends R> mapper;
+        private final Object[]                         results;
+        private final int                              fromIdx;
+        private final int                              toIdx;
+        private final int                              threshold;
+
+        MapTask(RangerPolicyEngineInitExecutor executor, List<T> items, Function<? super T, ? extends R> mapper, Object[] results, int fromIdx, int toIdx, int threshold) {
+            this.executor  = executor;
+            this.items     = items;
+            this.mapper    = mapper;
+            this.results   = results;
+            this.fromIdx   = fromIdx;
+            this.toIdx     = toIdx;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (toIdx - fromIdx <= threshold) {
+                for (int i = fromIdx; i < toIdx; i++) {
+                    results[i] = executor.apply(mapper, items.get(i));
+                }
+            } else {
+                int midIdx = (fromIdx + toIdx) >>> 1;
+
+                invokeAll(new MapTask<>(executor, items, mapper, results, fromIdx, midIdx, threshold),
+                          new MapTask<>(executor, items, mapper, results, midIdx, toIdx, threshold));
+            }
+        }
+    }
+
+    public static final class Metrics {
+        private final int  parallelism;
+        private final long taskCount;
+        private final long taskTimeMs;
+        private final long elapsedTimeMs;
+
+        Metrics(int parallelism, long taskCount, long taskTimeMs, long elapsedTimeMs) {
+            this.parallelism   = parallelism;
+            this.taskCount     = taskCount;
+            this.taskTimeMs    = taskTimeMs;
+            this.elapsedTimeMs = elapsedTimeMs;
+        }
+
+        public int getParallelism() { return parallelism; }
+
+        // number of evaluators and repositories built
+        public long getTaskCount() { return taskCount; }
+
+        // time spent in building them, summed across threads; time of a zone repository includes its evaluators
+        public long getTaskTimeMs() { return taskTimeMs; }
+
+        public long getElapsedTimeMs() { return elapsedTimeMs; }
+
+        @Override
+        public String toString() {
+            return "PolicyEngineInitMetrics={parallelism=" + parallelism + ", taskCount=" + taskCount + ", taskTimeMs=" + taskTimeMs + ", elapsedTimeMs=" + elapsedTimeMs + "}";
+        }
+    }
+}
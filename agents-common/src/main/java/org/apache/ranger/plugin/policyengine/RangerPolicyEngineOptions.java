@@ -43,6 +43,12 @@ public class RangerPolicyEngineOptions {
 	public boolean optimizeTrieForSpace = false;
 	public boolean optimizeTagTrieForRetrieval = false;
 	public boolean optimizeTagTrieForSpace = false;
+	public boolean cacheAccessResults = false;
+	public int     accessResultCacheSize = 64 * 1024;
+	public boolean shareLookupsInBatch = true;
+	public boolean cacheResourceACLs = false;
+	public int     resourceACLsCacheSize = 16 * 1024;
+	public int     initThreadCount = 1;
 
 
 	private RangerServiceDefHelper serviceDefHelper;
@@ -69,6 +75,12 @@ public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other) {
 		this.optimizeTrieForSpace = other.optimizeTrieForSpace;
 		this.optimizeTagTrieForRetrieval = other.optimizeTagTrieForRetrieval;
 		this.optimizeTagTrieForSpace = other.optimizeTagTrieForSpace;
+		this.cacheAccessResults = other.cacheAccessResults;
+		this.accessResultCacheSize = other.accessResultCacheSize;
+		this.shareLookupsInBatch = other.shareLookupsInBatch;
+		this.cacheResourceACLs = other.cacheResourceACLs;
+		this.resourceACLsCacheSize = other.resourceACLsCacheSize;
+		this.initThreadCount = other.initThreadCount;
 	}
 
 	public RangerPolicyEngineOptions(final RangerPolicyEngineOptions other, RangerServiceDefHelper serviceDefHelper) {
@@ -101,7 +113,13 @@ public void configureForPlugin(Configuration conf, String propertyPrefix) {
 		optimizeTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.trie.for.space", false);
 		optimizeTagTrieForRetrieval = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.retrieval", false);
 		optimizeTagTrieForSpace = conf.getBoolean(propertyPrefix + ".policyengine.option.optimize.tag.trie.for.space", false);
-
+		cacheAccessResults = conf.getBoolean(propertyPrefix + ".policyengine.option.cache.access.results", false);
+		accessResultCacheSize = conf.getInt(propertyPrefix + ".policyengine.option.access.result.cache.size", 64 * 1024);
+		shareLookupsInBatch = conf.getBoolean(propertyPrefix + ".policyengine.option.share.lookups.in.batch", true);
+		cacheResourceACLs = conf.getBoolean(propertyPrefix + ".policyengine.option.cache.resource.acls", false);
+		resourceACLsCacheSize = conf.getInt(propertyPrefix + ".policyengine.option.resource.acls.cache.size", 16 * 1024);
+		// threads to build policy evaluators and zone repositories with; 0 or less to use one per available processor
+		initThreadCount = conf.getInt(propertyPrefix + ".policyengine.option.init.thread.count", 1);
 	}
 
 	public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -196,6 +214,12 @@ public boolean equals(Object other) {
 					&& this.optimizeTrieForSpace == that.optimizeTrieForSpace
 					&& this.optimizeTagTrieForRetrieval == that.optimizeTagTrieForRetrieval
 					&& this.optimizeTagTrieForSpace == that.optimizeTagTrieForSpace
+					&& this.cacheAccessResults == that.cacheAccessResults
+					&& this.accessResultCacheSize == that.accessResultCacheSize
+					&& this.shareLookupsInBatch == that.shareLookupsInBatch
+					&& this.cacheResourceACLs == that.cacheResourceACLs
+					&& this.resourceACLsCacheSize == that.resourceACLsCacheSize
+					&& this.initThreadCount == that.initThreadCount
 			;
 		}
 		return ret;
@@ -238,6 +262,12 @@ public int hashCode() {
 		ret *= 2;
 		ret += optimizeTagTrieForSpace ? 1 : 0;
 		ret *= 2;
+		ret += cacheAccessResults ? 1 : 0;
+		ret *= 2;
+		ret += shareLookupsInBatch ? 1 : 0;
+		ret *= 2;
+		ret += cacheResourceACLs ? 1 : 0;
+		ret *= 2;
 		return ret;
 	}
 
@@ -262,6 +292,12 @@ public String toString() {
 				", optimizeTrieForSpace: " + optimizeTrieForSpace +
 				", optimizeTagTrieForRetrieval: " + optimizeTagTrieForRetrieval +
 				", optimizeTagTrieForSpace: " + optimizeTagTrieForSpace +
+				", cacheAccessResults: " + cacheAccessResults +
+				", accessResultCacheSize: " + accessResultCacheSize +
+				", shareLookupsInBatch: " + shareLookupsInBatch +
+				", cacheResourceACLs: " + cacheResourceACLs +
+				", resourceACLsCacheSize: " + resourceACLsCacheSize +
+				", initThreadCount: " + initThreadCount +
 				" }";
 
 	}
@@ -42,6 +42,7 @@
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
 import org.apache.ranger.plugin.store.AbstractServiceStore;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
@@ -108,54 +109,24 @@ enum AuditModeEnum {
         this.pluginContext             = other.pluginContext;
         this.serviceDef                = other.serviceDef;
         this.policies                  = new ArrayList<>(other.policies);
-        this.policyEvaluators          = new ArrayList<>(other.policyEvaluators);
-        this.dataMaskPolicyEvaluators  = new ArrayList<>(other.dataMaskPolicyEvaluators);
-        this.rowFilterPolicyEvaluators = new ArrayList<>(other.rowFilterPolicyEvaluators);
-        this.auditPolicyEvaluators     = new ArrayList<>(other.auditPolicyEvaluators);
         this.auditModeEnum             = other.auditModeEnum;
         this.componentServiceName      = other.componentServiceName;
         this.componentServiceDef       = other.componentServiceDef;
         this.policyEvaluatorsMap       = new HashMap<>(other.policyEvaluatorsMap);
 
-        if (other.policyResourceTrie != null) {
-            this.policyResourceTrie = new HashMap<>();
+        // evaluator lists and tries of policy-types not touched by the deltas are shared with the other repository,
+        // as they are not modified by updateResourceTrie() below. Tries of updated policy-types are copy-on-write
+        // copies, which share the nodes not modified by the deltas
+        final boolean[] isPolicyTypeUpdated = getPolicyTypesUpdatedByDeltas(other, deltas);
 
-            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.policyResourceTrie.entrySet()) {
-                policyResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
-            }
-        } else {
-            this.policyResourceTrie = null;
-        }
-
-        if (other.dataMaskResourceTrie != null) {
-            this.dataMaskResourceTrie = new HashMap<>();
-
-            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.dataMaskResourceTrie.entrySet()) {
-                dataMaskResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
-            }
-        } else {
-            this.dataMaskResourceTrie = null;
-        }
-
-        if (other.rowFilterResourceTrie != null) {
-            this.rowFilterResourceTrie = new HashMap<>();
-
-            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.rowFilterResourceTrie.entrySet()) {
-                rowFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
-            }
-        } else {
-            this.rowFilterResourceTrie = null;
-        }
-
-        if (other.auditFilterResourceTrie != null) {
-            this.auditFilterResourceTrie = new HashMap<>();
-
-            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.auditFilterResourceTrie.entrySet()) {
-                auditFilterResourceTrie.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue()));
-            }
-        } else {
-            this.auditFilterResourceTrie = null;
-        }
+        this.policyEvaluators          = isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_ACCESS] ? new ArrayList<>(other.policyEvaluators) : other.policyEvaluators;
+        this.dataMaskPolicyEvaluators  = isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_DATAMASK] ? new ArrayList<>(other.dataMaskPolicyEvaluators) : other.dataMaskPolicyEvaluators;
+        this.rowFilterPolicyEvaluators = isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_ROWFILTER] ? new ArrayList<>(other.rowFilterPolicyEvaluators) : other.rowFilterPolicyEvaluators;
+        this.auditPolicyEvaluators     = other.auditPolicyEvaluators;
+        this.policyResourceTrie        = copyTrieIfUpdated(other.policyResourceTrie, isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_ACCESS]);
+        this.dataMaskResourceTrie      = copyTrieIfUpdated(other.dataMaskResourceTrie, isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_DATAMASK]);
+        this.rowFilterResourceTrie     = copyTrieIfUpdated(other.rowFilterResourceTrie, isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_ROWFILTER]);
+        this.auditFilterResourceTrie   = copyTrieIfUpdated(other.auditFilterResourceTrie, isPolicyTypeUpdated[RangerPolicy.POLICY_TYPE_AUDIT]);
 
         if (other.accessAuditCache != null) {
             int auditResultCacheSize = other.accessAuditCache.size();
@@ -167,7 +138,7 @@ enum AuditModeEnum {
 
         final boolean isExistingPolicies = CollectionUtils.isNotEmpty(this.policies);
 
-        updateResourceTrie(deltas);
+        updateResourceTrie(deltas, isPolicyTypeUpdated);
 
         if (CollectionUtils.isNotEmpty(this.policies)) {
             this.contextEnrichers = isExistingPolicies ? shareWith(other) : buildContextEnrichers(options);
@@ -182,15 +153,68 @@ enum AuditModeEnum {
         this.policyVersion = policyVersion;
     }
 
+    private static boolean[] getPolicyTypesUpdatedByDeltas(final RangerPolicyRepository other, final List<RangerPolicyDelta> deltas) {
+        final boolean[] ret = new boolean[RangerPolicy.POLICY_TYPE_AUDIT + 1];
+
+        if (deltas != null) {
+            for (RangerPolicyDelta delta : deltas) {
+                if (!StringUtils.equals(delta.getServiceType(), other.serviceDef.getName())) {
+                    continue;
+                }
+
+                setPolicyTypeUpdated(ret, delta.getPolicyType());
+
+                // policy-type of an updated policy might have changed
+                RangerPolicyEvaluator existing = other.policyEvaluatorsMap.get(delta.getPolicyId());
+
+                if (existing != null) {
+                    setPolicyTypeUpdated(ret, existing.getPolicy().getPolicyType());
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static void setPolicyTypeUpdated(boolean[] isPolicyTypeUpdated, Integer policyType) {
+        int idx = policyType == null ? RangerPolicy.POLICY_TYPE_ACCESS : policyType;
+
+        if (idx >= 0 && idx < isPolicyTypeUpdated.length) {
+            isPolicyTypeUpdated[idx] = true;
+        }
+    }
+
+    private static Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> copyTrieIfUpdated(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> other, boolean isUpdated) {
+        final Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> ret;
+
+        if (other != null && isUpdated) {
+            ret = new HashMap<>();
+
+            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : other.entrySet()) {
+                ret.put(entry.getKey(), new RangerResourceTrie<>(entry.getValue(), true));
+            }
+        } else {
+            ret = other;
+        }
+
+        return ret;
+    }
+
     public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext) {
         this(servicePolicies, pluginContext, null);
     }
 
     RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext, String zoneName) {
+        this(servicePolicies, pluginContext, zoneName, null);
+    }
+
+    RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginContext pluginContext, String zoneName, RangerPolicyEngineInitExecutor initExecutor) {
         super();
 
+        // PolicyEngine normalizes the service-def before building repositories with initExecutor; normalizing here would
+        // replace members of the service-def while other zone repositories, being built concurrently, read them
         this.componentServiceName = this.serviceName = servicePolicies.getServiceName();
-        this.componentServiceDef  = this.serviceDef = ServiceDefUtil.normalize(servicePolicies.getServiceDef());
+        this.componentServiceDef  = this.serviceDef = initExecutor != null ? servicePolicies.getServiceDef() : ServiceDefUtil.normalize(servicePolicies.getServiceDef());
         this.zoneName             = zoneName;
         this.appId                = pluginContext.getConfig().getAppId();
         this.options              = new RangerPolicyEngineOptions(pluginContext.getConfig().getPolicyEngineOptions());
@@ -232,7 +256,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             LOG.debug("RangerPolicyRepository : building policy-repository for service[" + serviceName + "], and zone:[" + zoneName + "] with auditMode[" + auditModeEnum + "]");
         }
 
-        init(options);
+        init(options, initExecutor);
 
         if (StringUtils.isEmpty(zoneName)) {
             this.contextEnrichers = buildContextEnrichers(options);
@@ -257,6 +281,11 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
 
     RangerPolicyRepository(ServicePolicies.TagPolicies tagPolicies, RangerPluginContext pluginContext,
                            RangerServiceDef componentServiceDef, String componentServiceName) {
+        this(tagPolicies, pluginContext, componentServiceDef, componentServiceName, null);
+    }
+
+    RangerPolicyRepository(ServicePolicies.TagPolicies tagPolicies, RangerPluginContext pluginContext,
+                           RangerServiceDef componentServiceDef, String componentServiceName, RangerPolicyEngineInitExecutor initExecutor) {
         super();
 
         this.serviceName          = tagPolicies.getServiceName();
@@ -286,7 +315,7 @@ public RangerPolicyRepository(ServicePolicies servicePolicies, RangerPluginConte
             LOG.debug("RangerPolicyRepository : building tag-policy-repository for tag service:[" + serviceName +"], with auditMode[" + auditModeEnum +"]");
         }
 
-        init(options);
+        init(options, initExecutor);
 
         if (StringUtils.isEmpty(zoneName)) {
             this.contextEnrichers = buildContextEnrichers(options);
@@ -721,7 +750,7 @@ private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, R
             perf = RangerPerfTracer.getPerfTracer(PERF_TRIE_OP_LOG, "RangerPolicyRepository.getLikelyMatchEvaluators(resource=" + resource.getAsString() + ")");
         }
 
-        Collection<RangerPolicyResourceEvaluator> smallestList = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes());
+        Collection<RangerPolicyResourceEvaluator> smallestList = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTrie, resource.getAsMap(), request.getResourceElementMatchingScopes(), RangerAccessRequestUtil.getBatchLookupCacheFromContext(request.getContext()));
 
         if (smallestList != null) {
             if (smallestList.size() == 0) {
@@ -905,20 +934,37 @@ private static boolean skipBuildingPolicyEvaluator(RangerPolicy policy, RangerPo
         return ret;
     }
 
-    private void init(RangerPolicyEngineOptions options) {
+    private void init(RangerPolicyEngineOptions options, RangerPolicyEngineInitExecutor initExecutor) {
         RangerServiceDefHelper serviceDefHelper = new RangerServiceDefHelper(serviceDef, false);
         options.setServiceDefHelper(serviceDefHelper);
 
         List<RangerPolicyEvaluator> policyEvaluators = new ArrayList<>();
         List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = new ArrayList<>();
         List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = new ArrayList<>();
+        List<RangerPolicy>          policiesToBuild           = new ArrayList<>();
 
         for (RangerPolicy policy : policies) {
-            if (skipBuildingPolicyEvaluator(policy, options)) {
-                continue;
+            if (!skipBuildingPolicyEvaluator(policy, options)) {
+                policiesToBuild.add(policy);
+            }
+        }
+
+        // evaluators are returned in the order of policies, so that the sort below gives the same order as a serial build
+        final List<RangerPolicyEvaluator> evaluators;
+
+        if (initExecutor != null) {
+            evaluators = initExecutor.map(policiesToBuild, policy -> buildPolicyEvaluator(policy, serviceDef, options));
+        } else {
+            evaluators = new ArrayList<>(policiesToBuild.size());
+
+            for (RangerPolicy policy : policiesToBuild) {
+                evaluators.add(buildPolicyEvaluator(policy, serviceDef, options));
             }
+        }
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+        for (int i = 0; i < policiesToBuild.size(); i++) {
+            RangerPolicy          policy    = policiesToBuild.get(i);
+            RangerPolicyEvaluator evaluator = evaluators.get(i);
 
             if (evaluator != null) {
                 if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
@@ -1465,7 +1511,7 @@ boolean getIsAudited() {
     void reinit(List<RangerPolicyDelta> deltas) {
         final boolean isExistingPolicies = CollectionUtils.isNotEmpty(this.policies);
 
-        updateResourceTrie(deltas);
+        updateResourceTrie(deltas, null);
 
         if (StringUtils.isEmpty(zoneName) && CollectionUtils.isNotEmpty(this.policies)) {
             if (!isExistingPolicies) {
@@ -1476,7 +1522,11 @@ void reinit(List<RangerPolicyDelta> deltas) {
         }
     }
 
-    private void updateResourceTrie(List<RangerPolicyDelta> deltas) {
+    /*
+     * isPolicyTypeCopied is set when the tries of updated policy-types are copy-on-write copies, and rest are shared
+     * with another repository; null when the tries are updated in place
+     */
+    private void updateResourceTrie(List<RangerPolicyDelta> deltas, boolean[] isPolicyTypeCopied) {
 
         boolean[] flags = new boolean[RangerPolicy.POLICY_TYPES.length];
 
@@ -1549,20 +1599,27 @@ private void updateResourceTrie(List<RangerPolicyDelta> deltas) {
             }
         }
 
-        for (int policyType = 0; policyType < flags.length; policyType++) {
-            if (flags[policyType]) {
-                Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trie = getTrie(policyType);
-
-                if (trie != null) {
-                    for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : trie.entrySet()) {
-                        entry.getValue().wrapUpUpdate();
-                    }
+        if (isPolicyTypeCopied != null) {
+            // copied tries include those of the earlier policy-type of updated policies; shared tries are not touched
+            for (int policyType = 0; policyType < isPolicyTypeCopied.length; policyType++) {
+                if (isPolicyTypeCopied[policyType]) {
+                    wrapUpUpdate(getTrie(policyType));
+                }
+            }
+        } else {
+            for (int policyType = 0; policyType < flags.length; policyType++) {
+                if (flags[policyType]) {
+                    wrapUpUpdate(getTrie(policyType));
                 }
             }
+
+            wrapUpUpdate(auditFilterResourceTrie);
         }
+    }
 
-        if (auditFilterResourceTrie != null) {
-            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : auditFilterResourceTrie.entrySet()) {
+    private static void wrapUpUpdate(Map<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> trie) {
+        if (trie != null) {
+            for (Map.Entry<String, RangerResourceTrie<RangerPolicyResourceEvaluator>> entry : trie.entrySet()) {
                 entry.getValue().wrapUpUpdate();
             }
         }
@@ -27,9 +27,11 @@
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.util.MacroProcessor;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCompiledScriptCache;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerTimeRangeChecker;
 import org.apache.ranger.plugin.util.RangerUserStore;
+import org.apache.ranger.plugin.util.RangerUserStoreIndex;
 import org.apache.ranger.plugin.util.JavaScriptEdits;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,6 +83,7 @@ public final class RangerRequestScriptEvaluator {
 
 	private final RangerAccessRequest              accessRequest;
 	private final ScriptEngine                     scriptEngine;
+	private final RangerCompiledScriptCache        compiledScripts;
 	private final Bindings                         bindings;
 	private       boolean                          initDone   = false;
 	private       Map<String, String>              userAttrs  = Collections.emptyMap();
@@ -89,6 +92,7 @@ public final class RangerRequestScriptEvaluator {
 	private       Map<String, Object>              tag        = Collections.emptyMap();
 	private       Collection<String>               userGroups = Collections.emptySet();
 	private       Collection<String>               userRoles  = Collections.emptySet();
+	private       Collection<String>               ugAttrNames;
 	private       Collection<String>               tagNames   = Collections.emptySet();
 	private       Boolean                          result     = false;
 
@@ -186,9 +190,22 @@ public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEng
 	}
 
 	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, boolean enableJsonCtx) {
-		this.accessRequest = accessRequest.getReadOnlyCopy();
-		this.scriptEngine  = scriptEngine;
-		this.bindings      = scriptEngine.createBindings();
+		this(accessRequest, scriptEngine, null, enableJsonCtx);
+	}
+
+	/*
+	 * compiledScripts, when given, must be for scriptEngine; scripts are then compiled once and shared by all
+	 * evaluators that use the same cache, each with its own bindings.
+	 */
+	public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, RangerCompiledScriptCache compiledScripts, boolean enableJsonCtx) {
+		this(accessRequest, compiledScripts.getScriptEngine(), compiledScripts, enableJsonCtx);
+	}
+
+	private RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEngine scriptEngine, RangerCompiledScriptCache compiledScripts, boolean enableJsonCtx) {
+		this.accessRequest   = accessRequest.getReadOnlyCopy();
+		this.scriptEngine    = scriptEngine;
+		this.compiledScripts = compiledScripts;
+		this.bindings        = scriptEngine.createBindings();
 
 		RangerTagForEval    currentTag = this.getCurrentTag();
 		Map<String, String> tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.emptyMap();
@@ -207,7 +224,11 @@ public RangerRequestScriptEvaluator(RangerAccessRequest accessRequest, ScriptEng
 
 		if (StringUtils.isNotBlank(preExecScript)) {
 			try {
-				scriptEngine.eval(preExecScript, bindings);
+				if (compiledScripts != null) { // all entries in compiledScripts are built with getScriptToEval()
+					compiledScripts.eval(preExecScript, RangerRequestScriptEvaluator::getScriptToEval, bindings);
+				} else {
+					scriptEngine.eval(preExecScript, bindings);
+				}
 			} catch (ScriptException excp) {
 				LOG.error("RangerRequestScriptEvaluator(): initialization failed", excp);
 			}
@@ -243,21 +264,11 @@ private Object evaluateScriptImpl(String script) {
 				perf = RangerPerfTracer.getPerfTracer(PERF_POLICY_CONDITION_SCRIPT_EVAL, "RangerRequestScriptEvaluator.evaluateScript(requestHash=" + accessRequest.hashCode() + ")");
 			}
 
-			String preExec = SCRIPT_SAFE_PREEXEC;
-
-			if (script.contains(".includes(")) {
-				preExec += SCRIPT_POLYFILL_INCLUDES;
-			}
-
-			if (script.contains(".intersects(")) {
-				preExec += SCRIPT_POLYFILL_INTERSECTS;
-			}
-
-			if (JavaScriptEdits.hasDoubleBrackets(script)) {
-				script = JavaScriptEdits.replaceDoubleBrackets(script);
+			if (compiledScripts != null) {
+				ret = compiledScripts.eval(script, RangerRequestScriptEvaluator::getScriptToEval, bindings);
+			} else {
+				ret = scriptEngine.eval(getScriptToEval(script), bindings);
 			}
-
-			ret = scriptEngine.eval(preExec + script, bindings);
 		} catch (NullPointerException nullp) {
 			LOG.error("RangerRequestScriptEvaluator.evaluateScript(): eval called with NULL argument(s)", nullp);
 		} catch (ScriptException excp) {
@@ -271,6 +282,24 @@ private Object evaluateScriptImpl(String script) {
 		return ret;
 	}
 
+	private static String getScriptToEval(String script) {
+		String preExec = SCRIPT_SAFE_PREEXEC;
+
+		if (script.contains(".includes(")) {
+			preExec += SCRIPT_POLYFILL_INCLUDES;
+		}
+
+		if (script.contains(".intersects(")) {
+			preExec += SCRIPT_POLYFILL_INTERSECTS;
+		}
+
+		if (JavaScriptEdits.hasDoubleBrackets(script)) {
+			script = JavaScriptEdits.replaceDoubleBrackets(script);
+		}
+
+		return preExec + script;
+	}
+
 	private String toJson() {
 		RangerPerfTracer perf = null;
 
@@ -789,11 +818,15 @@ public boolean hasUgAttr(String attrName) {
 
 		boolean ret = false;
 
-		for (Map<String, String> attrs : groupAttrs.values()) {
-			if (attrs.containsKey(attrName)) {
-				ret = true;
+		if (ugAttrNames != null && !SCRIPT_FIELD__NAME.equals(attrName)) {
+			ret = ugAttrNames.contains(attrName);
+		} else {
+			for (Map<String, String> attrs : groupAttrs.values()) {
+				if (attrs.containsKey(attrName)) {
+					ret = true;
 
-				break;
+					break;
+				}
 			}
 		}
 
@@ -939,6 +972,7 @@ private void init() {
 			RangerUserStore                  userStore        = RangerAccessRequestUtil.getRequestUserStoreFromContext(accessRequest.getContext());
 			Map<String, Map<String, String>> userAttrMapping  = userStore != null ? userStore.getUserAttrMapping() : Collections.emptyMap();
 			Map<String, Map<String, String>> groupAttrMapping = userStore != null ? userStore.getGroupAttrMapping() : Collections.emptyMap();
+			RangerUserStoreIndex             userStoreIndex   = userStore != null ? userStore.getUserStoreIndex() : null;
 
 			userGroups = getSorted(getUserGroups());
 			userRoles  = getSorted(getUserRoles());
@@ -957,6 +991,13 @@ private void init() {
 				groupAttrs.put(groupName, attrs);
 			}
 
+			// precomputed in the index, if the request has the same groups as in userstore
+			ugAttrNames = userStoreIndex != null ? userStoreIndex.getUserGroupAttrNames(accessRequest.getUser(), userGroups) : null;
+
+			if (ugAttrNames != null) {
+				ugAttrNames.remove(SCRIPT_FIELD__NAME); // replaced by the group name in groupAttrs
+			}
+
 			Set<RangerTagForEval> requestTags = RangerAccessRequestUtil.getRequestTagsFromContext(getRequestContext());
 
 			if (CollectionUtils.isNotEmpty(requestTags)) {
@@ -1071,6 +1112,10 @@ private Collection<String> getUserAttrNames() {
 	}
 
 	private Collection<String> getUgAttrNames() {
+		if (ugAttrNames != null) {
+			return ugAttrNames;
+		}
+
 		Set<String> ret = new HashSet<>();
 
 		for (Map<String, String> attrs : groupAttrs.values()) {
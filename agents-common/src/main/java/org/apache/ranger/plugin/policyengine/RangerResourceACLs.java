@@ -23,6 +23,7 @@
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemRowFilterInfo;
+import org.apache.ranger.plugin.model.RangerPrincipal.PrincipalType;
 
 import org.codehaus.jackson.annotate.JsonAutoDetect;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
@@ -53,6 +54,23 @@ public class RangerResourceACLs {
 	public RangerResourceACLs() {
 	}
 
+	public RangerResourceACLs(RangerResourceACLs other) {
+		copyACLs(other.userACLs, userACLs);
+		copyACLs(other.groupACLs, groupACLs);
+		copyACLs(other.roleACLs, roleACLs);
+
+		for (RowFilterResult rowFilter : other.rowFilters) {
+			rowFilters.add(new RowFilterResult(rowFilter));
+		}
+
+		for (DataMaskResult dataMask : other.dataMasks) {
+			dataMasks.add(new DataMaskResult(dataMask));
+		}
+
+		datasets.addAll(other.datasets);
+		projects.addAll(other.projects);
+	}
+
 	public Map<String, Map<String, AccessResult>> getUserACLs() {
 		return userACLs;
 	}
@@ -71,6 +89,24 @@ public Map<String, Map<String, AccessResult>> getGroupACLs() {
 
 	public Set<String> getProjects() { return projects; }
 
+	/*
+	 * Passes each ACL entry, row-filter and data-mask to the visitor, without copying. Visitors must not modify
+	 * the AccessResult/RowFilterResult/DataMaskResult instances, as these can be shared with the ACLs cache.
+	 */
+	public void accept(ACLVisitor visitor) {
+		visitACLs(PrincipalType.USER, userACLs, visitor);
+		visitACLs(PrincipalType.GROUP, groupACLs, visitor);
+		visitACLs(PrincipalType.ROLE, roleACLs, visitor);
+
+		for (RowFilterResult rowFilter : rowFilters) {
+			visitor.visitRowFilter(rowFilter);
+		}
+
+		for (DataMaskResult dataMask : dataMasks) {
+			visitor.visitDataMask(dataMask);
+		}
+	}
+
 	public void finalizeAcls() {
 		Map<String, AccessResult>  publicGroupAccessInfo = groupACLs.get(RangerPolicyEngine.GROUP_PUBLIC);
 		if (publicGroupAccessInfo != null) {
@@ -283,6 +319,39 @@ private void finalizeAcls(Map<String, Map<String, AccessResult>> acls) {
 		}
 	}
 
+	private static void copyACLs(Map<String, Map<String, AccessResult>> from, Map<String, Map<String, AccessResult>> to) {
+		for (Map.Entry<String, Map<String, AccessResult>> entry : from.entrySet()) {
+			Map<String, AccessResult> accessInfo = new HashMap<>();
+
+			for (Map.Entry<String, AccessResult> permission : entry.getValue().entrySet()) {
+				AccessResult accessResult = permission.getValue();
+				AccessResult copy         = new AccessResult(accessResult.getResult(), accessResult.getPolicy());
+
+				copy.setIsFinal(accessResult.getIsFinal());
+
+				accessInfo.put(permission.getKey(), copy);
+			}
+
+			to.put(entry.getKey(), accessInfo);
+		}
+	}
+
+	private static void visitACLs(PrincipalType principalType, Map<String, Map<String, AccessResult>> acls, ACLVisitor visitor) {
+		for (Map.Entry<String, Map<String, AccessResult>> entry : acls.entrySet()) {
+			for (Map.Entry<String, AccessResult> permission : entry.getValue().entrySet()) {
+				visitor.visitAccess(principalType, entry.getKey(), permission.getKey(), permission.getValue());
+			}
+		}
+	}
+
+	public interface ACLVisitor {
+		void visitAccess(PrincipalType principalType, String principalName, String accessType, AccessResult accessResult);
+
+		default void visitRowFilter(RowFilterResult rowFilter) { }
+
+		default void visitDataMask(DataMaskResult dataMask) { }
+	}
+
 	@JsonAutoDetect(fieldVisibility=JsonAutoDetect.Visibility.ANY)
 	@JsonSerialize(include=JsonSerialize.Inclusion.NON_EMPTY)
 	@JsonIgnoreProperties(ignoreUnknown=true)
@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded cache of resource ACLs, keyed on the resource, its zone and the requested policy-type. Each entry records
+ * the IDs of resource and tag policies that were evaluated for the resource, so that on policy-deltas only the
+ * entries affected by the changed policies are discarded; rest are carried over to the updated policy-engine.
+ * ACLs that depend on the request, like from policies having macros in resources, are not stored.
+ */
+public class RangerResourceACLsCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerResourceACLsCache.class);
+
+    private static final Map<String, Object> EMPTY_EVAL_CONTEXT = Collections.emptyMap();
+
+    private final int                        cacheSize;
+    private final Map<CacheKey, CachedEntry> cache;
+    private final AtomicLong                 hitCount          = new AtomicLong();
+    private final AtomicLong                 missCount         = new AtomicLong();
+    private final AtomicLong                 bypassCount       = new AtomicLong();
+    private final AtomicLong                 evictionCount     = new AtomicLong();
+    private final AtomicLong                 invalidationCount = new AtomicLong();
+
+    public RangerResourceACLsCache(int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.cache     = Collections.synchronizedMap(new EvictionCountingCacheMap(cacheSize));
+
+        LOG.info("Created RangerResourceACLsCache(cacheSize={})", cacheSize);
+    }
+
+    public int getCacheSize() { return cacheSize; }
+
+    public int size() { return cache.size(); }
+
+    public long getHitCount() { return hitCount.get(); }
+
+    public long getMissCount() { return missCount.get(); }
+
+    public long getBypassCount() { return bypassCount.get(); }
+
+    public long getEvictionCount() { return evictionCount.get(); }
+
+    public long getInvalidationCount() { return invalidationCount.get(); }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /*
+     * returns null when the request is not eligible for caching
+     */
+    CacheKey getCacheKey(RangerAccessRequest request, String zoneName, Integer policyType) {
+        final CacheKey ret;
+
+        if (request.getResource() != null && request.getResource().getCacheKey() != null) {
+            ret = new CacheKey(request, zoneName, policyType);
+        } else {
+            ret = null;
+
+            bypassCount.incrementAndGet();
+        }
+
+        return ret;
+    }
+
+    /*
+     * returned ACLs are shared with the cache, and must not be modified
+     */
+    RangerResourceACLs get(CacheKey key, RangerAccessResultCache.Versions versions) {
+        final RangerResourceACLs ret;
+        final CachedEntry        entry = cache.get(key);
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+
+            ret = null;
+        } else if (!entry.versions.equals(versions)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerResourceACLsCache.get(): discarding stale entry; entryVersions={}, currentVersions={}", entry.versions, versions);
+            }
+
+            cache.remove(key);
+
+            invalidationCount.incrementAndGet();
+            missCount.incrementAndGet();
+
+            ret = null;
+        } else {
+            hitCount.incrementAndGet();
+
+            ret = entry.acls;
+        }
+
+        return ret;
+    }
+
+    /*
+     * evaluators: all resource and tag policies evaluated for the request; ACLs are stored only if none of these
+     * have resources that need request-time evaluation, and the resource has no tags with validity schedules - as
+     * ACLs from such tags depend on the time of the request. Returns true if stored, in which case the ACLs must no
+     * longer be modified.
+     */
+    boolean put(CacheKey key, RangerAccessRequest request, List<RangerPolicyEvaluator> evaluators, RangerResourceACLs acls, RangerAccessResultCache.Versions versions) {
+        boolean ret = !RangerAccessRequestUtil.getHasScheduledTagsInContext(request.getContext());
+
+        if (ret) {
+            for (RangerPolicyEvaluator evaluator : evaluators) {
+                if (needsDynamicEval(evaluator)) {
+                    ret = false;
+
+                    break;
+                }
+            }
+        }
+
+        if (ret) {
+            long[] policyIds = new long[evaluators.size()];
+
+            for (int i = 0; i < policyIds.length; i++) {
+                policyIds[i] = evaluators.get(i).getPolicyId();
+            }
+
+            Arrays.sort(policyIds);
+
+            boolean hasTags = CollectionUtils.isNotEmpty(RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext()));
+
+            cache.put(key.copyOf(), new CachedEntry(copyOf(request.getResource()), hasTags, policyIds, acls, versions));
+        } else {
+            bypassCount.incrementAndGet();
+        }
+
+        return ret;
+    }
+
+    /*
+     * Populates this cache with entries from the given cache (which could be this cache itself, for in-place updates)
+     * that are not affected by the policy-deltas in servicePolicies. An entry is affected when:
+     *   - one of the policies evaluated for it was updated or deleted
+     *   - a created/updated resource policy in the same zone matches its resource
+     *   - a tag policy was created/updated, or security-zones were updated, and the resource has tags
+     * Entries carried over are stamped with newVersions; entries computed with versions other than prevVersions are dropped.
+     */
+    void retainUnaffected(RangerResourceACLsCache from, ServicePolicies servicePolicies, RangerAccessResultCache.Versions prevVersions, RangerAccessResultCache.Versions newVersions, PolicyEngine policyEngine) {
+        final List<CacheKey>    keys;
+        final List<CachedEntry> entries;
+
+        synchronized (from.cache) {
+            keys    = new ArrayList<>(from.cache.keySet());
+            entries = new ArrayList<>(from.cache.values());
+        }
+
+        if (from == this) {
+            cache.clear();
+        }
+
+        final List<RangerPolicyDelta> deltas   = getPolicyDeltas(servicePolicies);
+        final DeltaImpact             impact   = deltas != null ? new DeltaImpact(deltas, MapUtils.isNotEmpty(servicePolicies.getSecurityZones()), policyEngine) : null;
+        int                           retained = 0;
+
+        if (impact != null) {
+            for (int i = 0; i < keys.size(); i++) {
+                CacheKey    key   = keys.get(i);
+                CachedEntry entry = entries.get(i);
+
+                if (entry.versions.equals(prevVersions) && !impact.isAffected(key, entry)) {
+                    cache.put(key, new CachedEntry(entry, newVersions));
+
+                    retained++;
+                }
+            }
+        }
+
+        invalidationCount.addAndGet(keys.size() - retained);
+
+        LOG.info("RangerResourceACLsCache.retainUnaffected(prevVersions={}, newVersions={}): retained {} of {} entries", prevVersions, newVersions, retained, keys.size());
+    }
+
+    @Override
+    public String toString() {
+        return "RangerResourceACLsCache={cacheSize=" + cacheSize + ", size=" + size() +
+               ", hitCount=" + getHitCount() + ", missCount=" + getMissCount() + ", bypassCount=" + getBypassCount() +
+               ", evictionCount=" + getEvictionCount() + ", invalidationCount=" + getInvalidationCount() + "}";
+    }
+
+    // returns null if servicePolicies has changes other than create/update/delete of policies
+    private static List<RangerPolicyDelta> getPolicyDeltas(ServicePolicies servicePolicies) {
+        List<RangerPolicyDelta> ret = new ArrayList<>();
+
+        if (servicePolicies.getPolicyDeltas() != null) {
+            ret.addAll(servicePolicies.getPolicyDeltas());
+        }
+
+        if (servicePolicies.getSecurityZones() != null) {
+            for (ServicePolicies.SecurityZoneInfo zoneInfo : servicePolicies.getSecurityZones().values()) {
+                if (zoneInfo.getPolicyDeltas() != null) {
+                    ret.addAll(zoneInfo.getPolicyDeltas());
+                }
+            }
+        }
+
+        for (RangerPolicyDelta delta : ret) {
+            Integer changeType = delta.getChangeType();
+
+            if (delta.getPolicyId() == null || changeType == null ||
+                (changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE && changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE && changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE)) {
+                ret = null;
+
+                break;
+            }
+        }
+
+        return ret;
+    }
+
+    private static boolean needsDynamicEval(RangerPolicyEvaluator evaluator) {
+        for (RangerPolicyResourceEvaluator resourceEvaluator : evaluator.getResourceEvaluators()) {
+            if (resourceEvaluator.getPolicyResourceMatcher().getNeedsDynamicEval()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static RangerAccessResource copyOf(RangerAccessResource resource) {
+        RangerAccessResourceImpl ret = new RangerAccessResourceImpl(new HashMap<>(resource.getAsMap()), resource.getOwnerUser());
+
+        ret.setServiceDef(resource.getServiceDef());
+
+        return ret;
+    }
+
+    private static final class DeltaImpact {
+        private final Set<Long>                   changedPolicyIds = new HashSet<>();
+        private final List<RangerPolicyEvaluator> addedEvaluators  = new ArrayList<>();
+        private final boolean                     isTaggedAffected;
+
+        DeltaImpact(List<RangerPolicyDelta> deltas, boolean isZonesUpdated, PolicyEngine policyEngine) {
+            boolean isTagPolicyAdded = false;
+
+            for (RangerPolicyDelta delta : deltas) {
+                int changeType = delta.getChangeType();
+
+                changedPolicyIds.add(delta.getPolicyId());
+
+                if (changeType == RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE) {
+                    continue;
+                }
+
+                if (StringUtils.equals(delta.getServiceType(), EmbeddedServiceDefsUtil.EMBEDDED_SERVICEDEF_TAG_NAME)) {
+                    isTagPolicyAdded = true;
+                } else {
+                    // looked up without getRepositoryForZone(), which logs an error for zones not in this engine
+                    String                 zoneName   = delta.getZoneName();
+                    RangerPolicyRepository repository = StringUtils.isEmpty(zoneName) ? policyEngine.getPolicyRepository() : policyEngine.getZonePolicyRepositories().get(zoneName);
+                    RangerPolicyEvaluator  evaluator  = repository != null ? repository.getPolicyEvaluator(delta.getPolicyId()) : null;
+
+                    // policy will not be in the repository if it is disabled, or if its zone is not in the engine
+                    if (evaluator != null) {
+                        addedEvaluators.add(evaluator);
+                    }
+                }
+            }
+
+            this.isTaggedAffected = isTagPolicyAdded || isZonesUpdated;
+        }
+
+        boolean isAffected(CacheKey key, CachedEntry entry) {
+            if (entry.hasTags && isTaggedAffected) {
+                return true;
+            }
+
+            for (long policyId : entry.policyIds) {
+                if (changedPolicyIds.contains(policyId)) {
+                    return true;
+                }
+            }
+
+            for (RangerPolicyEvaluator evaluator : addedEvaluators) {
+                if (isSamePolicyType(key.policyType, evaluator.getPolicy()) && isSameZone(key.zoneName, evaluator.getPolicy().getZoneName()) && isMatch(evaluator, entry.resource, key.resourceElementMatchingScopes)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        // policies without a policyType are access policies
+        private static boolean isSamePolicyType(Integer keyPolicyType, RangerPolicy policy) {
+            int policyType = policy.getPolicyType() != null ? policy.getPolicyType() : RangerPolicy.POLICY_TYPE_ACCESS;
+
+            return keyPolicyType == null || keyPolicyType == policyType;
+        }
+
+        // unzoned policies from Ranger admin have zoneName "", while the zone looked up for unzoned resources is null
+        private static boolean isSameZone(String keyZoneName, String policyZoneName) {
+            return StringUtils.equals(StringUtils.defaultString(keyZoneName), StringUtils.defaultString(policyZoneName));
+        }
+
+        // any match, including ancestor/descendant, is treated as affecting the ACLs
+        private static boolean isMatch(RangerPolicyEvaluator evaluator, RangerAccessResource resource, Map<String, RangerAccessRequest.ResourceElementMatchingScope> scopes) {
+            if (scopes == null) {
+                scopes = Collections.emptyMap();
+            }
+
+            for (RangerPolicyResourceEvaluator resourceEvaluator : evaluator.getResourceEvaluators()) {
+                RangerPolicyResourceMatcher matcher = resourceEvaluator.getPolicyResourceMatcher();
+
+                if (matcher.getNeedsDynamicEval() || matcher.getMatchType(resource, scopes, EMPTY_EVAL_CONTEXT) != RangerPolicyResourceMatcher.MatchType.NONE) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    static final class CacheKey {
+        private final String                                                        resource;
+        private final String                                                        zoneName;
+        private final Integer                                                       policyType;
+        private final RangerAccessRequest.ResourceMatchingScope                     resourceMatchingScope;
+        private final Map<String, RangerAccessRequest.ResourceElementMatchingScope> resourceElementMatchingScopes;
+        private final int                                                           hashCode;
+
+        CacheKey(RangerAccessRequest request, String zoneName, Integer policyType) {
+            this(request.getResource().getCacheKey(), zoneName, policyType, request.getResourceMatchingScope(),
+                 MapUtils.isEmpty(request.getResourceElementMatchingScopes()) ? null : request.getResourceElementMatchingScopes());
+        }
+
+        private CacheKey(String resource, String zoneName, Integer policyType, RangerAccessRequest.ResourceMatchingScope resourceMatchingScope,
+                         Map<String, RangerAccessRequest.ResourceElementMatchingScope> resourceElementMatchingScopes) {
+            this.resource                      = resource;
+            this.zoneName                      = zoneName;
+            this.policyType                    = policyType;
+            this.resourceMatchingScope         = resourceMatchingScope;
+            this.resourceElementMatchingScopes = resourceElementMatchingScopes;
+            this.hashCode                      = Objects.hash(resource, zoneName, policyType, resourceMatchingScope, resourceElementMatchingScopes);
+        }
+
+        // lookup keys refer to the map owned by the request; keys stored in the cache must not
+        CacheKey copyOf() {
+            return new CacheKey(resource, zoneName, policyType, resourceMatchingScope, resourceElementMatchingScopes == null ? null : new HashMap<>(resourceElementMatchingScopes));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+
+            return hashCode == other.hashCode &&
+                   Objects.equals(resource, other.resource) &&
+                   Objects.equals(zoneName, other.zoneName) &&
+                   Objects.equals(policyType, other.policyType) &&
+                   Objects.equals(resourceMatchingScope, other.resourceMatchingScope) &&
+                   Objects.equals(resourceElementMatchingScopes, other.resourceElementMatchingScopes);
+        }
+    }
+
+    private static final class CachedEntry {
+        private final RangerAccessResource             resource;
+        private final boolean                          hasTags;
+        private final long[]                           policyIds;
+        private final RangerResourceACLs               acls;
+        private final RangerAccessResultCache.Versions versions;
+
+        CachedEntry(RangerAccessResource resource, boolean hasTags, long[] policyIds, RangerResourceACLs acls, RangerAccessResultCache.Versions versions) {
+            this.resource  = resource;
+            this.hasTags   = hasTags;
+            this.policyIds = policyIds;
+            this.acls      = acls;
+            this.versions  = versions;
+        }
+
+        CachedEntry(CachedEntry other, RangerAccessResultCache.Versions versions) {
+            this(other.resource, other.hasTags, other.policyIds, other.acls, versions);
+        }
+    }
+
+    private final class EvictionCountingCacheMap extends CacheMap<CacheKey, CachedEntry> {
+        private static final long serialVersionUID = 1L;
+
+        EvictionCountingCacheMap(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            boolean ret = super.removeEldestEntry(eldest);
+
+            if (ret) {
+                evictionCount.incrementAndGet();
+            }
+
+            return ret;
+        }
+    }
+}
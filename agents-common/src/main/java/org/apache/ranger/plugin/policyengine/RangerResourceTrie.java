@@ -42,6 +42,7 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -61,21 +62,38 @@
     private static final String DEFAULT_WILDCARD_CHARS    = "*?";
     private static final String TRIE_BUILDER_THREAD_COUNT = "ranger.policyengine.trie.builder.thread.count";
 
+    public static final String TRIE_COMPACT_NODES = "ranger.policyengine.trie.compact.nodes";
+
     private final RangerResourceDef resourceDef;
     private final boolean           optIgnoreCase;
     private final boolean           optWildcard;
     private final String            wildcardChars;
     private final boolean           isOptimizedForRetrieval;
     private final boolean           isOptimizedForSpace;
+    private final boolean           isCompactNodes;
     private final Character         separatorChar;
     private       Set<T>            inheritedEvaluators;
-    private final TrieNode<T>       root;
+    private       TrieNode<T>       root;
+    private final boolean           isCopyOnWrite;
+
+    // only for copy-on-write tries, while an update is in progress: nodes created or copied by the update, mapped to
+    // the node each was copied from (null for new nodes). Nodes not in this map are shared with the source trie
+    private Map<TrieNode<T>, TrieNode<T>> ownedNodes;
 
     public RangerResourceTrie(RangerResourceDef resourceDef, List<T> evaluators) {
         this(resourceDef, evaluators, true, null);
     }
 
     public RangerResourceTrie(RangerResourceTrie<T> other) {
+        this(other, false);
+    }
+
+    /*
+     * With isCopyOnWrite=true, the new trie shares all nodes with other; add() and delete() on the new trie copy only
+     * the nodes they modify - the path from the root to the updated node, and, when wildcard-evaluators of a node
+     * change, the subtree under it. other is not modified, and can continue to be used for lookups during the update.
+     */
+    public RangerResourceTrie(RangerResourceTrie<T> other, boolean isCopyOnWrite) {
         RangerPerfTracer perf = null;
 
         if(RangerPerfTracer.isPerfTraceEnabled(PERF_TRIE_INIT_LOG)) {
@@ -88,17 +106,24 @@ public RangerResourceTrie(RangerResourceTrie<T> other) {
         this.wildcardChars           = other.wildcardChars;
         this.isOptimizedForSpace     = other.isOptimizedForSpace;
         this.isOptimizedForRetrieval = other.isOptimizedForRetrieval;
+        this.isCompactNodes          = other.isCompactNodes;
         this.separatorChar           = other.separatorChar;
         this.inheritedEvaluators     = other.inheritedEvaluators != null ? new HashSet<>(other.inheritedEvaluators) : null;
-        this.root                    = copyTrieSubtree(other.root, null);
+        this.isCopyOnWrite           = isCopyOnWrite;
 
-        wrapUpUpdate();
+        if (isCopyOnWrite) {
+            this.root = other.root;
+        } else {
+            this.root = copyTrieSubtree(other.root, null);
 
-        if (!isOptimizedForRetrieval) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Trie for " + this.resourceDef.getName() + " is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root");
+            wrapUpUpdate();
+
+            if (!isOptimizedForRetrieval) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Trie for " + this.resourceDef.getName() + " is not optimized for retrieval. Resetting isSetup flag by calling undoSetup() on the root");
+                }
+                root.undoSetup();
             }
-            root.undoSetup();
         }
 
         RangerPerfTracer.logAlways(perf);
@@ -163,7 +188,9 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         this.wildcardChars           = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
         this.isOptimizedForSpace     = isOptimizedForSpace;
         this.isOptimizedForRetrieval = !isOptimizedForSpace && isOptimizedForRetrieval;  // isOptimizedForSpace takes precedence
+        this.isCompactNodes          = config != null && config.getBoolean(TRIE_COMPACT_NODES, false);
         this.separatorChar           = ServiceDefUtil.getCharOption(matcherOptions, OPTION_PATH_SEPARATOR, DEFAULT_PATH_SEPARATOR_CHAR);
+        this.isCopyOnWrite           = false;
 
         final TrieNode<T> tmpRoot = buildTrie(resourceDef, evaluators, builderThreadCount);
 
@@ -186,10 +213,14 @@ public <E> RangerResourceTrie(RangerResourceDef resourceDef, List<E> evaluators,
         }
 
         if(LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + "): " + this);
+            LOG.debug("<== RangerResourceTrie(" + resourceDef.getName() + ", evaluatorCount=" + evaluators.size() + ", isOptimizedForRetrieval=" + this.isOptimizedForRetrieval + ", isOptimizedForSpace=" + this.isOptimizedForSpace + ", isCompactNodes=" + this.isCompactNodes + "): " + this);
         }
     }
 
+    public boolean isCopyOnWrite() {
+        return isCopyOnWrite;
+    }
+
     public Set<T> getInheritedEvaluators() {
         return inheritedEvaluators;
     }
@@ -232,7 +263,11 @@ public void add(RangerPolicyResource resource, T evaluator) {
             } else {
                 if (CollectionUtils.isNotEmpty(resource.getValues())) {
                     for (String value : resource.getValues()) {
-                        insert(root, value, resource.getIsRecursive(), evaluator);
+                        if (isCopyOnWrite) {
+                            insertCopyOnWrite(value, resource.getIsRecursive(), evaluator);
+                        } else {
+                            insert(root, value, resource.getIsRecursive(), evaluator);
+                        }
                     }
                 }
             }
@@ -260,9 +295,13 @@ public void delete(RangerPolicyResource resource, T evaluator) {
             removeInheritedEvaluator(evaluator);
         } else {
             for (String value : resource.getValues()) {
-                TrieNode<T> node = getNodeForResource(value);
-                if (node != null) {
-                    node.removeEvaluatorFromSubtree(evaluator);
+                if (isCopyOnWrite) {
+                    deleteCopyOnWrite(value, evaluator);
+                } else {
+                    TrieNode<T> node = getNodeForResource(value);
+                    if (node != null) {
+                        node.removeEvaluatorFromSubtree(evaluator);
+                    }
                 }
             }
         }
@@ -275,7 +314,15 @@ public void delete(RangerPolicyResource resource, T evaluator) {
     }
 
     public void wrapUpUpdate() {
-        if (root != null) {
+        if (isCopyOnWrite) {
+            // nodes copied or created by the update are set up here, even when not optimized for retrieval: copyNode()
+            // relies on parent of a set-up node being set up as well. Next update will copy the nodes it modifies again
+            if (root != null && ownedNodes != null && !isOptimizedForSpace) {
+                setupOwnedNodes(root, null);
+            }
+
+            ownedNodes = null;
+        } else if (root != null) {
             root.wrapUpUpdate();
             if (TRACE_LOG.isTraceEnabled()) {
                 TRACE_LOG.trace("Trie Dump from RangerResourceTrie.wrapUpUpdate(name=" + resourceDef.getName() + "):\n[" + dumpTrie() + "]");
@@ -530,11 +577,11 @@ private int getMaxDepth() {
         return root.getMaxDepth();
     }
 
-    private Character getLookupChar(char ch) {
+    private char getLookupChar(char ch) {
         return optIgnoreCase ? Character.toLowerCase(ch) : ch;
     }
 
-    private Character getLookupChar(String str, int index) {
+    private char getLookupChar(String str, int index) {
         return getLookupChar(str.charAt(index));
     }
 
@@ -576,6 +623,212 @@ private void insert(TrieNode<T> currentRoot, String resource, boolean isRecursiv
 
     }
 
+    private void insertCopyOnWrite(String resource, boolean isRecursive, T evaluator) {
+        TrieNode<T>   curr       = getOwnedRoot();
+        final String  prefix     = getNonWildcardPrefix(resource);
+        final boolean isWildcard = prefix.length() != resource.length();
+
+        if (StringUtils.isNotEmpty(prefix)) {
+            curr = getOrCreateOwnedChild(curr, prefix);
+        }
+
+        if (isWildcard || isRecursive) {
+            curr.addWildcardEvaluator(evaluator);
+
+            ownSubtree(curr);
+        } else {
+            curr.addEvaluator(evaluator);
+        }
+    }
+
+    private void deleteCopyOnWrite(String resource, T evaluator) {
+        if (getNodeForResource(resource) == null) {
+            return;
+        }
+
+        TrieNode<T> parent = null;
+        TrieNode<T> curr   = getOwnedRoot();
+        final int   len    = getNonWildcardPrefixLength(resource);
+        int         i      = 0;
+
+        while (i < len) {
+            parent = curr;
+            curr   = getOwnedChild(parent, parent.getChild(getLookupChar(resource, i)));
+            i      += curr.getStr().length();
+        }
+
+        if (CollectionUtils.isNotEmpty(curr.wildcardEvaluators) && curr.wildcardEvaluators.contains(evaluator)) {
+            curr.removeWildcardEvaluator(evaluator);
+
+            ownSubtree(curr);
+        } else {
+            curr.removeEvaluator(evaluator);
+        }
+
+        if (parent != null && curr.evaluators == null && curr.wildcardEvaluators == null && curr.children.isEmpty()) {
+            parent.children.remove(getLookupChar(curr.getStr(), 0));
+        }
+    }
+
+    private TrieNode<T> getOwnedRoot() {
+        if (ownedNodes == null) {
+            ownedNodes = new IdentityHashMap<>();
+        }
+
+        if (!ownedNodes.containsKey(root)) {
+            root = copyNode(root, null);
+        }
+
+        return root;
+    }
+
+    // returns the copy of child owned by this trie, after replacing child with it in parent; parent must be owned
+    private TrieNode<T> getOwnedChild(TrieNode<T> parent, TrieNode<T> child) {
+        if (child == null || ownedNodes.containsKey(child)) {
+            return child;
+        }
+
+        TrieNode<T> sourceParent = ownedNodes.get(parent);
+        TrieNode<T> ret          = copyNode(child, sourceParent != null ? sourceParent.getWildcardEvaluators() : null);
+
+        parent.addChild(ret);
+
+        return ret;
+    }
+
+    private TrieNode<T> getOrCreateOwnedChild(TrieNode<T> node, String str) {
+        int         len   = str.length();
+        TrieNode<T> child = getOwnedChild(node, node.getChild(getLookupChar(str, 0)));
+
+        if (child == null) {
+            child = newOwnedNode(str);
+
+            node.addChild(child);
+        } else {
+            final String  childStr     = child.getStr();
+            final int     childStrLen  = childStr.length();
+            final boolean isExactMatch = optIgnoreCase ? StringUtils.equalsIgnoreCase(childStr, str) : StringUtils.equals(childStr, str);
+
+            if (!isExactMatch) {
+                final int numOfCharactersToMatch = Math.min(childStrLen, len);
+                int       index                  = 1;
+
+                for (; index < numOfCharactersToMatch; index++) {
+                    if (getLookupChar(childStr, index) != getLookupChar(str, index)) {
+                        break;
+                    }
+                }
+
+                if (index == numOfCharactersToMatch) {
+                    if (childStrLen > len) {
+                        TrieNode<T> newChild = newOwnedNode(str);
+
+                        node.addChild(newChild);
+                        child.setStr(childStr.substring(index));
+                        newChild.addChild(child);
+
+                        child = newChild;
+                    } else {
+                        child = getOrCreateOwnedChild(child, str.substring(index));
+                    }
+                } else {
+                    TrieNode<T> newChild = newOwnedNode(str.substring(0, index));
+
+                    node.addChild(newChild);
+                    child.setStr(childStr.substring(index));
+                    newChild.addChild(child);
+
+                    child = getOrCreateOwnedChild(newChild, str.substring(index));
+                }
+            }
+        }
+
+        return child;
+    }
+
+    /*
+     * After setup, evaluators and wildcardEvaluators of a node include wildcardEvaluators of its ancestors. Hence a
+     * change to wildcardEvaluators of a node requires its subtree to be copied as well - unless the trie is optimized
+     * for space, in which case nodes are never set up
+     */
+    private void ownSubtree(TrieNode<T> node) {
+        if (!isOptimizedForSpace) {
+            for (TrieNode<T> child : new ArrayList<>(node.getChildren().values())) {
+                ownSubtree(getOwnedChild(node, child));
+            }
+        }
+    }
+
+    // ancestors of an owned node are owned as well; nodes shared with the source trie are not traversed
+    private void setupOwnedNodes(TrieNode<T> node, Set<T> parentWildcardEvaluators) {
+        if (ownedNodes.containsKey(node)) {
+            node.setup(parentWildcardEvaluators);
+
+            for (TrieNode<T> child : node.getChildren().values()) {
+                setupOwnedNodes(child, node.getWildcardEvaluators());
+            }
+        }
+    }
+
+    private TrieNode<T> newOwnedNode(String str) {
+        TrieNode<T> ret = new TrieNode<>(str);
+
+        ownedNodes.put(ret, null);
+
+        return ret;
+    }
+
+    /*
+     * copies the node, without setup, sharing its children. If the source node is set up, evaluators added by setup -
+     * i.e. sourceParentWildcardEvaluators - are excluded from the copy, as done in undoSetup()
+     *
+     * The shared children are re-parented to the copy, so that parent of every node reachable from the latest trie
+     * is in that trie, and replaced nodes of earlier tries can be garbage collected. Lookups do not use parent; the
+     * source trie is not updated after the copy, so its nodes are not required to point to their parents in it
+     */
+    private TrieNode<T> copyNode(TrieNode<T> source, Set<T> sourceParentWildcardEvaluators) {
+        TrieNode<T> ret = new TrieNode<>(source.getStr());
+
+        synchronized (source.children) {
+            if (source.isSetup) {
+                ret.evaluators         = source.evaluators == source.wildcardEvaluators ? null : copyEvaluators(source.evaluators, source.wildcardEvaluators);
+                ret.wildcardEvaluators = source.isSharingParentWildcardEvaluators ? null : copyEvaluators(source.wildcardEvaluators, sourceParentWildcardEvaluators);
+            } else {
+                ret.evaluators         = copyEvaluators(source.evaluators, null);
+                ret.wildcardEvaluators = copyEvaluators(source.wildcardEvaluators, null);
+            }
+
+            for (Map.Entry<Character, TrieNode<T>> entry : source.children.entrySet()) {
+                TrieNode<T> child = entry.getValue();
+
+                ret.children.put(entry.getKey(), child);
+                child.setParent(ret);
+            }
+        }
+
+        ownedNodes.put(ret, source);
+
+        return ret;
+    }
+
+    private Set<T> copyEvaluators(Set<T> evaluators, Set<T> toExclude) {
+        Set<T> ret = null;
+
+        if (evaluators != null) {
+            ret = new HashSet<>(evaluators);
+
+            if (toExclude != null) {
+                ret.removeAll(toExclude);
+            }
+
+            if (ret.isEmpty()) {
+                ret = null;
+            }
+        }
+
+        return ret;
+    }
+
     private int getNonWildcardPrefixLength(String str) {
         int minIndex = str.length();
 
@@ -672,13 +925,15 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
             final boolean resourceEndsWithSep = resource.charAt(resource.length() - 1) == separatorChar;
 
             if (isSelfMatch) { // resource == path(curr)
+                final TrieNode<T> selfNode = curr;
+
                 if (resourceEndsWithSep) { // ex: resource=/tmp/
-                    curr.getChildren().values().stream().forEach(c -> c.collectChildEvaluators(separatorChar, 0, childEvaluators));
+                    selfNode.getChildren().values().stream().forEach(c -> c.collectChildEvaluators(selfNode, separatorChar, 0, childEvaluators));
                 } else { // ex: resource=/tmp
-                    curr = curr.getChild(separatorChar);
+                    curr = selfNode.getChild(separatorChar);
 
                     if (curr != null) {
-                        curr.collectChildEvaluators(separatorChar, 1, childEvaluators);
+                        curr.collectChildEvaluators(selfNode, separatorChar, 1, childEvaluators);
                     }
                 }
             } else if (child != null) { // resource != path(child) ex: (resource=/tmp, path(child)=/tmp/test.txt or path(child)=/tmpdir)
@@ -687,9 +942,9 @@ private Set<T> getEvaluatorsForResource(String resource, ResourceElementMatching
 
                 if (isPrefixMatch) {
                     if (resourceEndsWithSep) { // ex: resource=/tmp/
-                        child.collectChildEvaluators(separatorChar, remainingLen, childEvaluators);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen, childEvaluators);
                     } else if (child.getStr().charAt(remainingLen) == separatorChar) { //  ex: resource=/tmp
-                        child.collectChildEvaluators(separatorChar, remainingLen + 1, childEvaluators);
+                        child.collectChildEvaluators(curr, separatorChar, remainingLen + 1, childEvaluators);
                     }
                 }
             }
@@ -907,15 +1162,16 @@ static class TrieData {
 
     class TrieNode<U extends T> {
         private          String                      str;
-        private          TrieNode<U>                 parent;
-        private final    Map<Character, TrieNode<U>> children = new HashMap<>();
+        private          TrieNode<U>                 parent; // not used in lookups; see copyNode() for nodes shared by copy-on-write tries
+        private final    Map<Character, TrieNode<U>> children;
         private volatile Set<U>                      evaluators;
         private volatile Set<U>                      wildcardEvaluators;
         private          boolean                     isSharingParentWildcardEvaluators;
         private volatile boolean                     isSetup = false;
 
         TrieNode(String str) {
-            this.str = str;
+            this.str      = str;
+            this.children = isCompactNodes ? new CharKeyedMap<>() : new HashMap<>();
         }
 
         String getStr() {
@@ -946,8 +1202,8 @@ Set<U> getWildcardEvaluators() {
             return wildcardEvaluators;
         }
 
-        TrieNode<U> getChild(Character ch) {
-            return children.get(ch);
+        TrieNode<U> getChild(char ch) {
+            return isCompactNodes ? ((CharKeyedMap<TrieNode<U>>) children).get(ch) : children.get(ch);
         }
 
         void populateTrieData(RangerResourceTrie.TrieData trieData) {
@@ -1002,7 +1258,7 @@ int getMaxDepth() {
 
         TrieNode<U> getOrCreateChild(String str) {
             int         len   = str.length();
-            TrieNode<U> child = children.get(getLookupChar(str, 0));
+            TrieNode<U> child = getChild(getLookupChar(str, 0));
 
             if (child == null) {
                 child = new TrieNode<>(str);
@@ -1144,7 +1400,7 @@ void removeSelfFromTrie() {
             if (evaluators == null && children.size() == 0) {
                 TrieNode<U> parent = getParent();
                 if (parent != null) {
-                    parent.children.remove(str.charAt(0));
+                    parent.children.remove(getLookupChar(str, 0));
                 }
             } else {
                 if (LOG.isDebugEnabled()) {
@@ -1229,9 +1485,10 @@ void setup(Set<U> parentWildcardEvaluators) {
             }
         }
 
-        void collectChildEvaluators(Character sep, int startIdx, Set<U> childEvaluators) {
+        // parent is passed in, instead of using getParent(), as nodes can be shared by copy-on-write tries
+        void collectChildEvaluators(TrieNode<U> parent, Character sep, int startIdx, Set<U> childEvaluators) {
             if (!isOptimizedForSpace) {
-                setupIfNeeded(getParent());
+                setupIfNeeded(parent);
             }
 
             final int sepPos = startIdx < str.length() ? str.indexOf(sep, startIdx) : -1;
@@ -1246,7 +1503,7 @@ void collectChildEvaluators(Character sep, int startIdx, Set<U> childEvaluators)
                     childEvaluators.addAll(this.evaluators);
                 }
 
-                children.values().stream().forEach(c -> c.collectChildEvaluators(sep, 0, childEvaluators));
+                children.values().stream().forEach(c -> c.collectChildEvaluators(this, sep, 0, childEvaluators));
             } else if (sepPos == (str.length() - 1)) { // ex: str=/tmp/test/, startIdx=5
                 if (isOptimizedForSpace) {
                     if (this.wildcardEvaluators != null) {
@@ -1263,12 +1520,11 @@ void collectChildEvaluators(String resource, int startIndex, Set<U> childEvaluat
             if (startIndex == resource.length()) {
                 collectChildEvaluators(childEvaluators);
             } else if (startIndex < resource.length()) {
-                Character   startChar = getLookupChar(resource, startIndex);
-                TrieNode<U> childNode = children.get(startChar);
+                TrieNode<U> childNode = getChild(getLookupChar(resource, startIndex));
 
                 if (childNode != null) {
                     if (!isOptimizedForSpace) {
-                        childNode.setupIfNeeded(childNode.getParent());
+                        childNode.setupIfNeeded(this);
                     }
 
                     String childStr = childNode.getStr();
@@ -1296,15 +1552,11 @@ void collectChildEvaluators(String resource, int startIndex, Set<U> childEvaluat
         private void collectChildEvaluators(Set<U> childEvaluators) {
             Stack<TrieNode<U>> nodes = new Stack<>();
 
-            nodes.addAll(children.values());
+            pushChildren(nodes);
 
             while (!nodes.isEmpty()) {
                 TrieNode<U> childNode = nodes.pop();
 
-                if (!isOptimizedForSpace) {
-                    childNode.setupIfNeeded(childNode.getParent());
-                }
-
                 if (childNode.wildcardEvaluators != null) {
                     childEvaluators.addAll(childNode.wildcardEvaluators);
                 }
@@ -1313,7 +1565,18 @@ private void collectChildEvaluators(Set<U> childEvaluators) {
                     childEvaluators.addAll(childNode.evaluators);
                 }
 
-                nodes.addAll(childNode.children.values());
+                childNode.pushChildren(nodes);
+            }
+        }
+
+        // children are set up with this node as the parent, before being pushed
+        private void pushChildren(Stack<TrieNode<U>> nodes) {
+            for (TrieNode<U> child : children.values()) {
+                if (!isOptimizedForSpace) {
+                    child.setupIfNeeded(this);
+                }
+
+                nodes.push(child);
             }
         }
 
@@ -28,6 +28,7 @@
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
 import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
 import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
 import org.slf4j.Logger;
@@ -36,11 +37,17 @@
 import java.util.*;
 
 public class RangerSecurityZoneMatcher {
-    private static final Logger LOG = LoggerFactory.getLogger(RangerSecurityZoneMatcher.class);
+    private static final Logger LOG                 = LoggerFactory.getLogger(RangerSecurityZoneMatcher.class);
+    private static final Logger PERF_ZONE_MATCH_LOG = RangerPerfTracer.getPerfLogger("securityzone.match");
+
+    private static final int         DEFAULT_ZONE_LOOKUP_CACHE_SIZE = 16 * 1024;
+    private static final String      LEADING_ELEMENT_KEY_PREFIX     = "leading:";
+    private static final Set<String> NO_ZONES                       = Collections.unmodifiableSet(new HashSet<>()); // cached for resources not in any zone
 
     private final Map<String, RangerResourceTrie<RangerZoneResourceMatcher>> resourceZoneTrie;
     private final Set<String>                                                zonesWithTagService;
     private final RangerServiceDef                                           serviceDef;
+    private final Map<String, Set<String>>                                   zoneLookupCache;
 
     public RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
         this.resourceZoneTrie    = new HashMap<>();
@@ -48,6 +55,18 @@ public RangerSecurityZoneMatcher(Map<String, SecurityZoneInfo> securityZones, Ra
         this.serviceDef          = serviceDef;
 
         buildZoneTrie(securityZones, serviceDef, pluginContext);
+
+        int zoneLookupCacheSize = 0;
+
+        if (!resourceZoneTrie.isEmpty()) {
+            zoneLookupCacheSize = pluginContext.getConfig().getInt(pluginContext.getConfig().getPropertyPrefix() + ".zone.lookup.cache.size", DEFAULT_ZONE_LOOKUP_CACHE_SIZE);
+        }
+
+        this.zoneLookupCache = zoneLookupCacheSize > 0 ? Collections.synchronizedMap(new CacheMap<>(zoneLookupCacheSize)) : null;
+    }
+
+    public boolean hasZones() {
+        return !resourceZoneTrie.isEmpty();
     }
 
     public boolean hasTagService(String zoneName) {
@@ -55,11 +74,11 @@ public boolean hasTagService(String zoneName) {
     }
 
     public Set<String> getZonesForResourceAndChildren(Map<String, ?> resource) {
-        return getZonesForResourceAndChildren(resource, convertToAccessResource(resource));
+        return hasZones() ? getZonesForResourceAndChildren(resource, convertToAccessResource(resource)) : null;
     }
 
     public Set<String> getZonesForResourceAndChildren(RangerAccessResource resource) {
-        return getZonesForResourceAndChildren(resource.getAsMap(), resource);
+        return hasZones() ? getZonesForResourceAndChildren(resource.getAsMap(), resource) : null;
     }
 
     @Override
@@ -81,11 +100,75 @@ public int hashCode() {
         return Objects.hash(resourceZoneTrie, zonesWithTagService);
     }
 
+    /*
+     * Results are cached by the resource's cache-key, which is computed once per resource. When no zone has a resource
+     * matching the leading element (like database or path), no zone can match the resource; this result is cached for
+     * the leading element, to be shared by all resources under it.
+     */
     private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerSecurityZoneMatcher.getZonesForResourceAndChildren({})", accessResource);
         }
 
+        RangerPerfTracer perf = null;
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_ZONE_MATCH_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_ZONE_MATCH_LOG, "RangerSecurityZoneMatcher.getZonesForResourceAndChildren(resource=" + accessResource.getAsString() + ")");
+        }
+
+        String      leadingDefName = null;
+        String      leadingKey     = null;
+        String      cacheKey       = null;
+        Set<String> ret            = null;
+
+        if (zoneLookupCache != null) {
+            leadingDefName = getLeadingResourceDefName(accessResource);
+
+            if (leadingDefName != null) {
+                leadingKey = LEADING_ELEMENT_KEY_PREFIX + leadingDefName + RangerAccessResource.RESOURCE_NAME_VAL_SEP + accessResource.getValue(leadingDefName);
+                ret        = zoneLookupCache.get(leadingKey);
+            }
+
+            if (ret == null) {
+                cacheKey = accessResource.getCacheKey();
+                ret      = cacheKey != null ? zoneLookupCache.get(cacheKey) : null;
+            }
+        }
+
+        if (ret != null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("zone-names for resource:[{}] found in cache: {}", accessResource, ret);
+            }
+        } else {
+            ret = computeZonesForResourceAndChildren(resource, accessResource);
+
+            if (cacheKey != null) {
+                if (ret == null && leadingKey != null && !hasZonesForLeadingElement(leadingDefName, accessResource)) {
+                    zoneLookupCache.put(leadingKey, NO_ZONES);
+                } else {
+                    if (ret != null) {
+                        ret = Collections.unmodifiableSet(ret);
+                    }
+
+                    zoneLookupCache.put(cacheKey, ret != null ? ret : NO_ZONES);
+                }
+            }
+        }
+
+        if (ret == NO_ZONES) {
+            ret = null;
+        }
+
+        RangerPerfTracer.log(perf);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== RangerSecurityZoneMatcher.getZonesForResourceAndChildren({}): ret={}", accessResource, ret);
+        }
+
+        return ret;
+    }
+
+    private Set<String> computeZonesForResourceAndChildren(Map<String, ?> resource, RangerAccessResource accessResource) {
         Set<String> ret = null;
 
         if (MapUtils.isNotEmpty(this.resourceZoneTrie)) {
@@ -131,13 +214,32 @@ private Set<String> getZonesForResourceAndChildren(Map<String, ?> resource, Rang
             }
         }
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("<== RangerSecurityZoneMatcher.getZonesForResourceAndChildren({}): ret={}", accessResource, ret);
+        return ret;
+    }
+
+    private String getLeadingResourceDefName(RangerAccessResource accessResource) {
+        String ret = null;
+
+        if (serviceDef != null && serviceDef.getResources() != null) {
+            for (RangerResourceDef resourceDef : serviceDef.getResources()) {
+                if (resourceDef != null && accessResource.exists(resourceDef.getName())) {
+                    ret = resourceDef.getName();
+
+                    break;
+                }
+            }
         }
 
         return ret;
     }
 
+    // same check as in RangerResourceEvaluatorsRetriever.getEvaluators(), for the leading element alone
+    private boolean hasZonesForLeadingElement(String leadingDefName, RangerAccessResource accessResource) {
+        RangerResourceTrie<RangerZoneResourceMatcher> trie = resourceZoneTrie.get(leadingDefName);
+
+        return trie == null || CollectionUtils.isNotEmpty(trie.getInheritedEvaluators()) || CollectionUtils.isNotEmpty(trie.getEvaluatorsForResource(accessResource.getValue(leadingDefName), null));
+    }
+
     private void buildZoneTrie(Map<String, SecurityZoneInfo> securityZones, RangerServiceDef serviceDef, RangerPluginContext pluginContext) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("==> RangerSecurityZoneMatcher.buildZoneTrie()");
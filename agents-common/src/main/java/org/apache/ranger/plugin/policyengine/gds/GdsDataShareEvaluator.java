@@ -21,13 +21,10 @@
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.conditionevaluator.RangerConditionEvaluator;
-import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerResourceACLs;
-import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
 import org.apache.ranger.plugin.policyevaluator.RangerCustomConditionEvaluator;
-import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
 import org.apache.ranger.plugin.util.ServiceGdsInfo.DataShareInfo;
 import org.apache.ranger.plugin.util.ServiceGdsInfo.SharedResourceInfo;
 import org.slf4j.Logger;
@@ -40,13 +37,12 @@ public class GdsDataShareEvaluator {
 
     public static final GdsDataShareEvalOrderComparator EVAL_ORDER_COMPARATOR = new GdsDataShareEvalOrderComparator();
 
-    private final DataShareInfo                                               dsh;
-    private final String                                                      name;
-    private final String                                                      zoneName;
-    private final RangerConditionEvaluator                                    conditionEvaluator;
-    private final List<GdsSharedResourceEvaluator>                            evaluators;
-    private final Map<String, RangerResourceTrie<GdsSharedResourceEvaluator>> resourceTries;
-    private final List<GdsDshidEvaluator>                                     dsidEvaluators = new ArrayList<>();
+    private final DataShareInfo                    dsh;
+    private final String                           name;
+    private final String                           zoneName;
+    private final RangerConditionEvaluator         conditionEvaluator;
+    private final List<GdsSharedResourceEvaluator> evaluators;
+    private final List<GdsDshidEvaluator>          dsidEvaluators = new ArrayList<>();
 
     public GdsDataShareEvaluator(DataShareInfo dsh, List<SharedResourceInfo> resources, RangerServiceDefHelper serviceDefHelper) {
         LOG.debug("==> GdsDataShareEvaluator({}, {})", dsh, resources);
@@ -56,29 +52,15 @@ public GdsDataShareEvaluator(DataShareInfo dsh, List<SharedResourceInfo> resourc
         this.zoneName           = StringUtils.isBlank(dsh.getZoneName()) ? StringUtils.EMPTY : dsh.getZoneName();
         this.conditionEvaluator = RangerCustomConditionEvaluator.getInstance().getExpressionEvaluator(dsh.getConditionExpr(), serviceDefHelper.getServiceDef());
 
+        // shared resources are indexed in resource tries of the zone, by GdsPolicyEngine
         if (resources != null) {
-            Set<String> resourceKeys = new HashSet<>();
-
-            evaluators    = new ArrayList<>(resources.size());
-            resourceTries = new HashMap<>();
+            evaluators = new ArrayList<>(resources.size());
 
             for (SharedResourceInfo resource : resources) {
-                GdsSharedResourceEvaluator evaluator = new GdsSharedResourceEvaluator(resource, dsh.getDefaultAccessTypes(), serviceDefHelper);
-
-                evaluators.add(evaluator);
-
-                resourceKeys.addAll(evaluator.getResourceKeys());
-            }
-
-            for (String resourceKey : resourceKeys) {
-                RangerResourceDef                              resourceDef  = serviceDefHelper.getResourceDef(resourceKey);
-                RangerResourceTrie<GdsSharedResourceEvaluator> resourceTrie = new RangerResourceTrie<>(resourceDef, evaluators);
-
-                resourceTries.put(resourceKey, resourceTrie);
+                evaluators.add(new GdsSharedResourceEvaluator(resource, dsh.getDefaultAccessTypes(), serviceDefHelper));
             }
         } else {
-            evaluators    = Collections.emptyList();
-            resourceTries = Collections.emptyMap();
+            evaluators = Collections.emptyList();
         }
 
         LOG.debug("<== GdsDataShareEvaluator({}, {})", dsh, resources);
@@ -126,20 +108,13 @@ public boolean isInProject(long projectId) {
         return ret;
     }
 
-    public void evaluate(RangerAccessRequest request, GdsAccessResult result, Set<Long> datasetIds) {
+    /*
+     * resourceEvaluators: shared resources of this data share that were found in the resource tries for the request
+     */
+    public void evaluate(RangerAccessRequest request, GdsAccessResult result, Set<Long> datasetIds, Collection<GdsSharedResourceEvaluator> resourceEvaluators) {
         LOG.debug("==> GdsDataShareEvaluator.evaluate({}, {})", request, result);
 
-        Collection<GdsSharedResourceEvaluator> evaluators = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTries, request.getResource().getAsMap(), request.getResourceElementMatchingScopes());
-
-        if (evaluators == null) {
-            evaluators = Collections.emptyList();
-        } else if (evaluators.size() > 1) {
-            List<GdsSharedResourceEvaluator> list = new ArrayList<>(evaluators);
-
-            list.sort(GdsSharedResourceEvaluator.EVAL_ORDER_COMPARATOR);
-
-            evaluators = list;
-        }
+        List<GdsSharedResourceEvaluator> evaluators = getSortedEvaluators(resourceEvaluators);
 
         LOG.debug("GdsDataShareEvaluator.evaluate({}): found {} evaluators", request, evaluators.size());
 
@@ -173,10 +148,10 @@ public void evaluate(RangerAccessRequest request, GdsAccessResult result, Set<Lo
         LOG.debug("<== GdsDataShareEvaluator.evaluate({}, {})", request, result);
     }
 
-    public void getResourceACLs(RangerAccessRequest request, RangerResourceACLs acls) {
+    public void getResourceACLs(RangerAccessRequest request, RangerResourceACLs acls, Collection<GdsSharedResourceEvaluator> resourceEvaluators) {
         LOG.debug("==> GdsDataShareEvaluator.getResourceACLs({}, {})", request, acls);
 
-        List<GdsSharedResourceEvaluator> evaluators = getResourceEvaluators(request);
+        List<GdsSharedResourceEvaluator> evaluators = getSortedEvaluators(resourceEvaluators);
 
         if (!evaluators.isEmpty()) {
             boolean isConditional = conditionEvaluator != null;
@@ -193,12 +168,10 @@ void addDshidEvaluator(GdsDshidEvaluator dhidEvaluator) {
         dsidEvaluators.add(dhidEvaluator);
     }
 
-    private List<GdsSharedResourceEvaluator> getResourceEvaluators(RangerAccessRequest request) {
+    private static List<GdsSharedResourceEvaluator> getSortedEvaluators(Collection<GdsSharedResourceEvaluator> evaluators) {
         final List<GdsSharedResourceEvaluator> ret;
 
-        Collection<GdsSharedResourceEvaluator> evaluators = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTries, request.getResource().getAsMap(), request.getResourceElementMatchingScopes());
-
-        if (evaluators == null) {
+        if (evaluators == null || evaluators.isEmpty()) {
             ret = Collections.emptyList();
         } else if (evaluators.size() > 1) {
             ret = new ArrayList<>(evaluators);
@@ -208,8 +181,6 @@ private List<GdsSharedResourceEvaluator> getResourceEvaluators(RangerAccessReque
             ret = Collections.singletonList(evaluators.iterator().next());
         }
 
-        LOG.debug("GdsDataShareEvaluator.getResourceEvaluators({}): found {} evaluators", request, ret.size());
-
         return ret;
     }
 
@@ -23,12 +23,15 @@
 import org.apache.ranger.plugin.model.RangerGds;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
 import org.apache.ranger.plugin.policyengine.RangerResourceACLs;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerResourceEvaluatorsRetriever;
 import org.apache.ranger.plugin.util.ServiceGdsInfo;
 import org.apache.ranger.plugin.util.ServiceGdsInfo.DatasetInfo;
 import org.apache.ranger.plugin.util.ServiceGdsInfo.DatasetInProjectInfo;
@@ -49,11 +52,14 @@ public class GdsPolicyEngine {
     public static final String RESOURCE_NAME_DATASET_ID = "dataset-id";
     public static final String RESOURCE_NAME_PROJECT_ID = "project-id";
 
-    private final ServiceGdsInfo                           gdsInfo;
-    private final Set<String>                              allAccessTypes;
-    private final Map<String, List<GdsDataShareEvaluator>> zoneDataShares = new HashMap<>();
-    private final Map<Long, GdsDatasetEvaluator>           datasets       = new HashMap<>();
-    private final Map<Long, GdsProjectEvaluator>           projects       = new HashMap<>();
+    private final ServiceGdsInfo                                                           gdsInfo;
+    private final Set<String>                                                              allAccessTypes;
+    private final Map<Long, GdsDataShareEvaluator>                                         dataShares        = new HashMap<>();
+    private final Map<String, Map<String, RangerResourceTrie<GdsSharedResourceEvaluator>>> zoneResourceTries = new HashMap<>();
+    private final Map<Long, GdsDatasetEvaluator>                                           datasets          = new HashMap<>();
+    private final Map<Long, GdsProjectEvaluator>                                           projects          = new HashMap<>();
+    private final GdsPrincipalIndex                                                        datasetPrincipals = new GdsPrincipalIndex();
+    private final GdsPrincipalIndex                                                        projectPrincipals = new GdsPrincipalIndex();
 
     public GdsPolicyEngine(ServiceGdsInfo gdsInfo, RangerServiceDefHelper serviceDefHelper, RangerPluginContext pluginContext) {
         LOG.debug("==> RangerGdsPolicyEngine()");
@@ -81,19 +87,15 @@ public GdsAccessResult evaluate(RangerAccessRequest request) {
                 RangerAccessRequestUtil.setAllRequestedAccessTypes(request.getContext(), allAccessTypes, Boolean.TRUE);
             }
 
-            List<GdsDataShareEvaluator> dataShares = getDataShareEvaluators(request);
+            Map<GdsDataShareEvaluator, List<GdsSharedResourceEvaluator>> dataShares = getDataShareEvaluators(request);
 
             if (!dataShares.isEmpty()) {
                 ret = new GdsAccessResult();
 
-                if (dataShares.size() > 1) {
-                    dataShares.sort(GdsDataShareEvaluator.EVAL_ORDER_COMPARATOR);
-                }
-
                 Set<Long> datasetIds = new HashSet<>();
 
-                for (GdsDataShareEvaluator dshEvaluator : dataShares) {
-                    dshEvaluator.evaluate(request, ret, datasetIds);
+                for (Map.Entry<GdsDataShareEvaluator, List<GdsSharedResourceEvaluator>> entry : dataShares.entrySet()) {
+                    entry.getKey().evaluate(request, ret, datasetIds, entry.getValue());
                 }
 
                 if (!datasetIds.isEmpty()) {
@@ -120,16 +122,10 @@ public GdsAccessResult evaluate(RangerAccessRequest request) {
     public RangerResourceACLs getResourceACLs(RangerAccessRequest request) {
         RangerResourceACLs ret = new RangerResourceACLs();
 
-        List<GdsDataShareEvaluator> dataShares = getDataShareEvaluators(request);
-
-        if (!dataShares.isEmpty()) {
-            if (dataShares.size() > 1) {
-                dataShares.sort(GdsDataShareEvaluator.EVAL_ORDER_COMPARATOR);
-            }
+        Map<GdsDataShareEvaluator, List<GdsSharedResourceEvaluator>> dataShares = getDataShareEvaluators(request);
 
-            for (GdsDataShareEvaluator dshEvaluator : dataShares) {
-                dshEvaluator.getResourceACLs(request, ret);
-            }
+        for (Map.Entry<GdsDataShareEvaluator, List<GdsSharedResourceEvaluator>> entry : dataShares.entrySet()) {
+            entry.getKey().getResourceACLs(request, ret, entry.getValue());
         }
 
         ret.finalizeAcls();
@@ -138,27 +134,11 @@ public RangerResourceACLs getResourceACLs(RangerAccessRequest request) {
     }
 
     public Set<Long> getDatasetsSharedWith(Set<String> users, Set<String> groups, Set<String> roles) {
-        Set<Long> ret = new HashSet<>();
-
-        for (GdsDatasetEvaluator dataset : datasets.values()) {
-            if (dataset.hasReference(users, groups, roles)) {
-                ret.add(dataset.getId());
-            }
-        }
-
-        return ret;
+        return datasetPrincipals.getIds(users, groups, roles);
     }
 
     public Set<Long> getProjectsSharedWith(Set<String> users, Set<String> groups, Set<String> roles) {
-        Set<Long> ret = new HashSet<>();
-
-        for (GdsProjectEvaluator project : projects.values()) {
-            if (project.hasReference(users, groups, roles)) {
-                ret.add(project.getId());
-            }
-        }
-
-        return ret;
+        return projectPrincipals.getIds(users, groups, roles);
     }
 
     public long getDatasetId(String datasetName) {
@@ -233,17 +213,20 @@ private void init(RangerServiceDefHelper serviceDefHelper, RangerPluginContext p
         RangerServiceDef                    gdsServiceDef = gdsInfo.getGdsServiceDef();
         RangerPolicyEngineOptions           options       = new RangerPolicyEngineOptions(pluginContext.getConfig().getPolicyEngineOptions(), new RangerServiceDefHelper(gdsServiceDef, false));
         Map<Long, List<SharedResourceInfo>> dshResources  = new HashMap<>();
-        Map<Long, GdsDataShareEvaluator>    dshEvaluators = new HashMap<>();
 
         if (gdsInfo.getProjects() != null) {
             for (ProjectInfo projectInfo : gdsInfo.getProjects()) {
                 projects.put(projectInfo.getId(), new GdsProjectEvaluator(projectInfo, gdsServiceDef, options));
+
+                projectPrincipals.add(projectInfo.getId(), projectInfo.getPolicies());
             }
         }
 
         if (gdsInfo.getDatasets() != null) {
             for (DatasetInfo datasetInfo : gdsInfo.getDatasets()) {
                 datasets.put(datasetInfo.getId(), new GdsDatasetEvaluator(datasetInfo, gdsServiceDef, options));
+
+                datasetPrincipals.add(datasetInfo.getId(), datasetInfo.getPolicies());
             }
         }
 
@@ -257,12 +240,23 @@ private void init(RangerServiceDefHelper serviceDefHelper, RangerPluginContext p
         }
 
         if (gdsInfo.getDataShares() != null) {
+            Map<String, List<GdsSharedResourceEvaluator>> zoneResources = new HashMap<>();
+
             for (DataShareInfo dsh : gdsInfo.getDataShares()) {
-                GdsDataShareEvaluator       dshEvaluator   = new GdsDataShareEvaluator(dsh, dshResources.get(dsh.getId()), serviceDefHelper);
-                List<GdsDataShareEvaluator> zoneEvaluators = zoneDataShares.computeIfAbsent(dshEvaluator.getZoneName(), k -> new ArrayList<>());
+                GdsDataShareEvaluator dshEvaluator = new GdsDataShareEvaluator(dsh, dshResources.get(dsh.getId()), serviceDefHelper);
 
-                zoneEvaluators.add(dshEvaluator);
-                dshEvaluators.put(dsh.getId(), dshEvaluator);
+                dataShares.put(dsh.getId(), dshEvaluator);
+
+                for (GdsSharedResourceEvaluator resourceEvaluator : dshEvaluator.getSharedResourceEvaluators()) {
+                    // a shared resource without resource-values can't match any request
+                    if (!resourceEvaluator.getResourceKeys().isEmpty()) {
+                        zoneResources.computeIfAbsent(dshEvaluator.getZoneName(), k -> new ArrayList<>()).add(resourceEvaluator);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, List<GdsSharedResourceEvaluator>> entry : zoneResources.entrySet()) {
+                zoneResourceTries.put(entry.getKey(), createResourceTries(entry.getValue(), serviceDefHelper));
             }
         }
 
@@ -274,7 +268,7 @@ private void init(RangerServiceDefHelper serviceDefHelper, RangerPluginContext p
                     continue;
                 }
 
-                GdsDataShareEvaluator dshEvaluator = dshEvaluators.get(dshid.getDataShareId());
+                GdsDataShareEvaluator dshEvaluator = dataShares.get(dshid.getDataShareId());
 
                 if (dshEvaluator == null) {
                     LOG.error("RangerGdsPolicyEngine(): invalid dataShareId in dshid: {}. Ignored", dshid);
@@ -342,12 +336,32 @@ private void preprocessGdsServiceDef(RangerServiceDef gdsServiceDef, RangerServi
         gdsServiceDef.getAccessTypes().addAll(serviceDefHelper.getServiceDef().getAccessTypes());
     }
 
-    private List<GdsDataShareEvaluator> getDataShareEvaluators(RangerAccessRequest request) {
+    private Map<String, RangerResourceTrie<GdsSharedResourceEvaluator>> createResourceTries(List<GdsSharedResourceEvaluator> evaluators, RangerServiceDefHelper serviceDefHelper) {
+        Map<String, RangerResourceTrie<GdsSharedResourceEvaluator>> ret          = new HashMap<>();
+        Set<String>                                                 resourceKeys = new HashSet<>();
+
+        for (GdsSharedResourceEvaluator evaluator : evaluators) {
+            resourceKeys.addAll(evaluator.getResourceKeys());
+        }
+
+        for (String resourceKey : resourceKeys) {
+            RangerResourceDef resourceDef = serviceDefHelper.getResourceDef(resourceKey);
+
+            ret.put(resourceKey, new RangerResourceTrie<>(resourceDef, evaluators));
+        }
+
+        return ret;
+    }
+
+    /*
+     * returns data shares having shared resources that match the request, sorted in evaluation order
+     */
+    private Map<GdsDataShareEvaluator, List<GdsSharedResourceEvaluator>> getDataShareEvaluators(RangerAccessRequest request) {
         LOG.debug("==> RangerGdsPolicyEngine.getDataShareEvaluators({})", request);
 
-        List<GdsDataShareEvaluator> ret = null;
+        Map<GdsDataShareEvaluator, List<GdsSharedResourceEvaluator>> ret = null;
 
-        if (!zoneDataShares.isEmpty()) {
+        if (!zoneResourceTries.isEmpty()) {
             Set<String> zoneNames = RangerAccessRequestUtil.getResourceZoneNamesFromContext(request.getContext());
 
             if (zoneNames == null || zoneNames.isEmpty()) {
@@ -359,20 +373,32 @@ private List<GdsDataShareEvaluator> getDataShareEvaluators(RangerAccessRequest r
             }
 
             for (String zoneName : zoneNames) {
-                List<GdsDataShareEvaluator> zonEvaluators = zoneDataShares.get(zoneName);
+                Map<String, RangerResourceTrie<GdsSharedResourceEvaluator>> resourceTries = zoneResourceTries.get(zoneName);
 
-                if (zonEvaluators != null && !zonEvaluators.isEmpty()) {
-                    if (ret == null) {
-                        ret = new ArrayList<>();
-                    }
+                if (resourceTries == null) {
+                    continue;
+                }
+
+                Collection<GdsSharedResourceEvaluator> evaluators = RangerResourceEvaluatorsRetriever.getEvaluators(resourceTries, request.getResource().getAsMap(), request.getResourceElementMatchingScopes(), RangerAccessRequestUtil.getBatchLookupCacheFromContext(request.getContext()));
 
-                    ret.addAll(zonEvaluators);
+                if (evaluators != null) {
+                    for (GdsSharedResourceEvaluator evaluator : evaluators) {
+                        GdsDataShareEvaluator dshEvaluator = dataShares.get(evaluator.getDataShareId());
+
+                        if (dshEvaluator != null) {
+                            if (ret == null) {
+                                ret = new TreeMap<>(GdsDataShareEvaluator.EVAL_ORDER_COMPARATOR);
+                            }
+
+                            ret.computeIfAbsent(dshEvaluator, k -> new ArrayList<>()).add(evaluator);
+                        }
+                    }
                 }
             }
         }
 
         if (ret == null) {
-            ret = Collections.emptyList();
+            ret = Collections.emptyMap();
         }
 
         LOG.debug("<== RangerGdsPolicyEngine.getDataShareEvaluators({}): {}", request, ret);
@@ -459,37 +485,21 @@ private GdsProjectEvaluator getProjectEvaluator(String projectName) {
     }
 
     private GdsDataShareEvaluator getDataShareEvaluator(long dataShareId) {
-        GdsDataShareEvaluator ret = null;
-
-        for (List<GdsDataShareEvaluator> dshEvaluators : zoneDataShares.values()) {
-            for (GdsDataShareEvaluator dshEvaluator : dshEvaluators) {
-                if (dshEvaluator.getId().equals(dataShareId)) {
-                    ret = dshEvaluator;
-
-                    break;
-                }
-            }
-        }
-
-        return ret;
+        return dataShares.get(dataShareId);
     }
 
     private void collectDataSharesForDataset(long datasetId, Set<GdsDataShareEvaluator> evaluators) {
-        for (List<GdsDataShareEvaluator> dshEvaluators : zoneDataShares.values()) {
-            for (GdsDataShareEvaluator dshEvaluator : dshEvaluators) {
-                if (dshEvaluator.isInDataset(datasetId)) {
-                    evaluators.add(dshEvaluator);
-                }
+        for (GdsDataShareEvaluator dshEvaluator : dataShares.values()) {
+            if (dshEvaluator.isInDataset(datasetId)) {
+                evaluators.add(dshEvaluator);
             }
         }
     }
 
     private void collectDataSharesForProject(long projectId, Set<GdsDataShareEvaluator> evaluators) {
-        for (List<GdsDataShareEvaluator> dshEvaluators : zoneDataShares.values()) {
-            for (GdsDataShareEvaluator dshEvaluator : dshEvaluators) {
-                if (dshEvaluator.isInProject(projectId)) {
-                    evaluators.add(dshEvaluator);
-                }
+        for (GdsDataShareEvaluator dshEvaluator : dataShares.values()) {
+            if (dshEvaluator.isInProject(projectId)) {
+                evaluators.add(dshEvaluator);
             }
         }
     }
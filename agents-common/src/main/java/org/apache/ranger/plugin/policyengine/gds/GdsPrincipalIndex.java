@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine.gds;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+
+import java.util.*;
+
+/*
+ * Index of the ids of datasets/projects referenced by users, groups and roles in their policies.
+ * Principals are matched by name, same as RangerPolicyEvaluator.hasReference().
+ */
+class GdsPrincipalIndex {
+    private final Map<String, Set<Long>> userIds  = new HashMap<>();
+    private final Map<String, Set<Long>> groupIds = new HashMap<>();
+    private final Map<String, Set<Long>> roleIds  = new HashMap<>();
+
+    void add(Long id, List<RangerPolicy> policies) {
+        if (policies != null) {
+            for (RangerPolicy policy : policies) {
+                addPolicyItems(id, policy.getPolicyItems());
+                addPolicyItems(id, policy.getDenyPolicyItems());
+                addPolicyItems(id, policy.getAllowExceptions());
+                addPolicyItems(id, policy.getDenyExceptions());
+            }
+        }
+    }
+
+    Set<Long> getIds(Set<String> users, Set<String> groups, Set<String> roles) {
+        Set<Long> ret = new HashSet<>();
+
+        collectIds(userIds, users, ret);
+        collectIds(groupIds, groups, ret);
+        collectIds(roleIds, roles, ret);
+
+        return ret;
+    }
+
+    private void addPolicyItems(Long id, List<? extends RangerPolicyItem> policyItems) {
+        if (policyItems != null) {
+            for (RangerPolicyItem policyItem : policyItems) {
+                addPrincipals(id, policyItem.getUsers(), userIds);
+                addPrincipals(id, policyItem.getGroups(), groupIds);
+                addPrincipals(id, policyItem.getRoles(), roleIds);
+            }
+        }
+    }
+
+    private static void addPrincipals(Long id, List<String> principals, Map<String, Set<Long>> index) {
+        if (principals != null) {
+            for (String principal : principals) {
+                index.computeIfAbsent(principal, k -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    private static void collectIds(Map<String, Set<Long>> index, Set<String> principals, Set<Long> ids) {
+        if (principals != null && !index.isEmpty()) {
+            for (String principal : principals) {
+                Set<Long> principalIds = index.get(principal);
+
+                if (principalIds != null) {
+                    ids.addAll(principalIds);
+                }
+            }
+        }
+    }
+}
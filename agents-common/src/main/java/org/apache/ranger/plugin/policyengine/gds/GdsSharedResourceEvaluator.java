@@ -104,6 +104,10 @@ public boolean isAncestorOf(RangerResourceDef resourceDef) {
         return ServiceDefUtil.isAncestorOf(policyResourceMatcher.getServiceDef(), leafResourceDef, resourceDef);
     }
 
+    public Long getDataShareId() {
+        return resource.getDataShareId();
+    }
+
     public Collection<String> getResourceKeys() {
         return resource != null && resource.getResource() != null ? resource.getResource().keySet() : Collections.emptySet();
     }
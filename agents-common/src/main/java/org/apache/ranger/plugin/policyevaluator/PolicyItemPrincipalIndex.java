@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+
+/*
+ * Inverted index from user, group and role names to the positions of policy-items, in a list of policy-item
+ * evaluators, that name them. Items that can match any principal - {USER}, {OWNER}, public group, or evaluators
+ * whose principal matching is not known here - are always returned as candidates. Candidates are returned in
+ * list order, so that walking them gives the same first match as walking the whole list.
+ *
+ * Built once, after the list is sorted; immutable afterwards.
+ */
+final class PolicyItemPrincipalIndex {
+	static final int MIN_POLICY_ITEMS_TO_INDEX = 8;
+
+	private final int                itemCount;
+	private final BitSet             anyPrincipalItems = new BitSet();
+	private final Map<String, int[]> userItems;
+	private final Map<String, int[]> groupItems;
+	private final Map<String, int[]> roleItems;
+
+	private PolicyItemPrincipalIndex(List<? extends RangerPolicyItemEvaluator> evaluators) {
+		Map<String, BitSet> users  = new HashMap<>();
+		Map<String, BitSet> groups = new HashMap<>();
+		Map<String, BitSet> roles  = new HashMap<>();
+
+		itemCount = evaluators.size();
+
+		for (int i = 0; i < itemCount; i++) {
+			RangerPolicyItemEvaluator evaluator  = evaluators.get(i);
+			RangerPolicyItem          policyItem = evaluator.getPolicyItem();
+
+			if (policyItem == null) { // never matches
+				continue;
+			}
+
+			if (!(evaluator instanceof RangerDefaultPolicyItemEvaluator) ||
+				contains(policyItem.getUsers(), RangerPolicyEngine.USER_CURRENT) ||
+				contains(policyItem.getUsers(), RangerPolicyEngine.RESOURCE_OWNER) ||
+				contains(policyItem.getGroups(), RangerPolicyEngine.GROUP_PUBLIC)) {
+				anyPrincipalItems.set(i);
+
+				continue;
+			}
+
+			addItem(users, policyItem.getUsers(), i);
+			addItem(groups, policyItem.getGroups(), i);
+			addItem(roles, policyItem.getRoles(), i);
+		}
+
+		userItems  = toPositions(users);
+		groupItems = toPositions(groups);
+		roleItems  = toPositions(roles);
+	}
+
+	/*
+	 * returns null when the list is too short for an index to pay off
+	 */
+	static PolicyItemPrincipalIndex create(List<? extends RangerPolicyItemEvaluator> evaluators) {
+		return evaluators != null && evaluators.size() >= MIN_POLICY_ITEMS_TO_INDEX ? new PolicyItemPrincipalIndex(evaluators) : null;
+	}
+
+	boolean hasRoles() {
+		return !roleItems.isEmpty();
+	}
+
+	int getIndexedUserCount() { return userItems.size(); }
+
+	int getIndexedGroupCount() { return groupItems.size(); }
+
+	int getIndexedRoleCount() { return roleItems.size(); }
+
+	/*
+	 * Positions of items that can match the given principals, in list order. Callers still evaluate each candidate fully;
+	 * the index only excludes items that cannot match.
+	 */
+	BitSet getCandidates(String user, Set<String> userGroups, Set<String> roles) {
+		BitSet ret = new BitSet(itemCount);
+
+		ret.or(anyPrincipalItems);
+
+		if (user != null) {
+			setAll(ret, userItems.get(user));
+		}
+
+		if (userGroups != null && !groupItems.isEmpty()) {
+			for (String group : userGroups) {
+				setAll(ret, groupItems.get(group));
+			}
+		}
+
+		if (roles != null && !roleItems.isEmpty()) {
+			for (String role : roles) {
+				setAll(ret, roleItems.get(role));
+			}
+		}
+
+		return ret;
+	}
+
+	private static boolean contains(List<String> values, String value) {
+		return values != null && values.contains(value);
+	}
+
+	private static void addItem(Map<String, BitSet> index, List<String> names, int position) {
+		if (CollectionUtils.isNotEmpty(names)) {
+			for (String name : names) {
+				BitSet positions = index.get(name);
+
+				if (positions == null) {
+					positions = new BitSet();
+
+					index.put(name, positions);
+				}
+
+				positions.set(position);
+			}
+		}
+	}
+
+	// most names appear in one or two items: a small int[] per name is cheaper than a BitSet sized for the whole list
+	private static Map<String, int[]> toPositions(Map<String, BitSet> index) {
+		if (index.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, int[]> ret = new HashMap<>(index.size());
+
+		for (Map.Entry<String, BitSet> entry : index.entrySet()) {
+			ret.put(entry.getKey(), entry.getValue().stream().toArray());
+		}
+
+		return ret;
+	}
+
+	private static void setAll(BitSet bits, int[] positions) {
+		if (positions != null) {
+			for (int position : positions) {
+				bits.set(position);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PolicyItemPrincipalIndex={itemCount=" + itemCount + ", anyPrincipalItems=" + anyPrincipalItems.cardinality() +
+		       ", users=" + userItems.size() + ", groups=" + groupItems.size() + ", roles=" + roleItems.size() + "}";
+	}
+}
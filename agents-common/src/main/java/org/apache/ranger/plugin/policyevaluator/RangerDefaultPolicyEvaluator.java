@@ -20,6 +20,7 @@
 package org.apache.ranger.plugin.policyevaluator;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -75,6 +76,12 @@ public class RangerDefaultPolicyEvaluator extends RangerAbstractPolicyEvaluator
 	private List<RangerDataMaskPolicyItemEvaluator>  dataMaskEvaluators;
 	private List<RangerRowFilterPolicyItemEvaluator> rowFilterEvaluators;
 	private List<RangerConditionEvaluator>  conditionEvaluators;
+	private PolicyItemPrincipalIndex        allowIndex;
+	private PolicyItemPrincipalIndex        denyIndex;
+	private PolicyItemPrincipalIndex        allowExceptionIndex;
+	private PolicyItemPrincipalIndex        denyExceptionIndex;
+	private PolicyItemPrincipalIndex        dataMaskIndex;
+	private PolicyItemPrincipalIndex        rowFilterIndex;
 	private String perfTag;
 	private PolicyACLSummary aclSummary                 = null;
 	private boolean          useAclSummaryForEvaluation = false;
@@ -184,6 +191,14 @@ public void init(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyE
 		Collections.sort(rowFilterEvaluators);
 		*/
 
+		// built after sorting: candidates are returned in evaluation order
+		allowIndex          = PolicyItemPrincipalIndex.create(allowEvaluators);
+		denyIndex           = PolicyItemPrincipalIndex.create(denyEvaluators);
+		allowExceptionIndex = PolicyItemPrincipalIndex.create(allowExceptionEvaluators);
+		denyExceptionIndex  = PolicyItemPrincipalIndex.create(denyExceptionEvaluators);
+		dataMaskIndex       = PolicyItemPrincipalIndex.create(dataMaskEvaluators);
+		rowFilterIndex      = PolicyItemPrincipalIndex.create(rowFilterEvaluators);
+
 		RangerPerfTracer.log(perf);
 
 		if (useAclSummaryForEvaluation && (policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS)) {
@@ -1040,10 +1055,10 @@ protected RangerPolicyItemEvaluator getDeterminingPolicyItem(String user, Set<St
 		 *  1. if a deny matches without hitting any deny-exception, return that
 		 *  2. if an allow matches without hitting any allow-exception, return that
 		 */
-		ret = getMatchingPolicyItem(user, userGroups, roles, owner, accessType, denyEvaluators, denyExceptionEvaluators);
+		ret = getMatchingPolicyItem(user, userGroups, roles, owner, accessType, denyEvaluators, denyIndex, denyExceptionEvaluators, denyExceptionIndex);
 
 		if(ret == null) {
-			ret = getMatchingPolicyItem(user, userGroups, roles, owner, accessType, allowEvaluators, allowExceptionEvaluators);
+			ret = getMatchingPolicyItem(user, userGroups, roles, owner, accessType, allowEvaluators, allowIndex, allowExceptionEvaluators, allowExceptionIndex);
 		}
 
 		if(LOG.isDebugEnabled()) {
@@ -1400,11 +1415,11 @@ protected RangerPolicyItemEvaluator getMatchingPolicyItem(RangerAccessRequest re
 				break;
 			}
 			case RangerPolicy.POLICY_TYPE_DATAMASK: {
-				ret = getMatchingPolicyItem(request, dataMaskEvaluators);
+				ret = getMatchingPolicyItem(request, dataMaskEvaluators, dataMaskIndex, null, null);
 				break;
 			}
 			case RangerPolicy.POLICY_TYPE_ROWFILTER: {
-				ret = getMatchingPolicyItem(request, rowFilterEvaluators);
+				ret = getMatchingPolicyItem(request, rowFilterEvaluators, rowFilterIndex, null, null);
 				break;
 			}
 			default:
@@ -1415,22 +1430,22 @@ protected RangerPolicyItemEvaluator getMatchingPolicyItem(RangerAccessRequest re
 	}
 
 	protected RangerPolicyItemEvaluator getMatchingPolicyItemForAccessPolicyForSpecificAccess(RangerAccessRequest request, RangerAccessResult result) {
-		RangerPolicyItemEvaluator ret = getMatchingPolicyItem(request, denyEvaluators, denyExceptionEvaluators);
+		RangerPolicyItemEvaluator ret = getMatchingPolicyItem(request, denyEvaluators, denyIndex, denyExceptionEvaluators, denyExceptionIndex);
 
 		if(ret == null && !result.getIsAccessDetermined()) { // a deny policy could have set isAllowed=true, but in such case it wouldn't set isAccessDetermined=true
-			ret = getMatchingPolicyItem(request, allowEvaluators, allowExceptionEvaluators);
+			ret = getMatchingPolicyItem(request, allowEvaluators, allowIndex, allowExceptionEvaluators, allowExceptionIndex);
 		}
 
 		return ret;
 	}
 
 	protected <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAccessRequest request, List<T> evaluators) {
-		T ret = getMatchingPolicyItem(request, evaluators, null);
+		T ret = getMatchingPolicyItem(request, evaluators, null, null, null);
 
 		return ret;
 	}
 
-	private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAccessRequest request, List<T> evaluators, List<T> exceptionEvaluators) {
+	private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAccessRequest request, List<T> evaluators, PolicyItemPrincipalIndex index, List<T> exceptionEvaluators, PolicyItemPrincipalIndex exceptionIndex) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerDefaultPolicyEvaluator.getMatchingPolicyItem(" + request + ")");
         }
@@ -1438,7 +1453,7 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAcce
         T ret = null;
 
         if(CollectionUtils.isNotEmpty(evaluators)) {
-            for (T evaluator : evaluators) {
+            for (T evaluator : getCandidatePolicyItems(request, evaluators, index)) {
                 if(evaluator.isMatch(request)) {
                     ret = evaluator;
 
@@ -1448,7 +1463,7 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAcce
         }
 
         if(ret != null && CollectionUtils.isNotEmpty(exceptionEvaluators)) {
-            for (T exceptionEvaluator : exceptionEvaluators) {
+            for (T exceptionEvaluator : getCandidatePolicyItems(request, exceptionEvaluators, exceptionIndex)) {
                 if(exceptionEvaluator.isMatch(request)) {
                     if(LOG.isDebugEnabled()) {
                         LOG.debug("RangerDefaultPolicyEvaluator.getMatchingPolicyItem(" + request + "): found exception policyItem(" + exceptionEvaluator.getPolicyItem() + "); ignoring the matchedPolicyItem(" + ret.getPolicyItem() + ")");
@@ -1468,7 +1483,7 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(RangerAcce
         return ret;
     }
 
-	private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(String user, Set<String> userGroups, Set<String> roles, String owner, String accessType, List<T> evaluators, List<T> exceptionEvaluators) {
+	private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(String user, Set<String> userGroups, Set<String> roles, String owner, String accessType, List<T> evaluators, PolicyItemPrincipalIndex index, List<T> exceptionEvaluators, PolicyItemPrincipalIndex exceptionIndex) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerDefaultPolicyEvaluator.getMatchingPolicyItem(" + user + ", " + userGroups + ", " + roles + ", " + owner + ", " + accessType + ")");
         }
@@ -1476,7 +1491,7 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(String use
         T ret = null;
 
         if(CollectionUtils.isNotEmpty(evaluators)) {
-            for (T evaluator : evaluators) {
+            for (T evaluator : getCandidatePolicyItems(user, userGroups, roles, evaluators, index)) {
                 if(evaluator.matchUserGroupAndOwner(user, userGroups, roles, owner) && evaluator.matchAccessType(accessType)) {
                     ret = evaluator;
 
@@ -1486,7 +1501,7 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(String use
         }
 
         if(ret != null && CollectionUtils.isNotEmpty(exceptionEvaluators)) {
-            for (T exceptionEvaluator : exceptionEvaluators) {
+            for (T exceptionEvaluator : getCandidatePolicyItems(user, userGroups, roles, exceptionEvaluators, exceptionIndex)) {
                 if(exceptionEvaluator.matchUserGroupAndOwner(user, userGroups, roles, owner) && exceptionEvaluator.matchAccessType(accessType)) {
                     if(LOG.isDebugEnabled()) {
                         LOG.debug("RangerDefaultPolicyEvaluator.getMatchingPolicyItem(" + user + ", " + userGroups + ", " + accessType + "): found exception policyItem(" + exceptionEvaluator.getPolicyItem() + "); ignoring the matchedPolicyItem(" + ret.getPolicyItem() + ")");
@@ -1505,6 +1520,46 @@ private <T extends RangerPolicyItemEvaluator> T getMatchingPolicyItem(String use
         return ret;
     }
 
+	private <T extends RangerPolicyItemEvaluator> List<T> getCandidatePolicyItems(RangerAccessRequest request, List<T> evaluators, PolicyItemPrincipalIndex index) {
+		final List<T> ret;
+
+		if (index == null) {
+			ret = evaluators;
+		} else {
+			Set<String> roles = index.hasRoles() ? RangerAccessRequestUtil.getUserRoles(request) : null;
+
+			ret = getCandidatePolicyItems(request.getUser(), request.getUserGroups(), roles, evaluators, index);
+		}
+
+		return ret;
+	}
+
+	private <T extends RangerPolicyItemEvaluator> List<T> getCandidatePolicyItems(String user, Set<String> userGroups, Set<String> roles, List<T> evaluators, PolicyItemPrincipalIndex index) {
+		final List<T> ret;
+
+		if (index == null) {
+			ret = evaluators;
+		} else {
+			BitSet candidates = index.getCandidates(user, userGroups, roles);
+
+			if (candidates.isEmpty()) {
+				ret = Collections.emptyList();
+			} else {
+				ret = new ArrayList<>(candidates.cardinality());
+
+				for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+					ret.add(evaluators.get(i));
+				}
+			}
+
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerDefaultPolicyEvaluator.getCandidatePolicyItems(" + user + ", " + userGroups + ", " + roles + "): policyId=" + getPolicyId() + ", candidates=" + ret.size() + " of " + evaluators.size());
+			}
+		}
+
+		return ret;
+	}
+
 	// Policy Level Condition evaluator
 	private boolean matchPolicyCustomConditions(RangerAccessRequest request) {
 		if(LOG.isDebugEnabled()) {
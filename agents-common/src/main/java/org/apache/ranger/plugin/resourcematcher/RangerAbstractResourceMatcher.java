@@ -25,7 +25,6 @@
 import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
@@ -607,12 +606,12 @@ final class CaseSensitiveWildcardMatcher extends AbstractStringResourceMatcher {
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		return getWildcardPattern(evalContext, IOCase.SENSITIVE).isMatch(resourceValue);
 	}
 
 	@Override
 	public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-		return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		return getWildcardPattern(evalContext, IOCase.SENSITIVE).isPrefixMatch(resourceValue);
 	}
 
 	int getPriority() { return 5 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -626,12 +625,12 @@ final class CaseInsensitiveWildcardMatcher extends AbstractStringResourceMatcher
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		return getWildcardPattern(evalContext, IOCase.INSENSITIVE).isMatch(resourceValue);
 	}
 
 	@Override
 	public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-		return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		return getWildcardPattern(evalContext, IOCase.INSENSITIVE).isPrefixMatch(resourceValue);
 	}
 
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -650,14 +649,14 @@ final class QuotedCaseSensitiveWildcardMatcher extends AbstractStringResourceMat
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 		IOCase caseSensitivity = startsWithAnyChar(resourceValue, quoteChars) ? IOCase.SENSITIVE : IOCase.INSENSITIVE;
 
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), caseSensitivity);
+		return getWildcardPattern(evalContext, caseSensitivity).isMatch(resourceValue);
 	}
 
 	@Override
 	public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
 		IOCase caseSensitivity = startsWithAnyChar(resourceValue, quoteChars) ? IOCase.SENSITIVE : IOCase.INSENSITIVE;
 
-		return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), caseSensitivity);
+		return getWildcardPattern(evalContext, caseSensitivity).isPrefixMatch(resourceValue);
 	}
 
 	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
@@ -20,7 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -140,7 +139,7 @@ ResourceMatcher getMatcher(String policyValue) {
 		return ret;
 	}
 
-	static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, Character pathSeparatorChar, IOCase caseSensitivity, String[] wildcardPathElements) {
+	static boolean isRecursiveWildCardMatch(String pathToCheck, WildcardPattern wildcardPattern, Character pathSeparatorChar, String[] wildcardPathElements) {
 
 		boolean ret = false;
 
@@ -165,7 +164,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
 							String wp = wildcardPathElements[pathElementIndex];
 
 							if (!(StringUtils.contains(wp, '*') || StringUtils.contains(wp, '?'))) {
-								boolean isMatch = caseSensitivity.isCaseSensitive() ? StringUtils.equals(p, wp) : StringUtils.equalsIgnoreCase(p, wp);
+								boolean isMatch = wildcardPattern.isCaseSensitive() ? StringUtils.equals(p, wp) : StringUtils.equalsIgnoreCase(p, wp);
 								if (!isMatch) {
 									useStringMatching = false;
 									break;
@@ -179,7 +178,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
 					}
 
 					if (!useStringMatching) {
-						ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+						ret = wildcardPattern.isMatch(sb);
 						if (ret) {
 							break;
 						}
@@ -198,7 +197,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
 
 				sb = null;
 			} else { // pathToCheck consists of only pathSeparatorChar
-				ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
+				ret = wildcardPattern.isMatch(pathToCheck);
 			}
 		}
 		return ret;
@@ -261,14 +260,14 @@ private ResourceMatcher getPathMatcher(String policyValue) {
 		}
 
 		if (needWildcardMatch) { // test?, test*a*, test*a*b, *test*a
-			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, FilenameUtils::wildcardMatch, 6);
+			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, 6);
 		} else if (wildcardStartIdx == -1) { // test, testa, testab
 			ret = new PathResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase ? StringUtils::equalsIgnoreCase : StringUtils::equals, !optIgnoreCase, optIgnoreCase ? 2 : 1);
 		} else if (wildcardStartIdx == 0) { // *test, **test, *testa, *testab
 			String matchStr = policyValue.substring(wildcardEndIdx + 1);
 			ret = new PathEndsWithResourceMatcher(matchStr, getOptions(), pathSeparatorChar, !optIgnoreCase, optIgnoreCase ? 4 : 3);
 		} else if (wildcardEndIdx != (len - 1)) { // test*a, test*ab
-			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, FilenameUtils::wildcardMatch, 6);
+			ret = new WildcardResourceMatcher(policyValue, getOptions(), pathSeparatorChar, optIgnoreCase, 6);
 		} else { // test*, test**, testa*, testab*
 			String matchStr = policyValue.substring(0, wildcardStartIdx);
 			ret = new PathStartsWithResourceMatcher(matchStr, getOptions(), pathSeparatorChar, !optIgnoreCase, optIgnoreCase ? 4 : 3);
@@ -281,18 +280,10 @@ private ResourceMatcher getPathMatcher(String policyValue) {
 		return ret;
 	}
 
-	interface TriFunction<T, U, V, R> {
-		R apply(T t, U u, V v);
-	}
-
 	interface QuadFunction<T, U, V, W, R> {
 		R apply(T t, U u, V v, W w);
 	}
 
-	interface QuintFunction<T, U, V, W, R, X> {
-		R apply(T t, U u, V v, W w, X x);
-	}
-
 	static abstract class AbstractPathResourceMatcher extends ResourceMatcher {
 		final char    pathSeparatorChar;
 		final int     priority;
@@ -512,14 +503,13 @@ public boolean isChildMatch(String resourceValue, Map<String, Object> evalContex
 	}
 
 	static class WildcardResourceMatcher extends AbstractPathResourceMatcher {
-		final TriFunction<String, String, IOCase, Boolean> function;
-		final IOCase                                       ioCase;
+		final IOCase    ioCase;
+		WildcardPattern childPattern; // compiled on first use, when value needs no expansion
 
-		WildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, TriFunction<String, String, IOCase, Boolean> function, int priority) {
+		WildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, int priority) {
 			super(value, options, pathSeparatorChar, !optIgnoreCase, priority);
 
-			this.function = function;
-			this.ioCase   = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+			this.ioCase = optIgnoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
 		}
 
 		@Override
@@ -528,11 +518,11 @@ public boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 				LOG.debug("==> WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			String  expandedValue = getExpandedValue(evalContext);
-			boolean ret           = function.apply(resourceValue, expandedValue, ioCase);
+			WildcardPattern pattern = getWildcardPattern(evalContext, ioCase);
+			boolean         ret     = pattern.isMatch(resourceValue);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + expandedValue + ") : result:[" + ret + "]");
+				LOG.debug("<== WildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + pattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
@@ -543,28 +533,46 @@ public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalConte
 				LOG.debug("==> WildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			boolean ret = ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), ioCase);
+			WildcardPattern pattern = getWildcardPattern(evalContext, ioCase);
+			boolean         ret     = pattern.isPrefixMatch(resourceValue);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== WildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + getExpandedValue(evalContext) + ") : result:[" + ret + "]");
+				LOG.debug("<== WildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + pattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
 
 		@Override
 		public boolean isChildMatch(String resourceValue, Map<String, Object> evalContext) {
-			boolean ret                     = false;
-			String  expandedValue           = getExpandedValue(evalContext);
-			int     lastLevelSeparatorIndex = expandedValue.lastIndexOf(pathSeparatorChar);
-
-			if (lastLevelSeparatorIndex != -1) {
-				String shorterExpandedValue = expandedValue.substring(0, lastLevelSeparatorIndex);
+			boolean         ret     = false;
+			WildcardPattern pattern = getChildPattern(evalContext);
 
+			if (pattern != null) {
 				if (resourceValue.charAt(resourceValue.length()-1) == pathSeparatorChar) {
 					resourceValue = resourceValue.substring(0, resourceValue.length()-1);
 				}
 
-				ret = function.apply(resourceValue, shorterExpandedValue, ioCase);
+				ret = pattern.isMatch(resourceValue);
+			}
+
+			return ret;
+		}
+
+		// pattern for the value without its last level; null if the value has only one level
+		private WildcardPattern getChildPattern(Map<String, Object> evalContext) {
+			WildcardPattern ret = getNeedsDynamicEval() ? null : childPattern;
+
+			if (ret == null) {
+				String expandedValue           = getExpandedValue(evalContext);
+				int    lastLevelSeparatorIndex = expandedValue.lastIndexOf(pathSeparatorChar);
+
+				if (lastLevelSeparatorIndex != -1) {
+					ret = WildcardPattern.compile(expandedValue.substring(0, lastLevelSeparatorIndex), ioCase);
+
+					if (!getNeedsDynamicEval()) {
+						childPattern = ret;
+					}
+				}
 			}
 
 			return ret;
@@ -572,11 +580,13 @@ public boolean isChildMatch(String resourceValue, Map<String, Object> evalContex
 	}
 
 	static class RecursiveWildcardResourceMatcher extends AbstractPathResourceMatcher {
-		final QuintFunction<String, String, Character, IOCase, Boolean, String[]> function;
+		final QuadFunction<String, WildcardPattern, Character, String[], Boolean> function;
 		final IOCase ioCase;
 		String[] wildcardPathElements;
+		WildcardPattern childPattern; // compiled on first use, when value needs no expansion
+		String[]        childPathElements;
 
-		RecursiveWildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, QuintFunction<String, String, Character, IOCase, Boolean, String[]> function, int priority) {
+		RecursiveWildcardResourceMatcher(String value, Map<String, String> options, char pathSeparatorChar, boolean optIgnoreCase, QuadFunction<String, WildcardPattern, Character, String[], Boolean> function, int priority) {
 			super(value, options, pathSeparatorChar, !optIgnoreCase, priority);
 
 			this.function = function;
@@ -591,18 +601,13 @@ boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
-			String expandedValue;
-			if (getNeedsDynamicEval()) {
-				expandedValue = getExpandedValue(evalContext);
-				wildcardPathElements = StringUtils.split(expandedValue, pathSeparatorChar);
-			} else {
-				expandedValue = value;
-			}
+			WildcardPattern pattern      = getWildcardPattern(evalContext, ioCase);
+			String[]        pathElements = getNeedsDynamicEval() ? StringUtils.split(pattern.getPattern(), pathSeparatorChar) : wildcardPathElements;
 
-			boolean ret = function.apply(resourceValue, expandedValue, pathSeparatorChar, ioCase, wildcardPathElements);
+			boolean ret = function.apply(resourceValue, pattern, pathSeparatorChar, pathElements);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + expandedValue + ") : result:[" + ret + "]");
+				LOG.debug("<== RecursiveWildcardResourceMatcher.isMatch(resourceValue=" + resourceValue + ", expandedValue=" + pattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
@@ -613,30 +618,44 @@ public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalConte
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			boolean ret = ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), ioCase);
+			WildcardPattern pattern = getWildcardPattern(evalContext, ioCase);
+			boolean         ret     = pattern.isPrefixMatch(resourceValue);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + getExpandedValue(evalContext) + ") : result:[" + ret + "]");
+				LOG.debug("<== RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + pattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
 
 		@Override
 		public boolean isChildMatch(String resourceValue, Map<String, Object> evalContext) {
-			boolean ret = false;
-			String expandedValue = getExpandedValue(evalContext);
-			int lastLevelSeparatorIndex = expandedValue.lastIndexOf(pathSeparatorChar);
+			boolean         ret                         = false;
+			WildcardPattern shorterPattern              = getNeedsDynamicEval() ? null : childPattern;
+			String[]        shorterWildCardPathElements = getNeedsDynamicEval() ? null : childPathElements;
 
-			if (lastLevelSeparatorIndex != -1) {
-				String shorterExpandedValue = expandedValue.substring(0, lastLevelSeparatorIndex);
+			if (shorterPattern == null || shorterWildCardPathElements == null) {
+				String expandedValue = getExpandedValue(evalContext);
+				int lastLevelSeparatorIndex = expandedValue.lastIndexOf(pathSeparatorChar);
+
+				if (lastLevelSeparatorIndex != -1) {
+					String shorterExpandedValue = expandedValue.substring(0, lastLevelSeparatorIndex);
 
+					shorterWildCardPathElements = StringUtils.split(shorterExpandedValue, pathSeparatorChar);
+					shorterPattern              = WildcardPattern.compile(shorterExpandedValue, ioCase);
+
+					if (!getNeedsDynamicEval()) {
+						childPathElements = shorterWildCardPathElements;
+						childPattern      = shorterPattern;
+					}
+				}
+			}
+
+			if (shorterPattern != null) {
 				if (resourceValue.charAt(resourceValue.length() - 1) == pathSeparatorChar) {
 					resourceValue = resourceValue.substring(0, resourceValue.length() - 1);
 				}
 
-				String[] shorterWildCardPathElements = StringUtils.split(shorterExpandedValue, pathSeparatorChar);
-
-				ret = function.apply(resourceValue, shorterExpandedValue, pathSeparatorChar, ioCase, shorterWildCardPathElements);
+				ret = function.apply(resourceValue, shorterPattern, pathSeparatorChar, shorterWildCardPathElements);
 			}
 
 			return ret;
@@ -705,10 +724,11 @@ public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalConte
 				LOG.debug("==> RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", evalContext=" + evalContext + ")");
 			}
 
-			boolean ret = ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), ioCase);
+			WildcardPattern pattern = getWildcardPattern(evalContext, ioCase);
+			boolean         ret     = pattern.isPrefixMatch(resourceValue);
 
 			if (LOG.isDebugEnabled()) {
-				LOG.debug("<== RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + getExpandedValue(evalContext) + ") : result:[" + ret + "]");
+				LOG.debug("<== RecursiveWildcardResourceMatcher.isPrefixMatch(resourceValue=" + resourceValue + ", expandedValue=" + pattern.getPattern() + ") : result:[" + ret + "]");
 			}
 			return ret;
 		}
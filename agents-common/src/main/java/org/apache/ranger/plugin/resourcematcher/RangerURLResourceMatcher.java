@@ -20,7 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -42,6 +41,9 @@ public class RangerURLResourceMatcher extends RangerDefaultResourceMatcher {
     public static final String OPTION_PATH_SEPARATOR       = "pathSeparatorChar";
     public static final char   DEFAULT_PATH_SEPARATOR_CHAR = org.apache.hadoop.fs.Path.SEPARATOR_CHAR;
 
+    private static final Pattern URL_SCHEME_SEPARATOR                    = Pattern.compile(":/{2}");
+    private static final Pattern URL_SCHEME_SEPARATOR_WITH_EXTRA_SLASHES = Pattern.compile(":/{3,}");
+
     boolean policyIsRecursive;
     char    pathSeparatorChar = DEFAULT_PATH_SEPARATOR_CHAR;
 
@@ -142,7 +144,7 @@ ResourceMatcher getMatcher(String policyValue) {
         return ret;
     }
 
-    static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
+    static boolean isRecursiveWildCardMatch(String pathToCheck, WildcardPattern wildcardPattern, char pathSeparatorChar) {
 
         boolean ret = false;
 
@@ -170,7 +172,7 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                     for (String p : pathElements) {
                         sb.append(p);
 
-                        ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+                        ret = wildcardPattern.isMatch(sb);
 
                         if (ret) {
                             break;
@@ -184,12 +186,12 @@ static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath,
                         if (!isEndsWithPathSeparator) {
                             sb.deleteCharAt(sb.length()-1);
                         }
-                        ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+                        ret = wildcardPattern.isMatch(sb);
                     }
 
                     sb = null;
                 } else { // pathToCheck consists of only pathSeparatorChar
-                    ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
+                    ret = wildcardPattern.isMatch(pathToCheck);
                 }
             }
 
@@ -212,11 +214,8 @@ static boolean isPathURLType(String url) {
         boolean ret = false;
 
         if (url != null) {
-            Pattern p1 = Pattern.compile(":/{2}");
-            Matcher m1 = p1.matcher(url);
-
-            Pattern p2 = Pattern.compile(":/{3,}");
-            Matcher m2 = p2.matcher(url);
+            Matcher m1 = URL_SCHEME_SEPARATOR.matcher(url);
+            Matcher m2 = URL_SCHEME_SEPARATOR_WITH_EXTRA_SLASHES.matcher(url);
 
             ret = (m1.find() && !(m2.find()));
         }
@@ -243,12 +242,12 @@ final class CaseSensitiveURLRecursiveWildcardMatcher extends AbstractStringResou
 
     @Override
     boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
+        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getWildcardPattern(evalContext, IOCase.SENSITIVE), levelSeparatorChar);
     }
 
     @Override
     public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-        return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+        return getWildcardPattern(evalContext, IOCase.SENSITIVE).isPrefixMatch(resourceValue);
     }
 
     int getPriority() { return 7 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
@@ -263,12 +262,12 @@ final class CaseInsensitiveURLRecursiveWildcardMatcher extends AbstractStringRes
 
     @Override
     boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
+        return RangerURLResourceMatcher.isRecursiveWildCardMatch(resourceValue, getWildcardPattern(evalContext, IOCase.INSENSITIVE), levelSeparatorChar);
     }
 
     @Override
     public boolean isPrefixMatch(String resourceValue, Map<String, Object> evalContext) {
-        return ResourceMatcher.wildcardPrefixMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+        return getWildcardPattern(evalContext, IOCase.INSENSITIVE).isPrefixMatch(resourceValue);
     }
 
     int getPriority() { return 8 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
@@ -44,6 +44,8 @@ abstract class ResourceMatcher {
     protected final String                    value;
     protected final RangerRequestExprResolver exprResolver;
     protected       StringTokenReplacer       tokenReplacer;
+    private         WildcardPattern           caseSensitivePattern;
+    private         WildcardPattern           caseInsensitivePattern;
 
     static final int DYNAMIC_EVALUATION_PENALTY = 8;
 
@@ -136,6 +138,31 @@ String getExpandedValue(Map<String, Object> evalContext) {
         return ret;
     }
 
+    /*
+     * Compiled once when the value doesn't need expansion; otherwise compiled from the expanded value on each call
+     */
+    final WildcardPattern getWildcardPattern(Map<String, Object> evalContext, IOCase caseSensitivity) {
+        final WildcardPattern ret;
+
+        if (getNeedsDynamicEval()) {
+            ret = WildcardPattern.compile(getExpandedValue(evalContext), caseSensitivity);
+        } else if (caseSensitivity == null || caseSensitivity.isCaseSensitive()) {
+            if (caseSensitivePattern == null) {
+                caseSensitivePattern = WildcardPattern.compile(value, IOCase.SENSITIVE);
+            }
+
+            ret = caseSensitivePattern;
+        } else {
+            if (caseInsensitivePattern == null) {
+                caseInsensitivePattern = WildcardPattern.compile(value, IOCase.INSENSITIVE);
+            }
+
+            ret = caseInsensitivePattern;
+        }
+
+        return ret;
+    }
+
     public static boolean startsWithAnyChar(String value, String startChars) {
         boolean ret = false;
 
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.IOCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Wildcard ('*' and '?') pattern, parsed once so that matching neither re-tokenizes the pattern nor allocates.
+ * Results are identical to FilenameUtils.wildcardMatch() for isMatch() and to ResourceMatcher.wildcardPrefixMatch()
+ * for isPrefixMatch(); case-insensitive comparison is done per character, as String.regionMatches(true, ...) does.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+final class WildcardPattern {
+    private static final char[][] NO_SEGMENTS    = new char[0][];
+    private static final char[]   TOKEN_ANY_CHAR = new char[] { '?' };
+
+    private final String   pattern;
+    private final boolean  isCaseSensitive;
+
+    // pattern split on '*'; used by isMatch() for patterns without '?'
+    private final char[][] segments;
+    private final int      minLength;
+
+    // tokens as produced by ResourceMatcher.splitOnTokens(): null for '*', TOKEN_ANY_CHAR for '?'
+    private final char[][] tokens;
+    private final boolean  hasAnyCharToken;
+
+    private WildcardPattern(String pattern, boolean isCaseSensitive) {
+        this.pattern         = pattern;
+        this.isCaseSensitive = isCaseSensitive;
+
+        if (pattern == null) {
+            this.segments  = NO_SEGMENTS;
+            this.minLength = 0;
+            this.tokens    = NO_SEGMENTS;
+
+            this.hasAnyCharToken = false;
+        } else {
+            List<char[]> segments  = new ArrayList<>();
+            int          minLength = 0;
+            int          start     = 0;
+
+            for (int i = 0; i <= pattern.length(); i++) {
+                if (i == pattern.length() || pattern.charAt(i) == '*') {
+                    char[] segment = pattern.substring(start, i).toCharArray();
+
+                    segments.add(segment);
+
+                    minLength += segment.length;
+                    start      = i + 1;
+                }
+            }
+
+            List<String> wcsTokens = ResourceMatcher.splitOnTokens(pattern);
+            char[][]     tokens    = new char[wcsTokens.size()][];
+            boolean      hasAnyChar = false;
+
+            for (int i = 0; i < tokens.length; i++) {
+                String wcsToken = wcsTokens.get(i);
+
+                if (wcsToken.equals("*")) {
+                    tokens[i] = null;
+                } else if (wcsToken.equals("?")) {
+                    tokens[i]  = TOKEN_ANY_CHAR;
+                    hasAnyChar = true;
+                } else {
+                    tokens[i] = wcsToken.toCharArray();
+                }
+            }
+
+            this.segments  = segments.toArray(new char[segments.size()][]);
+            this.minLength = minLength;
+            this.tokens    = tokens;
+
+            this.hasAnyCharToken = hasAnyChar;
+        }
+    }
+
+    static WildcardPattern compile(String pattern, IOCase caseSensitivity) {
+        return new WildcardPattern(pattern, caseSensitivity == null || caseSensitivity.isCaseSensitive());
+    }
+
+    String getPattern() { return pattern; }
+
+    boolean isCaseSensitive() { return isCaseSensitive; }
+
+    boolean isMatch(CharSequence value) {
+        if (pattern == null || value == null) {
+            return pattern == null && value == null;
+        }
+
+        if (hasAnyCharToken) {
+            // FilenameUtils.wildcardMatch() does not backtrack over '?' following '*' (for example, "*?b" doesn't match "xab");
+            // walk the tokens the same way, to keep the results unchanged
+            return matchTokens(value, false);
+        }
+
+        final int length = value.length();
+
+        if (segments.length == 1) { // no '*'
+            return length == minLength && regionMatches(value, 0, segments[0], segments[0].length);
+        }
+
+        if (length < minLength) {
+            return false;
+        }
+
+        final char[] first = segments[0];
+        final char[] last  = segments[segments.length - 1];
+
+        if (!regionMatches(value, 0, first, first.length) || !regionMatches(value, length - last.length, last, last.length)) {
+            return false;
+        }
+
+        // leftmost match of each middle segment leaves the most room for the rest
+        final int end = length - last.length;
+        int       pos = first.length;
+
+        for (int i = 1; i < segments.length - 1; i++) {
+            char[] segment = segments[i];
+
+            pos = indexOf(value, pos, end, segment, segment.length);
+
+            if (pos == -1) {
+                return false;
+            }
+
+            pos += segment.length;
+        }
+
+        return true;
+    }
+
+    boolean isPrefixMatch(CharSequence value) {
+        if (pattern == null || value == null) {
+            return pattern == null && value == null;
+        }
+
+        return matchTokens(value, true);
+    }
+
+    @Override
+    public String toString() {
+        return "WildcardPattern={pattern=" + pattern + ", isCaseSensitive=" + isCaseSensitive + "}";
+    }
+
+    /*
+     * Same steps as FilenameUtils.wildcardMatch() (isPrefix=false) and ResourceMatcher.wildcardPrefixMatch() (isPrefix=true),
+     * on pre-split tokens: literals are compared in place instead of being truncated with substring(), and the backtrack
+     * stack is allocated only when needed.
+     */
+    private boolean matchTokens(CharSequence value, boolean isPrefix) {
+        final int length    = value.length();
+        boolean   anyChars  = false;
+        int       textIdx   = 0;
+        int       wcsIdx    = 0;
+        int[]     backtrack = null;
+        int       btSize    = 0;
+
+        do {
+            if (btSize > 0) {
+                btSize  -= 2;
+                wcsIdx   = backtrack[btSize];
+                textIdx  = backtrack[btSize + 1];
+                anyChars = true;
+            }
+
+            for (; wcsIdx < tokens.length; ++wcsIdx) {
+                char[] wcsToken = tokens[wcsIdx];
+
+                if (wcsToken == TOKEN_ANY_CHAR) {
+                    ++textIdx;
+
+                    if (textIdx > length) {
+                        break;
+                    }
+
+                    anyChars = false;
+                } else if (wcsToken == null) {
+                    anyChars = true;
+
+                    if (wcsIdx == tokens.length - 1) {
+                        textIdx = length;
+                    }
+                } else {
+                    int tokenLen = isPrefix ? Math.min(wcsToken.length, length - textIdx) : wcsToken.length;
+
+                    if (anyChars) {
+                        textIdx = indexOf(value, textIdx, length, wcsToken, tokenLen);
+
+                        if (textIdx == -1) {
+                            break;
+                        }
+
+                        int repeat = indexOf(value, textIdx + 1, length, wcsToken, tokenLen);
+
+                        if (repeat >= 0) {
+                            if (backtrack == null) {
+                                backtrack = new int[8];
+                            } else if (btSize == backtrack.length) {
+                                int[] newBacktrack = new int[backtrack.length * 2];
+
+                                System.arraycopy(backtrack, 0, newBacktrack, 0, btSize);
+
+                                backtrack = newBacktrack;
+                            }
+
+                            backtrack[btSize++] = wcsIdx;
+                            backtrack[btSize++] = repeat;
+                        }
+                    } else if (!regionMatches(value, textIdx, wcsToken, tokenLen)) {
+                        break;
+                    }
+
+                    textIdx += tokenLen;
+
+                    anyChars = false;
+                }
+            }
+
+            if (isPrefix ? (wcsIdx == tokens.length || textIdx == length) : (wcsIdx == tokens.length && textIdx == length)) {
+                return true;
+            }
+        } while (btSize > 0);
+
+        return isPrefix && anyChars;
+    }
+
+    /*
+     * returns the first index, between fromIdx and endIdx - len, where the first len chars of segment match
+     */
+    private int indexOf(CharSequence value, int fromIdx, int endIdx, char[] segment, int len) {
+        for (int i = fromIdx, last = endIdx - len; i <= last; i++) {
+            if (regionMatches(value, i, segment, len)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean regionMatches(CharSequence value, int offset, char[] segment, int len) {
+        if (offset < 0 || offset + len > value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+            char c1 = value.charAt(offset + i);
+            char c2 = segment[i];
+
+            if (c1 == c2) {
+                continue;
+            }
+
+            if (isCaseSensitive) {
+                return false;
+            }
+
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+
+            if (u1 != u2 && Character.toLowerCase(u1) != Character.toLowerCase(u2)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
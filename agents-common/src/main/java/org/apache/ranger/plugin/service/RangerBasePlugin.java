@@ -68,7 +68,7 @@ public class RangerBasePlugin {
 	private final int                         logInterval    = 30000; // 30 seconds
 	private final DownloadTrigger             accessTrigger  = new DownloadTrigger();
 	private       PolicyRefresher             refresher;
-	private       RangerPolicyEngine          policyEngine;
+	private volatile RangerPolicyEngine       policyEngine;
 	private       RangerAuthContext           currentAuthContext;
 	private       RangerAccessResultProcessor resultProcessor;
 	private       RangerRoles                 roles;
@@ -742,6 +742,26 @@ public RangerResourceACLs getResourceACLs(RangerAccessRequest request, Integer p
 		return ret;
 	}
 
+	/*
+	 * Streams the ACLs to the visitor. Without chained plugins and GDS, ACLs are passed from the policy-engine
+	 * without building a copy for the caller; otherwise the merged ACLs are visited.
+	 */
+	public void visitResourceACLs(RangerAccessRequest request, Integer policyType, RangerResourceACLs.ACLVisitor visitor) {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		if (chainedPlugins.isEmpty() && getGdsPolicyEngine() == null) {
+			if (policyEngine != null) {
+				policyEngine.visitResourceACLs(request, policyType, visitor);
+			}
+		} else {
+			RangerResourceACLs acls = getResourceACLs(request, policyType);
+
+			if (acls != null) {
+				acls.accept(visitor);
+			}
+		}
+	}
+
 	public Set<String> getRolesFromUserAndGroups(String user, Set<String> groups) {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
@@ -31,6 +31,7 @@
 import org.apache.ranger.plugin.policyengine.RangerMutableResource;
 import org.apache.ranger.plugin.policyengine.RangerPluginContext;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerBatchLookupCache;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerUserStoreUtil;
 import org.slf4j.Logger;
@@ -119,7 +120,13 @@ public void preProcess(RangerAccessRequest request) {
 
         Set<String> roles = request.getUserRoles();
         if (pluginContext != null && CollectionUtils.isEmpty(roles)) {
-            roles = pluginContext.getAuthContext().getRolesForUserAndGroups(request.getUser(), request.getUserGroups());
+            RangerBatchLookupCache lookupCache = RangerAccessRequestUtil.getBatchLookupCacheFromContext(request.getContext());
+
+            if (lookupCache != null) {
+                roles = lookupCache.getRolesForUserAndGroups(request.getUser(), request.getUserGroups(), pluginContext.getAuthContext()::getRolesForUserAndGroups);
+            } else {
+                roles = pluginContext.getAuthContext().getRolesForUserAndGroups(request.getUser(), request.getUserGroups());
+            }
 
             if (reqImpl != null && roles != null && !roles.isEmpty()) {
                 reqImpl.setUserRoles(roles);
@@ -20,6 +20,7 @@
 package org.apache.ranger.plugin.store.file;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.geo.GeolocationIntervalIndex;
 import org.apache.ranger.plugin.geo.GeolocationMetadata;
 import org.apache.ranger.plugin.store.GeolocationStore;
 import org.apache.ranger.plugin.geo.RangerGeolocationDatabase;
@@ -174,19 +175,26 @@ RangerGeolocationDatabase build(String dataFileName) {
 
 			database  = new RangerGeolocationDatabase();
 
+			// ranges are added to the index as lines are read; no object is created per range
+			GeolocationIntervalIndex.Builder dataBuilder = new GeolocationIntervalIndex.Builder();
+
 			String line;
 			int lineNumber = 0;
 			isMetalineProcessed = false;
 
 			while(( line = bufferedReader.readLine()) != null) {
 				lineNumber++;
-				if (!processLine(lineNumber, line, database)) {
+				if (!processLine(lineNumber, line, database, dataBuilder)) {
 					LOG.error("RangerGeolocationDatabaseBuilder.build() - Invalid geo-specification - " + lineNumber + ":" + line);
 					database = null;
 					break;
 				}
 			}
 
+			if (database != null) {
+				database.setIndex(dataBuilder.build());
+			}
+
 			bufferedReader.close();
 			bufferedReader = null;
 		}
@@ -210,17 +218,13 @@ RangerGeolocationDatabase build(String dataFileName) {
 		end = System.currentTimeMillis();
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerGeolocationDatabaseBuilder.build() - Time taken for reading file = " + (end - start) + " milliseconds");
-		}
-
-		if (database != null) {
-			database.optimize();
+			LOG.debug("RangerGeolocationDatabaseBuilder.build() - Time taken for reading file = " + (end - start) + " milliseconds" + (database != null ? (", rangeCount=" + database.getIndex().size()) : ""));
 		}
 
 		return database;
 	}
 
-	private boolean processLine(int lineNumber, String line, RangerGeolocationDatabase database) {
+	private boolean processLine(int lineNumber, String line, RangerGeolocationDatabase database, GeolocationIntervalIndex.Builder dataBuilder) {
 
 		boolean ret = true;
 
@@ -239,10 +243,7 @@ private boolean processLine(int lineNumber, String line, RangerGeolocationDataba
 						ret = false;
 					}
 				} else {
-					RangerGeolocationData data = RangerGeolocationData.create(fields, lineNumber, useDotFormat);
-					if (data != null) {
-						database.getData().insert(data);
-					} else {
+					if (!dataBuilder.add(fields, useDotFormat)) {
 						LOG.error("GeolocationFileStore.processLine() - Invalid data specification " + lineNumber + ":" + line);
 					}
 				}
@@ -59,6 +59,7 @@ public class PolicyRefresher extends Thread {
 	private final String                         cacheFileName;
 	private final String                         cacheDir;
 	private final Gson                           gson;
+	private final boolean                        useSegmentedCacheFormat;
 	private final BlockingQueue<DownloadTrigger> policyDownloadQueue = new LinkedBlockingQueue<>();
 	private       Timer                          policyDownloadTimer;
 	private       long                           lastKnownVersion    = -1L;
@@ -101,6 +102,7 @@ public PolicyRefresher(RangerBasePlugin plugIn) {
 		this.gson                          = gson;
 		this.rolesProvider                 = new RangerRolesProvider(getServiceType(), appId, getServiceName(), rangerAdmin,  cacheDir, pluginConfig);
 		this.pollingIntervalMs             = pluginConfig.getLong(propertyPrefix + ".policy.pollIntervalMs", 30 * 1000);
+		this.useSegmentedCacheFormat       = RangerSegmentedCacheFile.isSegmentedFormat(pluginConfig.get(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT_DEFAULT));
 
 		setName("PolicyRefresher(serviceName=" + serviceName + ")-" + getId());
 
@@ -368,9 +370,13 @@ private ServicePolicies loadFromCache() {
     		}
 
     		try {
-	        	reader = new FileReader(cacheFile);
+	        	if (RangerSegmentedCacheFile.isSegmentedCacheFile(cacheFile)) {
+	        		policies = RangerSegmentedCacheFile.readServicePolicies(cacheFile);
+	        	} else {
+	        		reader = new FileReader(cacheFile);
 
-		        policies = gson.fromJson(reader, ServicePolicies.class);
+	        		policies = gson.fromJson(reader, ServicePolicies.class);
+	        	}
 
 		        if(policies != null) {
 		        	if(!StringUtils.equals(serviceName, policies.getServiceName())) {
@@ -447,9 +453,16 @@ public void saveToCache(ServicePolicies policies) {
 				Writer writer = null;
 	
 				try {
-					writer = new FileWriter(cacheFile);
-	
-			        gson.toJson(policies, writer);
+					// deltas are saved in JSON, along with the backup files
+					if (useSegmentedCacheFormat && CollectionUtils.isEmpty(policies.getPolicyDeltas())) {
+						RangerSegmentedCacheFile.writeServicePolicies(cacheFile, policies);
+
+						deleteOldestVersionCacheFileInCacheDirectory(cacheFile.getParentFile());
+					} else {
+						writer = new FileWriter(cacheFile);
+
+						gson.toJson(policies, writer);
+					}
 		        } catch (Exception excp) {
 		        	LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        } finally {
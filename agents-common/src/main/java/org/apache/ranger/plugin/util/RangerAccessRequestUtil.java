@@ -50,9 +50,11 @@ public class RangerAccessRequestUtil {
 	public static final String KEY_CONTEXT_IS_ANY_ACCESS = "ISANYACCESS";
 	public static final String KEY_CONTEXT_REQUEST       = "_REQUEST";
 	public static final String KEY_CONTEXT_GDS_RESULT    = "_GDS_RESULT";
+	public static final String KEY_CONTEXT_HAS_SCHEDULED_TAGS = "_HAS_SCHEDULED_TAGS";
 	public static final String KEY_CONTEXT_IS_REQUEST_PREPROCESSED = "ISREQUESTPREPROCESSED";
 	public static final String KEY_CONTEXT_RESOURCE_ZONE_NAMES     = "RESOURCE_ZONE_NAMES";
 	public static final String KEY_CONTEXT_ACCESS_TYPE_RESULTS = "_ACCESS_TYPE_RESULTS";
+	public static final String KEY_CONTEXT_BATCH_LOOKUP_CACHE  = "_BATCH_LOOKUP_CACHE";
 
 	public static void setRequestTagsInContext(Map<String, Object> context, Set<RangerTagForEval> tags) {
 		if(CollectionUtils.isEmpty(tags)) {
@@ -139,9 +141,11 @@ public static Map<String, Object> copyContext(Map<String, Object> context) {
 			ret.remove(KEY_CONTEXT_RESOURCE_ZONE_NAMES);
 			ret.remove(KEY_CONTEXT_REQUEST);
 			ret.remove(KEY_CONTEXT_GDS_RESULT);
+			ret.remove(KEY_CONTEXT_HAS_SCHEDULED_TAGS);
 			ret.remove(KEY_CONTEXT_ACCESSTYPES);
 			ret.remove(KEY_CONTEXT_IS_ANY_ACCESS);
 			ret.remove(KEY_CONTEXT_IS_REQUEST_PREPROCESSED);
+			ret.remove(KEY_CONTEXT_BATCH_LOOKUP_CACHE);
 			// don't remove REQUESTED_RESOURCES
 		}
 
@@ -223,6 +227,37 @@ public static boolean getIsRequestPreprocessed(Map<String, Object> context) {
 		return value != null && value;
 	}
 
+	/*
+	 * set when tags of the resources matched for the request have validity schedules, including tags that were not
+	 * applicable at the access time of the request
+	 */
+	public static void setHasScheduledTagsInContext(Map<String, Object> context, boolean value) {
+		if (value) {
+			context.put(KEY_CONTEXT_HAS_SCHEDULED_TAGS, Boolean.TRUE);
+		} else {
+			context.remove(KEY_CONTEXT_HAS_SCHEDULED_TAGS);
+		}
+	}
+
+	public static boolean getHasScheduledTagsInContext(Map<String, Object> context) {
+		Boolean value = context != null ? (Boolean)context.get(KEY_CONTEXT_HAS_SCHEDULED_TAGS) : null;
+		return value != null && value;
+	}
+
+	public static void setBatchLookupCacheInContext(Map<String, Object> context, RangerBatchLookupCache lookupCache) {
+		if (lookupCache == null) {
+			context.remove(KEY_CONTEXT_BATCH_LOOKUP_CACHE);
+		} else {
+			context.put(KEY_CONTEXT_BATCH_LOOKUP_CACHE, lookupCache);
+		}
+	}
+
+	public static RangerBatchLookupCache getBatchLookupCacheFromContext(Map<String, Object> context) {
+		Object val = context != null ? context.get(KEY_CONTEXT_BATCH_LOOKUP_CACHE) : null;
+
+		return val instanceof RangerBatchLookupCache ? (RangerBatchLookupCache) val : null;
+	}
+
 	public static void setAllRequestedAccessTypes(Map<String, Object> context, Set<String> accessTypes) {
 		context.put(KEY_CONTEXT_ACCESSTYPES, accessTypes);
 	}
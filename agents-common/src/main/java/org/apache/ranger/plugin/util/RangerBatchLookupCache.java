@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
+import org.apache.ranger.plugin.policyresourcematcher.RangerResourceEvaluator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/*
+ * Lookups shared by the requests of one RangerPolicyEngine.evaluatePolicies(Collection<RangerAccessRequest>) call.
+ * Requests in a batch often differ only in the leaf resource - for example, Hive column checks for a table - so the
+ * trie lookups for the database and table, and the roles of the user, are the same for all of them.
+ *
+ * Trie lookups are keyed by the trie instance, the resource value and the matching scope; each lookup depends only
+ * on these, so results are the same as without the cache. An instance is used by a single thread, for the duration
+ * of one batch call, and is not thread-safe.
+ */
+public class RangerBatchLookupCache {
+    private final Map<TrieLookupKey, Set<?>>     trieLookups = new HashMap<>();
+    private final Map<PrincipalKey, Set<String>> userRoles   = new HashMap<>();
+    private       int                            lookupCount = 0;
+    private       int                            hitCount    = 0;
+
+    @SuppressWarnings("unchecked")
+    public <T extends RangerResourceEvaluator> Set<T> getEvaluatorsForResource(RangerResourceTrie<T> trie, Object resourceValue, ResourceElementMatchingScope scope) {
+        TrieLookupKey key = new TrieLookupKey(trie, resourceValue, scope);
+        Set<T>        ret = (Set<T>) trieLookups.get(key);
+
+        lookupCount++;
+
+        if (ret == null && !trieLookups.containsKey(key)) {
+            ret = trie.getEvaluatorsForResource(resourceValue, scope);
+
+            trieLookups.put(key, ret);
+        } else {
+            hitCount++;
+        }
+
+        return ret;
+    }
+
+    /*
+     * returns a copy of the roles, so that callers can't change the set shared with other requests
+     */
+    public Set<String> getRolesForUserAndGroups(String user, Set<String> groups, BiFunction<String, Set<String>, Set<String>> rolesLoader) {
+        PrincipalKey key = new PrincipalKey(user, groups);
+        Set<String>  ret = userRoles.get(key);
+
+        if (ret == null) {
+            ret = rolesLoader.apply(user, groups);
+
+            userRoles.put(key, ret != null ? new HashSet<>(ret) : Collections.emptySet());
+        } else {
+            ret = ret.isEmpty() ? null : new HashSet<>(ret);
+        }
+
+        return ret;
+    }
+
+    public int getLookupCount() { return lookupCount; }
+
+    public int getHitCount() { return hitCount; }
+
+    @Override
+    public String toString() {
+        return "RangerBatchLookupCache={trieLookups=" + trieLookups.size() + ", lookupCount=" + lookupCount + ", hitCount=" + hitCount + ", userRoles=" + userRoles.size() + "}";
+    }
+
+    private static final class TrieLookupKey {
+        private final RangerResourceTrie<?>        trie;
+        private final Object                       resourceValue;
+        private final ResourceElementMatchingScope scope;
+        private final int                          hashCode;
+
+        TrieLookupKey(RangerResourceTrie<?> trie, Object resourceValue, ResourceElementMatchingScope scope) {
+            this.trie          = trie;
+            this.resourceValue = resourceValue;
+            this.scope         = scope;
+            this.hashCode      = Objects.hash(System.identityHashCode(trie), resourceValue, scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof TrieLookupKey)) {
+                return false;
+            }
+
+            TrieLookupKey other = (TrieLookupKey) obj;
+
+            return trie == other.trie && scope == other.scope && Objects.equals(resourceValue, other.resourceValue);
+        }
+    }
+
+    private static final class PrincipalKey {
+        private final String      user;
+        private final Set<String> groups;
+
+        PrincipalKey(String user, Set<String> groups) {
+            this.user   = user;
+            this.groups = groups != null ? new HashSet<>(groups) : Collections.emptySet();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, groups);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof PrincipalKey)) {
+                return false;
+            }
+
+            PrincipalKey other = (PrincipalKey) obj;
+
+            return Objects.equals(user, other.user) && groups.equals(other.groups);
+        }
+    }
+}
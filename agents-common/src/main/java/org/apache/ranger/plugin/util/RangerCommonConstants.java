@@ -38,6 +38,8 @@ public class RangerCommonConstants {
 
 	public static final String  RANGER_ADMIN_SUPPORTS_TAGS_DEDUP            = ".supports.tags.dedup";
 
+	public static final String PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT     = ".policy.cache.format";
+
 	public static final boolean RANGER_ADMIN_SUFFIX_POLICY_DELTA_DEFAULT             = false;
 	public static final boolean PLUGIN_CONFIG_SUFFIX_POLICY_DELTA_DEFAULT            = false;
 
@@ -52,6 +54,8 @@ public class RangerCommonConstants {
 
 	public static final boolean RANGER_ADMIN_SUPPORTS_TAGS_DEDUP_DEFAULT             = true;
 
+	public static final String  PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT_DEFAULT     = RangerSegmentedCacheFile.FORMAT_JSON;
+
 	public static final boolean POLICY_REST_CLIENT_SESSION_COOKIE_ENABLED            = true;
 
 	public static final String SCRIPT_OPTION_ENABLE_JSON_CTX        = "enableJsonCtx";
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ * Scripts compiled by a ScriptEngine, keyed by script text, for reuse across requests. Each request evaluates the
+ * shared CompiledScript with its own Bindings, so no state is carried from one evaluation to another.
+ *
+ * Thread-safe: lookups are lock-free; concurrent misses for the same script may compile it more than once, but only
+ * one result is retained. Once maxSize scripts are cached, further scripts are compiled and evaluated without being
+ * cached - policies have a bounded set of scripts, so this is reached only with unusual (e.g. generated) scripts.
+ * Engines that don't implement Compilable are called with ScriptEngine.eval(), as before.
+ */
+public class RangerCompiledScriptCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerCompiledScriptCache.class);
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private final ScriptEngine                scriptEngine;
+    private final Compilable                  compiler;
+    private final int                         maxSize;
+    private final Map<String, CompiledScript> compiledScripts = new ConcurrentHashMap<>();
+    private final AtomicLong                  hitCount        = new AtomicLong();
+    private final AtomicLong                  missCount       = new AtomicLong();
+    private final AtomicLong                  uncachedCount   = new AtomicLong();
+    private final AtomicLong                  compileErrCount = new AtomicLong();
+
+    public RangerCompiledScriptCache(ScriptEngine scriptEngine) {
+        this(scriptEngine, DEFAULT_MAX_SIZE);
+    }
+
+    public RangerCompiledScriptCache(ScriptEngine scriptEngine, int maxSize) {
+        this.scriptEngine = scriptEngine;
+        this.compiler     = (maxSize > 0 && scriptEngine instanceof Compilable) ? (Compilable) scriptEngine : null;
+        this.maxSize      = maxSize;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerCompiledScriptCache(scriptEngine={}, maxSize={}): isCompilable={}", scriptEngine, maxSize, compiler != null);
+        }
+    }
+
+    public ScriptEngine getScriptEngine() { return scriptEngine; }
+
+    public boolean isCompilable() { return compiler != null; }
+
+    /*
+     * Evaluates the script with the given bindings. The script text is the cache key; on a miss, scriptBuilder is
+     * called to produce the text to compile (for example, with prerequisite statements prepended), so that building
+     * it is done only once per script.
+     */
+    public Object eval(String script, Function<String, String> scriptBuilder, Bindings bindings) throws ScriptException {
+        if (compiler == null) {
+            return scriptEngine.eval(scriptBuilder != null ? scriptBuilder.apply(script) : script, bindings);
+        }
+
+        CompiledScript compiledScript = compiledScripts.get(script);
+
+        if (compiledScript != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+
+            try {
+                compiledScript = compiler.compile(scriptBuilder != null ? scriptBuilder.apply(script) : script);
+            } catch (ScriptException excp) {
+                compileErrCount.incrementAndGet();
+
+                throw excp;
+            }
+
+            if (compiledScripts.size() < maxSize) {
+                CompiledScript existing = compiledScripts.putIfAbsent(script, compiledScript);
+
+                if (existing != null) {
+                    compiledScript = existing;
+                }
+            } else {
+                uncachedCount.incrementAndGet();
+            }
+        }
+
+        return compiledScript.eval(bindings);
+    }
+
+    public Object eval(String script, Bindings bindings) throws ScriptException {
+        return eval(script, null, bindings);
+    }
+
+    public int getSize() { return compiledScripts.size(); }
+
+    public int getMaxSize() { return maxSize; }
+
+    public long getHitCount() { return hitCount.get(); }
+
+    public long getMissCount() { return missCount.get(); }
+
+    public long getUncachedCount() { return uncachedCount.get(); }
+
+    public long getCompileErrorCount() { return compileErrCount.get(); }
+
+    public void clear() {
+        compiledScripts.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "RangerCompiledScriptCache={isCompilable=" + isCompilable() + ", size=" + compiledScripts.size() + ", maxSize=" + maxSize +
+               ", hitCount=" + hitCount.get() + ", missCount=" + missCount.get() + ", uncachedCount=" + uncachedCount.get() +
+               ", compileErrorCount=" + compileErrCount.get() + "}";
+    }
+}
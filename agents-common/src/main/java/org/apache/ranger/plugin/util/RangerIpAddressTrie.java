@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+/*
+ * Set of IPv4/IPv6 address prefixes, held in a path-compressed binary radix trie; contains() returns true if the
+ * address is in any of the prefixes, in time proportional to the number of branching nodes on its path - independent
+ * of the number of prefixes.
+ *
+ * Addresses are 128-bit keys, held in two longs. IPv4 addresses are mapped to ::ffff:a.b.c.d, so an IPv4 prefix of
+ * length n is stored as an IPv6 prefix of length 96 + n. IPv4 and IPv6 prefixes are kept in separate tries: an IPv4
+ * address matches only IPv4 prefixes, and an IPv6 address matches IPv6 prefixes and - if it is IPv4-mapped - IPv4
+ * prefixes.
+ *
+ * Addresses are parsed by RangerIpAddressUtil, without name resolution.
+ *
+ * Prefixes are added during initialization; after that, the trie is only read and can be shared between threads.
+ * Lookup of an IPv4 address does not allocate; IPv6 addresses are parsed into a per-thread buffer.
+ */
+public class RangerIpAddressTrie {
+    private static final int                 IPV4_MAPPED_PREFIX_LENGTH = 96;
+    private static final ThreadLocal<long[]> KEY_BUFFER                = ThreadLocal.withInitial(() -> new long[2]);
+
+    private Node ipv4Root    = null;
+    private Node ipv6Root    = null;
+    private int  prefixCount = 0;
+
+    /*
+     * adds an address ("10.1.2.3", "2001:db8::1") or a CIDR prefix ("10.0.0.0/8", "2001:db8::/32"); bits past the
+     * prefix length are ignored. Returns false if the value is not a valid address or prefix.
+     */
+    public boolean add(String cidr) {
+        boolean ret = false;
+
+        if (cidr != null) {
+            int    sepPos  = cidr.indexOf('/');
+            String address = sepPos == -1 ? cidr : cidr.substring(0, sepPos);
+            long   ipv4    = RangerIpAddressUtil.parseIPv4(address, 0, address.length());
+
+            if (ipv4 != -1) {
+                int length = sepPos == -1 ? 32 : parsePrefixLength(cidr, sepPos + 1, 32);
+
+                if (length != -1) {
+                    addIPv4(ipv4, length);
+
+                    ret = true;
+                }
+            } else {
+                long[] key = new long[2];
+
+                if (RangerIpAddressUtil.parseIPv6(address, key)) {
+                    int length = sepPos == -1 ? 128 : parsePrefixLength(cidr, sepPos + 1, 128);
+
+                    if (length != -1) {
+                        add(key[0], key[1], length);
+
+                        ret = true;
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    public void addIPv4(long ipv4, int length) {
+        if (length < 0 || length > 32) {
+            throw new IllegalArgumentException("invalid prefix length " + length);
+        }
+
+        ipv4Root = insert(ipv4Root, 0L, (RangerIpAddressUtil.IPV4_MAPPED_PREFIX | ipv4) & maskLow(IPV4_MAPPED_PREFIX_LENGTH + length), IPV4_MAPPED_PREFIX_LENGTH + length);
+
+        prefixCount++;
+    }
+
+    public void add(long high, long low, int length) {
+        if (length < 0 || length > 128) {
+            throw new IllegalArgumentException("invalid prefix length " + length);
+        }
+
+        ipv6Root = insert(ipv6Root, high & maskHigh(length), low & maskLow(length), length);
+
+        prefixCount++;
+    }
+
+    public boolean contains(String address) {
+        boolean ret = false;
+
+        if (address != null) {
+            long ipv4 = RangerIpAddressUtil.parseIPv4(address, 0, address.length());
+
+            if (ipv4 != -1) {
+                ret = contains(ipv4Root, 0L, RangerIpAddressUtil.IPV4_MAPPED_PREFIX | ipv4);
+            } else {
+                long[] key = KEY_BUFFER.get();
+
+                if (RangerIpAddressUtil.parseIPv6(address, key)) {
+                    ret = contains(key[0], key[1]);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * returns true if the IPv6 address is in any of the prefixes
+     */
+    public boolean contains(long high, long low) {
+        return contains(ipv6Root, high, low) || (RangerIpAddressUtil.isIPv4Mapped(high, low) && contains(ipv4Root, high, low));
+    }
+
+    public boolean isEmpty() {
+        return ipv4Root == null && ipv6Root == null;
+    }
+
+    public int getPrefixCount() {
+        return prefixCount;
+    }
+
+    private static boolean contains(Node root, long high, long low) {
+        for (Node node = root; node != null; ) {
+            if (!isInPrefix(high, low, node.high, node.low, node.length)) {
+                break;
+            }
+
+            if (node.isPrefix) {
+                return true;
+            }
+
+            node = bit(high, low, node.length) == 0 ? node.zero : node.one;
+        }
+
+        return false;
+    }
+
+    private static int parsePrefixLength(String cidr, int start, int maxLength) {
+        int ret = -1;
+
+        if (start < cidr.length() && cidr.length() - start <= 3) {
+            ret = 0;
+
+            for (int i = start; i < cidr.length(); i++) {
+                char ch = cidr.charAt(i);
+
+                if (ch < '0' || ch > '9') {
+                    return -1;
+                }
+
+                ret = ret * 10 + (ch - '0');
+            }
+
+            if (ret > maxLength) {
+                ret = -1;
+            }
+        }
+
+        return ret;
+    }
+
+    private static Node insert(Node node, long high, long low, int length) {
+        if (node == null) {
+            return new Node(high, low, length, true);
+        }
+
+        int common = Math.min(commonPrefixLength(high, low, node.high, node.low), Math.min(length, node.length));
+
+        if (common == node.length) {
+            if (node.isPrefix) { // already covered by this shorter prefix
+                return node;
+            }
+
+            if (length == node.length) { // replaces the branch: all addresses below are now covered
+                return new Node(high, low, length, true);
+            }
+
+            if (bit(high, low, node.length) == 0) {
+                node.zero = insert(node.zero, high, low, length);
+            } else {
+                node.one = insert(node.one, high, low, length);
+            }
+
+            return node;
+        }
+
+        if (common == length) { // new prefix covers node
+            return new Node(high, low, length, true);
+        }
+
+        Node branch = new Node(high & maskHigh(common), low & maskLow(common), common, false);
+        Node leaf   = new Node(high, low, length, true);
+
+        if (bit(high, low, common) == 0) {
+            branch.zero = leaf;
+            branch.one  = node;
+        } else {
+            branch.zero = node;
+            branch.one  = leaf;
+        }
+
+        return branch;
+    }
+
+    private static boolean isInPrefix(long high, long low, long prefixHigh, long prefixLow, int length) {
+        return ((high ^ prefixHigh) & maskHigh(length)) == 0 && ((low ^ prefixLow) & maskLow(length)) == 0;
+    }
+
+    private static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        long diff = high1 ^ high2;
+
+        return diff != 0 ? Long.numberOfLeadingZeros(diff) : 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    private static int bit(long high, long low, int pos) {
+        return (int) (pos < 64 ? (high >>> (63 - pos)) & 1 : (low >>> (127 - pos)) & 1);
+    }
+
+    private static long maskHigh(int length) {
+        return length == 0 ? 0L : length >= 64 ? -1L : -1L << (64 - length);
+    }
+
+    private static long maskLow(int length) {
+        return length <= 64 ? 0L : -1L << (128 - length);
+    }
+
+    private static final class Node {
+        final long    high;
+        final long    low;
+        final int     length;
+        final boolean isPrefix;
+        Node          zero;
+        Node          one;
+
+        Node(long high, long low, int length, boolean isPrefix) {
+            this.high     = high;
+            this.low      = low;
+            this.length   = length;
+            this.isPrefix = isPrefix;
+        }
+    }
+}
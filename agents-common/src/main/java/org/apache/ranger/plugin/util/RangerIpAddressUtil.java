@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+/*
+ * Parses IP addresses into 128-bit keys, held in two longs; IPv4 addresses are mapped to ::ffff:a.b.c.d.
+ *
+ * Addresses are parsed without name resolution. IPv4 addresses must be in dotted-decimal notation with 4 parts and
+ * no leading zeros; IPv6 addresses can use "::" and an embedded IPv4 address, but not a zone id.
+ */
+public final class RangerIpAddressUtil {
+    public static final long IPV4_MAPPED_PREFIX = 0x0000FFFF00000000L;
+
+    private static final ThreadLocal<long[]> KEY_BUFFER = ThreadLocal.withInitial(() -> new long[2]);
+
+    private RangerIpAddressUtil() { }
+
+    /*
+     * sets key[0] and key[1] to the high and low 64 bits of the address, IPv4 addresses being IPv4-mapped; returns
+     * false if address is not an IPv4 or IPv6 address
+     */
+    public static boolean toKey(String address, long[] key) {
+        boolean ret = false;
+
+        if (address != null) {
+            long ipv4 = parseIPv4(address, 0, address.length());
+
+            if (ipv4 != -1) {
+                key[0] = 0L;
+                key[1] = IPV4_MAPPED_PREFIX | ipv4;
+                ret    = true;
+            } else {
+                ret = parseIPv6(address, key);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * returns true if address is an IPv4 or IPv6 address, in the notation accepted by toKey()
+     */
+    public static boolean isAddress(String address) {
+        return toKey(address, KEY_BUFFER.get());
+    }
+
+    public static boolean isIPv4Mapped(long high, long low) {
+        return high == 0L && (low & 0xFFFFFFFF00000000L) == IPV4_MAPPED_PREFIX;
+    }
+
+    /*
+     * returns the address as unsigned int, or -1 if chars [start, end) of str are not an IPv4 address in dotted-decimal
+     * notation
+     */
+    public static long parseIPv4(CharSequence str, int start, int end) {
+        long value    = 0;
+        int  segment  = -1;
+        int  dotCount = 0;
+
+        for (int i = start; i < end; i++) {
+            char ch = str.charAt(i);
+
+            if (ch >= '0' && ch <= '9') {
+                if (segment == 0) { // leading zero
+                    return -1;
+                }
+
+                segment = (segment == -1 ? 0 : segment * 10) + (ch - '0');
+
+                if (segment > 255) {
+                    return -1;
+                }
+            } else if (ch == '.' && segment != -1 && dotCount < 3) {
+                value   = (value << 8) | segment;
+                segment = -1;
+                dotCount++;
+            } else {
+                return -1;
+            }
+        }
+
+        return (dotCount == 3 && segment != -1) ? ((value << 8) | segment) : -1;
+    }
+
+    /*
+     * sets key[0] and key[1] to the high and low 64 bits of the address; returns false if address is not an IPv6
+     * address
+     */
+    public static boolean parseIPv6(String address, long[] key) {
+        final int len = address.length();
+
+        long    headHigh  = 0, headLow = 0; // groups before "::"
+        long    tailHigh  = 0, tailLow = 0; // groups after "::"
+        int     headCount = 0;
+        int     tailCount = 0;
+        boolean hasGap    = false;
+        int     i         = 0;
+
+        if (len < 2) {
+            return false;
+        }
+
+        if (address.charAt(0) == ':') {
+            if (address.charAt(1) != ':') {
+                return false;
+            }
+
+            hasGap = true;
+            i      = 2;
+        }
+
+        while (i < len) {
+            int start = i;
+            int group = 0;
+
+            for (; i < len; i++) {
+                int digit = hexDigit(address.charAt(i));
+
+                if (digit == -1) {
+                    break;
+                }
+
+                group = (group << 4) | digit;
+            }
+
+            final int  groupCount;
+            final long groups;
+
+            if (i < len && address.charAt(i) == '.') { // embedded IPv4 address, as the last 2 groups
+                long ipv4 = parseIPv4(address, start, len);
+
+                if (ipv4 == -1) {
+                    return false;
+                }
+
+                groups     = ipv4;
+                groupCount = 2;
+                i          = len;
+            } else if (i == start || i - start > 4) {
+                return false;
+            } else {
+                groups     = group;
+                groupCount = 1;
+            }
+
+            if (headCount + tailCount + groupCount > (hasGap ? 7 : 8)) {
+                return false;
+            }
+
+            int shift = 16 * groupCount;
+
+            if (hasGap) {
+                tailHigh   = (tailHigh << shift) | (tailLow >>> (64 - shift));
+                tailLow    = (tailLow << shift) | groups;
+                tailCount += groupCount;
+            } else {
+                headHigh   = (headHigh << shift) | (headLow >>> (64 - shift));
+                headLow    = (headLow << shift) | groups;
+                headCount += groupCount;
+            }
+
+            if (i == len) {
+                break;
+            }
+
+            if (address.charAt(i) != ':' || ++i == len) {
+                return false;
+            }
+
+            if (address.charAt(i) == ':') {
+                if (hasGap) {
+                    return false;
+                }
+
+                hasGap = true;
+
+                i++;
+            }
+        }
+
+        if (hasGap) {
+            if (headCount + tailCount > 7) { // "::" must stand for at least one group
+                return false;
+            }
+
+            int shift = 16 * (8 - headCount); // 16 to 128
+
+            key[0] = (shift >= 128 ? 0L : shift >= 64 ? headLow << (shift - 64) : (headHigh << shift) | (headLow >>> (64 - shift))) | tailHigh;
+            key[1] = (shift >= 64 ? 0L : headLow << shift) | tailLow;
+        } else if (headCount == 8) {
+            key[0] = headHigh;
+            key[1] = headLow;
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static int hexDigit(char ch) {
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0';
+        } else if (ch >= 'a' && ch <= 'f') {
+            return ch - 'a' + 10;
+        } else if (ch >= 'A' && ch <= 'F') {
+            return ch - 'A' + 10;
+        } else {
+            return -1;
+        }
+    }
+}
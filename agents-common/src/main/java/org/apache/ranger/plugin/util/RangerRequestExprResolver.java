@@ -39,9 +39,10 @@ public class RangerRequestExprResolver {
     private static final Pattern PATTERN            = Pattern.compile("\\$\\{\\{(?<" + REGEX_GROUP_EXPR + ">.*?)\\}\\}");
     public  static final String  EXPRESSION_START   = "${{";
 
-    private final String  str;
-    private final String  serviceType;
-    private final boolean hasTokens;
+    private final    String                    str;
+    private final    String                    serviceType;
+    private final    boolean                   hasTokens;
+    private volatile RangerCompiledScriptCache compiledScripts;
 
 
     public RangerRequestExprResolver(String str, String serviceType) {
@@ -99,8 +100,7 @@ public String resolveExpressions(RangerAccessRequest request) {
         String ret = str;
 
         if (hasTokens) {
-            ScriptEngine                 scriptEngine    = ScriptEngineUtil.createScriptEngine(serviceType);
-            RangerRequestScriptEvaluator scriptEvaluator = new RangerRequestScriptEvaluator(request, scriptEngine, RangerRequestScriptEvaluator.needsJsonCtxEnabled(str));
+            RangerRequestScriptEvaluator scriptEvaluator = new RangerRequestScriptEvaluator(request, getCompiledScripts(), RangerRequestScriptEvaluator.needsJsonCtxEnabled(str));
             StringBuffer                 sb              = new StringBuffer();
             Matcher                      matcher         = PATTERN.matcher(str);
 
@@ -124,6 +124,32 @@ public String resolveExpressions(RangerAccessRequest request) {
         return ret;
     }
 
+    /*
+     * the script engine is created on first use and then shared, like in RangerScriptConditionEvaluator: each evaluation
+     * uses its own bindings, and expressions are compiled once for all requests
+     */
+    private RangerCompiledScriptCache getCompiledScripts() {
+        RangerCompiledScriptCache ret = compiledScripts;
+
+        if (ret == null) {
+            synchronized (this) {
+                ret = compiledScripts;
+
+                if (ret == null) {
+                    ScriptEngine scriptEngine = ScriptEngineUtil.createScriptEngine(serviceType);
+
+                    if (scriptEngine != null) {
+                        ret = new RangerCompiledScriptCache(scriptEngine);
+
+                        compiledScripts = ret;
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
     public static boolean hasExpressions(String str) {
         boolean ret = false;
 
@@ -50,6 +50,7 @@ public class RangerRolesProvider {
 	private final String			cacheFileNamePrefix;
 	private final String            cacheDir;
 	private final Gson              gson;
+	private final boolean           useSegmentedCacheFormat;
 	private final boolean           disableCacheIfServiceNotFound;
 
 	private long	lastActivationTimeInMillis;
@@ -89,6 +90,7 @@ public RangerRolesProvider(String serviceType, String appId, String serviceName,
 
 		String propertyPrefix = config.getPropertyPrefix();
 		disableCacheIfServiceNotFound = config.getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+		useSegmentedCacheFormat       = RangerSegmentedCacheFile.isSegmentedFormat(config.get(propertyPrefix + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT, RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_CACHE_FORMAT_DEFAULT));
 
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerRolesProvider(serviceName=" + serviceName + ").RangerRolesProvider()");
@@ -230,9 +232,13 @@ private RangerRoles loadUserGroupRolesFromCache() {
 			}
 
 			try {
-				reader = new FileReader(cacheFile);
+				if (RangerSegmentedCacheFile.isSegmentedCacheFile(cacheFile)) {
+					roles = RangerSegmentedCacheFile.readRoles(cacheFile);
+				} else {
+					reader = new FileReader(cacheFile);
 
-				roles = gson.fromJson(reader, RangerRoles.class);
+					roles = gson.fromJson(reader, RangerRoles.class);
+				}
 
 				if (roles != null) {
 					if (!StringUtils.equals(serviceName, roles.getServiceName())) {
@@ -305,9 +311,13 @@ public void saveToCache(RangerRoles roles) {
 				Writer writer = null;
 
 				try {
-					writer = new FileWriter(cacheFile);
+					if (useSegmentedCacheFormat) {
+						RangerSegmentedCacheFile.writeRoles(cacheFile, roles);
+					} else {
+						writer = new FileWriter(cacheFile);
 
-			        gson.toJson(roles, writer);
+						gson.toJson(roles, writer);
+					}
 		        } catch (Exception excp) {
 					LOG.error("failed to save roles to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        } finally {
@@ -22,9 +22,14 @@
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +43,12 @@ public class RangerRolesUtil {
     private final Map<String, Set<String>> roleToUserMapping = new HashMap<>();
     private final Map<String, Set<String>> roleToGroupMapping = new HashMap<>();
 
+    // role closures of users and groups, as sorted role ids; id of a role is its index in roleNames
+    private final String[]                 roleNames;
+    private final Map<String, int[]>       userRoleIds;
+    private final Map<String, int[]>       groupRoleIds;
+    private final int[]                    publicGroupRoleIds;
+
     private RangerRoles                    roles            = null;
     public  enum  ROLES_FOR {USER, GROUP, ROLE}
 
@@ -47,8 +58,14 @@ public RangerRolesUtil(RangerRoles roles) {
             roleVersion = roles.getRoleVersion() != null ? roles.getRoleVersion() : -1;
 
             if (CollectionUtils.isNotEmpty(roles.getRangerRoles())) {
+                Map<String, RangerRole> rolesByName = new HashMap<>();
+
+                for (RangerRole role : roles.getRangerRoles()) {
+                    rolesByName.putIfAbsent(role.getName(), role);
+                }
+
                 for (RangerRole role : roles.getRangerRoles()) {
-                    Set<RangerRole> containedRoles = getAllContainedRoles(roles.getRangerRoles(), role);
+                    Set<RangerRole> containedRoles = getAllContainedRoles(rolesByName, role);
 
                     buildMap(userRoleMapping, role, containedRoles, ROLES_FOR.USER);
                     buildMap(groupRoleMapping, role, containedRoles, ROLES_FOR.GROUP);
@@ -73,6 +90,26 @@ public RangerRolesUtil(RangerRoles roles) {
         } else {
             roleVersion = -1L;
         }
+
+        Map<String, Integer> roleIds = new HashMap<>();
+
+        for (Set<String> roleNames : userRoleMapping.values()) {
+            addRoleIds(roleNames, roleIds);
+        }
+
+        for (Set<String> roleNames : groupRoleMapping.values()) {
+            addRoleIds(roleNames, roleIds);
+        }
+
+        this.roleNames = new String[roleIds.size()];
+
+        for (Map.Entry<String, Integer> entry : roleIds.entrySet()) {
+            this.roleNames[entry.getValue()] = entry.getKey();
+        }
+
+        this.userRoleIds        = toRoleIds(userRoleMapping, roleIds);
+        this.groupRoleIds       = toRoleIds(groupRoleMapping, roleIds);
+        this.publicGroupRoleIds = groupRoleIds.get(RangerPolicyEngine.GROUP_PUBLIC);
     }
 
     public long getRoleVersion() { return roleVersion; }
@@ -101,24 +138,56 @@ public Map<String, Set<String>> getRoleToGroupMapping() {
         return this.roleToGroupMapping;
     }
 
-    private Set<RangerRole> getAllContainedRoles(Set<RangerRole> roles, RangerRole role) {
-        Set<RangerRole> allRoles = new HashSet<>();
+    /*
+     * Returns roles of the user, of the groups and of the public group, including roles inherited through role
+     * membership. The union is done in a bitmap of role ids, so that a user in hundreds of groups doesn't result in
+     * hundreds of set-unions of role names.
+     */
+    public Set<String> getRolesForUserAndGroups(String user, Set<String> groups) {
+        BitSet roleIds = new BitSet(roleNames.length);
+
+        if (StringUtils.isNotEmpty(user)) {
+            orRoleIds(roleIds, userRoleIds.get(user));
+        }
+
+        if (!groupRoleIds.isEmpty()) {
+            if (groups != null) {
+                for (String group : groups) {
+                    orRoleIds(roleIds, groupRoleIds.get(group));
+                }
+            }
+
+            orRoleIds(roleIds, publicGroupRoleIds);
+        }
+
+        Set<String> ret = new HashSet<>();
+
+        for (int roleId = roleIds.nextSetBit(0); roleId >= 0; roleId = roleIds.nextSetBit(roleId + 1)) {
+            ret.add(roleNames[roleId]);
+        }
+
+        return ret;
+    }
+
+    private Set<RangerRole> getAllContainedRoles(Map<String, RangerRole> rolesByName, RangerRole role) {
+        // roles are distinct by name: compare by identity, instead of RangerRole.equals() which compares all members
+        Set<RangerRole> allRoles = Collections.newSetFromMap(new IdentityHashMap<>());
 
         allRoles.add(role);
-        addContainedRoles(allRoles, roles, role);
+        addContainedRoles(allRoles, rolesByName, role);
 
         return allRoles;
     }
 
-    private void addContainedRoles(Set<RangerRole> allRoles, Set<RangerRole> roles, RangerRole role) {
+    private void addContainedRoles(Set<RangerRole> allRoles, Map<String, RangerRole> rolesByName, RangerRole role) {
         List<RangerRole.RoleMember> roleMembers = role.getRoles();
 
         for (RangerRole.RoleMember roleMember : roleMembers) {
-            RangerRole containedRole = getContainedRole(roles, roleMember.getName());
+            RangerRole containedRole = rolesByName.get(roleMember.getName());
 
             if (containedRole!= null && !allRoles.contains(containedRole)) {
                 allRoles.add(containedRole);
-                addContainedRoles(allRoles, roles, containedRole);
+                addContainedRoles(allRoles, rolesByName, containedRole);
             }
         }
     }
@@ -158,15 +227,45 @@ private void getRoleMap(Map<String, Set<String>> map, String roleName, List<Rang
         }
     }
 
-    private RangerRole getContainedRole(Set<RangerRole> roles, String role) {
-        return (roles.stream().filter(containedRole -> role.equals(containedRole.getName())).findAny().orElse(null));
-    }
-
     private void addMemberNames(List<RangerRole.RoleMember> members, Set<String> names) {
         for (RangerRole.RoleMember member : members) {
             names.add(member.getName());
         }
     }
+
+    private static void addRoleIds(Set<String> roleNames, Map<String, Integer> roleIds) {
+        for (String roleName : roleNames) {
+            roleIds.putIfAbsent(roleName, roleIds.size());
+        }
+    }
+
+    // most principals are in a few roles: a sorted int[] per principal is much smaller than a bitmap sized for all roles
+    private static Map<String, int[]> toRoleIds(Map<String, Set<String>> roleMapping, Map<String, Integer> roleIds) {
+        Map<String, int[]> ret = new HashMap<>(roleMapping.size());
+
+        for (Map.Entry<String, Set<String>> entry : roleMapping.entrySet()) {
+            int[] ids = new int[entry.getValue().size()];
+            int   idx = 0;
+
+            for (String roleName : entry.getValue()) {
+                ids[idx++] = roleIds.get(roleName);
+            }
+
+            Arrays.sort(ids);
+
+            ret.put(entry.getKey(), ids);
+        }
+
+        return ret;
+    }
+
+    private static void orRoleIds(BitSet roleIds, int[] ids) {
+        if (ids != null) {
+            for (int id : ids) {
+                roleIds.set(id);
+            }
+        }
+    }
 }
 
 
@@ -0,0 +1,500 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.apache.ranger.plugin.util.ServicePolicies.TagPolicies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*
+ * Segmented container for the policies, tags and roles cache files; an alternative to the single JSON document written
+ * by PolicyRefresher, RangerTagEnricher and RangerRolesProvider. Content is still Gson JSON - this is not a compact
+ * encoding: the file is a framed list of checksummed JSON segments.
+ *
+ * Layout (big-endian):
+ *   header:    magic (4 bytes, "RCF1"), formatVersion (int), contentType (int), segmentCount (int)
+ *   directory: for each segment - name (UTF), itemCount (int), offset (long), length (int), crc32 (int)
+ *              followed by crc32 (int) of the header and directory
+ *   segments:  UTF-8 JSON payloads, at the offsets given in the directory
+ *
+ * Large collections - policies, service-resources, roles - are split into segments of ITEMS_PER_SEGMENT items each;
+ * everything else goes in the "header" segment. The file is memory-mapped and only the directory is read up front;
+ * each segment is checksum-verified as it is decoded. Items are encoded with the same Gson configuration as the JSON
+ * cache files, so that model changes need no change here.
+ *
+ * Files are written to a temporary file and renamed, so that a reader never sees a partially written file.
+ */
+public final class RangerSegmentedCacheFile {
+    private static final Logger LOG = LoggerFactory.getLogger(RangerSegmentedCacheFile.class);
+
+    public static final String FORMAT_JSON      = "json";
+    public static final String FORMAT_SEGMENTED = "segmented";
+
+    public static final int MAGIC          = 0x52434631; // "RCF1"
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int CONTENT_TYPE_POLICIES = 1;
+    public static final int CONTENT_TYPE_TAGS     = 2;
+    public static final int CONTENT_TYPE_ROLES    = 3;
+
+    static final int ITEMS_PER_SEGMENT = 1000;
+
+    private static final String SEGMENT_HEADER            = "header";
+    private static final String SEGMENT_POLICIES          = "policies";
+    private static final String SEGMENT_TAG_POLICIES      = "tagPolicies";
+    private static final String SEGMENT_ZONE_POLICIES     = "zonePolicies/";
+    private static final String SEGMENT_SERVICE_RESOURCES = "serviceResources";
+    private static final String SEGMENT_ROLES             = "rangerRoles";
+
+    private static final Type TYPE_POLICIES          = new TypeToken<List<RangerPolicy>>() {}.getType();
+    private static final Type TYPE_SERVICE_RESOURCES = new TypeToken<List<RangerServiceResource>>() {}.getType();
+    private static final Type TYPE_ROLES             = new TypeToken<List<RangerRole>>() {}.getType();
+
+    private static final String DATE_FORMAT = "yyyyMMdd-HH:mm:ss.SSS-Z";
+
+    // collections written as separate segments are excluded from the header
+    private static final Gson HEADER_GSON = new GsonBuilder().setDateFormat(DATE_FORMAT).setExclusionStrategies(new SegmentedFieldsExclusionStrategy()).create();
+    private static final Gson ITEM_GSON   = new GsonBuilder().setDateFormat(DATE_FORMAT).create();
+
+    private RangerSegmentedCacheFile() { }
+
+    public static boolean isSegmentedFormat(String format) {
+        return FORMAT_SEGMENTED.equalsIgnoreCase(format);
+    }
+
+    /*
+     * returns true if the file starts with the magic of this format; JSON cache files start with '{'
+     */
+    public static boolean isSegmentedCacheFile(File file) {
+        boolean ret = false;
+
+        if (file != null && file.isFile() && file.length() >= 4) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                ret = in.readInt() == MAGIC;
+            } catch (IOException excp) {
+                LOG.warn("isSegmentedCacheFile({}): failed to read", file.getAbsolutePath(), excp);
+            }
+        }
+
+        return ret;
+    }
+
+    public static void writeServicePolicies(File file, ServicePolicies policies) throws IOException {
+        SegmentWriter writer = new SegmentWriter(CONTENT_TYPE_POLICIES, policies);
+
+        writer.addItems(SEGMENT_POLICIES, policies.getPolicies());
+
+        if (policies.getTagPolicies() != null) {
+            writer.addItems(SEGMENT_TAG_POLICIES, policies.getTagPolicies().getPolicies());
+        }
+
+        if (policies.getSecurityZones() != null) {
+            for (Map.Entry<String, SecurityZoneInfo> entry : policies.getSecurityZones().entrySet()) {
+                if (entry.getValue() != null) {
+                    writer.addItems(SEGMENT_ZONE_POLICIES + entry.getKey(), entry.getValue().getPolicies());
+                }
+            }
+        }
+
+        writer.write(file);
+    }
+
+    public static ServicePolicies readServicePolicies(File file) throws IOException {
+        SegmentReader   reader = new SegmentReader(file, CONTENT_TYPE_POLICIES);
+        ServicePolicies ret    = reader.readHeader(ServicePolicies.class);
+
+        if (ret != null) {
+            ret.setPolicies(reader.readItems(SEGMENT_POLICIES, TYPE_POLICIES));
+
+            if (ret.getTagPolicies() != null) {
+                ret.getTagPolicies().setPolicies(reader.readItems(SEGMENT_TAG_POLICIES, TYPE_POLICIES));
+            }
+
+            if (ret.getSecurityZones() != null) {
+                for (Map.Entry<String, SecurityZoneInfo> entry : ret.getSecurityZones().entrySet()) {
+                    if (entry.getValue() != null) {
+                        entry.getValue().setPolicies(reader.readItems(SEGMENT_ZONE_POLICIES + entry.getKey(), TYPE_POLICIES));
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    public static void writeServiceTags(File file, ServiceTags serviceTags) throws IOException {
+        SegmentWriter writer = new SegmentWriter(CONTENT_TYPE_TAGS, serviceTags);
+
+        writer.addItems(SEGMENT_SERVICE_RESOURCES, serviceTags.getServiceResources());
+
+        writer.write(file);
+    }
+
+    public static ServiceTags readServiceTags(File file) throws IOException {
+        SegmentReader reader = new SegmentReader(file, CONTENT_TYPE_TAGS);
+        ServiceTags   ret    = reader.readHeader(ServiceTags.class);
+
+        if (ret != null) {
+            ret.setServiceResources(reader.readItems(SEGMENT_SERVICE_RESOURCES, TYPE_SERVICE_RESOURCES));
+        }
+
+        return ret;
+    }
+
+    public static void writeRoles(File file, RangerRoles roles) throws IOException {
+        SegmentWriter writer = new SegmentWriter(CONTENT_TYPE_ROLES, roles);
+
+        writer.addItems(SEGMENT_ROLES, roles.getRangerRoles());
+
+        writer.write(file);
+    }
+
+    public static RangerRoles readRoles(File file) throws IOException {
+        SegmentReader reader = new SegmentReader(file, CONTENT_TYPE_ROLES);
+        RangerRoles   ret    = reader.readHeader(RangerRoles.class);
+
+        if (ret != null) {
+            List<RangerRole> roles = reader.readItems(SEGMENT_ROLES, TYPE_ROLES);
+
+            ret.setRangerRoles(roles != null ? new HashSet<>(roles) : null);
+        }
+
+        return ret;
+    }
+
+    private static class SegmentedFieldsExclusionStrategy implements ExclusionStrategy {
+        @Override
+        public boolean shouldSkipField(FieldAttributes field) {
+            Class<?> cls  = field.getDeclaringClass();
+            String   name = field.getName();
+
+            return ((cls == ServicePolicies.class || cls == TagPolicies.class || cls == SecurityZoneInfo.class) && name.equals("policies")) ||
+                   (cls == ServiceTags.class && name.equals("serviceResources")) ||
+                   (cls == RangerRoles.class && name.equals("rangerRoles"));
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> cls) {
+            return false;
+        }
+    }
+
+    private static class Segment {
+        final String name;
+        final int    itemCount;
+        final byte[] payload;
+        long         offset;
+        int          length;
+        int          crc;
+
+        Segment(String name, int itemCount, byte[] payload) {
+            this.name      = name;
+            this.itemCount = itemCount;
+            this.payload   = payload;
+        }
+
+        Segment(String name, int itemCount, long offset, int length, int crc) {
+            this.name      = name;
+            this.itemCount = itemCount;
+            this.payload   = null;
+            this.offset    = offset;
+            this.length    = length;
+            this.crc       = crc;
+        }
+    }
+
+    private static class SegmentWriter {
+        private final int           contentType;
+        private final List<Segment> segments = new ArrayList<>();
+
+        SegmentWriter(int contentType, Object header) {
+            this.contentType = contentType;
+
+            segments.add(new Segment(SEGMENT_HEADER, 1, HEADER_GSON.toJson(header).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // a null collection is written as no segments, and is read back as null
+        void addItems(String name, Collection<?> items) {
+            if (items == null) {
+                return;
+            }
+
+            if (items.isEmpty()) {
+                segments.add(new Segment(name, 0, ITEM_GSON.toJson(Collections.emptyList()).getBytes(StandardCharsets.UTF_8)));
+
+                return;
+            }
+
+            List<Object> chunk = new ArrayList<>(Math.min(items.size(), ITEMS_PER_SEGMENT));
+
+            for (Iterator<?> iter = items.iterator(); iter.hasNext(); ) {
+                chunk.add(iter.next());
+
+                if (chunk.size() == ITEMS_PER_SEGMENT || !iter.hasNext()) {
+                    segments.add(new Segment(name, chunk.size(), ITEM_GSON.toJson(chunk).getBytes(StandardCharsets.UTF_8)));
+
+                    chunk.clear();
+                }
+            }
+        }
+
+        void write(File file) throws IOException {
+            ByteArrayOutputStream directory = new ByteArrayOutputStream();
+            DataOutputStream      dirOut    = new DataOutputStream(directory);
+
+            dirOut.writeInt(MAGIC);
+            dirOut.writeInt(FORMAT_VERSION);
+            dirOut.writeInt(contentType);
+            dirOut.writeInt(segments.size());
+
+            long offset = 0;
+
+            for (Segment segment : segments) {
+                CRC32 crc = new CRC32();
+
+                crc.update(segment.payload, 0, segment.payload.length);
+
+                segment.offset = offset;
+                segment.length = segment.payload.length;
+                segment.crc    = (int) crc.getValue();
+
+                offset += segment.length;
+            }
+
+            // offsets are stored relative to the end of the directory, whose size doesn't depend on the offsets
+            for (Segment segment : segments) {
+                dirOut.writeUTF(segment.name);
+                dirOut.writeInt(segment.itemCount);
+                dirOut.writeLong(segment.offset);
+                dirOut.writeInt(segment.length);
+                dirOut.writeInt(segment.crc);
+            }
+
+            dirOut.flush();
+
+            byte[] dirBytes = directory.toByteArray();
+            CRC32  dirCrc   = new CRC32();
+
+            dirCrc.update(dirBytes, 0, dirBytes.length);
+
+            File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+
+            try (OutputStream out = new FileOutputStream(tmpFile); DataOutputStream dataOut = new DataOutputStream(out)) {
+                dataOut.write(dirBytes);
+                dataOut.writeInt((int) dirCrc.getValue());
+
+                for (Segment segment : segments) {
+                    dataOut.write(segment.payload);
+                }
+            }
+
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException excp) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerSegmentedCacheFile.write({}): contentType={}, segments={}, size={}", file.getAbsolutePath(), contentType, segments.size(), file.length());
+            }
+        }
+    }
+
+    private static class SegmentReader {
+        private final String                     fileName;
+        private final ByteBuffer                 data;
+        private final Map<String, List<Segment>> segments = new LinkedHashMap<>();
+
+        SegmentReader(File file, int expectedContentType) throws IOException {
+            this.fileName = file.getAbsolutePath();
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException(fileName + ": file too large to map (" + size + " bytes)");
+                }
+
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+                DataInputStream in = new DataInputStream(new ByteBufferInputStream(mapped.duplicate()));
+
+                int magic         = in.readInt();
+                int formatVersion = in.readInt();
+                int contentType   = in.readInt();
+                int segmentCount  = in.readInt();
+
+                if (magic != MAGIC) {
+                    throw new IOException(fileName + ": not a segmented cache file");
+                } else if (formatVersion != FORMAT_VERSION) {
+                    throw new IOException(fileName + ": unsupported format version " + formatVersion);
+                } else if (contentType != expectedContentType) {
+                    throw new IOException(fileName + ": unexpected content type " + contentType + ", expected " + expectedContentType);
+                }
+
+                for (int i = 0; i < segmentCount; i++) {
+                    Segment segment = new Segment(in.readUTF(), in.readInt(), in.readLong(), in.readInt(), in.readInt());
+
+                    segments.computeIfAbsent(segment.name, k -> new ArrayList<>()).add(segment);
+                }
+
+                int   dirLength = (int) (size - in.available());
+                CRC32 dirCrc    = new CRC32();
+                int   storedCrc = in.readInt();
+
+                ByteBuffer dirBytes = mapped.duplicate();
+
+                dirBytes.limit(dirLength);
+
+                dirCrc.update(dirBytes);
+
+                if ((int) dirCrc.getValue() != storedCrc) {
+                    throw new IOException(fileName + ": directory checksum mismatch");
+                }
+
+                mapped.position(dirLength + 4);
+
+                this.data = mapped.slice();
+            }
+        }
+
+        <T> T readHeader(Class<T> cls) throws IOException {
+            List<Segment> header = segments.get(SEGMENT_HEADER);
+
+            if (header == null || header.size() != 1) {
+                throw new IOException(fileName + ": header segment not found");
+            }
+
+            return HEADER_GSON.fromJson(decode(header.get(0)), cls);
+        }
+
+        <T> List<T> readItems(String name, Type listType) throws IOException {
+            List<Segment> chunks = segments.get(name);
+
+            if (chunks == null) {
+                return null;
+            }
+
+            int     count = chunks.stream().mapToInt(segment -> segment.itemCount).sum();
+            List<T> ret   = new ArrayList<>(count);
+
+            for (Segment segment : chunks) {
+                List<T> items = ITEM_GSON.fromJson(decode(segment), listType);
+
+                if (items == null || items.size() != segment.itemCount) {
+                    throw new IOException(fileName + ": segment " + segment.name + " has " + (items == null ? 0 : items.size()) + " items, expected " + segment.itemCount);
+                }
+
+                ret.addAll(items);
+            }
+
+            return ret;
+        }
+
+        private String decode(Segment segment) throws IOException {
+            if (segment.offset < 0 || segment.length < 0 || segment.offset + segment.length > data.capacity()) {
+                throw new IOException(fileName + ": segment " + segment.name + " is out of bounds");
+            }
+
+            ByteBuffer payload = data.duplicate();
+
+            payload.position((int) segment.offset);
+            payload.limit((int) segment.offset + segment.length);
+
+            CRC32 crc = new CRC32();
+
+            crc.update(payload.duplicate());
+
+            if ((int) crc.getValue() != segment.crc) {
+                throw new IOException(fileName + ": checksum mismatch in segment " + segment.name);
+            }
+
+            return StandardCharsets.UTF_8.decode(payload).toString();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(len, buffer.remaining());
+
+            buffer.get(b, off, count);
+
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
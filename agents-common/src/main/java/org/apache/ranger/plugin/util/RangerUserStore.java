@@ -26,6 +26,7 @@
 import org.apache.ranger.plugin.model.GroupInfo;
 import org.apache.ranger.plugin.model.UserInfo;
 import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 
@@ -50,6 +51,9 @@ public class RangerUserStore implements Serializable {
     private Map<String, String>              userCloudIdMapping;
     private Map<String, String>              groupCloudIdMapping;
 
+    @JsonIgnore
+    private transient RangerUserStoreIndex   userStoreIndex;
+
     public RangerUserStore() {this(-1L, null, null, null);}
 
     public RangerUserStore(Long userStoreVersion, Set<UserInfo> users, Set<GroupInfo> groups, Map<String, Set<String>> userGroups) {
@@ -80,6 +84,7 @@ public Map<String, Map<String, String>> getUserAttrMapping() {
 
     public void setUserAttrMapping(Map<String, Map<String, String>> userAttrMapping) {
         this.userAttrMapping = userAttrMapping;
+        this.userStoreIndex  = null;
     }
 
     public Map<String, Map<String, String>> getGroupAttrMapping() {
@@ -88,6 +93,7 @@ public Map<String, Map<String, String>> getGroupAttrMapping() {
 
     public void setGroupAttrMapping(Map<String, Map<String, String>> groupAttrMapping) {
         this.groupAttrMapping = groupAttrMapping;
+        this.userStoreIndex   = null;
     }
 
     public Map<String, Set<String>> getUserGroupMapping() {
@@ -96,6 +102,7 @@ public Map<String, Set<String>> getUserGroupMapping() {
 
     public void setUserGroupMapping(Map<String, Set<String>> userGroupMapping) {
         this.userGroupMapping = userGroupMapping;
+        this.userStoreIndex   = null;
     }
 
     public Map<String, String> getUserCloudIdMapping() {
@@ -114,14 +121,48 @@ public void setGroupCloudIdMapping(Map<String, String> groupCloudIdMapping) {
         this.groupCloudIdMapping = groupCloudIdMapping;
     }
 
+    @JsonIgnore
+    public RangerUserStoreIndex getUserStoreIndex() {
+        return userStoreIndex;
+    }
+
     public void dedupStrings() {
         Map<String, String> strTbl = new HashMap<>();
 
-        userAttrMapping     = StringUtil.dedupStringsMapOfMap(userAttrMapping, strTbl);
-        groupAttrMapping    = StringUtil.dedupStringsMapOfMap(groupAttrMapping, strTbl);
+        if (userStoreIndex == null) { // indexed attribute maps already share strings
+            userAttrMapping  = StringUtil.dedupStringsMapOfMap(userAttrMapping, strTbl);
+            groupAttrMapping = StringUtil.dedupStringsMapOfMap(groupAttrMapping, strTbl);
+        }
+
+        userGroupMapping    = StringUtil.dedupStringsMapOfSet(userGroupMapping, strTbl);
+        userCloudIdMapping  = StringUtil.dedupStringsMap(userCloudIdMapping, strTbl);
+        groupCloudIdMapping = StringUtil.dedupStringsMap(groupCloudIdMapping, strTbl);
+    }
+
+    /*
+     * replaces userAttrMapping/groupAttrMapping with read-only views over a columnar index, and dedups strings in the
+     * rest of the userstore. Strings of previousIndex are reused, so that a refresh retains only strings that changed.
+     *
+     * After this call, getUserAttrMapping()/getGroupAttrMapping() and their values throw UnsupportedOperationException
+     * on modification; to change attributes, set new maps with setUserAttrMapping()/setGroupAttrMapping(), which drops
+     * the index.
+     */
+    public void buildUserStoreIndex(RangerUserStoreIndex previousIndex) {
+        Map<String, String> strTbl = new HashMap<>();
+
+        if (previousIndex != null) {
+            previousIndex.collectStrings(strTbl);
+        }
+
         userGroupMapping    = StringUtil.dedupStringsMapOfSet(userGroupMapping, strTbl);
         userCloudIdMapping  = StringUtil.dedupStringsMap(userCloudIdMapping, strTbl);
         groupCloudIdMapping = StringUtil.dedupStringsMap(groupCloudIdMapping, strTbl);
+
+        RangerUserStoreIndex index = new RangerUserStoreIndex(userAttrMapping, groupAttrMapping, userGroupMapping, strTbl);
+
+        userAttrMapping  = index.getUserAttrMapping();
+        groupAttrMapping = index.getGroupAttrMapping();
+        userStoreIndex   = index;
     }
 
     @Override
@@ -0,0 +1,449 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.authorization.utils.StringUtil;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Columnar store of user and group attributes: each attribute name has a dense array of values, indexed by user (or group)
+ * row; all strings are shared via a string table. Attribute ids are assigned in the sorted order of attribute names.
+ * For each row, ids of attributes having a value are kept; for each user in the user-group mapping, ids of attributes
+ * found in the user's groups are precomputed from these.
+ *
+ * getUserAttrMapping()/getGroupAttrMapping() return read-only views having the same keys as the maps the index was
+ * built from; attributes with null value are not retained. Views of rows are created once, along with the index.
+ */
+public class RangerUserStoreIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final String[]                         attrNames;
+    private final AttributeTable                   userTable;
+    private final AttributeTable                   groupTable;
+    private final Map<String, Set<String>>         userGroups;
+    private final Map<String, int[]>               userGroupAttrIds;
+    private final Map<String, Map<String, String>> userAttrMapping;
+    private final Map<String, Map<String, String>> groupAttrMapping;
+
+    public RangerUserStoreIndex(Map<String, Map<String, String>> userAttrMapping, Map<String, Map<String, String>> groupAttrMapping, Map<String, Set<String>> userGroups, Map<String, String> strTbl) {
+        Set<String> names = new TreeSet<>();
+
+        collectAttrNames(userAttrMapping, names);
+        collectAttrNames(groupAttrMapping, names);
+
+        this.attrNames = new String[names.size()];
+
+        int attrId = 0;
+
+        for (String name : names) {
+            attrNames[attrId++] = StringUtil.dedupString(name, strTbl);
+        }
+
+        Map<IdsKey, int[]> uniqueIds = new HashMap<>();
+
+        this.userTable        = new AttributeTable(userAttrMapping, attrNames, strTbl, uniqueIds);
+        this.groupTable       = new AttributeTable(groupAttrMapping, attrNames, strTbl, uniqueIds);
+        this.userGroups       = userGroups != null ? userGroups : Collections.emptyMap();
+        this.userGroupAttrIds = computeUserGroupAttrIds(uniqueIds);
+        this.userAttrMapping  = userAttrMapping != null ? new TableView(userTable) : null;
+        this.groupAttrMapping = groupAttrMapping != null ? new TableView(groupTable) : null;
+    }
+
+    public Map<String, Map<String, String>> getUserAttrMapping() { return userAttrMapping; }
+
+    public Map<String, Map<String, String>> getGroupAttrMapping() { return groupAttrMapping; }
+
+    public int getAttrCount() { return attrNames.length; }
+
+    public int getUserCount() { return userTable.getRowCount(); }
+
+    public int getGroupCount() { return groupTable.getRowCount(); }
+
+    public String getUserAttr(String userName, String attrName) {
+        return userTable.getValue(userName, attrName);
+    }
+
+    public String getGroupAttr(String groupName, String attrName) {
+        return groupTable.getValue(groupName, attrName);
+    }
+
+    /*
+     * sorted names of attributes found in the given groups of the user, from the precomputed union; returns null when
+     * groups are not the same as the user's groups in the userstore, in which case the caller should compute from
+     * attributes of each group
+     */
+    public List<String> getUserGroupAttrNames(String userName, Collection<String> groups) {
+        final List<String> ret;
+        Set<String>        storeGroups = userName != null ? userGroups.get(userName) : null;
+
+        if (storeGroups == null) {
+            ret = (groups == null || groups.isEmpty()) ? new ArrayList<>() : null;
+        } else if (groups != null && groups.size() == storeGroups.size() && storeGroups.containsAll(groups)) {
+            int[] ids = userGroupAttrIds.get(userName);
+
+            ret = new ArrayList<>(ids.length);
+
+            for (int id : ids) {
+                ret.add(attrNames[id]);
+            }
+        } else {
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    void collectStrings(Map<String, String> strTbl) {
+        for (String attrName : attrNames) {
+            StringUtil.dedupString(attrName, strTbl);
+        }
+
+        userTable.collectStrings(strTbl);
+        groupTable.collectStrings(strTbl);
+    }
+
+    // cost is proportional to the number of attributes of each user's groups, not to the number of attribute names
+    private Map<String, int[]> computeUserGroupAttrIds(Map<IdsKey, int[]> uniqueIds) {
+        Map<String, int[]> ret       = new HashMap<>(userGroups.size());
+        boolean[]          isPresent = new boolean[attrNames.length];
+        int[]              marked    = new int[attrNames.length];
+
+        for (Map.Entry<String, Set<String>> entry : userGroups.entrySet()) {
+            int count = 0;
+
+            if (entry.getValue() != null) {
+                for (String groupName : entry.getValue()) {
+                    count = groupTable.markAttrs(groupName, isPresent, marked, count);
+                }
+            }
+
+            int[] ids = NO_IDS;
+
+            if (count > 0) {
+                ids = Arrays.copyOf(marked, count);
+
+                Arrays.sort(ids);
+
+                for (int attrId : ids) {
+                    isPresent[attrId] = false;
+                }
+
+                ids = uniqueIds.computeIfAbsent(new IdsKey(ids), k -> k.ids);
+            }
+
+            ret.put(entry.getKey(), ids);
+        }
+
+        return ret;
+    }
+
+    private static void collectAttrNames(Map<String, Map<String, String>> attrMapping, Set<String> names) {
+        if (attrMapping != null) {
+            for (Map<String, String> attrs : attrMapping.values()) {
+                if (attrs != null) {
+                    for (Map.Entry<String, String> attr : attrs.entrySet()) {
+                        if (attr.getKey() != null && attr.getValue() != null) {
+                            names.add(attr.getKey());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class AttributeTable implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String[]             attrNames; // sorted
+        private final String[]             rowNames;
+        private final Map<String, Integer> rowIds;
+        private final String[][]           columns; // columns[attrId][rowId]; null for attributes not present in any row
+        private final int[][]              rowAttrIds; // rowAttrIds[rowId]: sorted ids of attributes having a value in the row
+        private final RowView[]            rowViews;
+
+        AttributeTable(Map<String, Map<String, String>> attrMapping, String[] attrNames, Map<String, String> strTbl, Map<IdsKey, int[]> uniqueIds) {
+            int rowCount = attrMapping != null ? attrMapping.size() : 0;
+
+            this.attrNames  = attrNames;
+            this.rowNames   = new String[rowCount];
+            this.rowIds     = new HashMap<>(rowCount);
+            this.columns    = new String[attrNames.length][];
+            this.rowAttrIds = new int[rowCount][];
+            this.rowViews   = new RowView[rowCount];
+
+            if (attrMapping != null) {
+                for (Map.Entry<String, Map<String, String>> entry : attrMapping.entrySet()) {
+                    int    rowId   = rowIds.size();
+                    String rowName = StringUtil.dedupString(entry.getKey(), strTbl);
+
+                    rowNames[rowId] = rowName;
+
+                    rowIds.put(rowName, rowId);
+
+                    int[] ids   = NO_IDS;
+                    int   count = 0;
+
+                    if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                        ids = new int[entry.getValue().size()];
+
+                        for (Map.Entry<String, String> attr : entry.getValue().entrySet()) {
+                            int attrId = attr.getValue() != null ? getAttrId(attr.getKey()) : -1;
+
+                            if (attrId != -1) {
+                                if (columns[attrId] == null) {
+                                    columns[attrId] = new String[rowCount];
+                                }
+
+                                columns[attrId][rowId] = StringUtil.dedupString(attr.getValue(), strTbl);
+
+                                ids[count++] = attrId;
+                            }
+                        }
+                    }
+
+                    if (count > 0) {
+                        ids = Arrays.copyOf(ids, count);
+
+                        Arrays.sort(ids);
+
+                        ids = uniqueIds.computeIfAbsent(new IdsKey(ids), k -> k.ids);
+                    } else {
+                        ids = NO_IDS;
+                    }
+
+                    rowAttrIds[rowId] = ids;
+                    rowViews[rowId]   = new RowView(this, rowId);
+                }
+            }
+        }
+
+        int getRowCount() { return rowNames.length; }
+
+        String getValue(String rowName, String attrName) {
+            int     attrId = getAttrId(attrName);
+            Integer rowId  = attrId != -1 && rowName != null ? rowIds.get(rowName) : null;
+
+            return rowId != null ? getValue(rowId, attrId) : null;
+        }
+
+        String getValue(int rowId, int attrId) {
+            String[] column = columns[attrId];
+
+            return column != null ? column[rowId] : null;
+        }
+
+        // marks attributes present in the given row, appending ids of newly marked attributes to marked[count]; returns the new count
+        int markAttrs(String rowName, boolean[] isPresent, int[] marked, int count) {
+            Integer rowId = rowName != null ? rowIds.get(rowName) : null;
+
+            if (rowId != null) {
+                for (int attrId : rowAttrIds[rowId]) {
+                    if (!isPresent[attrId]) {
+                        isPresent[attrId] = true;
+                        marked[count++]   = attrId;
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        void collectStrings(Map<String, String> strTbl) {
+            for (String rowName : rowNames) {
+                StringUtil.dedupString(rowName, strTbl);
+            }
+
+            for (String[] column : columns) {
+                if (column != null) {
+                    for (String value : column) {
+                        StringUtil.dedupString(value, strTbl);
+                    }
+                }
+            }
+        }
+
+        int getAttrId(Object attrName) {
+            int ret = attrName instanceof String ? Arrays.binarySearch(attrNames, attrName) : -1;
+
+            return ret >= 0 ? ret : -1;
+        }
+    }
+
+    private static class TableView extends AbstractMap<String, Map<String, String>> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final AttributeTable table;
+
+        TableView(AttributeTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public Map<String, String> get(Object key) {
+            Integer rowId = key instanceof String ? table.rowIds.get(key) : null;
+
+            return rowId != null ? table.rowViews[rowId] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && table.rowIds.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return table.getRowCount();
+        }
+
+        @Override
+        public Set<Entry<String, Map<String, String>>> entrySet() {
+            return new AbstractSet<Entry<String, Map<String, String>>>() {
+                @Override
+                public Iterator<Entry<String, Map<String, String>>> iterator() {
+                    return new Iterator<Entry<String, Map<String, String>>>() {
+                        private int rowId = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return rowId < table.getRowCount();
+                        }
+
+                        @Override
+                        public Entry<String, Map<String, String>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+
+                            Entry<String, Map<String, String>> ret = new SimpleImmutableEntry<>(table.rowNames[rowId], table.rowViews[rowId]);
+
+                            rowId++;
+
+                            return ret;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return table.getRowCount();
+                }
+            };
+        }
+    }
+
+    private static class RowView extends AbstractMap<String, String> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final AttributeTable table;
+        private final int            rowId;
+
+        RowView(AttributeTable table, int rowId) {
+            this.table = table;
+            this.rowId = rowId;
+        }
+
+        @Override
+        public String get(Object key) {
+            int attrId = table.getAttrId(key);
+
+            return attrId != -1 ? table.getValue(rowId, attrId) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return table.rowAttrIds[rowId].length;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private final int[] attrIds = table.rowAttrIds[rowId];
+                        private       int   idx     = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return idx < attrIds.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+
+                            int attrId = attrIds[idx++];
+
+                            return new SimpleImmutableEntry<>(table.attrNames[attrId], table.getValue(rowId, attrId));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return table.rowAttrIds[rowId].length;
+                }
+            };
+        }
+    }
+
+    private static class IdsKey {
+        private final int[] ids;
+        private final int   hashCode;
+
+        IdsKey(int[] ids) {
+            this.ids      = ids;
+            this.hashCode = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdsKey && Arrays.equals(ids, ((IdsKey) obj).ids);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.audit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.authorization.utils.JsonUtils;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerDefaultAuditHandler {
+	@Test
+	public void testAdditionalInfo() {
+		RangerDefaultAuditHandler handler = new RangerDefaultAuditHandler();
+
+		assertNull(handler.getAdditionalInfo(createRequest(null, null)));
+		assertNull(handler.getAdditionalInfo(createRequest(" ", Collections.emptyList())));
+
+		String[]       remoteAddresses    = new String[] { null, "", "10.1.1.1", "<script>alert('x=1&y=2')</script>", "tab\there \"quoted\" back\\slash \u0001 \u2028" };
+		List<String>[] forwardedAddresses = new List[] { null, Collections.emptyList(), Collections.singletonList("192.168.1.1"), Arrays.asList("192.168.1.1", "192.168.1.2") };
+
+		for (String remoteAddress : remoteAddresses) {
+			for (List<String> forwarded : forwardedAddresses) {
+				RangerAccessRequestImpl request = createRequest(remoteAddress, forwarded);
+
+				assertEquals(getAdditionalInfoUsingMap(request, null, null), handler.getAdditionalInfo(request));
+				assertEquals(getAdditionalInfoUsingMap(request, "accessTypes", "[READ, WRITE]"), handler.getAdditionalInfo(request, "accessTypes", "[READ, WRITE]"));
+				assertEquals(getAdditionalInfoUsingMap(request, "accessTypes", null), handler.getAdditionalInfo(request, "accessTypes", null));
+			}
+		}
+	}
+
+	@Test
+	public void testEventId() {
+		RangerDefaultAuditHandler handler = new RangerDefaultAuditHandler();
+		RangerAccessResult        result1 = createResult();
+		RangerAccessResult        result2 = createResult();
+		AuthzAuditEvent           event1  = handler.getAuthzEvents(result1);
+		AuthzAuditEvent           event2  = handler.getAuthzEvents(result2);
+
+		assertNotNull(event1.getEventId());
+		assertEquals(event1.getEventId(), result1.getAuditLogId());
+		assertTrue(event1.getEventId().endsWith("-0"));
+		assertTrue(event2.getEventId().endsWith("-1"));
+		assertEquals(StringUtils.substringBeforeLast(event1.getEventId(), "-"), StringUtils.substringBeforeLast(event2.getEventId(), "-"));
+		assertNotEquals(event1.getEventId(), event2.getEventId());
+	}
+
+	// additional info as created earlier, using a map and JsonUtils
+	private static String getAdditionalInfoUsingMap(RangerAccessRequestImpl request, String name, String value) {
+		Map<String, String> ret = new HashMap<>();
+
+		if (StringUtils.isNotBlank(request.getRemoteIPAddress()) || !(request.getForwardedAddresses() == null || request.getForwardedAddresses().isEmpty())) {
+			ret.put("forwarded-ip-addresses", "[" + StringUtils.join(request.getForwardedAddresses(), ", ") + "]");
+			ret.put("remote-ip-address", request.getRemoteIPAddress());
+		}
+
+		if (value != null) {
+			ret.put(name, value);
+		}
+
+		return JsonUtils.mapToJson(ret);
+	}
+
+	private static RangerAccessRequestImpl createRequest(String remoteAddress, List<String> forwardedAddresses) {
+		RangerAccessRequestImpl ret = new RangerAccessRequestImpl(new RangerAccessResourceImpl(Collections.singletonMap("path", "/tmp")), "read", "user1", Collections.singleton("group1"), null);
+
+		ret.setRemoteIPAddress(remoteAddress);
+		ret.setForwardedAddresses(forwardedAddresses);
+
+		return ret;
+	}
+
+	private static RangerAccessResult createResult() {
+		RangerAccessResult ret = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, "dev_hdfs", null, createRequest("10.1.1.1", null));
+
+		ret.setIsAudited(true);
+		ret.setIsAllowed(true);
+
+		return ret;
+	}
+}
@@ -221,6 +221,55 @@ public void test_integration() {
 		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.20.33.10")));
 	}
 	
+	@Test
+	public void test_cidr() {
+		RangerIpMatcher ipMatcher = createMatcher(new String[]{"10.0.0.0/8", "192.168.10.0/23", "2001:db8::/32", "172.16.5.4"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.1.2.3")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("192.168.11.200")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:DB8:1::5")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("::ffff:10.1.2.3")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("172.16.5.4")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("11.1.2.3")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("192.168.12.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db9::5")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("172.16.5.40")));
+		// policy text is still matched as before, for values that are not addresses
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.0.0.0/8")));
+
+		// wildcards and cidr in the same list
+		ipMatcher = createMatcher(new String[]{"10.20.*", "fe80:*", "100.64.0.0/10"} );
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.30.40")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("fe80::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("100.127.255.255")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.21.30.40")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("fe81::1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("100.128.0.0")));
+	}
+
+	@Test
+	public void test_toCidr() {
+		Assert.assertEquals("10.0.0.0/8", RangerIpMatcher.toCidr("10."));
+		Assert.assertEquals("10.20.30.0/24", RangerIpMatcher.toCidr("10.20.30."));
+		Assert.assertEquals("a0:b0::/32", RangerIpMatcher.toCidr("a0:b0:"));
+		Assert.assertEquals("a0::1", RangerIpMatcher.toCidr("a0::1"));
+		Assert.assertNull(RangerIpMatcher.toCidr("1.2.3.4."));
+		Assert.assertNull(RangerIpMatcher.toCidr("1:2:3:4:5:6:7:8:"));
+		Assert.assertNull(RangerIpMatcher.toCidr("a0::"));
+	}
+
+	@Test
+	public void test_sharedIndex() {
+		RangerIpMatcher matcher1 = createMatcher(new String[]{"10.0.0.0/8", "192.168.*"});
+		RangerIpMatcher matcher2 = createMatcher(new String[]{"10.0.0.0/8", "192.168.*"});
+		RangerIpMatcher matcher3 = createMatcher(new String[]{"10.0.0.0/8"});
+
+		Assert.assertSame(matcher1.getIpAddressIndex(Arrays.asList("10.0.0.0/8", "192.168.*")), matcher2.getIpAddressIndex(Arrays.asList("10.0.0.0/8", "192.168.*")));
+		Assert.assertNotSame(matcher1.getIpAddressIndex(Arrays.asList("10.0.0.0/8", "192.168.*")), matcher3.getIpAddressIndex(Arrays.asList("10.0.0.0/8")));
+
+		Assert.assertTrue(matcher2.isMatched(createRequest("192.168.1.1")));
+		Assert.assertFalse(matcher3.isMatched(createRequest("192.168.1.1")));
+	}
+
 	RangerIpMatcher createMatcher(String[] ipArray) {
 		RangerIpMatcher matcher = new RangerIpMatcher();
 
@@ -27,6 +27,7 @@
 import org.apache.ranger.plugin.policyengine.RangerRequestScriptEvaluator;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCompiledScriptCache;
 import org.apache.ranger.plugin.util.RangerUserStore;
 import org.apache.ranger.plugin.util.ScriptEngineUtil;
 import org.junit.Assert;
@@ -257,6 +258,36 @@ public void testRequestAttributes() {
         Assert.assertEquals("GET_USER_ATTR_Q('state', null, ',', '{', '}')", "{CA}", evaluator.evaluateScript("GET_USER_ATTR_Q('state', null, ',', '{', '}')"));
     }
 
+    @Test
+    public void testUgAttrsFromUserStoreIndex() {
+        RangerUserStore                  userStore        = new RangerUserStore();
+        Map<String, Map<String, String>> groupAttrMapping = new HashMap<>();
+
+        groupAttrMapping.put("test-group1", new HashMap<String, String>() {{ put("dept", "ENGG"); put("_name", "group-1"); }});
+        groupAttrMapping.put("test-group2", new HashMap<String, String>() {{ put("site", "20"); }});
+
+        userStore.setUserAttrMapping(Collections.singletonMap("test-user", Collections.singletonMap("state", "CA")));
+        userStore.setGroupAttrMapping(groupAttrMapping);
+        userStore.setUserGroupMapping(Collections.singletonMap("test-user", new HashSet<>(Arrays.asList("test-group1", "test-group2"))));
+        userStore.buildUserStoreIndex(null);
+
+        // groups same as in userstore: attribute names are from the index; other groups: computed from each group
+        for (Set<String> userGroups : Arrays.asList(new HashSet<>(Arrays.asList("test-group1", "test-group2")), new HashSet<>(Arrays.asList("test-group1", "test-group2", "test-group3")))) {
+            RangerAccessRequest request = createRequest("test-user", userGroups, Collections.emptySet(), null);
+
+            RangerAccessRequestUtil.setRequestUserStoreInContext(request.getContext(), userStore);
+
+            RangerRequestScriptEvaluator evaluator = new RangerRequestScriptEvaluator(request, scriptEngine);
+
+            Assert.assertEquals("test: UG_ATTR_NAMES_CSV", "dept,site", evaluator.evaluateScript("UG_ATTR_NAMES_CSV"));
+            Assert.assertTrue("test: HAS_UG_ATTR(dept)", (Boolean) evaluator.evaluateScript("HAS_UG_ATTR('dept')"));
+            Assert.assertTrue("test: HAS_UG_ATTR(site)", (Boolean) evaluator.evaluateScript("HAS_UG_ATTR('site')"));
+            Assert.assertTrue("test: HAS_UG_ATTR(_name)", (Boolean) evaluator.evaluateScript("HAS_UG_ATTR('_name')"));
+            Assert.assertFalse("test: HAS_UG_ATTR(notExists)", (Boolean) evaluator.evaluateScript("HAS_UG_ATTR('notExists')"));
+            Assert.assertTrue("test: UG['test-group1']._name is 'test-group1'", (Boolean) evaluator.evaluateScript("UG['test-group1']._name == 'test-group1'"));
+        }
+    }
+
     @Test
     public void testNonExistentValues() {
         RangerAccessRequest          request   = createRequest("test-user", Collections.emptySet(), Collections.emptySet(), Collections.emptyList());
@@ -424,6 +455,32 @@ public void testIntersectsIncludes() {
         Assert.assertFalse("test: TAGS.DEPTS.names.split(',').includes(USER.dept)", (Boolean) evaluator.evaluateScript("TAGS.DEPTS.names.split(',').includes(USER.dept)"));
     }
 
+    @Test
+    public void testCompiledScriptCache() {
+        RangerCompiledScriptCache compiledScripts = new RangerCompiledScriptCache(scriptEngine);
+        RangerAccessRequest       request1        = createRequest("user1", Collections.singleton("group1"), Collections.emptySet(), Collections.emptyList());
+        RangerAccessRequest       request2        = createRequest("user2", Collections.singleton("group2"), Collections.emptySet(), Collections.emptyList());
+
+        for (int i = 0; i < 3; i++) {
+            RangerRequestScriptEvaluator evaluator1 = new RangerRequestScriptEvaluator(request1, compiledScripts, true);
+            RangerRequestScriptEvaluator evaluator2 = new RangerRequestScriptEvaluator(request2, compiledScripts, true);
+
+            // the same compiled script must see only the bindings of the evaluator that runs it
+            Assert.assertEquals("test: USER", "user1", evaluator1.evaluateScript("ctx.getUser()"));
+            Assert.assertEquals("test: USER", "user2", evaluator2.evaluateScript("ctx.getUser()"));
+            Assert.assertEquals("test: UG_NAMES_CSV", "group1", evaluator1.evaluateScript("UG_NAMES_CSV"));
+            Assert.assertEquals("test: UG_NAMES_CSV", "group2", evaluator2.evaluateScript("UG_NAMES_CSV"));
+            Assert.assertTrue("test: UG_NAMES.includes('group1')", (Boolean) evaluator1.evaluateScript("UGNAMES.includes('group1')"));
+            Assert.assertFalse("test: UG_NAMES.includes('group1')", (Boolean) evaluator2.evaluateScript("UGNAMES.includes('group1')"));
+        }
+
+        if (compiledScripts.isCompilable()) {
+            Assert.assertEquals("cached scripts", 4, compiledScripts.getSize()); // 3 scripts and the JSON context pre-exec
+            Assert.assertEquals("cache misses", 4, compiledScripts.getMissCount());
+            Assert.assertEquals("cache hits", 8 * 3 - 4, compiledScripts.getHitCount()); // 8 evaluations in each iteration
+        }
+    }
+
     @Test
     public void testBlockJavaClassReferences() {
         RangerAccessRequest          request   = createRequest("test-user", Collections.EMPTY_SET, Collections.EMPTY_SET, Collections.EMPTY_LIST);
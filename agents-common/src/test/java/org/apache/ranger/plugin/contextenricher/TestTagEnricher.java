@@ -30,6 +30,7 @@
 import org.apache.ranger.plugin.model.RangerServiceResource;
 import org.apache.ranger.plugin.model.RangerTag;
 import org.apache.ranger.plugin.model.RangerTagDef;
+import org.apache.ranger.plugin.model.RangerValiditySchedule;
 import org.apache.ranger.plugin.policyengine.*;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher.MatchType;
@@ -43,12 +44,21 @@
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TestTagEnricher {
@@ -94,6 +104,100 @@ public void testTagEnricher_hive() {
         runTestsFromResourceFiles(hiveTestResourceFiles);
     }
 
+    @Test
+    public void testResourceTagsValiditySchedule() {
+        RangerValiditySchedule expired     = new RangerValiditySchedule("2020/01/01 00:00:00", "2020/12/31 23:59:59", null, null);
+        RangerTagForEval       piiTag      = new RangerTagForEval(new RangerTag("PII", Collections.emptyMap()), MatchType.SELF);
+        RangerTagForEval       expiredTag  = new RangerTagForEval(new RangerTag(null, "EXPIRED", Collections.emptyMap(), null, null, Collections.singletonList(expired)), MatchType.SELF);
+        RangerTagForEval       financeTag  = new RangerTagForEval(new RangerTag("FINANCE", Collections.emptyMap()), MatchType.ANCESTOR);
+
+        RangerTagEnricher.ResourceTags tags   = RangerTagEnricher.ResourceTags.create(Arrays.asList(piiTag, expiredTag));
+        RangerTagEnricher.ResourceTags merged = RangerTagEnricher.ResourceTags.merge(Arrays.asList(tags, RangerTagEnricher.ResourceTags.create(Collections.singletonList(financeTag))));
+
+        assertEquals(Collections.singleton(piiTag), tags.getTags(new Date()));
+        assertEquals(new HashSet<>(Arrays.asList(piiTag, expiredTag)), tags.getTags(new GregorianCalendar(2020, Calendar.JUNE, 1).getTime()));
+        assertEquals(new HashSet<>(Arrays.asList(piiTag, financeTag)), merged.getTags(new Date()));
+        assertNull(RangerTagEnricher.ResourceTags.merge(Collections.emptyList()).getTags(new Date()));
+        assertTrue(tags.hasScheduledTags());
+        assertTrue(merged.hasScheduledTags());
+
+        RangerTagEnricher.ResourceTags alwaysValid = RangerTagEnricher.ResourceTags.create(Collections.singletonList(piiTag));
+
+        assertSame(alwaysValid.getTags(new Date()), alwaysValid.getTags(null));
+        assertFalse(alwaysValid.hasScheduledTags());
+    }
+
+    @Test
+    public void testTagLookupCache() {
+        InputStream         inStream = this.getClass().getResourceAsStream("/contextenricher/test_tagenricher_hive.json");
+        TagEnricherTestCase testCase = gsonBuilder.fromJson(new InputStreamReader(inStream), TagEnricherTestCase.class);
+
+        ServiceTags serviceTags = new ServiceTags();
+        serviceTags.setServiceName(testCase.serviceName);
+        serviceTags.setTagDefinitions(testCase.tagDefinitions);
+        serviceTags.setTags(testCase.tags);
+        serviceTags.setServiceResources(testCase.serviceResources);
+        serviceTags.setResourceToTagIds(testCase.resourceToTagIds);
+
+        RangerTagEnricher tagEnricher = new RangerTagEnricher();
+
+        tagEnricher.setServiceName(testCase.serviceName);
+        tagEnricher.setServiceDef(testCase.serviceDef);
+        tagEnricher.init();
+        tagEnricher.setServiceTags(serviceTags);
+
+        RangerTagEnricher.EnrichedServiceTags enrichedServiceTags = tagEnricher.getEnrichedServiceTags();
+
+        for (TestData test : testCase.tests) {
+            if (test.resource.getKeys() == null || test.resource.getKeys().isEmpty()) {
+                continue; // served from tagsForEmptyResourceAndAnyAccess, not looked up
+            }
+
+            // resources without serviceDef don't have a cache-key
+            ((RangerAccessResourceImpl) test.resource).setServiceDef(testCase.serviceDef);
+
+            RangerAccessRequestImpl        request   = new RangerAccessRequestImpl(test.resource, test.accessType, "testUser", null, null);
+            RangerTagEnricher.TagLookupKey lookupKey = enrichedServiceTags.getTagLookupKey(request);
+
+            assertNotNull(test.name, lookupKey);
+            assertNull(test.name, enrichedServiceTags.getCachedTagLookup(lookupKey));
+
+            tagEnricher.enrich(request);
+
+            RangerTagEnricher.ResourceTags cachedTags = enrichedServiceTags.getCachedTagLookup(lookupKey);
+            Set<RangerTagForEval>          firstTags  = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+
+            assertNotNull(test.name, cachedTags);
+
+            request = new RangerAccessRequestImpl(test.resource, test.accessType, "testUser", null, null);
+
+            tagEnricher.enrich(request);
+
+            assertSame(test.name, cachedTags, enrichedServiceTags.getCachedTagLookup(lookupKey));
+            assertEquals(test.name, firstTags, RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext()));
+        }
+    }
+
+    @Test
+    public void testTagLookupCacheIsBounded() {
+        RangerTagEnricher.TagLookupCache cache = new RangerTagEnricher.TagLookupCache(100);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new RangerTagEnricher.TagLookupKey("resource-" + i, null, null, false), RangerTagEnricher.ResourceTags.EMPTY);
+        }
+
+        assertTrue("size=" + cache.size(), cache.size() > 0 && cache.size() <= 100);
+        assertSame(RangerTagEnricher.ResourceTags.EMPTY, cache.get(new RangerTagEnricher.TagLookupKey("resource-999", null, null, false)));
+        assertNull(cache.get(new RangerTagEnricher.TagLookupKey("resource-0", null, null, false)));
+
+        RangerTagEnricher.TagLookupCache smallCache = new RangerTagEnricher.TagLookupCache(1);
+
+        smallCache.put(new RangerTagEnricher.TagLookupKey("resource-1", null, null, false), RangerTagEnricher.ResourceTags.EMPTY);
+        smallCache.put(new RangerTagEnricher.TagLookupKey("resource-2", null, null, false), RangerTagEnricher.ResourceTags.EMPTY);
+
+        assertEquals(1, smallCache.size());
+    }
+
     private void runTestsFromResourceFiles(String[] resourceNames) {
         for(String resourceName : resourceNames) {
             InputStream       inStream = this.getClass().getResourceAsStream(resourceName);
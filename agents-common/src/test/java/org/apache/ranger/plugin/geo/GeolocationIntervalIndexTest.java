@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.geo;
+
+import org.apache.ranger.plugin.store.file.GeolocationFileStore;
+import org.apache.ranger.plugin.util.RangerIpAddressUtil;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GeolocationIntervalIndexTest {
+	@Test
+	public void testFileStoreLookup() {
+		RangerGeolocationDatabase dotFormatDb  = loadDatabase("/etc/ranger/geo/geo.txt", true);
+		RangerGeolocationDatabase longFormatDb = loadDatabase("/etc/ranger/geo/geo_long.txt", false);
+
+		assertEquals(21, dotFormatDb.getIndex().size());
+		assertEquals(21, longFormatDb.getIndex().size());
+
+		String[] addresses = new String[] { "1.0.32.1", "128.101.101.99", "128.101.101.100", "128.101.101.255", "20.0.100.95", "255.255.255.255", "10.0.3.1", "0.0.0.0", "::1" };
+		String[] countries = new String[] { "CN",       null,             "US",              "US",              "UK",          "CN",              null,       null,      null };
+
+		for (int i = 0; i < addresses.length; i++) {
+			assertEquals("incorrect country for " + addresses[i], countries[i], dotFormatDb.getValue(dotFormatDb.find(addresses[i]), "COUNTRY_CODE"));
+			assertEquals("incorrect country for " + addresses[i], countries[i], longFormatDb.getValue(longFormatDb.find(addresses[i]), "COUNTRY_CODE"));
+		}
+	}
+
+	@Test
+	public void testIPv6Ranges() {
+		GeolocationIntervalIndex.Builder builder = new GeolocationIntervalIndex.Builder();
+
+		assertTrue(builder.add(new String[] { "2001:db8::", "2001:db8::ffff", "ZZ", "Test" }, true));
+		assertTrue(builder.add(new String[] { "10.0.0.0", "10.0.0.255", "US", "United States" }, true));
+		assertTrue(builder.add(new String[] { "42540766411283801782723599580828532736", "42540766411283801782723599580828598271", "XX", "Test" }, false)); // 2001:db8:1::/112
+		assertFalse(builder.add(new String[] { "10.0.1.255", "10.0.1.0", "US", "United States" }, true));
+		assertFalse(builder.add(new String[] { "not-a-number", "10", "US", "United States" }, false));
+
+		GeolocationIntervalIndex index = builder.build();
+
+		assertEquals(3, index.size());
+		assertEquals("ZZ", index.find("2001:db8::10").getLocationData()[0]);
+		assertEquals("XX", index.find("2001:db8:1::ffff").getLocationData()[0]);
+		assertEquals("US", index.find("10.0.0.1").getLocationData()[0]);
+		assertEquals("US", index.find("::ffff:10.0.0.1").getLocationData()[0]);
+		assertNull(index.find("2001:db8::1:0"));
+		assertNull(index.find("2001:db9::"));
+		assertEquals("{from=2001:db8:0:0:0:0:0:0, to=2001:db8:0:0:0:0:0:ffff, location={ZZ, Test, }}", index.find("2001:db8::10").toString());
+	}
+
+	@Test
+	public void testNonIPAddressesAreNotResolved() {
+		GeolocationIntervalIndex.Builder builder = new GeolocationIntervalIndex.Builder();
+
+		assertTrue(builder.add(new String[] { "127.0.0.0", "127.0.0.255", "ZZ", "Loopback" }, true));
+
+		GeolocationIntervalIndex index = builder.build();
+
+		assertEquals("ZZ", index.find("127.0.0.1").getLocationData()[0]);
+
+		// hostnames are not looked up in DNS
+		for (String address : new String[] { "localhost", "unknown", "", " ", null, "127.0.0.1.1", "::1::1" }) {
+			assertNull("unexpected location for " + address, index.find(address));
+		}
+	}
+
+	@Test
+	public void testLookupMatchesBinarySearchTree() {
+		Random                                        random  = new Random(7);
+		String[][]                                    rows    = new String[][] { { "US", "United States" }, { "CA", "Canada" }, { "IN", "India" } };
+		BinarySearchTree<RangerGeolocationData, Long> tree    = new BinarySearchTree<>();
+		GeolocationIntervalIndex.Builder              builder = new GeolocationIntervalIndex.Builder();
+		long                                          next    = 1;
+
+		for (int i = 0; i < 5000; i++) {
+			long     from   = next + random.nextInt(100);
+			long     to     = from + random.nextInt(1000);
+			String[] fields = new String[] { Long.toString(from), Long.toString(to), rows[i % rows.length][0], rows[i % rows.length][1] };
+
+			tree.insert(RangerGeolocationData.create(fields, i, false));
+			builder.add(fields, false);
+
+			next = to + 1;
+		}
+
+		tree.rebalance();
+
+		GeolocationIntervalIndex index = builder.build();
+
+		assertEquals(5000, index.size());
+		assertEquals(rows.length, index.getRowCount());
+
+		for (int i = 0; i < 100000; i++) {
+			long                  ip       = random.nextInt((int) next + 100);
+			RangerGeolocationData expected = tree.find(ip);
+			RangerGeolocationData actual   = index.find(0L, RangerIpAddressUtil.IPV4_MAPPED_PREFIX | ip);
+
+			assertEquals("incorrect range for " + ip, expected, actual);
+		}
+
+		assertSame(index.get(0).getLocationData(), index.get(rows.length).getLocationData());
+	}
+
+	private static RangerGeolocationDatabase loadDatabase(String filePath, boolean useDotFormat) {
+		GeolocationFileStore store   = new GeolocationFileStore();
+		Map<String, String>  context = new HashMap<>();
+
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_FILE_LOCATION, filePath);
+		context.put(GeolocationFileStore.PROP_GEOLOCATION_IP_IN_DOT_FORMAT, Boolean.toString(useDotFormat));
+
+		store.init(context);
+
+		RangerGeolocationDatabase ret = store.getGeoDatabase();
+
+		assertNotNull(ret);
+
+		return ret;
+	}
+}
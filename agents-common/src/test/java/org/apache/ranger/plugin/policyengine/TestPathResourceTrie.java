@@ -19,6 +19,7 @@
 
 package org.apache.ranger.plugin.policyengine;
 
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest.ResourceElementMatchingScope;
@@ -26,8 +27,10 @@
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
+import org.apache.ranger.plugin.util.RangerBatchLookupCache;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,6 +40,7 @@
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 
 public class TestPathResourceTrie {
@@ -68,7 +72,8 @@ public class TestPathResourceTrie {
 																						EVAL_TMPA_B
 																						);
 
-	private final RangerResourceTrie<RangerResourceEvaluator> trie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> trie        = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS);
+	private final RangerResourceTrie<RangerResourceEvaluator> compactTrie = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, true, false, getCompactNodesPluginContext());
 
 	@Test
 	public void testChildrenScope() {
@@ -115,11 +120,103 @@ public void testSelfScope() {
 		verifyEvaluators("invalid: does-not-begin-with-sep", scope);
 	}
 
+	@Test
+	public void testBatchLookupCache() {
+		RangerBatchLookupCache lookupCache = new RangerBatchLookupCache();
+		String[]               resources   = new String[] { "/", "/tmp", "/tmp/ac/d/e", "/unmatched", "invalid: does-not-begin-with-sep" };
+
+		for (int i = 0; i < 2; i++) {
+			for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+				for (String resource : resources) {
+					assertEquals("incorrect evaluators from batch cache for resource " + resource, trie.getEvaluatorsForResource(resource, scope), lookupCache.getEvaluatorsForResource(trie, resource, scope));
+					assertEquals("incorrect evaluators from batch cache for resource " + resource, compactTrie.getEvaluatorsForResource(resource, scope), lookupCache.getEvaluatorsForResource(compactTrie, resource, scope));
+				}
+			}
+		}
+
+		int lookupsPerPass = ResourceElementMatchingScope.values().length * resources.length * 2;
+
+		assertEquals(lookupsPerPass * 2, lookupCache.getLookupCount());
+		assertEquals(lookupsPerPass, lookupCache.getHitCount());
+	}
+
+	@Test
+	public void testBatchLookupCacheRoles() {
+		RangerBatchLookupCache lookupCache = new RangerBatchLookupCache();
+		int[]                  loadCount   = new int[1];
+		Set<String>            groups      = Collections.singleton("finance");
+
+		for (int i = 0; i < 3; i++) {
+			Set<String> roles = lookupCache.getRolesForUserAndGroups("user1", groups, (user, userGroups) -> { loadCount[0]++; return new HashSet<>(Collections.singleton("role1")); });
+
+			assertEquals(Collections.singleton("role1"), roles);
+
+			roles.add("role-added-by-caller");
+		}
+
+		assertEquals(1, loadCount[0]);
+		assertNull(lookupCache.getRolesForUserAndGroups("user2", groups, (user, userGroups) -> null));
+		assertNull(lookupCache.getRolesForUserAndGroups("user2", groups, (user, userGroups) -> Collections.singleton("unexpected")));
+	}
+
+	@Test
+	public void testCopyOnWriteUpdate() {
+		final String[]                      resources       = new String[] { "/", "/home", "/home/user1", "/tmp", "/tmp/", "/tmp/a", "/tmp/ab", "/tmp/ad", "/tmp/ac/d/e", "/tmpfile", "/unmatched" };
+		final RangerResourceEvaluator       evalTmpAd       = getEvaluator("/tmp/ad", false, false);
+		final RangerResourceEvaluator       evalHomeUser1   = getEvaluator("/home/user1/*", false, false);
+		final boolean[][]                   trieOptions     = new boolean[][] { { true, false }, { false, false }, { false, true } }; // isOptimizedForRetrieval, isOptimizedForSpace
+		final List<RangerResourceEvaluator> finalEvaluators = new ArrayList<>(EVALUATORS);
+
+		finalEvaluators.remove(EVAL_TMP_AB);
+		finalEvaluators.remove(EVAL_HOME);
+		finalEvaluators.add(evalTmpAd);
+		finalEvaluators.add(evalHomeUser1);
+
+		for (boolean[] options : trieOptions) {
+			RangerResourceTrie<RangerResourceEvaluator> source   = new RangerResourceTrie<>(PATH_RESOURCE_DEF, EVALUATORS, options[0], options[1], null);
+			RangerResourceTrie<RangerResourceEvaluator> expected = new RangerResourceTrie<>(PATH_RESOURCE_DEF, finalEvaluators, options[0], options[1], null);
+			Map<String, Set<RangerResourceEvaluator>>   before   = new HashMap<>();
+
+			for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+				for (String resource : resources) {
+					before.put(resource + scope, source.getEvaluatorsForResource(resource, scope));
+				}
+			}
+
+			RangerResourceTrie<RangerResourceEvaluator> copy = new RangerResourceTrie<>(source, true);
+
+			copy.delete(getPolicyResource(EVAL_TMP_AB), EVAL_TMP_AB);
+			copy.delete(getPolicyResource(EVAL_HOME), EVAL_HOME); // recursive, hence a wildcard-evaluator
+			copy.add(getPolicyResource(evalTmpAd), evalTmpAd);
+			copy.add(getPolicyResource(evalHomeUser1), evalHomeUser1);
+			copy.wrapUpUpdate();
+
+			for (ResourceElementMatchingScope scope : ResourceElementMatchingScope.values()) {
+				for (String resource : resources) {
+					assertEquals("incorrect evaluators from copy-on-write trie for resource " + resource + ", scope " + scope, expected.getEvaluatorsForResource(resource, scope), copy.getEvaluatorsForResource(resource, scope));
+					assertEquals("source trie updated for resource " + resource + ", scope " + scope, before.get(resource + scope), source.getEvaluatorsForResource(resource, scope));
+				}
+			}
+		}
+	}
+
 	private void verifyEvaluators(String resource, ResourceElementMatchingScope scope, RangerResourceEvaluator... evaluators) {
 		Set<RangerResourceEvaluator> expected = evaluators.length == 0 ? null : new HashSet<>(Arrays.asList(evaluators));
 		Set<RangerResourceEvaluator> result   = trie.getEvaluatorsForResource(resource, scope);
 
 		assertEquals("incorrect evaluators for resource "  + resource, expected, result);
+
+		result = compactTrie.getEvaluatorsForResource(resource, scope);
+
+		assertEquals("incorrect evaluators from compact trie for resource "  + resource, expected, result);
+	}
+
+	private static RangerPluginContext getCompactNodesPluginContext() {
+		RangerPluginConfig config = new RangerPluginConfig("hdfs", null, "test-compact-trie", null, null, null);
+
+		config.setBoolean(RangerResourceTrie.TRIE_COMPACT_NODES, true);
+
+		return new RangerPluginContext(config);
 	}
 
 	private static RangerResourceDef getPathResourceDef() {
@@ -140,6 +237,10 @@ private static RangerResourceDef getPathResourceDef() {
 		return ret;
 	}
 
+	private static RangerPolicyResource getPolicyResource(RangerResourceEvaluator evaluator) {
+		return evaluator.getPolicyResource().get(PATH_RESOURCE_DEF.getName());
+	}
+
 	private static RangerResourceEvaluator getEvaluator(String resource) {
 		return  new TestPolicyResourceEvaluator(new RangerPolicyResource(resource, false, true));
 	}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerValiditySchedule;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServiceTags;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerAccessResultCache {
+	private static final RangerAccessResultCache.Versions VERSIONS_1 = new RangerAccessResultCache.Versions(1, -1, -1, 1, 1);
+	private static final RangerAccessResultCache.Versions VERSIONS_2 = new RangerAccessResultCache.Versions(2, -1, -1, 1, 1);
+
+	@Test
+	public void testHitAndMiss() {
+		RangerAccessResultCache          cache   = new RangerAccessResultCache(16);
+		RangerAccessRequest              request = createRequest("db1", "select", "user1");
+		RangerAccessResultCache.CacheKey key     = cache.getCacheKey(request, RangerPolicy.POLICY_TYPE_ACCESS);
+
+		assertNotNull(key);
+		assertNull(cache.get(key, request, VERSIONS_1));
+
+		cache.put(key, createResult(request, true, 10), VERSIONS_1);
+
+		RangerAccessRequest sameRequest = createRequest("db1", "select", "user1");
+		RangerAccessResult  result      = cache.get(cache.getCacheKey(sameRequest, RangerPolicy.POLICY_TYPE_ACCESS), sameRequest, VERSIONS_1);
+
+		assertNotNull(result);
+		assertTrue(result.getIsAllowed());
+		assertEquals(10, result.getPolicyId());
+		assertTrue(result.getAccessRequest() == sameRequest);
+
+		RangerAccessRequest otherUser = createRequest("db1", "select", "user2");
+
+		assertNull(cache.get(cache.getCacheKey(otherUser, RangerPolicy.POLICY_TYPE_ACCESS), otherUser, VERSIONS_1));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testVersionChangeInvalidates() {
+		RangerAccessResultCache          cache   = new RangerAccessResultCache(16);
+		RangerAccessRequest              request = createRequest("db1", "select", "user1");
+		RangerAccessResultCache.CacheKey key     = cache.getCacheKey(request, RangerPolicy.POLICY_TYPE_ACCESS);
+
+		cache.put(key, createResult(request, false, 11), VERSIONS_1);
+
+		assertNull(cache.get(key, request, VERSIONS_2));
+		assertEquals(1, cache.getInvalidationCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEviction() {
+		RangerAccessResultCache cache = new RangerAccessResultCache(4);
+
+		for (int i = 0; i < 10; i++) {
+			RangerAccessRequest request = createRequest("db" + i, "select", "user1");
+
+			cache.put(cache.getCacheKey(request, RangerPolicy.POLICY_TYPE_ACCESS), createResult(request, true, i), VERSIONS_1);
+		}
+
+		assertEquals(4, cache.size());
+		assertEquals(6, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testBypass() {
+		RangerAccessResultCache cache      = new RangerAccessResultCache(16);
+		RangerAccessRequest     anyRequest = createRequest("db1", RangerPolicyEngine.ANY_ACCESS, "user1");
+
+		assertNull(cache.getCacheKey(anyRequest, RangerPolicy.POLICY_TYPE_ACCESS));
+		assertEquals(1, cache.getBypassCount());
+
+		RangerAccessRequest request = createRequest("db1", "select", "user1");
+		RangerAccessResult  result  = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, "svc", null, request);
+
+		cache.put(cache.getCacheKey(request, RangerPolicy.POLICY_TYPE_ACCESS), result, VERSIONS_1); // access not determined, should not be stored
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testScheduledTagWindowOpensBetweenRequests() {
+		RangerAccessResultCache cache       = new RangerAccessResultCache(16);
+		RangerTagEnricher       tagEnricher = createTagEnricher("db1", new RangerValiditySchedule("2030/01/01 00:00:00", "2030/12/31 23:59:59", null, null));
+
+		// PII tag on db1 is not yet valid: the request gets no tags, but must not be cached
+		RangerAccessRequestImpl beforeWindow = (RangerAccessRequestImpl) createRequest("db1", "select", "user1");
+
+		beforeWindow.setAccessTime(new GregorianCalendar(2029, Calendar.DECEMBER, 31).getTime());
+		tagEnricher.enrich(beforeWindow);
+
+		assertNull(RangerAccessRequestUtil.getRequestTagsFromContext(beforeWindow.getContext()));
+		assertTrue(RangerAccessRequestUtil.getHasScheduledTagsInContext(beforeWindow.getContext()));
+		assertNull(cache.getCacheKey(beforeWindow, RangerPolicy.POLICY_TYPE_ACCESS));
+
+		// same request, once the window opened, gets the tag
+		RangerAccessRequestImpl inWindow = (RangerAccessRequestImpl) createRequest("db1", "select", "user1");
+
+		inWindow.setAccessTime(new GregorianCalendar(2030, Calendar.JUNE, 1).getTime());
+		tagEnricher.enrich(inWindow);
+
+		Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(inWindow.getContext());
+
+		assertNotNull(tags);
+		assertEquals("PII", tags.iterator().next().getType());
+		assertNull(cache.getCacheKey(inWindow, RangerPolicy.POLICY_TYPE_ACCESS));
+
+		// resources without scheduled tags are still cached
+		RangerAccessRequestImpl untagged = (RangerAccessRequestImpl) createRequest("db2", "select", "user1");
+
+		tagEnricher.enrich(untagged);
+
+		assertNotNull(cache.getCacheKey(untagged, RangerPolicy.POLICY_TYPE_ACCESS));
+		assertEquals(2, cache.getBypassCount());
+	}
+
+	private static RangerTagEnricher createTagEnricher(String database, RangerValiditySchedule validityPeriod) {
+		RangerServiceDef  serviceDef  = new RangerServiceDef();
+		RangerResourceDef resourceDef = new RangerResourceDef();
+		Map<String, String> matcherOptions = new HashMap<>();
+
+		matcherOptions.put("wildCard", "true");
+		matcherOptions.put("ignoreCase", "true");
+
+		resourceDef.setName("database");
+		resourceDef.setLevel(1);
+		resourceDef.setMandatory(true);
+		resourceDef.setMatcher("org.apache.ranger.plugin.resourcematcher.RangerDefaultResourceMatcher");
+		resourceDef.setMatcherOptions(matcherOptions);
+		serviceDef.setName("hive");
+		serviceDef.setResources(Collections.singletonList(resourceDef));
+
+		RangerServiceResource serviceResource = new RangerServiceResource("svc", Collections.singletonMap("database", new RangerPolicyResource(database)));
+		RangerTag             tag             = new RangerTag(null, "PII", Collections.emptyMap(), null, null, Collections.singletonList(validityPeriod));
+		ServiceTags           serviceTags     = new ServiceTags();
+
+		serviceResource.setId(1L);
+		tag.setId(1L);
+
+		serviceTags.setServiceName("svc");
+		serviceTags.setTags(Collections.singletonMap(1L, tag));
+		serviceTags.setServiceResources(Collections.singletonList(serviceResource));
+		serviceTags.setResourceToTagIds(Collections.singletonMap(1L, Collections.singletonList(1L)));
+
+		RangerTagEnricher ret = new RangerTagEnricher();
+
+		ret.setServiceName("svc");
+		ret.setServiceDef(serviceDef);
+		ret.init();
+		ret.setServiceTags(serviceTags);
+
+		return ret;
+	}
+
+	private static RangerAccessRequest createRequest(String database, String accessType, String user) {
+		RangerServiceDef  serviceDef  = new RangerServiceDef();
+		RangerResourceDef resourceDef = new RangerResourceDef();
+
+		resourceDef.setName("database");
+		serviceDef.setResources(Collections.singletonList(resourceDef));
+
+		RangerAccessResourceImpl resource = new RangerAccessResourceImpl(Collections.singletonMap("database", database));
+
+		resource.setServiceDef(serviceDef);
+
+		return new RangerAccessRequestImpl(resource, accessType, user, new HashSet<>(Collections.singleton("group1")), null);
+	}
+
+	private static RangerAccessResult createResult(RangerAccessRequest request, boolean isAllowed, long policyId) {
+		RangerAccessResult ret = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, "svc", null, request);
+
+		ret.setIsAccessDetermined(true);
+		ret.setIsAllowed(isAllowed);
+		ret.setPolicyId(policyId);
+
+		return ret;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class TestRangerPolicyEngineInitExecutor {
+    @Test
+    public void testResultOrder() {
+        List<Integer> items = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            items.add(i);
+        }
+
+        for (int threadCount : new int[] { 1, 4 }) {
+            Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+            try (RangerPolicyEngineInitExecutor executor = new RangerPolicyEngineInitExecutor(threadCount)) {
+                List<String> results = executor.map(items, item -> { threadNames.add(Thread.currentThread().getName()); return "item-" + item; });
+
+                assertEquals(items.size(), results.size());
+
+                for (int i = 0; i < items.size(); i++) {
+                    assertEquals("item-" + i, results.get(i));
+                }
+
+                assertEquals(threadCount > 1, executor.isParallel());
+                assertEquals(items.size(), executor.getMetrics().getTaskCount());
+            }
+
+            if (threadCount == 1) {
+                assertEquals(Collections.singleton(Thread.currentThread().getName()), threadNames);
+            } else {
+                assertFalse(threadNames.contains(Thread.currentThread().getName()));
+            }
+        }
+    }
+
+    @Test
+    public void testNestedMap() {
+        List<Integer> zones = new ArrayList<>();
+        List<Integer> items = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            zones.add(i);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            items.add(i);
+        }
+
+        try (RangerPolicyEngineInitExecutor executor = new RangerPolicyEngineInitExecutor(4)) {
+            List<List<Integer>> results = executor.map(zones, zone -> executor.map(items, item -> zone * 1000 + item));
+
+            for (int zone = 0; zone < zones.size(); zone++) {
+                for (int item = 0; item < items.size(); item++) {
+                    assertEquals(Integer.valueOf(zone * 1000 + item), results.get(zone).get(item));
+                }
+            }
+
+            assertEquals(zones.size() + zones.size() * items.size(), executor.getMetrics().getTaskCount());
+        }
+    }
+
+    @Test
+    public void testContextClassLoaderAndException() {
+        ClassLoader callerClassLoader = Thread.currentThread().getContextClassLoader();
+        List<Integer> items           = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            items.add(i);
+        }
+
+        try (RangerPolicyEngineInitExecutor executor = new RangerPolicyEngineInitExecutor(4)) {
+            List<Boolean> results = executor.map(items, item -> Thread.currentThread().getContextClassLoader() == callerClassLoader);
+
+            assertFalse(results.contains(Boolean.FALSE));
+
+            try {
+                executor.map(items, item -> { if (item == 50) { throw new IllegalStateException("failed to build item " + item); } return item; });
+
+                fail("exception not propagated");
+            } catch (IllegalStateException excp) {
+                // expected
+            }
+        }
+    }
+}
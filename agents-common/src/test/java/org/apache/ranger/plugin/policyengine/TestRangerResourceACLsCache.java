@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.model.RangerPrincipal.PrincipalType;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerResourceACLsCache {
+	private static final String SERVICE_TYPE = "test";
+	private static final String SERVICE_NAME = "dev_test";
+
+	@Test
+	public void testCachedACLsMatchComputed() {
+		ServicePolicies         servicePolicies = createServicePolicies(createPolicy(1L, "db1", "user1"), createPolicy(2L, "db2", "user2"));
+		RangerPolicyEngineImpl  engine          = createPolicyEngine(servicePolicies, true);
+		RangerPolicyEngineImpl  uncachedEngine  = createPolicyEngine(servicePolicies, false);
+		RangerResourceACLsCache cache           = engine.getResourceACLsCache();
+
+		assertNotNull(cache);
+
+		RangerResourceACLs acls = engine.getResourceACLs(createRequest("db1"));
+
+		assertEquals(uncachedEngine.getResourceACLs(createRequest("db1")), acls);
+		assertEquals(1, cache.size());
+
+		// returned ACLs are copies; changes by the caller must not affect the cached ACLs
+		acls.getUserACLs().clear();
+
+		assertEquals(uncachedEngine.getResourceACLs(createRequest("db1")), engine.getResourceACLs(createRequest("db1")));
+		assertEquals(1, cache.getHitCount());
+
+		List<String> visited = new ArrayList<>();
+
+		engine.visitResourceACLs(createRequest("db1"), null, (principalType, principalName, accessType, accessResult) -> {
+			if (principalType == PrincipalType.USER) {
+				visited.add(principalName + ":" + accessType);
+			}
+		});
+
+		assertEquals(Collections.singletonList("user1:select"), visited);
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void testDeltaInvalidatesOnlyAffectedResources() {
+		ServicePolicies        servicePolicies = createServicePolicies(createPolicy(1L, "db1", "user1"), createPolicy(2L, "db2", "user2"));
+		RangerPolicyEngineImpl engine          = createPolicyEngine(servicePolicies, true);
+
+		engine.getResourceACLs(createRequest("db1"));
+		engine.getResourceACLs(createRequest("db2"));
+		engine.getResourceACLs(createRequest("db3"));
+
+		assertEquals(3, engine.getResourceACLsCache().size());
+
+		// update of policy 2 affects only db2
+		RangerPolicyEngineImpl updatedEngine = (RangerPolicyEngineImpl) RangerPolicyEngineImpl.getPolicyEngine(engine, createDelta(2L, RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, createPolicy(2L, "db2", "user3")));
+
+		assertNotNull(updatedEngine);
+		assertEquals(2, updatedEngine.getResourceACLsCache().size());
+		assertTrue(updatedEngine.getResourceACLs(createRequest("db2")).getUserACLs().containsKey("user3"));
+		assertFalse(updatedEngine.getResourceACLs(createRequest("db2")).getUserACLs().containsKey("user2"));
+		assertTrue(updatedEngine.getResourceACLs(createRequest("db1")).getUserACLs().containsKey("user1"));
+		assertEquals(2, updatedEngine.getResourceACLsCache().getHitCount());
+
+		// new policy for db3 affects only db3, though no policy was evaluated earlier for it
+		updatedEngine = (RangerPolicyEngineImpl) RangerPolicyEngineImpl.getPolicyEngine(updatedEngine, createDelta(3L, RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, createPolicy(3L, "db3", "user4")));
+
+		assertNotNull(updatedEngine);
+		assertEquals(2, updatedEngine.getResourceACLsCache().size());
+		assertTrue(updatedEngine.getResourceACLs(createRequest("db3")).getUserACLs().containsKey("user4"));
+
+		// deletion of policy 1 affects only db1
+		updatedEngine = (RangerPolicyEngineImpl) RangerPolicyEngineImpl.getPolicyEngine(updatedEngine, createDelta(4L, RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, createPolicy(1L, "db1", "user1")));
+
+		assertNotNull(updatedEngine);
+		assertEquals(2, updatedEngine.getResourceACLsCache().size());
+		assertTrue(updatedEngine.getResourceACLs(createRequest("db1")).getUserACLs().isEmpty());
+	}
+
+	@Test
+	public void testDeltaWithUnzonedPolicyInvalidates() {
+		RangerPolicyEngineImpl engine = createPolicyEngine(createServicePolicies(createPolicy(1L, "db1", "user1")), true);
+
+		engine.getResourceACLs(createRequest("db2"));
+
+		assertEquals(1, engine.getResourceACLsCache().size());
+
+		// Ranger admin sets zoneName to "" for policies not in a security-zone
+		RangerPolicy policy = createPolicy(2L, "db2", "user2");
+
+		policy.setZoneName("");
+
+		RangerPolicyEngineImpl updatedEngine = (RangerPolicyEngineImpl) RangerPolicyEngineImpl.getPolicyEngine(engine, createDelta(2L, RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, policy));
+
+		assertNotNull(updatedEngine);
+		assertEquals(0, updatedEngine.getResourceACLsCache().size());
+		assertTrue(updatedEngine.getResourceACLs(createRequest("db2")).getUserACLs().containsKey("user2"));
+	}
+
+	@Test
+	public void testScheduledTagsNotCached() {
+		RangerPolicyEngineImpl engine  = createPolicyEngine(createServicePolicies(createPolicy(1L, "db1", "user1")), true);
+		RangerAccessRequest    request = createRequest("db1");
+
+		// set by the tag enricher when tags of the resource have validity schedules
+		RangerAccessRequestUtil.setHasScheduledTagsInContext(request.getContext(), true);
+
+		assertTrue(engine.getResourceACLs(request).getUserACLs().containsKey("user1"));
+		assertEquals(0, engine.getResourceACLsCache().size());
+		assertEquals(1, engine.getResourceACLsCache().getBypassCount());
+
+		engine.getResourceACLs(createRequest("db1"));
+
+		assertEquals(1, engine.getResourceACLsCache().size());
+	}
+
+	@Test
+	public void testDeltaForZoneNotInEngine() {
+		RangerPolicyEngineImpl engine = createPolicyEngine(createServicePolicies(createPolicy(1L, "db1", "user1")), true);
+
+		engine.getResourceACLs(createRequest("db1"));
+		engine.getResourceACLs(createRequest("db2"));
+
+		RangerPolicy policy = createPolicy(2L, "db2", "user2");
+
+		policy.setZoneName("unknown-zone");
+
+		RangerPolicyEngineImpl updatedEngine = (RangerPolicyEngineImpl) RangerPolicyEngineImpl.getPolicyEngine(engine, createDelta(2L, RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, policy));
+
+		assertNotNull(updatedEngine);
+		assertEquals(2, updatedEngine.getResourceACLsCache().size());
+		assertFalse(updatedEngine.getResourceACLs(createRequest("db2")).getUserACLs().containsKey("user2"));
+	}
+
+	private static RangerPolicyEngineImpl createPolicyEngine(ServicePolicies servicePolicies, boolean cacheResourceACLs) {
+		RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+
+		options.cacheResourceACLs = cacheResourceACLs;
+
+		RangerPluginContext pluginContext = new RangerPluginContext(new RangerPluginConfig(SERVICE_TYPE, SERVICE_NAME, "test-resource-acls-cache", "cl1", "on-prem", options));
+
+		return new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+	}
+
+	private static ServicePolicies createServicePolicies(RangerPolicy... policies) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(SERVICE_NAME);
+		ret.setServiceDef(createServiceDef());
+		ret.setPolicyVersion(1L);
+		ret.setPolicies(new ArrayList<>(Arrays.asList(policies)));
+
+		return ret;
+	}
+
+	private static ServicePolicies createDelta(long policyVersion, int changeType, RangerPolicy policy) {
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(SERVICE_NAME);
+		ret.setServiceDef(createServiceDef());
+		ret.setPolicyVersion(policyVersion);
+		ret.setPolicyDeltas(Collections.singletonList(new RangerPolicyDelta(policyVersion, changeType, policyVersion, policy)));
+
+		return ret;
+	}
+
+	private static RangerServiceDef createServiceDef() {
+		RangerServiceDef  ret         = new RangerServiceDef();
+		RangerResourceDef resourceDef = new RangerResourceDef();
+
+		resourceDef.setName("database");
+		resourceDef.setLevel(1);
+		resourceDef.setMatcher("org.apache.ranger.plugin.resourcematcher.RangerDefaultResourceMatcher");
+
+		ret.setName(SERVICE_TYPE);
+		ret.setResources(Collections.singletonList(resourceDef));
+		ret.setAccessTypes(Collections.singletonList(new RangerAccessTypeDef(1L, "select", "select", null, null)));
+
+		return ret;
+	}
+
+	private static RangerPolicy createPolicy(long id, String database, String user) {
+		RangerPolicy     ret  = new RangerPolicy();
+		RangerPolicyItem item = new RangerPolicyItem();
+
+		item.setUsers(Collections.singletonList(user));
+		item.setAccesses(Collections.singletonList(new RangerPolicyItemAccess("select")));
+
+		ret.setId(id);
+		ret.setName("policy-" + id);
+		ret.setService(SERVICE_NAME);
+		ret.setServiceType(SERVICE_TYPE);
+		ret.setPolicyType(RangerPolicy.POLICY_TYPE_ACCESS);
+		ret.setResources(Collections.singletonMap("database", new RangerPolicyResource(database)));
+		ret.setPolicyItems(Collections.singletonList(item));
+
+		return ret;
+	}
+
+	private static RangerAccessRequest createRequest(String database) {
+		return new RangerAccessRequestImpl(new RangerAccessResourceImpl(Collections.singletonMap("database", database)), RangerPolicyEngine.ANY_ACCESS, null, null, null);
+	}
+}
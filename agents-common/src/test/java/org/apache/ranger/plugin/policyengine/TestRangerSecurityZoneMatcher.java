@@ -75,6 +75,39 @@ public void testZoneMatcher() {
         assertEquals(createSet("", "z3", "z4"), zones);
     }
 
+    @Test
+    public void testZoneMatcherWithCachedResults() {
+        RangerSecurityZoneMatcher zoneMatcher = new RangerSecurityZoneMatcher(securityZones, serviceDef, pluginContext);
+
+        for (int i = 0; i < 2; i++) { // second iteration gets results from cache
+            assertEquals(createSet("z1"), zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db1", "table", "tbl1")));
+            assertEquals(createSet("z3"), zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db3", "table", "test_1")));
+            assertNull(zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db3", "table", "orders")));
+            assertEquals(createSet("z4"), zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db3", "table", "user_1")));
+            assertEquals(createSet("", "z3", "z4"), zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db3")));
+
+            // db5 is not in any zone: result is cached for the database, and shared by its tables
+            assertNull(zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db5", "table", "tbl" + i)));
+            assertNull(zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db5")));
+
+            Map<String, Object> resourceMap = new HashMap<>();
+
+            resourceMap.put("database", "db2");
+            resourceMap.put("table", "tbl1");
+
+            assertEquals(createSet("z2"), zoneMatcher.getZonesForResourceAndChildren(resourceMap));
+        }
+    }
+
+    @Test
+    public void testZoneMatcherWithoutZones() {
+        RangerSecurityZoneMatcher zoneMatcher = new RangerSecurityZoneMatcher(Collections.emptyMap(), serviceDef, pluginContext);
+
+        assertFalse(zoneMatcher.hasZones());
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(createResourceWithServiceDef("database", "db1", "table", "tbl1")));
+        assertNull(zoneMatcher.getZonesForResourceAndChildren(Collections.singletonMap("database", "db1")));
+    }
+
     private Map<String, SecurityZoneInfo> createSecurityZones() {
         HashMap<String, List<String>> db1     = new HashMap<String, List<String>>() {{ put("database", Arrays.asList("db1")); }};
         HashMap<String, List<String>> db2     = new HashMap<String, List<String>>() {{ put("database", Arrays.asList("db2")); }};
@@ -147,6 +180,14 @@ private RangerAccessResource createResource(String...args) {
         return ret;
     }
 
+    private RangerAccessResource createResourceWithServiceDef(String...args) {
+        RangerAccessResourceImpl ret = (RangerAccessResourceImpl) createResource(args);
+
+        ret.setServiceDef(serviceDef);
+
+        return ret;
+    }
+
     private Set<String> createSet(String...args) {
         Set<String> ret = new HashSet<>();
 
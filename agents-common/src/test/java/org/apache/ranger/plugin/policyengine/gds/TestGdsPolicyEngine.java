@@ -58,6 +58,11 @@ public void testGdsPolicyEngineHive() throws Exception {
         runTestsFromResourceFile("/policyengine/gds/test_gds_policy_engine_hive.json");
     }
 
+    @Test
+    public void testGdsPolicyEngineHiveZones() throws Exception {
+        runTestsFromResourceFile("/policyengine/gds/test_gds_policy_engine_hive_zones.json");
+    }
+
     private void runTestsFromResourceFile(String resourceFile) throws Exception {
         InputStream       inStream = this.getClass().getResourceAsStream(resourceFile);
         InputStreamReader reader   = new InputStreamReader(inStream);
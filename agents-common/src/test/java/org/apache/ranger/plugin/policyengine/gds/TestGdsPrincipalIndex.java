@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine.gds;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestGdsPrincipalIndex {
+    private static final String GROUP_PUBLIC = RangerPolicyEngine.GROUP_PUBLIC;
+
+    @Test
+    public void testUsersGroupsAndRoles() {
+        GdsPrincipalIndex index = new GdsPrincipalIndex();
+
+        index.add(1L, Collections.singletonList(createPolicy(Arrays.asList("user1"), null, null)));
+        index.add(2L, Collections.singletonList(createPolicy(null, Arrays.asList("group1", GROUP_PUBLIC), null)));
+        index.add(3L, Collections.singletonList(createPolicy(null, null, Arrays.asList("role1"))));
+        index.add(4L, null);
+
+        assertEquals(asSet(1L), index.getIds(asSet("user1"), null, null));
+        assertEquals(asSet(2L), index.getIds(null, asSet("group1"), null));
+        assertEquals(asSet(2L), index.getIds(null, asSet(GROUP_PUBLIC), null));
+        assertEquals(asSet(3L), index.getIds(null, null, asSet("role1")));
+        assertEquals(asSet(1L, 2L, 3L), index.getIds(asSet("user1"), asSet(GROUP_PUBLIC), asSet("role1")));
+
+        // names are matched literally: a user or group is not implied to be in the public group, nor a role name a user
+        assertEquals(asSet(), index.getIds(asSet("user2"), asSet("group2"), null));
+        assertEquals(asSet(), index.getIds(asSet("role1"), asSet("role1"), null));
+        assertEquals(asSet(), index.getIds(null, null, null));
+        assertEquals(asSet(), new GdsPrincipalIndex().getIds(asSet("user1"), asSet(GROUP_PUBLIC), asSet("role1")));
+    }
+
+    @Test
+    public void testAllPolicyItemTypes() {
+        GdsPrincipalIndex index  = new GdsPrincipalIndex();
+        RangerPolicy      policy = new RangerPolicy();
+
+        policy.setPolicyItems(Collections.singletonList(createPolicyItem(Arrays.asList("allow-user"), null, null)));
+        policy.setDenyPolicyItems(Collections.singletonList(createPolicyItem(null, Arrays.asList("deny-group"), null)));
+        policy.setAllowExceptions(Collections.singletonList(createPolicyItem(null, null, Arrays.asList("allow-exception-role"))));
+        policy.setDenyExceptions(Collections.singletonList(createPolicyItem(Arrays.asList("deny-exception-user"), null, null)));
+
+        index.add(1L, Collections.singletonList(policy));
+
+        assertEquals(asSet(1L), index.getIds(asSet("allow-user"), null, null));
+        assertEquals(asSet(1L), index.getIds(null, asSet("deny-group"), null));
+        assertEquals(asSet(1L), index.getIds(null, null, asSet("allow-exception-role")));
+        assertEquals(asSet(1L), index.getIds(asSet("deny-exception-user"), null, null));
+    }
+
+    @Test
+    public void testMatchesPolicyItemReferences() {
+        Random                        random   = new Random(20231018L);
+        String[]                      users    = createNames("user", 20);
+        String[]                      groups   = createNames("group", 10);
+        String[]                      roles    = createNames("role", 5);
+        Map<Long, List<RangerPolicy>> policies = new HashMap<>();
+        GdsPrincipalIndex             index    = new GdsPrincipalIndex();
+
+        groups[0] = GROUP_PUBLIC;
+
+        for (long id = 1; id <= 100; id++) {
+            List<RangerPolicy> idPolicies = new ArrayList<>();
+
+            for (int i = random.nextInt(3); i > 0; i--) {
+                RangerPolicy policy = new RangerPolicy();
+
+                policy.setPolicyItems(createPolicyItems(random, users, groups, roles));
+                policy.setDenyPolicyItems(createPolicyItems(random, users, groups, roles));
+                policy.setAllowExceptions(createPolicyItems(random, users, groups, roles));
+                policy.setDenyExceptions(createPolicyItems(random, users, groups, roles));
+
+                idPolicies.add(policy);
+            }
+
+            policies.put(id, idPolicies);
+            index.add(id, idPolicies);
+        }
+
+        int matchedCount = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            Set<String> reqUsers  = pickNames(random, users, 2);
+            Set<String> reqGroups = pickNames(random, groups, 3);
+            Set<String> reqRoles  = pickNames(random, roles, 2);
+            Set<Long>   expected  = new HashSet<>();
+
+            for (Map.Entry<Long, List<RangerPolicy>> entry : policies.entrySet()) {
+                if (hasReference(entry.getValue(), reqUsers, reqGroups, reqRoles)) {
+                    expected.add(entry.getKey());
+                }
+            }
+
+            assertEquals("users=" + reqUsers + ", groups=" + reqGroups + ", roles=" + reqRoles, expected, index.getIds(reqUsers, reqGroups, reqRoles));
+
+            matchedCount += expected.size();
+        }
+
+        assertTrue("no principal matched any id", matchedCount > 0);
+    }
+
+    // same as GdsDatasetEvaluator.hasReference()/GdsProjectEvaluator.hasReference(), over all items of the policies
+    private static boolean hasReference(List<RangerPolicy> policies, Set<String> users, Set<String> groups, Set<String> roles) {
+        for (RangerPolicy policy : policies) {
+            for (List<RangerPolicyItem> policyItems : Arrays.asList(policy.getPolicyItems(), policy.getDenyPolicyItems(), policy.getAllowExceptions(), policy.getDenyExceptions())) {
+                for (RangerPolicyItem policyItem : policyItems) {
+                    if (RangerPolicyEvaluator.hasReference(policyItem, users, groups, roles)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static List<RangerPolicyItem> createPolicyItems(Random random, String[] users, String[] groups, String[] roles) {
+        List<RangerPolicyItem> ret = new ArrayList<>();
+
+        for (int i = random.nextInt(3); i > 0; i--) {
+            ret.add(createPolicyItem(new ArrayList<>(pickNames(random, users, 2)), new ArrayList<>(pickNames(random, groups, 1)), new ArrayList<>(pickNames(random, roles, 1))));
+        }
+
+        return ret;
+    }
+
+    private static RangerPolicy createPolicy(List<String> users, List<String> groups, List<String> roles) {
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setPolicyItems(Collections.singletonList(createPolicyItem(users, groups, roles)));
+
+        return ret;
+    }
+
+    private static RangerPolicyItem createPolicyItem(List<String> users, List<String> groups, List<String> roles) {
+        return new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("_ALL")), users, groups, roles, null, false);
+    }
+
+    private static String[] createNames(String prefix, int count) {
+        String[] ret = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            ret[i] = prefix + i;
+        }
+
+        return ret;
+    }
+
+    private static Set<String> pickNames(Random random, String[] names, int maxCount) {
+        Set<String> ret = new HashSet<>();
+
+        for (int i = random.nextInt(maxCount + 1); i > 0; i--) {
+            ret.add(names[random.nextInt(names.length)]);
+        }
+
+        return ret;
+    }
+
+    @SafeVarargs
+    private static <T> Set<T> asSet(T... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyevaluator;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerAccessTypeDef;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestPolicyItemPrincipalIndex {
+	private static final RangerServiceDef SERVICE_DEF = createServiceDef();
+
+	@Test
+	public void testShortListIsNotIndexed() {
+		List<RangerPolicyItemEvaluator> evaluators = new ArrayList<>();
+
+		for (int i = 0; i < PolicyItemPrincipalIndex.MIN_POLICY_ITEMS_TO_INDEX - 1; i++) {
+			evaluators.add(createEvaluator(Collections.singletonList("user" + i), null, null));
+		}
+
+		assertNull(PolicyItemPrincipalIndex.create(evaluators));
+		assertNull(PolicyItemPrincipalIndex.create(null));
+	}
+
+	@Test
+	public void testCandidates() {
+		List<RangerPolicyItemEvaluator> evaluators = new ArrayList<>();
+
+		evaluators.add(createEvaluator(Arrays.asList("user0", "user1"), null, null));                         // 0
+		evaluators.add(createEvaluator(null, Collections.singletonList("group1"), null));                     // 1
+		evaluators.add(createEvaluator(null, null, Collections.singletonList("role1")));                      // 2
+		evaluators.add(createEvaluator(Collections.singletonList(RangerPolicyEngine.USER_CURRENT), null, null)); // 3
+		evaluators.add(createEvaluator(null, Collections.singletonList(RangerPolicyEngine.GROUP_PUBLIC), null)); // 4
+		evaluators.add(createEvaluator(Collections.singletonList(RangerPolicyEngine.RESOURCE_OWNER), null, null)); // 5
+		evaluators.add(createEvaluator(Collections.singletonList("user1"), Collections.singletonList("group2"), null)); // 6
+
+		for (int i = evaluators.size(); i < PolicyItemPrincipalIndex.MIN_POLICY_ITEMS_TO_INDEX + 2; i++) {
+			evaluators.add(createEvaluator(Collections.singletonList("other" + i), null, null));
+		}
+
+		PolicyItemPrincipalIndex index = PolicyItemPrincipalIndex.create(evaluators);
+
+		assertNotNull(index);
+		assertTrue(index.hasRoles());
+
+		assertEquals(bits(0, 3, 4, 5, 6), index.getCandidates("user1", null, null));
+		assertEquals(bits(1, 3, 4, 5), index.getCandidates("userX", new HashSet<>(Collections.singletonList("group1")), null));
+		assertEquals(bits(2, 3, 4, 5, 6), index.getCandidates(null, new HashSet<>(Collections.singletonList("group2")), new HashSet<>(Collections.singletonList("role1"))));
+		assertEquals(bits(3, 4, 5), index.getCandidates("userX", Collections.<String>emptySet(), Collections.<String>emptySet()));
+	}
+
+	private static BitSet bits(int... positions) {
+		BitSet ret = new BitSet();
+
+		for (int position : positions) {
+			ret.set(position);
+		}
+
+		return ret;
+	}
+
+	private static RangerPolicyItemEvaluator createEvaluator(List<String> users, List<String> groups, List<String> roles) {
+		RangerPolicy     policy     = new RangerPolicy();
+		RangerPolicyItem policyItem = new RangerPolicyItem(Collections.singletonList(new RangerPolicyItemAccess("read")), users, groups, roles, null, false);
+
+		policy.setId(1L);
+
+		return new RangerDefaultPolicyItemEvaluator(SERVICE_DEF, policy, policyItem, RangerPolicyItemEvaluator.POLICY_ITEM_TYPE_ALLOW, 0, new RangerPolicyEngineOptions());
+	}
+
+	private static RangerServiceDef createServiceDef() {
+		RangerServiceDef ret = new RangerServiceDef();
+
+		ret.setName("test");
+		ret.setAccessTypes(Collections.singletonList(new RangerAccessTypeDef(1L, "read", "read", null, null)));
+
+		return ret;
+	}
+}
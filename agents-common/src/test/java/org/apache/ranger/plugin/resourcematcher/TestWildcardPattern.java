@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestWildcardPattern {
+	private static final IOCase[] CASES = new IOCase[] { IOCase.SENSITIVE, IOCase.INSENSITIVE };
+
+	@Test
+	public void testExamples() {
+		WildcardPattern sensitive   = WildcardPattern.compile("/home/*/data?.txt", IOCase.SENSITIVE);
+		WildcardPattern insensitive = WildcardPattern.compile("/home/*/data?.txt", IOCase.INSENSITIVE);
+
+		assertTrue(sensitive.isMatch("/home/user1/data1.txt"));
+		assertFalse(sensitive.isMatch("/HOME/user1/data1.txt"));
+		assertTrue(insensitive.isMatch("/HOME/user1/DATA1.txt"));
+		assertFalse(sensitive.isMatch("/home/user1/data12.txt"));
+
+		assertTrue(sensitive.isPrefixMatch("/home/us"));
+		assertFalse(sensitive.isPrefixMatch("/tmp"));
+
+		WildcardPattern nullPattern = WildcardPattern.compile(null, IOCase.SENSITIVE);
+
+		assertTrue(nullPattern.isMatch(null));
+		assertFalse(nullPattern.isMatch("a"));
+		assertFalse(sensitive.isMatch(null));
+	}
+
+	@Test
+	public void testSameResultsAsFilenameUtils() {
+		Random random = new Random(20240101L);
+
+		for (int i = 0; i < 200_000; i++) {
+			String pattern = randomString(random, "aAb/*?", random.nextInt(7));
+			String value   = randomString(random, "aAb/", random.nextInt(9));
+
+			for (IOCase caseSensitivity : CASES) {
+				WildcardPattern wildcardPattern = WildcardPattern.compile(pattern, caseSensitivity);
+
+				assertEquals("isMatch(" + value + ", " + pattern + ", " + caseSensitivity + ")",
+				             FilenameUtils.wildcardMatch(value, pattern, caseSensitivity), wildcardPattern.isMatch(value));
+				assertEquals("isPrefixMatch(" + value + ", " + pattern + ", " + caseSensitivity + ")",
+				             ResourceMatcher.wildcardPrefixMatch(value, pattern, caseSensitivity), wildcardPattern.isPrefixMatch(value));
+			}
+		}
+	}
+
+	private static String randomString(Random random, String chars, int length) {
+		StringBuilder sb = new StringBuilder(length);
+
+		for (int i = 0; i < length; i++) {
+			sb.append(chars.charAt(random.nextInt(chars.length())));
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangerIpAddressTrieTest {
+    @Test
+    public void testContains() {
+        RangerIpAddressTrie trie = new RangerIpAddressTrie();
+
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.contains("10.0.0.1"));
+
+        assertTrue(trie.add("10.0.0.0/8"));
+        assertTrue(trie.add("192.168.1.7"));
+        assertTrue(trie.add("172.16.0.0/12"));
+        assertTrue(trie.add("2001:db8::/32"));
+        assertTrue(trie.add("fe80::1"));
+        assertTrue(trie.add("203.0.113.77/24")); // host bits are ignored
+        assertFalse(trie.add("10.0.0.0/33"));
+        assertFalse(trie.add("2001:db8::/129"));
+        assertFalse(trie.add("10.0.0.0/"));
+        assertFalse(trie.add("10.0.0/8"));
+        assertFalse(trie.add("*"));
+
+        assertEquals(6, trie.getPrefixCount());
+
+        assertTrue(trie.contains("10.0.0.1"));
+        assertTrue(trie.contains("10.255.255.255"));
+        assertTrue(trie.contains("::ffff:10.1.2.3"));
+        assertTrue(trie.contains("192.168.1.7"));
+        assertTrue(trie.contains("172.31.255.255"));
+        assertTrue(trie.contains("2001:db8:ffff::1"));
+        assertTrue(trie.contains("FE80::1"));
+        assertTrue(trie.contains("203.0.113.1"));
+
+        assertFalse(trie.contains("11.0.0.1"));
+        assertFalse(trie.contains("192.168.1.8"));
+        assertFalse(trie.contains("172.32.0.0"));
+        assertFalse(trie.contains("2001:db9::1"));
+        assertFalse(trie.contains("fe80::2"));
+        assertFalse(trie.contains("::a00:1")); // IPv4-compatible, not IPv4-mapped
+        assertFalse(trie.contains("10.0.0.1.5"));
+        assertFalse(trie.contains(null));
+
+        // a shorter prefix covers longer ones added before and after it
+        trie.add("192.168.0.0/16");
+        trie.add("192.168.2.0/24");
+
+        assertTrue(trie.contains("192.168.1.8"));
+        assertTrue(trie.contains("192.168.200.1"));
+
+        // IPv6 prefixes don't match IPv4 addresses, even if they cover the IPv4-mapped range
+        trie.add("::/0");
+
+        assertTrue(trie.contains("2001:db9::1"));
+        assertFalse(trie.contains("11.0.0.1"));
+
+        trie.add("0.0.0.0/0");
+
+        assertTrue(trie.contains("11.0.0.1"));
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(11);
+
+        for (int round = 0; round < 20; round++) {
+            int                 count    = 1 + random.nextInt(500);
+            long[][]            prefixes = new long[count][];
+            RangerIpAddressTrie trie     = new RangerIpAddressTrie();
+
+            for (int i = 0; i < count; i++) {
+                long high   = random.nextInt(4) == 0 ? 0L : random.nextLong();
+                long low    = random.nextLong();
+                int  length = random.nextInt(129);
+
+                prefixes[i] = new long[] { high, low, length };
+
+                trie.add(high, low, length);
+            }
+
+            for (int i = 0; i < 20000; i++) {
+                long[] base = prefixes[random.nextInt(count)];
+                long   high = base[0];
+                long   low  = base[1];
+
+                // flip a random bit, to get addresses near (and often inside) the prefixes
+                int pos = random.nextInt(128);
+
+                if (pos < 64) {
+                    high ^= 1L << pos;
+                } else {
+                    low ^= 1L << (pos - 64);
+                }
+
+                boolean expected = false;
+
+                for (long[] prefix : prefixes) {
+                    if (isInPrefix(high, low, prefix)) {
+                        expected = true;
+
+                        break;
+                    }
+                }
+
+                assertEquals(expected, trie.contains(high, low));
+            }
+        }
+    }
+
+    private static boolean isInPrefix(long high, long low, long[] prefix) {
+        int length = (int) prefix[2];
+
+        for (int i = 0; i < length; i++) {
+            long bit       = i < 64 ? (high >>> (63 - i)) & 1 : (low >>> (127 - i)) & 1;
+            long prefixBit = i < 64 ? (prefix[0] >>> (63 - i)) & 1 : (prefix[1] >>> (127 - i)) & 1;
+
+            if (bit != prefixBit) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RangerIpAddressUtilTest {
+    @Test
+    public void testParseIPv4() {
+        assertEquals(0x0A000001L, RangerIpAddressUtil.parseIPv4("10.0.0.1", 0, 8));
+        assertEquals(0xFFFFFFFFL, RangerIpAddressUtil.parseIPv4("255.255.255.255", 0, 15));
+        assertEquals(0x0A000001L, RangerIpAddressUtil.parseIPv4("::10.0.0.1", 2, 10));
+
+        for (String invalid : new String[] { "", "10", "10.0.0", "10.0.0.1.", "10.0.0.256", "10.0.0.01", "10..0.1", "1.2.3.boo", " 10.0.0.1", "localhost" }) {
+            assertEquals(invalid, -1, RangerIpAddressUtil.parseIPv4(invalid, 0, invalid.length()));
+            assertFalse(invalid, RangerIpAddressUtil.isAddress(invalid));
+        }
+    }
+
+    @Test
+    public void testParseIPv6() {
+        assertIPv6("::", 0L, 0L);
+        assertIPv6("::1", 0L, 1L);
+        assertIPv6("1::", 0x0001000000000000L, 0L);
+        assertIPv6("2001:db8::ff00:42:8329", 0x20010DB800000000L, 0x0000FF0000428329L);
+        assertIPv6("2001:DB8:0:0:0:FF00:42:8329", 0x20010DB800000000L, 0x0000FF0000428329L);
+        assertIPv6("1:2:3:4:5:6:7:8", 0x0001000200030004L, 0x0005000600070008L);
+        assertIPv6("1:2:3:4:5:6:7::", 0x0001000200030004L, 0x0005000600070000L);
+        assertIPv6("::2:3:4:5:6:7:8", 0x0000000200030004L, 0x0005000600070008L);
+        assertIPv6("::ffff:10.0.0.1", 0L, RangerIpAddressUtil.IPV4_MAPPED_PREFIX | 0x0A000001L);
+        assertIPv6("64:ff9b::192.0.2.33", 0x0064FF9B00000000L, 0x00000000C0000221L);
+
+        for (String invalid : new String[] { ":", ":::", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::", "1::2::3", ":1::", "1:", "12345::", "fe80::1%eth0", "::10.0.0", "g::1", "99:a9:b9:c9:d9:e9" }) {
+            assertFalse(invalid, RangerIpAddressUtil.parseIPv6(invalid, new long[2]));
+            assertFalse(invalid, RangerIpAddressUtil.isAddress(invalid));
+        }
+    }
+
+    @Test
+    public void testToKey() {
+        long[] key = new long[2];
+
+        assertTrue(RangerIpAddressUtil.toKey("10.0.0.1", key));
+        assertArrayEquals(new long[] { 0L, RangerIpAddressUtil.IPV4_MAPPED_PREFIX | 0x0A000001L }, key);
+        assertTrue(RangerIpAddressUtil.isIPv4Mapped(key[0], key[1]));
+
+        // IPv4 and IPv4-mapped IPv6 notations give the same key
+        assertTrue(RangerIpAddressUtil.toKey("::ffff:10.0.0.1", key));
+        assertArrayEquals(new long[] { 0L, RangerIpAddressUtil.IPV4_MAPPED_PREFIX | 0x0A000001L }, key);
+
+        assertTrue(RangerIpAddressUtil.toKey("::a00:1", key)); // IPv4-compatible, not IPv4-mapped
+        assertFalse(RangerIpAddressUtil.isIPv4Mapped(key[0], key[1]));
+
+        assertFalse(RangerIpAddressUtil.toKey(null, key));
+        assertFalse(RangerIpAddressUtil.toKey("localhost", key));
+    }
+
+    private static void assertIPv6(String address, long high, long low) {
+        long[] key = new long[2];
+
+        assertTrue(address, RangerIpAddressUtil.parseIPv6(address, key));
+        assertArrayEquals(address, new long[] { high, low }, key);
+        assertTrue(address, RangerIpAddressUtil.isAddress(address));
+    }
+}
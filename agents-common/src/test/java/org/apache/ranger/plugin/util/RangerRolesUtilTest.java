@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerRole.RoleMember;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RangerRolesUtilTest {
+    @Test
+    public void testRolesForUserAndGroups() {
+        RangerRoles roles = new RangerRoles();
+
+        // role3 contains role1, which contains role2; role2 and role3 contain each other
+        roles.setRoleVersion(5L);
+        roles.setRangerRoles(new HashSet<>(Arrays.asList(createRole("role1", members("user1"), members("group1"), members("role2")),
+                                                         createRole("role2", members("user2"), members(RangerPolicyEngine.GROUP_PUBLIC), members("role3")),
+                                                         createRole("role3", members(), members("group3"), members("role1", "role2", "unknown-role")),
+                                                         createRole("role4", members("user4"), members(), members()))));
+
+        RangerRolesUtil rolesUtil = new RangerRolesUtil(roles);
+
+        assertEquals(5L, rolesUtil.getRoleVersion());
+        assertEquals(set("role1", "role2", "role3"), rolesUtil.getRolesForUserAndGroups("user1", null));
+        assertEquals(set("role1", "role2", "role3", "role4"), rolesUtil.getRolesForUserAndGroups("user4", Collections.singleton("group1")));
+        assertEquals(set("role1", "role2", "role3"), rolesUtil.getRolesForUserAndGroups("", set("unknown-group")));
+        assertEquals(set("role1", "role2", "role3"), rolesUtil.getRolesForUserAndGroups(null, null));
+        assertEquals(set("role1", "role2", "role3", "role4"), rolesUtil.getRoleToUserMapping().keySet());
+
+        RangerRolesUtil emptyRolesUtil = new RangerRolesUtil(null);
+
+        assertEquals(-1L, emptyRolesUtil.getRoleVersion());
+        assertTrue(emptyRolesUtil.getRolesForUserAndGroups("user1", set("group1")).isEmpty());
+    }
+
+    @Test
+    public void testMatchesRoleMappingUnion() {
+        Random random = new Random(17);
+
+        for (int round = 0; round < 20; round++) {
+            int             roleCount = 1 + random.nextInt(50);
+            Set<RangerRole> allRoles  = new HashSet<>();
+
+            for (int i = 0; i < roleCount; i++) {
+                allRoles.add(createRole("role" + i, randomMembers(random, "user", 20, 3), randomMembers(random, "group", 30, 4), randomMembers(random, "role", roleCount, 2)));
+            }
+
+            RangerRoles roles = new RangerRoles();
+
+            roles.setRangerRoles(allRoles);
+
+            RangerRolesUtil rolesUtil = new RangerRolesUtil(roles);
+
+            for (int i = 0; i < 200; i++) {
+                String      user   = "user" + random.nextInt(25);
+                Set<String> groups = new HashSet<>();
+
+                for (int j = random.nextInt(40); j > 0; j--) {
+                    groups.add("group" + random.nextInt(35));
+                }
+
+                assertEquals(getRolesFromMappings(rolesUtil, user, groups), rolesUtil.getRolesForUserAndGroups(user, groups));
+            }
+        }
+    }
+
+    // union of role-names sets of the user and groups
+    private static Set<String> getRolesFromMappings(RangerRolesUtil rolesUtil, String user, Set<String> groups) {
+        Map<String, Set<String>> userRoleMapping  = rolesUtil.getUserRoleMapping();
+        Map<String, Set<String>> groupRoleMapping = rolesUtil.getGroupRoleMapping();
+        Set<String>              ret              = new HashSet<>();
+
+        if (userRoleMapping.containsKey(user)) {
+            ret.addAll(userRoleMapping.get(user));
+        }
+
+        for (String group : groups) {
+            if (groupRoleMapping.containsKey(group)) {
+                ret.addAll(groupRoleMapping.get(group));
+            }
+        }
+
+        if (groupRoleMapping.containsKey(RangerPolicyEngine.GROUP_PUBLIC)) {
+            ret.addAll(groupRoleMapping.get(RangerPolicyEngine.GROUP_PUBLIC));
+        }
+
+        return ret;
+    }
+
+    private static RangerRole createRole(String name, List<RoleMember> users, List<RoleMember> groups, List<RoleMember> roles) {
+        return new RangerRole(name, null, null, users, groups, roles);
+    }
+
+    private static List<RoleMember> members(String... names) {
+        List<RoleMember> ret = new ArrayList<>();
+
+        for (String name : names) {
+            ret.add(new RoleMember(name, false));
+        }
+
+        return ret;
+    }
+
+    private static List<RoleMember> randomMembers(Random random, String prefix, int range, int maxCount) {
+        List<RoleMember> ret = new ArrayList<>();
+
+        for (int i = random.nextInt(maxCount + 1); i > 0; i--) {
+            ret.add(new RoleMember(prefix + random.nextInt(range), false));
+        }
+
+        return ret;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
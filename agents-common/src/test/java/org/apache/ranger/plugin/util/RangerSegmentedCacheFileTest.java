@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerRole;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.util.ServicePolicies.SecurityZoneInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangerSegmentedCacheFileTest {
+    private static final int POLICY_COUNT = RangerSegmentedCacheFile.ITEMS_PER_SEGMENT * 2 + 10;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testServicePoliciesRoundTrip() throws IOException {
+        File            file     = tmpFolder.newFile("hive_dev_hive.json");
+        ServicePolicies policies = new ServicePolicies();
+        SecurityZoneInfo zone    = new SecurityZoneInfo();
+
+        zone.setZoneName("finance");
+        zone.setPolicies(Collections.singletonList(createPolicy(POLICY_COUNT + 1)));
+
+        policies.setServiceName("dev_hive");
+        policies.setPolicyVersion(42L);
+        policies.setPolicies(createPolicies(POLICY_COUNT));
+        policies.setSecurityZones(Collections.singletonMap("finance", zone));
+
+        RangerSegmentedCacheFile.writeServicePolicies(file, policies);
+
+        assertTrue(RangerSegmentedCacheFile.isSegmentedCacheFile(file));
+
+        ServicePolicies loaded = RangerSegmentedCacheFile.readServicePolicies(file);
+
+        assertEquals("dev_hive", loaded.getServiceName());
+        assertEquals(Long.valueOf(42L), loaded.getPolicyVersion());
+        assertEquals(POLICY_COUNT, loaded.getPolicies().size());
+
+        for (int i = 0; i < POLICY_COUNT; i++) {
+            assertEquals(policies.getPolicies().get(i).getId(), loaded.getPolicies().get(i).getId());
+            assertEquals(policies.getPolicies().get(i).getResources(), loaded.getPolicies().get(i).getResources());
+        }
+
+        assertEquals(1, loaded.getSecurityZones().get("finance").getPolicies().size());
+        assertEquals(Long.valueOf(POLICY_COUNT + 1), loaded.getSecurityZones().get("finance").getPolicies().get(0).getId());
+        assertNull(loaded.getTagPolicies());
+    }
+
+    @Test
+    public void testServiceTagsAndRolesRoundTrip() throws IOException {
+        File                        tagsFile    = tmpFolder.newFile("hive_dev_hive_tag.json");
+        File                        rolesFile   = tmpFolder.newFile("hive_dev_hive_roles.json");
+        ServiceTags                 serviceTags = new ServiceTags();
+        RangerRoles                 roles       = new RangerRoles();
+        List<RangerServiceResource> resources   = new ArrayList<>();
+
+        for (int i = 0; i < POLICY_COUNT; i++) {
+            RangerServiceResource resource = new RangerServiceResource("dev_hive", Collections.singletonMap("database", new RangerPolicyResource("db_" + i)));
+
+            resource.setId((long) i);
+
+            resources.add(resource);
+        }
+
+        serviceTags.setServiceName("dev_hive");
+        serviceTags.setServiceResources(resources);
+        serviceTags.setResourceToTagIds(Collections.singletonMap(1L, Arrays.asList(1L, 2L)));
+
+        roles.setServiceName("dev_hive");
+        roles.setRoleVersion(3L);
+        roles.setRangerRoles(new HashSet<>(Arrays.asList(new RangerRole("analysts", null, null, null, null), new RangerRole("admins", null, null, null, null))));
+
+        RangerSegmentedCacheFile.writeServiceTags(tagsFile, serviceTags);
+        RangerSegmentedCacheFile.writeRoles(rolesFile, roles);
+
+        ServiceTags loadedTags  = RangerSegmentedCacheFile.readServiceTags(tagsFile);
+        RangerRoles loadedRoles = RangerSegmentedCacheFile.readRoles(rolesFile);
+
+        assertEquals(POLICY_COUNT, loadedTags.getServiceResources().size());
+        assertEquals(Long.valueOf(POLICY_COUNT - 1), loadedTags.getServiceResources().get(POLICY_COUNT - 1).getId());
+        assertEquals(Arrays.asList(1L, 2L), loadedTags.getResourceToTagIds().get(1L));
+        assertEquals(Long.valueOf(3L), loadedRoles.getRoleVersion());
+        assertEquals(2, loadedRoles.getRangerRoles().size());
+    }
+
+    @Test
+    public void testCorruptAndMismatchedFiles() throws IOException {
+        File            file     = tmpFolder.newFile("hive_dev_hive.json");
+        ServicePolicies policies = new ServicePolicies();
+
+        policies.setServiceName("dev_hive");
+        policies.setPolicies(createPolicies(10));
+
+        RangerSegmentedCacheFile.writeServicePolicies(file, policies);
+
+        try {
+            RangerSegmentedCacheFile.readServiceTags(file);
+
+            fail("policies file read as service-tags");
+        } catch (IOException excp) {
+            // expected
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 2);
+            raf.write('#');
+        }
+
+        try {
+            RangerSegmentedCacheFile.readServicePolicies(file);
+
+            fail("checksum mismatch not detected");
+        } catch (IOException excp) {
+            // expected
+        }
+
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("{\"serviceName\":\"dev_hive\"}");
+        }
+
+        assertFalse(RangerSegmentedCacheFile.isSegmentedCacheFile(file));
+    }
+
+    private static List<RangerPolicy> createPolicies(int count) {
+        List<RangerPolicy> ret = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ret.add(createPolicy(i));
+        }
+
+        return ret;
+    }
+
+    private static RangerPolicy createPolicy(long id) {
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setResources(Collections.singletonMap("database", new RangerPolicyResource("db_" + id)));
+
+        return ret;
+    }
+}
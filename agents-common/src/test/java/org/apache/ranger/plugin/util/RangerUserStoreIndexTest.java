@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangerUserStoreIndexTest {
+    private static final String EMAIL = RangerCommonConstants.SCRIPT_FIELD__EMAIL_ADDRESS;
+
+    @Test
+    public void testAttributes() {
+        RangerUserStore userStore = createUserStore();
+
+        userStore.buildUserStoreIndex(null);
+
+        RangerUserStoreIndex index = userStore.getUserStoreIndex();
+
+        assertNotNull(index);
+        assertEquals(3, index.getAttrCount());
+        assertEquals("user1@example.com", index.getUserAttr("user1", EMAIL));
+        assertEquals("east", index.getGroupAttr("group1", "region"));
+        assertNull(index.getUserAttr("user1", "region"));
+        assertNull(index.getUserAttr("unknown", EMAIL));
+        assertNull(index.getGroupAttr("group1", "unknown"));
+
+        assertEquals(createUserStore().getUserAttrMapping(), userStore.getUserAttrMapping());
+        assertEquals(createUserStore().getGroupAttrMapping(), userStore.getGroupAttrMapping());
+        assertTrue(userStore.getUserAttrMapping().containsKey("user3"));
+        assertTrue(userStore.getUserAttrMapping().get("user3").isEmpty());
+        assertFalse(userStore.getUserAttrMapping().get("user1").containsKey("region"));
+
+        assertEquals(Arrays.asList("dept", "region"), index.getUserGroupAttrNames("user1", set("group1", "group2")));
+        assertEquals(Collections.emptyList(), index.getUserGroupAttrNames("user2", set("group3")));
+        assertEquals(Collections.emptyList(), index.getUserGroupAttrNames("unknown", null));
+        assertNull(index.getUserGroupAttrNames("user1", set("group1")));
+        assertNull(index.getUserGroupAttrNames("unknown", set("group1")));
+
+        RangerUserStoreUtil userStoreUtil = new RangerUserStoreUtil(userStore);
+
+        assertEquals("user1", userStoreUtil.getUserNameFromEmail("user1@example.com"));
+    }
+
+    @Test
+    public void testReadOnlyViews() {
+        RangerUserStore userStore = createUserStore();
+
+        userStore.buildUserStoreIndex(null);
+
+        Map<String, Map<String, String>> userAttrMapping = userStore.getUserAttrMapping();
+
+        assertSame(userAttrMapping.get("user1"), userAttrMapping.get("user1"));
+        assertEquals(2, userAttrMapping.get("user2").size());
+
+        try {
+            userAttrMapping.put("user4", attrs(EMAIL, "user4@example.com"));
+
+            fail("userAttrMapping should be read-only");
+        } catch (UnsupportedOperationException excp) {
+            // expected
+        }
+
+        try {
+            userAttrMapping.get("user1").put(EMAIL, "user1@example.org");
+
+            fail("attributes of a user should be read-only");
+        } catch (UnsupportedOperationException excp) {
+            // expected
+        }
+
+        // setting a new map drops the index
+        userStore.setUserAttrMapping(new HashMap<>(userAttrMapping));
+
+        assertNull(userStore.getUserStoreIndex());
+    }
+
+    @Test
+    public void testMatchesAttributeMaps() {
+        Random random = new Random(18);
+
+        for (int round = 0; round < 20; round++) {
+            RangerUserStore userStore = createRandomUserStore(random);
+            RangerUserStore expected  = new Gson().fromJson(new Gson().toJson(userStore), RangerUserStore.class);
+
+            userStore.buildUserStoreIndex(null);
+
+            assertEquals(expected.getUserAttrMapping(), userStore.getUserAttrMapping());
+            assertEquals(expected.getGroupAttrMapping(), userStore.getGroupAttrMapping());
+
+            // serialized form, as saved in cache file, is same as before indexing
+            RangerUserStore deserialized = new Gson().fromJson(new Gson().toJson(userStore), RangerUserStore.class);
+
+            assertEquals(expected.getUserAttrMapping(), deserialized.getUserAttrMapping());
+            assertEquals(expected.getGroupAttrMapping(), deserialized.getGroupAttrMapping());
+
+            for (Map.Entry<String, Set<String>> entry : userStore.getUserGroupMapping().entrySet()) {
+                assertEquals(getGroupAttrNames(expected, entry.getValue()), userStore.getUserStoreIndex().getUserGroupAttrNames(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    @Test
+    public void testReusesStringsOfPreviousIndex() {
+        RangerUserStore prevUserStore = createUserStore();
+
+        prevUserStore.buildUserStoreIndex(null);
+
+        RangerUserStore userStore = new Gson().fromJson(new Gson().toJson(prevUserStore), RangerUserStore.class);
+
+        userStore.getUserAttrMapping().get("user2").put(EMAIL, "user2@example.org");
+
+        userStore.buildUserStoreIndex(prevUserStore.getUserStoreIndex());
+
+        assertSame(prevUserStore.getUserAttrMapping().get("user1").get(EMAIL), userStore.getUserAttrMapping().get("user1").get(EMAIL));
+        assertSame(prevUserStore.getGroupAttrMapping().get("group1").get("region"), userStore.getGroupAttrMapping().get("group1").get("region"));
+        assertEquals("user2@example.org", userStore.getUserStoreIndex().getUserAttr("user2", EMAIL));
+    }
+
+    private static RangerUserStore createUserStore() {
+        RangerUserStore                  ret        = new RangerUserStore();
+        Map<String, Map<String, String>> userAttrs  = new HashMap<>();
+        Map<String, Map<String, String>> groupAttrs = new HashMap<>();
+        Map<String, Set<String>>         userGroups = new HashMap<>();
+
+        userAttrs.put("user1", attrs(EMAIL, "user1@example.com"));
+        userAttrs.put("user2", attrs(EMAIL, "user2@example.com", "dept", "sales"));
+        userAttrs.put("user3", attrs());
+        groupAttrs.put("group1", attrs("region", "east"));
+        groupAttrs.put("group2", attrs("dept", "eng", "region", "west"));
+        userGroups.put("user1", set("group1", "group2"));
+        userGroups.put("user2", set("group3"));
+
+        ret.setUserAttrMapping(userAttrs);
+        ret.setGroupAttrMapping(groupAttrs);
+        ret.setUserGroupMapping(userGroups);
+
+        return ret;
+    }
+
+    private static RangerUserStore createRandomUserStore(Random random) {
+        RangerUserStore                  ret        = new RangerUserStore();
+        Map<String, Map<String, String>> userAttrs  = new HashMap<>();
+        Map<String, Map<String, String>> groupAttrs = new HashMap<>();
+        Map<String, Set<String>>         userGroups = new HashMap<>();
+
+        for (int i = random.nextInt(100); i > 0; i--) {
+            userAttrs.put("user" + random.nextInt(200), randomAttrs(random));
+        }
+
+        for (int i = random.nextInt(30); i > 0; i--) {
+            groupAttrs.put("group" + random.nextInt(40), randomAttrs(random));
+        }
+
+        for (int i = random.nextInt(150); i > 0; i--) {
+            Set<String> groups = new HashSet<>();
+
+            for (int j = random.nextInt(6); j > 0; j--) {
+                groups.add("group" + random.nextInt(50));
+            }
+
+            userGroups.put("user" + random.nextInt(200), groups);
+        }
+
+        ret.setUserAttrMapping(userAttrs);
+        ret.setGroupAttrMapping(groupAttrs);
+        ret.setUserGroupMapping(userGroups);
+
+        return ret;
+    }
+
+    private static Map<String, String> randomAttrs(Random random) {
+        Map<String, String> ret = new HashMap<>();
+
+        for (int i = random.nextInt(5); i > 0; i--) {
+            ret.put("attr" + random.nextInt(12), "value" + random.nextInt(20));
+        }
+
+        return ret;
+    }
+
+    private static List<String> getGroupAttrNames(RangerUserStore userStore, Set<String> groups) {
+        Set<String> ret = new TreeSet<>();
+
+        for (String group : groups) {
+            Map<String, String> attrs = userStore.getGroupAttrMapping().get(group);
+
+            if (attrs != null) {
+                ret.addAll(attrs.keySet());
+            }
+        }
+
+        return new ArrayList<>(ret);
+    }
+
+    private static Map<String, String> attrs(String... nameValues) {
+        Map<String, String> ret = new HashMap<>();
+
+        for (int i = 0; i + 1 < nameValues.length; i += 2) {
+            ret.put(nameValues[i], nameValues[i + 1]);
+        }
+
+        return ret;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
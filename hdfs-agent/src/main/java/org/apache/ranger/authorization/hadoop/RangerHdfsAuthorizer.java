@@ -49,7 +49,6 @@
 import org.apache.hadoop.ipc.CallerContext;
 import org.apache.hadoop.ipc.Server;
 import org.apache.hadoop.security.AccessControlException;
-import org.apache.ranger.authorization.utils.JsonUtils;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
@@ -1059,16 +1058,9 @@ public void processResult(RangerAccessResult result) {
 
 	@Override
 	public 	String getAdditionalInfo(RangerAccessRequest request) {
-		String        additionalInfo = super.getAdditionalInfo(request);
-		Map addInfoMap = JsonUtils.jsonToMapStringString(additionalInfo);
-		if(addInfoMap == null || addInfoMap.isEmpty()) {
-		      addInfoMap = new HashMap<String,String>();
-		}
 		String accessTypes = getAccessTypesAsString(request);
-		if (addInfoMap != null && accessTypes != null) {
-			addInfoMap.put("accessTypes", "[" + accessTypes + "]");
-		}
-		return JsonUtils.mapToJson(addInfoMap);
+
+		return getAdditionalInfo(request, "accessTypes", accessTypes != null ? "[" + accessTypes + "]" : null);
 	}
 
 	public void logHadoopEvent(String path, FsAction action, boolean accessGranted) {
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * RangerDefaultAuditHandler.getAuthzEvents(), which creates the audit event for an access result: reports events/sec.
+ * Run with "-prof gc" for bytes allocated per event (gc.alloc.rate.norm). Half the requests are for tagged tables;
+ * all requests have remote and forwarded addresses, to include additional-info in the events.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditEventBenchmark {
+    @State(Scope.Benchmark)
+    public static class AuditEventState {
+        @Param({ "1000", "10000", "100000" })
+        public int taggedResourceCount;
+
+        RangerDefaultAuditHandler auditHandler;
+        List<RangerAccessResult>  results;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            ServicePolicies   servicePolicies = BenchmarkFixtures.loadServicePolicies();
+            RangerTagEnricher tagEnricher     = new RangerTagEnricher();
+
+            tagEnricher.setServiceName(servicePolicies.getServiceName());
+            tagEnricher.setServiceDef(servicePolicies.getServiceDef());
+            tagEnricher.setAppId(BenchmarkFixtures.APP_ID);
+            tagEnricher.setPluginContext(BenchmarkFixtures.createPluginContext(servicePolicies.getServiceDef(), servicePolicies.getServiceName()));
+            tagEnricher.init();
+            tagEnricher.setServiceTags(BenchmarkFixtures.createServiceTags(servicePolicies.getServiceName(), taggedResourceCount));
+
+            auditHandler = new RangerDefaultAuditHandler();
+            results      = new ArrayList<>(PolicyEngineState.REQUEST_COUNT);
+
+            for (RangerAccessRequest request : BenchmarkFixtures.createRequests(PolicyEngineState.REQUEST_COUNT, taggedResourceCount * 2)) {
+                RangerAccessRequestImpl requestImpl = (RangerAccessRequestImpl) request;
+
+                ((RangerAccessResourceImpl) requestImpl.getResource()).setServiceDef(servicePolicies.getServiceDef());
+
+                requestImpl.setClientIPAddress("10.20.30.40");
+                requestImpl.setRemoteIPAddress("10.20.30.40");
+                requestImpl.setForwardedAddresses(Arrays.asList("192.168.1.10", "192.168.1.11"));
+
+                tagEnricher.enrich(requestImpl);
+
+                RangerAccessResult result = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, servicePolicies.getServiceName(), servicePolicies.getServiceDef(), requestImpl);
+
+                result.setIsAllowed(true);
+                result.setIsAudited(true);
+                result.setPolicyId(1);
+
+                results.add(result);
+            }
+        }
+    }
+
+    @Benchmark
+    public AuthzAuditEvent getAuthzEvents(AuditEventState state, RequestCursor cursor) {
+        return state.auditHandler.getAuthzEvents(state.results.get(cursor.next(state.results.size())));
+    }
+}
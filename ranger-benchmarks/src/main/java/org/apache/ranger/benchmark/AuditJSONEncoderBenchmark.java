@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.utils.AuthzAuditEventJSONEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A batch of audit events encoded as newline separated JSON, as written by HDFSAuditDestination: reports events/sec.
+ * useEncoder=false uses Gson, as MiscUtil.stringify() did, and encodes each String to UTF-8. Run with "-prof gc" for
+ * bytes allocated per event (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditJSONEncoderBenchmark {
+    static final int EVENT_COUNT = ORCAuditWriterBenchmark.EVENT_COUNT;
+
+    @State(Scope.Benchmark)
+    public static class EncoderState {
+        @Param({ "true", "false" })
+        public boolean useEncoder;
+
+        Gson                       gson;
+        AuthzAuditEventJSONEncoder encoder;
+        ByteArrayOutputStream      out;
+        List<AuthzAuditEvent>      events;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            gson    = new GsonBuilder().setDateFormat("yyyy-MM-dd HH:mm:ss.SSS").create();
+            encoder = new AuthzAuditEventJSONEncoder();
+            out     = new ByteArrayOutputStream(4 * 1024 * 1024);
+            events  = ORCAuditWriterBenchmark.createEvents(EVENT_COUNT);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_COUNT)
+    public int encode(EncoderState state) throws Exception {
+        state.out.reset();
+
+        if (state.useEncoder) {
+            AuthzAuditEventJSONEncoder encoder = state.encoder;
+
+            encoder.reset();
+
+            for (AuthzAuditEvent event : state.events) {
+                encoder.encode(event);
+                encoder.newLine();
+            }
+
+            encoder.writeTo(state.out);
+        } else {
+            for (AuthzAuditEvent event : state.events) {
+                state.out.write(state.gson.toJson(event).getBytes(StandardCharsets.UTF_8));
+                state.out.write('\n');
+            }
+        }
+
+        return state.out.size();
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.model.RangerTagDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Inputs for the benchmarks: the Hive service-def, tags and configuration come from the ranger-tools perf-test fixtures;
+ * policies, tags and requests are generated from a fixed seed, so that every run (and every fork) sees the same data.
+ *
+ * Generated policies are on database/table/column. wildcardPercent of them use a wildcard table ("tbl_12*") and
+ * column ("*"); the rest name a single table and column. Requests are for tables named in the policies, so that the
+ * ratio of matching to non-matching policies stays the same as the policy count grows.
+ */
+public final class BenchmarkFixtures {
+    public static final String SERVICE_POLICIES_FILE = "/testdata/test_servicepolicies_hive.json";
+    public static final String SERVICE_TAGS_FILE     = "/testdata/test_servicetags_hive.json";
+    public static final String CONFIG_FILE           = "/testdata/ranger-config.xml";
+    public static final String APP_ID                = "benchmark";
+    public static final long   SEED                  = 20240101L;
+
+    static final int DATABASE_COUNT = 50;
+    static final int COLUMN_COUNT   = 20;
+    static final int USER_COUNT     = 200;
+    static final int GROUP_COUNT    = 40;
+    static final int TAG_TYPE_COUNT = 10;
+
+    private static final Gson GSON = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+    private BenchmarkFixtures() { }
+
+    public static ServicePolicies loadServicePolicies() {
+        return readJson(SERVICE_POLICIES_FILE, ServicePolicies.class);
+    }
+
+    public static ServiceTags loadServiceTags() {
+        return readJson(SERVICE_TAGS_FILE, ServiceTags.class);
+    }
+
+    public static ServicePolicies createServicePolicies(int policyCount, int wildcardPercent) {
+        ServicePolicies    ret      = loadServicePolicies();
+        Random             random   = new Random(SEED);
+        List<RangerPolicy> policies = new ArrayList<>(policyCount);
+
+        for (int i = 0; i < policyCount; i++) {
+            policies.add(createPolicy(ret.getServiceName(), i, random.nextInt(100) < wildcardPercent));
+        }
+
+        ret.setPolicies(policies);
+        ret.setTagPolicies(null);
+        ret.setPolicyVersion((long) policyCount);
+
+        return ret;
+    }
+
+    public static ServiceTags createServiceTags(String serviceName, int resourceCount) {
+        ServiceTags                 ret              = new ServiceTags();
+        Map<Long, RangerTagDef>     tagDefs          = new HashMap<>();
+        Map<Long, RangerTag>        tags             = new HashMap<>();
+        List<RangerServiceResource> resources        = new ArrayList<>(resourceCount);
+        Map<Long, List<Long>>       resourceToTagIds = new HashMap<>();
+
+        for (long i = 1; i <= TAG_TYPE_COUNT; i++) {
+            RangerTagDef tagDef = new RangerTagDef("TAG_" + i);
+            RangerTag    tag    = new RangerTag("TAG_" + i, Collections.singletonMap("level", Long.toString(i)));
+
+            tagDef.setId(i);
+            tag.setId(i);
+
+            tagDefs.put(i, tagDef);
+            tags.put(i, tag);
+        }
+
+        for (int i = 0; i < resourceCount; i++) {
+            Map<String, RangerPolicyResource> elements = new HashMap<>();
+
+            elements.put("database", new RangerPolicyResource(getDatabase(i)));
+            elements.put("table", new RangerPolicyResource(getTable(i)));
+
+            RangerServiceResource resource = new RangerServiceResource(serviceName, elements);
+
+            resource.setId((long) i + 1);
+
+            resources.add(resource);
+            resourceToTagIds.put(resource.getId(), Collections.singletonList((long) (i % TAG_TYPE_COUNT) + 1));
+        }
+
+        ret.setOp(ServiceTags.OP_ADD_OR_UPDATE);
+        ret.setServiceName(serviceName);
+        ret.setTagVersion((long) resourceCount);
+        ret.setTagDefinitions(tagDefs);
+        ret.setTags(tags);
+        ret.setServiceResources(resources);
+        ret.setResourceToTagIds(resourceToTagIds);
+
+        return ret;
+    }
+
+    /*
+     * requests for tables in [0, tableCount), by random users
+     */
+    public static List<RangerAccessRequest> createRequests(int requestCount, int tableCount) {
+        Random                    random = new Random(SEED + 1);
+        List<RangerAccessRequest> ret    = new ArrayList<>(requestCount);
+
+        for (int i = 0; i < requestCount; i++) {
+            ret.add(createRequest(random.nextInt(tableCount), random));
+        }
+
+        return ret;
+    }
+
+    public static RangerAccessRequest createRequest(int tableIdx, Random random) {
+        Map<String, Object> elements = new HashMap<>();
+
+        elements.put("database", getDatabase(tableIdx));
+        elements.put("table", getTable(tableIdx));
+        elements.put("column", getColumn(tableIdx));
+
+        String user  = "user_" + random.nextInt(USER_COUNT);
+        String group = "group_" + random.nextInt(GROUP_COUNT);
+
+        return new RangerAccessRequestImpl(new RangerAccessResourceImpl(elements), "select", user, Collections.singleton(group), null);
+    }
+
+    /*
+     * evaluation marks a request as preprocessed and adds to its context: benchmarks evaluate a new copy each time
+     */
+    public static RangerAccessRequest copyRequest(RangerAccessRequest template) {
+        return new RangerAccessRequestImpl(template.getResource(), template.getAccessType(), template.getUser(), template.getUserGroups(), null);
+    }
+
+    public static List<RangerAccessRequest> copyRequests(List<RangerAccessRequest> templates) {
+        List<RangerAccessRequest> ret = new ArrayList<>(templates.size());
+
+        for (RangerAccessRequest template : templates) {
+            ret.add(copyRequest(template));
+        }
+
+        return ret;
+    }
+
+    public static RangerPluginContext createPluginContext(RangerServiceDef serviceDef, String serviceName) {
+        RangerPolicyEngineOptions options = new RangerPolicyEngineOptions();
+        RangerPluginConfig        config  = new RangerPluginConfig(serviceDef.getName(), serviceName, APP_ID, null, null, options);
+        URL                       confUrl = BenchmarkFixtures.class.getResource(CONFIG_FILE);
+
+        if (confUrl != null) {
+            config.addResource(confUrl);
+        }
+
+        return new RangerPluginContext(config);
+    }
+
+    static String getDatabase(int tableIdx) { return "db_" + (tableIdx % DATABASE_COUNT); }
+
+    static String getTable(int tableIdx) { return "tbl_" + tableIdx; }
+
+    static String getColumn(int tableIdx) { return "col_" + (tableIdx % COLUMN_COUNT); }
+
+    private static RangerPolicy createPolicy(String serviceName, int idx, boolean useWildcards) {
+        Map<String, RangerPolicyResource> resources = new HashMap<>();
+
+        resources.put("database", new RangerPolicyResource(getDatabase(idx)));
+
+        if (useWildcards) {
+            resources.put("table", new RangerPolicyResource("tbl_" + (idx / 10) + "*"));
+            resources.put("column", new RangerPolicyResource("*"));
+        } else {
+            resources.put("table", new RangerPolicyResource(getTable(idx)));
+            resources.put("column", new RangerPolicyResource(getColumn(idx)));
+        }
+
+        List<RangerPolicyItemAccess> accesses   = Arrays.asList(new RangerPolicyItemAccess("select"), new RangerPolicyItemAccess("update"));
+        RangerPolicyItem             policyItem = new RangerPolicyItem(accesses, Collections.singletonList("user_" + (idx % USER_COUNT)), Collections.singletonList("group_" + (idx % GROUP_COUNT)), null, null, false);
+        RangerPolicy                 ret        = new RangerPolicy();
+
+        ret.setId((long) idx + 1);
+        ret.setService(serviceName);
+        ret.setName("benchmark-policy-" + idx);
+        ret.setResources(resources);
+        ret.setPolicyItems(Collections.singletonList(policyItem));
+
+        return ret;
+    }
+
+    private static <T> T readJson(String resourceName, Class<T> cls) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(resourceName)) {
+            if (in == null) {
+                throw new IllegalStateException(resourceName + ": not found in classpath");
+            }
+
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return GSON.fromJson(reader, cls);
+            }
+        } catch (IOException excp) {
+            throw new IllegalStateException(resourceName + ": failed to read", excp);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.geo.BinarySearchTree;
+import org.apache.ranger.plugin.geo.GeolocationIntervalIndex;
+import org.apache.ranger.plugin.geo.RangerGeolocationData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Geolocation database load and lookup: BinarySearchTree of RangerGeolocationData, as used before, against GeolocationIntervalIndex
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeolocationBenchmark {
+    public static final long     SEED      = 20170101L;
+    public static final String[] COUNTRIES = new String[] { "US", "CA", "IN", "CN", "UK", "DE", "FR", "JP", "BR", "AU" };
+
+    @State(Scope.Benchmark)
+    public static class GeolocationState {
+        @Param({ "1000", "10000", "100000" })
+        int rangeCount;
+
+        List<String[]>                                lines;
+        List<String>                                  addresses;
+        BinarySearchTree<RangerGeolocationData, Long> tree;
+        GeolocationIntervalIndex                      index;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(SEED);
+            long   next   = 1L << 24;
+
+            lines     = new ArrayList<>(rangeCount);
+            addresses = new ArrayList<>(10000);
+
+            for (int i = 0; i < rangeCount; i++) {
+                long   from    = next + random.nextInt(256);
+                long   to      = from + 256 + random.nextInt(4096);
+                String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+
+                lines.add(new String[] { RangerGeolocationData.unsignedIntToIPAddress(from), RangerGeolocationData.unsignedIntToIPAddress(to), country, country + "-" + random.nextInt(50) });
+
+                next = to + 1;
+            }
+
+            for (int i = 0; i < 10000; i++) {
+                addresses.add(RangerGeolocationData.unsignedIntToIPAddress((1L << 24) + (long) (random.nextDouble() * (next - (1L << 24)))));
+            }
+
+            // geolocation files are not required to be sorted
+            Collections.shuffle(lines, random);
+
+            tree  = loadTree(lines);
+            index = loadIndex(lines);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BinarySearchTree<RangerGeolocationData, Long> treeLoad(GeolocationState state) {
+        return loadTree(state.lines);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public GeolocationIntervalIndex indexLoad(GeolocationState state) {
+        return loadIndex(state.lines);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public RangerGeolocationData treeFind(GeolocationState state, RequestCursor cursor) {
+        String address = state.addresses.get(cursor.next(state.addresses.size()));
+
+        return RangerGeolocationData.validateAsIP(address, true) ? state.tree.find(RangerGeolocationData.ipAddressToLong(address)) : null;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public RangerGeolocationData indexFind(GeolocationState state, RequestCursor cursor) {
+        return state.index.find(state.addresses.get(cursor.next(state.addresses.size())));
+    }
+
+    static BinarySearchTree<RangerGeolocationData, Long> loadTree(List<String[]> lines) {
+        BinarySearchTree<RangerGeolocationData, Long> ret = new BinarySearchTree<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            RangerGeolocationData data = RangerGeolocationData.create(lines.get(i), i, true);
+
+            if (data != null) {
+                ret.insert(data);
+            }
+        }
+
+        // lines are shuffled, so the tree is balanced on average without rebalance(), which is not public
+        return ret;
+    }
+
+    static GeolocationIntervalIndex loadIndex(List<String[]> lines) {
+        GeolocationIntervalIndex.Builder builder = new GeolocationIntervalIndex.Builder();
+
+        for (String[] fields : lines) {
+            builder.add(fields, true);
+        }
+
+        return builder.build();
+    }
+}
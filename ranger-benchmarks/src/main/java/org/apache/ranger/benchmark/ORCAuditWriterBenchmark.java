@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.orc.Writer;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.model.EnumRepositoryType;
+import org.apache.ranger.audit.utils.ORCFileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ORCFileUtil.log(), which copies audit events into the columns of the ORC row batch: reports events/sec. The ORC
+ * writer discards the batches, to measure only the copy into columns; useEventBinder=false uses the earlier
+ * reflection based copy. Run with "-prof gc" for bytes allocated per event (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ORCAuditWriterBenchmark {
+    static final int EVENT_COUNT = 10000;
+
+    @State(Scope.Benchmark)
+    public static class ORCWriterState {
+        @Param({ "true", "false" })
+        public boolean useEventBinder;
+
+        ORCFileUtil           orcFileUtil;
+        Writer                writer;
+        List<AuthzAuditEvent> events;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            orcFileUtil = new ORCFileUtil();
+
+            orcFileUtil.init(1000, 64 * 1024 * 1024L, "none");
+            orcFileUtil.setUseEventBinder(useEventBinder);
+
+            writer = (Writer) Proxy.newProxyInstance(Writer.class.getClassLoader(), new Class<?>[] { Writer.class }, (proxy, method, args) -> null);
+            events = createEvents(EVENT_COUNT);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENT_COUNT)
+    public void log(ORCWriterState state) throws Exception {
+        state.orcFileUtil.log(state.writer, state.events);
+    }
+
+    // fixed seed, with users, access types and results from small sets, as in audits from a busy service
+    static List<AuthzAuditEvent> createEvents(int count) {
+        List<AuthzAuditEvent> ret       = new ArrayList<>(count);
+        Random                random    = new Random(BenchmarkFixtures.SEED);
+        long                  eventTime = System.currentTimeMillis();
+
+        for (int i = 0; i < count; i++) {
+            AuthzAuditEvent event = new AuthzAuditEvent();
+
+            event.setRepositoryType(EnumRepositoryType.HIVE);
+            event.setRepositoryName("dev_hive");
+            event.setUser("user" + random.nextInt(50));
+            event.setEventTime(new Date(eventTime + i * 10L));
+            event.setAccessType(random.nextBoolean() ? "select" : "update");
+            event.setResourcePath("db" + random.nextInt(20) + "/tbl" + random.nextInt(1000) + "/col" + random.nextInt(30));
+            event.setResourceType("@column");
+            event.setAction(event.getAccessType());
+            event.setAccessResult((short) (random.nextInt(10) == 0 ? 0 : 1));
+            event.setAgentId("hiveServer2");
+            event.setPolicyId(random.nextInt(1000));
+            event.setResultReason(null);
+            event.setAclEnforcer("ranger-acl");
+            event.setSessionId("session-" + random.nextInt(100));
+            event.setClientType("HIVESERVER2");
+            event.setClientIP("10.20.30." + random.nextInt(255));
+            event.setRequestData("select col" + random.nextInt(30) + " from db" + random.nextInt(20) + ".tbl" + random.nextInt(1000));
+            event.setAgentHostname("host1.example.com");
+            event.setLogType("RangerAudit");
+            event.setEventId(Integer.toString(i));
+            event.setSeqNum(i);
+            event.setClusterName("cl1");
+
+            ret.add(event);
+        }
+
+        return ret;
+    }
+}
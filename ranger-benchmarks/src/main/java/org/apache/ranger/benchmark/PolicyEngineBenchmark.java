@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * RangerPolicyEngineImpl.evaluatePolicies(), for one request per call and for all requests in one call. Both report
+ * time per request. Evaluation preprocesses the request, so each call is given new copies of the requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolicyEngineBenchmark {
+    /*
+     * new copies of the requests for each batch; copying them is not measured
+     */
+    @State(Scope.Thread)
+    public static class BatchState {
+        List<RangerAccessRequest> requests;
+
+        @Setup(Level.Invocation)
+        public void setup(PolicyEngineState engineState) {
+            requests = BenchmarkFixtures.copyRequests(engineState.requests);
+        }
+    }
+
+    @Benchmark
+    public RangerAccessResult evaluatePolicies(PolicyEngineState state, RequestCursor cursor) {
+        RangerAccessRequest request = BenchmarkFixtures.copyRequest(state.requests.get(cursor.next(state.requests.size())));
+
+        return state.policyEngine.evaluatePolicies(request, RangerPolicy.POLICY_TYPE_ACCESS, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PolicyEngineState.REQUEST_COUNT)
+    public Collection<RangerAccessResult> evaluatePoliciesBatch(PolicyEngineState state, BatchState batch) {
+        return state.policyEngine.evaluatePolicies(batch.requests, RangerPolicy.POLICY_TYPE_ACCESS, null);
+    }
+}
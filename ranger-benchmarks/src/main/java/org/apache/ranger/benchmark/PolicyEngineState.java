@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyRepository;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/*
+ * A policy engine built from generated policies, and requests to evaluate with it; shared by all benchmark threads.
+ */
+@State(Scope.Benchmark)
+public class PolicyEngineState {
+    public static final int REQUEST_COUNT = 1000;
+
+    @Param({ "100", "1000", "10000" })
+    public int policyCount;
+
+    @Param({ "0", "20", "80" })
+    public int wildcardPercent;
+
+    public ServicePolicies           servicePolicies;
+    public RangerPluginContext       pluginContext;
+    public RangerPolicyEngineImpl    policyEngine;
+    public List<RangerAccessRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        servicePolicies = BenchmarkFixtures.createServicePolicies(policyCount, wildcardPercent);
+        pluginContext   = BenchmarkFixtures.createPluginContext(servicePolicies.getServiceDef(), servicePolicies.getServiceName());
+        policyEngine    = new RangerPolicyEngineImpl(servicePolicies, pluginContext, null);
+        requests        = BenchmarkFixtures.createRequests(REQUEST_COUNT, policyCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (policyEngine != null) {
+            policyEngine.releaseResources(true);
+
+            policyEngine = null;
+        }
+    }
+
+    public RangerPolicyRepository getPolicyRepository() {
+        return policyEngine.getPolicyEngine().getPolicyRepository();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * RangerDefaultPolicyEvaluator.evaluate() of the evaluators found by the trie lookup for each request, without the
+ * lookup itself. Reports time per request, for all of its evaluators.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolicyEvaluatorBenchmark {
+    @State(Scope.Benchmark)
+    public static class EvaluatorState {
+        List<RangerAccessRequest>         requests;
+        List<List<RangerPolicyEvaluator>> evaluators;
+
+        @Setup(Level.Trial)
+        public void setup(PolicyEngineState engineState) {
+            requests   = engineState.requests;
+            evaluators = new ArrayList<>(requests.size());
+
+            for (RangerAccessRequest request : requests) {
+                engineState.policyEngine.getRequestProcessor().preProcess(request); // as evaluatePolicies() would
+
+                evaluators.add(engineState.getPolicyRepository().getLikelyMatchPolicyEvaluators(request, RangerPolicy.POLICY_TYPE_ACCESS));
+            }
+        }
+    }
+
+    @Benchmark
+    public RangerAccessResult evaluate(PolicyEngineState engineState, EvaluatorState state, RequestCursor cursor) {
+        int                 idx     = cursor.next(state.requests.size());
+        RangerAccessRequest request = state.requests.get(idx);
+        RangerAccessResult  ret     = new RangerAccessResult(RangerPolicy.POLICY_TYPE_ACCESS, engineState.servicePolicies.getServiceName(), engineState.servicePolicies.getServiceDef(), request);
+
+        for (RangerPolicyEvaluator evaluator : state.evaluators.get(idx)) {
+            evaluator.evaluate(request, ret);
+
+            if (ret.getIsAccessDetermined() && ret.getIsAuditedDetermined()) {
+                break;
+            }
+        }
+
+        return ret;
+    }
+}
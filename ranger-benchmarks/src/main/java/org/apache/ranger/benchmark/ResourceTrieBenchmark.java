@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator.RangerPolicyResourceEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * RangerResourceTrie lookup of the table name in each request, in a trie of all generated policies
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceTrieBenchmark {
+    public static final String RESOURCE_NAME = "table";
+
+    @State(Scope.Benchmark)
+    public static class TrieState {
+        RangerResourceTrie<RangerPolicyResourceEvaluator> trie;
+        List<Object>                                      values;
+
+        @Setup(Level.Trial)
+        public void setup(PolicyEngineState engineState) {
+            List<RangerPolicyResourceEvaluator> resourceEvaluators = new ArrayList<>();
+
+            for (RangerPolicyEvaluator evaluator : engineState.getPolicyRepository().getPolicyEvaluators()) {
+                resourceEvaluators.addAll(evaluator.getResourceEvaluators());
+            }
+
+            RangerResourceDef resourceDef = null;
+
+            for (RangerResourceDef def : engineState.servicePolicies.getServiceDef().getResources()) {
+                if (RESOURCE_NAME.equals(def.getName())) {
+                    resourceDef = def;
+                }
+            }
+
+            trie   = new RangerResourceTrie<>(resourceDef, resourceEvaluators, false, engineState.pluginContext);
+            values = new ArrayList<>(engineState.requests.size());
+
+            for (RangerAccessRequest request : engineState.requests) {
+                values.add(request.getResource().getValue(RESOURCE_NAME));
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<RangerPolicyResourceEvaluator> getEvaluatorsForResource(TrieState state, RequestCursor cursor) {
+        return state.trie.getEvaluatorsForResource(state.values.get(cursor.next(state.values.size())));
+    }
+}
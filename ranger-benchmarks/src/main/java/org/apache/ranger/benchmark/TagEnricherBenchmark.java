@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmark;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * RangerTagEnricher.enrich(), with tags on a given number of tables. Half the requests are for tagged tables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagEnricherBenchmark {
+    @State(Scope.Benchmark)
+    public static class TagEnricherState {
+        @Param({ "1000", "10000", "100000" })
+        public int taggedResourceCount;
+
+        RangerTagEnricher         tagEnricher;
+        List<RangerAccessRequest> requests;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            ServicePolicies servicePolicies = BenchmarkFixtures.loadServicePolicies();
+
+            tagEnricher = new RangerTagEnricher();
+
+            tagEnricher.setServiceName(servicePolicies.getServiceName());
+            tagEnricher.setServiceDef(servicePolicies.getServiceDef());
+            tagEnricher.setAppId(BenchmarkFixtures.APP_ID);
+            tagEnricher.setPluginContext(BenchmarkFixtures.createPluginContext(servicePolicies.getServiceDef(), servicePolicies.getServiceName()));
+            tagEnricher.init();
+            tagEnricher.setServiceTags(BenchmarkFixtures.createServiceTags(servicePolicies.getServiceName(), taggedResourceCount));
+
+            requests = BenchmarkFixtures.createRequests(PolicyEngineState.REQUEST_COUNT, taggedResourceCount * 2);
+        }
+    }
+
+    @Benchmark
+    public Object enrich(TagEnricherState state, RequestCursor cursor) {
+        RangerAccessRequest request = BenchmarkFixtures.copyRequest(state.requests.get(cursor.next(state.requests.size())));
+
+        state.tagEnricher.enrich(request); // tags are added to the request context: use a new request each time
+
+        return request.getContext();
+    }
+}
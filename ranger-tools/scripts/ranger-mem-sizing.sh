@@ -24,6 +24,8 @@ MEMORY=1g
 # Usage:
 #  ranger-mem-sizing.sh -p policies.json -t tags.json -u userstore.json -r roles.json
 #
+#  To compare trie heap usage, run once each with "-c false" and "-c true" (compact trie nodes)
+#
 
 #
 #
@@ -27,7 +27,9 @@
 import org.apache.commons.cli.*;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.contextenricher.RangerUserStoreEnricher;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerResourceTrie;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.apache.ranger.plugin.util.RangerRoles;
 import org.apache.ranger.plugin.util.RangerUserStore;
@@ -54,6 +56,8 @@ public class RangerMemSizing {
   private final boolean     deDup;
   private final boolean     deDupStrings;
   private final String      optimizationMode;
+  private final boolean     compactTrieNodes;
+  private final boolean     indexUserStore;
   private final PrintStream out;
 
   public RangerMemSizing(CommandLine cmdLine) {
@@ -67,6 +71,8 @@ public RangerMemSizing(CommandLine cmdLine) {
     this.deDup            = Boolean.parseBoolean(cmdLine.getOptionValue("d", "true"));
     this.deDupStrings     = this.deDup;
     this.optimizationMode = StringUtils.startsWithIgnoreCase(cmdLine.getOptionValue('o', "space"), "s") ? OPT_MODE_SPACE : OPT_MODEL_RETRIEVAL;
+    this.compactTrieNodes = Boolean.parseBoolean(cmdLine.getOptionValue("c", "false"));
+    this.indexUserStore   = Boolean.parseBoolean(cmdLine.getOptionValue("i", "true"));
   }
 
   public void run() {
@@ -101,6 +107,8 @@ public void run() {
 
     out.println("  DeDup:     " + deDup);
     out.println("  OptMode:   " + optimizationMode);
+    out.println("  CompactTrieNodes: " + compactTrieNodes);
+    out.println("  IndexUserStore:   " + indexUserStore);
     out.println();
 
     out.println("Results:");
@@ -275,7 +283,14 @@ private RangerUserStore loadUserStore(String fileName, PerfMemTimeTracker parent
         loadTracker.addChild(tracker);
       }
 
-      if (deDupStrings) {
+      if (indexUserStore) {
+        PerfMemTimeTracker tracker = new PerfMemTimeTracker("IndexUserStore");
+
+        ret.buildUserStoreIndex(null);
+
+        tracker.stop();
+        loadTracker.addChild(tracker);
+      } else if (deDupStrings) {
         PerfMemTimeTracker tracker = new PerfMemTimeTracker("DeDupStrings");
 
         ret.dedupStrings();
@@ -351,6 +366,9 @@ private RangerBasePlugin createRangerPlugin(ServicePolicies policies, ServiceTag
       String             serviceName  = policies.getServiceName();
       RangerPluginConfig pluginConfig = new RangerPluginConfig(serviceType, serviceName, serviceType, null, null, getPolicyEngineOptions());
 
+      pluginConfig.setBoolean(RangerResourceTrie.TRIE_COMPACT_NODES, compactTrieNodes);
+      pluginConfig.setBoolean(pluginConfig.getPropertyPrefix() + RangerUserStoreEnricher.USERSTORE_INDEX_ATTRIBUTES_CONFIG_SUFFIX, indexUserStore);
+
       PerfMemTimeTracker tracker = new PerfMemTimeTracker("RangerBasePlugin initialization");
 
       log("Initializing RangerBasePlugin...");
@@ -373,6 +391,8 @@ private static CommandLine parseArgs(String[] args) {
     Option roles        = new Option("r", "roles", true, "roles file");
     Option userStore    = new Option("u", "userStore", true, "userStore file");
     Option optimizeMode = new Option("o", "optMode", true, "optimization mode: space|retrieval");
+    Option compactTrie  = new Option("c", "compactTrie", true, "use compact trie nodes: true|false; run with both values to compare heap usage");
+    Option indexUStore  = new Option("i", "indexUserStore", true, "use columnar index for user/group attributes: true|false; run with both values to compare heap usage");
 
     Options options = new Options();
 
@@ -383,6 +403,8 @@ private static CommandLine parseArgs(String[] args) {
     options.addOption(userStore);
     options.addOption(deDup);
     options.addOption(optimizeMode);
+    options.addOption(compactTrie);
+    options.addOption(indexUStore);
 
     try {
       CommandLine cmdLine = new DefaultParser().parse(options, args);
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.policyengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ranger.authorization.hadoop.config.RangerPluginConfig;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerPluginContext;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.util.RangerCommonConstants;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.policyengine.perftest.v2.RangerPolicyFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Measures authorization latency percentiles while a background thread continuously applies policy-deltas to the engine,
+ * once with read-write locked in-place updates and once with copy and publish updates, where the deltas are applied to a
+ * copy of the engine that shares the unchanged policy-evaluators and resource-trie nodes.
+ * Results are appended to target/ranger-policy-engine-delta-latency.csv.
+ */
+@RunWith(Parameterized.class)
+public class RangerPolicyEngineDeltaUpdatePerformanceTest {
+
+	private static final int  NUMBER_OF_POLICIES      = 1_000;
+	private static final int  WARM_UP__ITERATIONS     = 30_000;
+	private static final long MEASUREMENT_DURATION_MS = 10_000;
+	private static final int  MAX_SAMPLES_PER_THREAD  = 200_000;
+
+	@Parameter(0)
+	public Boolean isInPlaceUpdates;
+
+	@Parameter(1)
+	public Integer concurrency;
+
+	@Parameters(name = "{index}: deltaUpdates(inPlace: {0}, concurrent calls: {1})")
+	public static Iterable<Object[]> data() {
+		return Arrays.asList(new Object[][] {
+				{ Boolean.FALSE, 10 },
+				{ Boolean.TRUE,  10 },
+				{ Boolean.FALSE, 50 },
+				{ Boolean.TRUE,  50 },
+		});
+	}
+
+	@BeforeClass
+	public static void init() throws IOException {
+		Files.write("in-place;concurrency;deltas-applied;requests;p50-us;p99-us;p999-us;max-us;\n", outputFile(), Charsets.UTF_8);
+	}
+
+	@Test
+	public void deltaUpdateLatencyTest() throws Exception {
+		final ServicePolicies           servicePolicies = RangerPolicyFactory.createServicePolicy(NUMBER_OF_POLICIES);
+		final List<RangerAccessRequest> requests        = RangerPolicyFactory.createAccessRequests(concurrency);
+		final RangerPluginConfig        pluginConfig    = new RangerPluginConfig("hive", null, "perf-test", "cl1", "on-prem", RangerPolicyFactory.createPolicyEngineOption());
+
+		pluginConfig.setBoolean(pluginConfig.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_POLICY_DELTA, true);
+		pluginConfig.setBoolean(pluginConfig.getPropertyPrefix() + RangerCommonConstants.PLUGIN_CONFIG_SUFFIX_IN_PLACE_POLICY_UPDATES, isInPlaceUpdates);
+
+		servicePolicies.setPolicyVersion(1L);
+
+		for (RangerPolicy policy : servicePolicies.getPolicies()) {
+			policy.setServiceType(servicePolicies.getServiceDef().getName());
+		}
+
+		final RangerPluginContext pluginContext = new RangerPluginContext(pluginConfig);
+		final EngineHolder        holder        = new EngineHolder(new RangerPolicyEngineImpl(servicePolicies, pluginContext, null));
+
+		for (int iterations = 0; iterations < WARM_UP__ITERATIONS; iterations++) {
+			System.identityHashCode(holder.engine.evaluatePolicies(requests.get(iterations % concurrency), RangerPolicy.POLICY_TYPE_ACCESS, null));
+		}
+
+		final AtomicBoolean  isDone        = new AtomicBoolean(false);
+		final AtomicLong     deltasApplied = new AtomicLong();
+		final CountDownLatch latch         = new CountDownLatch(concurrency);
+		final long[][]       samples       = new long[concurrency][];
+		final int[]          sampleCounts  = new int[concurrency];
+
+		Thread deltaThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				List<RangerPolicy> policies      = servicePolicies.getPolicies();
+				long               policyVersion = servicePolicies.getPolicyVersion();
+
+				while (!isDone.get()) {
+					RangerPolicy    policy = policies.get((int) (deltasApplied.get() % policies.size()));
+					ServicePolicies deltas = new ServicePolicies();
+
+					policyVersion++;
+
+					deltas.setServiceName(servicePolicies.getServiceName());
+					deltas.setServiceDef(servicePolicies.getServiceDef());
+					deltas.setPolicyVersion(policyVersion);
+					deltas.setPolicyDeltas(Collections.singletonList(new RangerPolicyDelta(policy.getId(), RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, policyVersion, policy)));
+
+					RangerPolicyEngine newEngine = RangerPolicyEngineImpl.getPolicyEngine((RangerPolicyEngineImpl) holder.engine, deltas);
+
+					if (newEngine != null) {
+						holder.engine = newEngine;
+
+						deltasApplied.incrementAndGet();
+					}
+				}
+			}
+		}, "Delta updater");
+
+		for (int i = 0; i < concurrency; i++) {
+			final int                 threadIdx           = i;
+			final RangerAccessRequest rangerAccessRequest = requests.get(i);
+
+			samples[i] = new long[MAX_SAMPLES_PER_THREAD];
+
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					long[] threadSamples = samples[threadIdx];
+					int    count         = 0;
+
+					while (!isDone.get() && count < threadSamples.length) {
+						long startTime = System.nanoTime();
+
+						System.identityHashCode(holder.engine.evaluatePolicies(rangerAccessRequest, RangerPolicy.POLICY_TYPE_ACCESS, null));
+
+						threadSamples[count++] = System.nanoTime() - startTime;
+					}
+
+					sampleCounts[threadIdx] = count;
+
+					latch.countDown();
+				}
+			}, String.format("Client #%s", i)).start();
+		}
+
+		deltaThread.start();
+
+		TimeUnit.MILLISECONDS.sleep(MEASUREMENT_DURATION_MS);
+
+		isDone.set(true);
+		latch.await();
+		deltaThread.join();
+
+		int totalSamples = 0;
+
+		for (int count : sampleCounts) {
+			totalSamples += count;
+		}
+
+		long[] allSamples = new long[totalSamples];
+
+		for (int i = 0, pos = 0; i < concurrency; pos += sampleCounts[i], i++) {
+			System.arraycopy(samples[i], 0, allSamples, pos, sampleCounts[i]);
+		}
+
+		Arrays.sort(allSamples);
+
+		Files.append(String.format("%s;%s;%s;%s;%s;%s;%s;%s;\n", isInPlaceUpdates, concurrency, deltasApplied.get(), allSamples.length,
+				percentileMicros(allSamples, 50.0), percentileMicros(allSamples, 99.0), percentileMicros(allSamples, 99.9), percentileMicros(allSamples, 100.0)),
+				outputFile(), Charsets.UTF_8);
+	}
+
+	private static long percentileMicros(long[] sortedSamples, double percentile) {
+		if (sortedSamples.length == 0) {
+			return 0;
+		}
+
+		int idx = (int) Math.ceil(percentile / 100.0 * sortedSamples.length) - 1;
+
+		return TimeUnit.NANOSECONDS.toMicros(sortedSamples[Math.max(0, Math.min(idx, sortedSamples.length - 1))]);
+	}
+
+	private static File outputFile() {
+		return new File("target", "ranger-policy-engine-delta-latency.csv");
+	}
+
+	// stands in for the policy-engine reference held by RangerBasePlugin
+	private static final class EngineHolder {
+		volatile RangerPolicyEngine engine;
+
+		EngineHolder(RangerPolicyEngine engine) {
+			this.engine = engine;
+		}
+	}
+}